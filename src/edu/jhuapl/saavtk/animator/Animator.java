@@ -3,19 +3,16 @@ package edu.jhuapl.saavtk.animator;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.swing.Timer;
 
+import edu.jhuapl.saavtk.gui.render.ImageEncoder;
+import edu.jhuapl.saavtk.gui.render.RenderIoUtil;
 import edu.jhuapl.saavtk.gui.render.Renderer;
-import vtk.vtkBMPWriter;
-import vtk.vtkJPEGWriter;
-import vtk.vtkPNGWriter;
-import vtk.vtkPNMWriter;
-import vtk.vtkPostScriptWriter;
-import vtk.vtkTIFFWriter;
 import vtk.vtkWindowToImageFilter;
 import vtk.rendering.jogl.vtkJoglPanelComponent;
 
@@ -48,6 +45,8 @@ public class Animator implements ActionListener
 
     private File file;
 
+    private final ImageEncoder encoder;
+
 	/**
 	 * @param renderer
 	 * @param runs
@@ -55,6 +54,7 @@ public class Animator implements ActionListener
 	public Animator(Renderer renderer)
 	{
 		this.renderer = renderer;
+		this.encoder = ImageEncoder.of(ImageEncoder.DefaultParallelism);
 	}
 
 	// creates animation frame with data to move the camera
@@ -94,52 +94,7 @@ public class Animator implements ActionListener
                 vtkWindowToImageFilter windowToImage = new vtkWindowToImageFilter();
                 windowToImage.SetInput(renWin.getRenderWindow());
 
-                String filename = file.getAbsolutePath();
-                if (filename.toLowerCase().endsWith("bmp"))
-                {
-                    vtkBMPWriter writer = new vtkBMPWriter();
-                    writer.SetFileName(filename);
-                    writer.SetInputConnection(windowToImage.GetOutputPort());
-                    writer.Write();
-                }
-                else if (filename.toLowerCase().endsWith("jpg") ||
-                        filename.toLowerCase().endsWith("jpeg"))
-                {
-                    vtkJPEGWriter writer = new vtkJPEGWriter();
-                    writer.SetFileName(filename);
-                    writer.SetInputConnection(windowToImage.GetOutputPort());
-                    writer.Write();
-                }
-                else if (filename.toLowerCase().endsWith("png"))
-                {
-                    vtkPNGWriter writer = new vtkPNGWriter();
-                    writer.SetFileName(filename);
-                    writer.SetInputConnection(windowToImage.GetOutputPort());
-                    writer.Write();
-                }
-                else if (filename.toLowerCase().endsWith("pnm"))
-                {
-                    vtkPNMWriter writer = new vtkPNMWriter();
-                    writer.SetFileName(filename);
-                    writer.SetInputConnection(windowToImage.GetOutputPort());
-                    writer.Write();
-                }
-                else if (filename.toLowerCase().endsWith("ps"))
-                {
-                    vtkPostScriptWriter writer = new vtkPostScriptWriter();
-                    writer.SetFileName(filename);
-                    writer.SetInputConnection(windowToImage.GetOutputPort());
-                    writer.Write();
-                }
-                else if (filename.toLowerCase().endsWith("tif") ||
-                        filename.toLowerCase().endsWith("tiff"))
-                {
-                    vtkTIFFWriter writer = new vtkTIFFWriter();
-                    writer.SetFileName(filename);
-                    writer.SetInputConnection(windowToImage.GetOutputPort());
-                    writer.SetCompressionToNoCompression();
-                    writer.Write();
-                }
+                RenderIoUtil.writeImage(windowToImage.GetOutputPort(), file);
                 renWin.getVTKLock().unlock();
             }
             finally
@@ -163,7 +118,8 @@ public class Animator implements ActionListener
         {
             if (frame.staged && frame.file != null)
             {
-                saveToFile(frame.file, renderer.getRenderWindowPanel());
+                // Only the read-back happens here; the frame is written in the background
+                RenderIoUtil.captureToFile(frame.file, renderer.getRenderWindowPanel(), encoder);
                 animationFrameQueue.remove();
 
             }
@@ -180,7 +136,10 @@ public class Animator implements ActionListener
         }
         else
         {
-        	new Thread(movieBlock).start();
+        	new Thread(() -> {
+        		awaitFrames();
+        		movieBlock.run();
+        	}).start();
         }
 
     }
@@ -214,8 +173,28 @@ public class Animator implements ActionListener
         this.actionPerformed(null);
     }
     
+    /**
+     * Waits until all captured frames have been written.
+     */
+    private void awaitFrames()
+    {
+        try
+        {
+            encoder.awaitAll();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void cleanup()
     {
+    	awaitFrames();
     	for (String filename : filenames)
 		{
 			new File(filename).delete();
@@ -0,0 +1,225 @@
+package edu.jhuapl.saavtk.gui.render;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FilenameUtils;
+
+import com.google.common.base.Preconditions;
+
+import vtk.vtkImageData;
+import vtk.vtkRenderWindow;
+import vtk.vtkResizingWindowToImageFilter;
+import vtk.vtkUnsignedCharArray;
+
+/**
+ * Encodes rendered frames to image files on a pool of background threads.
+ * <p>
+ * Reading the pixels back from a render window has to happen on the thread
+ * that owns the window's OpenGL context, but compressing them to PNG or JPEG
+ * does not. The capture methods copy the pixels into a Java array and return
+ * immediately; the file is written later by one of the encoding threads, so the
+ * rendering thread (often the EDT) can move on to the next frame.
+ * <p>
+ * Formats supported by {@link ImageIO} (png, jpg, bmp, gif, tif) are encoded in
+ * the background. Other formats (pnm, ps) are written synchronously with the
+ * corresponding VTK writer. The threads are daemon threads, so an encoder does
+ * not need to be shut down.
+ */
+public class ImageEncoder
+{
+	/**
+	 * Default maximum number of frames encoded at once.
+	 */
+	public static final int DefaultParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+	private static final AtomicInteger ThreadCount = new AtomicInteger();
+
+	public static ImageEncoder of(int aMaxParallelism)
+	{
+		Preconditions.checkArgument(aMaxParallelism > 0);
+
+		return new ImageEncoder(aMaxParallelism);
+	}
+
+	/**
+	 * Returns true if files with the name of the specified file are encoded in the
+	 * background.
+	 */
+	public static boolean isSupported(File aFile)
+	{
+		String extension = FilenameUtils.getExtension(aFile.getName()).toLowerCase();
+
+		return !extension.isEmpty() && ImageIO.getImageWritersBySuffix(extension).hasNext();
+	}
+
+	/**
+	 * Converts pixels as read back from VTK (packed RGB, bottom row first) to a
+	 * {@link BufferedImage}.
+	 */
+	public static BufferedImage toBufferedImage(int aWidth, int aHeight, byte[] aRgbArr)
+	{
+		Preconditions.checkArgument(aRgbArr.length == 3 * aWidth * aHeight);
+
+		BufferedImage retImage = new BufferedImage(aWidth, aHeight, BufferedImage.TYPE_INT_RGB);
+		int[] rowArr = new int[aWidth];
+		for (int y = 0; y < aHeight; y++)
+		{
+			int offset = 3 * aWidth * (aHeight - 1 - y);
+			for (int x = 0; x < aWidth; x++, offset += 3)
+				rowArr[x] = (aRgbArr[offset] & 0xff) << 16 | (aRgbArr[offset + 1] & 0xff) << 8 | (aRgbArr[offset + 2] & 0xff);
+			retImage.setRGB(0, y, aWidth, 1, rowArr, 0, aWidth);
+		}
+
+		return retImage;
+	}
+
+	// State vars
+	private final ThreadPoolExecutor executor;
+	private final Queue<CompletableFuture<Void>> pendingQ;
+	private final Queue<Throwable> failureQ;
+
+	protected ImageEncoder(int aMaxParallelism)
+	{
+		executor = new ThreadPoolExecutor(aMaxParallelism, aMaxParallelism, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), aRunnable -> {
+			Thread tmpThread = new Thread(aRunnable, "ImageEncoder-" + ThreadCount.incrementAndGet());
+			tmpThread.setDaemon(true);
+			return tmpThread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		pendingQ = new ConcurrentLinkedQueue<>();
+		failureQ = new ConcurrentLinkedQueue<>();
+	}
+
+	/**
+	 * Reads the pixels of the specified render window, shrunk by the specified
+	 * factor in each direction, and queues them to be written to the specified
+	 * file. Must be called on the thread that renders the window, with its OpenGL
+	 * context current. A divider of 2 writes the image of a window on a HiDPI
+	 * screen at the size the window has on the screen.
+	 *
+	 * @return a future that completes with the file once it has been written
+	 */
+	public CompletableFuture<File> capture(vtkRenderWindow aRenWin, int aDivider, File aFile)
+	{
+		Preconditions.checkArgument(aDivider > 0);
+
+		int[] sizeArr = aRenWin.GetSize();
+		vtkResizingWindowToImageFilter windowToImage = new vtkResizingWindowToImageFilter();
+		windowToImage.SetSize(sizeArr[0] / aDivider, sizeArr[1] / aDivider);
+		windowToImage.SetInput(aRenWin);
+
+		try
+		{
+			if (isSupported(aFile) == false)
+			{
+				RenderIoUtil.writeImage(windowToImage.GetOutputPort(), aFile);
+				return CompletableFuture.completedFuture(aFile);
+			}
+
+			windowToImage.Update();
+			vtkImageData vImage = windowToImage.GetOutput();
+			int[] dimArr = vImage.GetDimensions();
+			vtkUnsignedCharArray vScalars = (vtkUnsignedCharArray) vImage.GetPointData().GetScalars();
+
+			return submit(dimArr[0], dimArr[1], vScalars.GetJavaArray(), aFile);
+		}
+		finally
+		{
+			windowToImage.Delete();
+		}
+	}
+
+	/**
+	 * Queues pixels (packed RGB, bottom row first) to be written to the specified
+	 * file. The format is chosen from the extension of the file.
+	 *
+	 * @return a future that completes with the file once it has been written
+	 */
+	public CompletableFuture<File> submit(int aWidth, int aHeight, byte[] aRgbArr, File aFile)
+	{
+		Preconditions.checkArgument(isSupported(aFile), "Unsupported image format: %s", aFile);
+
+		String format = FilenameUtils.getExtension(aFile.getName()).toLowerCase();
+		CompletableFuture<File> retFuture = CompletableFuture.supplyAsync(() -> {
+			try
+			{
+				BufferedImage tmpImage = toBufferedImage(aWidth, aHeight, aRgbArr);
+				if (ImageIO.write(tmpImage, format, aFile) == false)
+					throw new IOException("No image writer for " + aFile);
+				return aFile;
+			}
+			catch (IOException aExp)
+			{
+				throw new UncheckedIOException(aExp);
+			}
+		}, executor);
+
+		// Completes once the outcome has been recorded
+		CompletableFuture<Void> doneFuture = new CompletableFuture<>();
+		pendingQ.add(doneFuture);
+		retFuture.whenComplete((aResult, aExp) -> {
+			if (aExp != null)
+				failureQ.add(aExp.getCause() instanceof UncheckedIOException ? aExp.getCause().getCause() : aExp);
+			pendingQ.remove(doneFuture);
+			doneFuture.complete(null);
+		});
+
+		return retFuture;
+	}
+
+	/**
+	 * Returns the number of frames waiting to be or being encoded.
+	 */
+	public int getPendingCount()
+	{
+		return pendingQ.size();
+	}
+
+	/**
+	 * Waits until every frame submitted so far has been written.
+	 *
+	 * @throws IOException if any of the frames submitted since the last call could
+	 *                     not be written. All frames are waited for even if one of
+	 *                     them fails.
+	 */
+	public void awaitAll() throws IOException, InterruptedException
+	{
+		for (CompletableFuture<Void> aFuture : pendingQ)
+		{
+			try
+			{
+				aFuture.get();
+			}
+			catch (ExecutionException aExp)
+			{
+				// Never completed exceptionally; failures are recorded in failureQ
+			}
+		}
+
+		IOException retExp = null;
+		for (Throwable aCause = failureQ.poll(); aCause != null; aCause = failureQ.poll())
+		{
+			if (retExp == null)
+				retExp = aCause instanceof IOException ? (IOException) aCause : new IOException(aCause);
+			else
+				retExp.addSuppressed(aCause);
+		}
+
+		if (retExp != null)
+			throw retExp;
+	}
+
+}
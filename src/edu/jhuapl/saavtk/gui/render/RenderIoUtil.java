@@ -1,6 +1,7 @@
 package edu.jhuapl.saavtk.gui.render;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.io.FilenameUtils;
 
@@ -13,6 +14,7 @@ import edu.jhuapl.saavtk.gui.render.axes.AxesPanel;
 import edu.jhuapl.saavtk.model.PolyhedralModel;
 import edu.jhuapl.saavtk.util.MathUtil;
 import edu.jhuapl.saavtk.util.ScreenUtil;
+import vtk.vtkAlgorithmOutput;
 import vtk.vtkBMPWriter;
 import vtk.vtkCamera;
 import vtk.vtkJPEGWriter;
@@ -143,6 +145,89 @@ public class RenderIoUtil
 //		}
 	}
 
+	/**
+	 * Captures the contents of the specified panel and queues them to be written
+	 * to the specified file by the specified {@link ImageEncoder}. Unlike
+	 * {@link #saveToFile(File, vtkJoglPanelComponent, AxesPanel)}, the calling
+	 * thread only waits for the pixels to be read back, not for the file to be
+	 * written. As with saveToFile, the image of a panel on a HiDPI screen is
+	 * written at the size the panel has on the screen.
+	 *
+	 * @return a future that completes with the file once it has been written
+	 */
+	public static CompletableFuture<File> captureToFile(File aFile, vtkJoglPanelComponent aRenWin, ImageEncoder aEncoder)
+	{
+		GLContext glContext = aRenWin.getComponent().getContext();
+		if (glContext != null)
+			glContext.makeCurrent();
+
+		aRenWin.getVTKLock().lock();
+		try
+		{
+			int divider = ScreenUtil.getScreenScale(aRenWin) != 1 ? 2 : 1;
+			return aEncoder.capture(aRenWin.getRenderWindow(), divider, aFile);
+		}
+		finally
+		{
+			aRenWin.getVTKLock().unlock();
+			if (glContext != null)
+				glContext.release();
+		}
+	}
+
+	/**
+	 * Writes the image produced by the specified output port to the specified
+	 * file. The format is chosen from the extension of the file: bmp, jpg, png,
+	 * pnm, ps or tif. Nothing is written for any other extension.
+	 */
+	public static void writeImage(vtkAlgorithmOutput aImagePort, File aFile)
+	{
+		String filename = aFile.getAbsolutePath();
+		if (filename.toLowerCase().endsWith("bmp"))
+		{
+			vtkBMPWriter writer = new vtkBMPWriter();
+			writer.SetFileName(filename);
+			writer.SetInputConnection(aImagePort);
+			writer.Write();
+		}
+		else if (filename.toLowerCase().endsWith("jpg") || filename.toLowerCase().endsWith("jpeg"))
+		{
+			vtkJPEGWriter writer = new vtkJPEGWriter();
+			writer.SetFileName(filename);
+			writer.SetInputConnection(aImagePort);
+			writer.Write();
+		}
+		else if (filename.toLowerCase().endsWith("png"))
+		{
+			vtkPNGWriter writer = new vtkPNGWriter();
+			writer.SetFileName(filename);
+			writer.SetInputConnection(aImagePort);
+			writer.Write();
+		}
+		else if (filename.toLowerCase().endsWith("pnm"))
+		{
+			vtkPNMWriter writer = new vtkPNMWriter();
+			writer.SetFileName(filename);
+			writer.SetInputConnection(aImagePort);
+			writer.Write();
+		}
+		else if (filename.toLowerCase().endsWith("ps"))
+		{
+			vtkPostScriptWriter writer = new vtkPostScriptWriter();
+			writer.SetFileName(filename);
+			writer.SetInputConnection(aImagePort);
+			writer.Write();
+		}
+		else if (filename.toLowerCase().endsWith("tif") || filename.toLowerCase().endsWith("tiff"))
+		{
+			vtkTIFFWriter writer = new vtkTIFFWriter();
+			writer.SetFileName(filename);
+			writer.SetInputConnection(aImagePort);
+			writer.SetCompressionToNoCompression();
+			writer.Write();
+		}
+	}
+
 	protected static void saveToFile(File aFile, vtkJoglPanelComponent aRenWin)
 	{
 		if (aFile == null)
@@ -168,50 +253,7 @@ public class RenderIoUtil
 			windowToImage.SetSize(aRenWin.getRenderWindow().GetSize()[0]/divider, aRenWin.getRenderWindow().GetSize()[1]/divider);
 			windowToImage.SetInput(aRenWin.getRenderWindow());
 
-			String filename = aFile.getAbsolutePath();
-			if (filename.toLowerCase().endsWith("bmp"))
-			{
-				vtkBMPWriter writer = new vtkBMPWriter();
-				writer.SetFileName(filename);
-				writer.SetInputConnection(windowToImage.GetOutputPort());
-				writer.Write();
-			}
-			else if (filename.toLowerCase().endsWith("jpg") || filename.toLowerCase().endsWith("jpeg"))
-			{
-				vtkJPEGWriter writer = new vtkJPEGWriter();
-				writer.SetFileName(filename);
-				writer.SetInputConnection(windowToImage.GetOutputPort());
-				writer.Write();
-			}
-			else if (filename.toLowerCase().endsWith("png"))
-			{
-				vtkPNGWriter writer = new vtkPNGWriter();
-				writer.SetFileName(filename);
-				writer.SetInputConnection(windowToImage.GetOutputPort());
-				writer.Write();
-			}
-			else if (filename.toLowerCase().endsWith("pnm"))
-			{
-				vtkPNMWriter writer = new vtkPNMWriter();
-				writer.SetFileName(filename);
-				writer.SetInputConnection(windowToImage.GetOutputPort());
-				writer.Write();
-			}
-			else if (filename.toLowerCase().endsWith("ps"))
-			{
-				vtkPostScriptWriter writer = new vtkPostScriptWriter();
-				writer.SetFileName(filename);
-				writer.SetInputConnection(windowToImage.GetOutputPort());
-				writer.Write();
-			}
-			else if (filename.toLowerCase().endsWith("tif") || filename.toLowerCase().endsWith("tiff"))
-			{
-				vtkTIFFWriter writer = new vtkTIFFWriter();
-				writer.SetFileName(filename);
-				writer.SetInputConnection(windowToImage.GetOutputPort());
-				writer.SetCompressionToNoCompression();
-				writer.Write();
-			}
+			writeImage(windowToImage.GetOutputPort(), aFile);
 			aRenWin.getVTKLock().unlock();
 		}
 		catch (Exception e)
@@ -11,12 +11,15 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.io.File;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.swing.BorderFactory;
@@ -312,7 +315,9 @@ public class Renderer extends JPanel implements ActionListener, CameraActionList
 		return actors;
 	}
 
+	private final ImageEncoder imageEncoder = ImageEncoder.of(ImageEncoder.DefaultParallelism);
 	private BlockingQueue<CameraFrame> cameraFrameQueue;
+	private List<CompletableFuture<File>> savedViewFutureL;
 
 	public void save6ViewsToFile()
 	{
@@ -362,6 +367,7 @@ public class Renderer extends JPanel implements ActionListener, CameraActionList
 		}
 
 		cameraFrameQueue = new LinkedBlockingQueue<CameraFrame>();
+		savedViewFutureL = new ArrayList<>();
 
 		for (int i = 0; i < 6; i++)
 		{
@@ -611,7 +617,8 @@ public class Renderer extends JPanel implements ActionListener, CameraActionList
 		{
 			if (frame.staged && frame.file != null)
 			{
-				RenderIoUtil.saveToFile(frame.file, mainCanvas /*, mainCanvas.getAxesPanel()*/);
+				// Only the read-back happens on the EDT; the image is written in the background
+				savedViewFutureL.add(RenderIoUtil.captureToFile(frame.file, mainCanvas, imageEncoder));
 				cameraFrameQueue.remove();
 			}
 			else
@@ -624,7 +631,23 @@ public class Renderer extends JPanel implements ActionListener, CameraActionList
 			timer.setRepeats(false);
 			timer.start();
 		}
+		else
+		{
+			// Report a failure once all views have been written
+			List<CompletableFuture<File>> tmpFutureL = savedViewFutureL;
+			CompletableFuture.allOf(tmpFutureL.toArray(new CompletableFuture<?>[0])).whenComplete((aVoid, aExp) -> {
+				if (aExp == null)
+					return;
 
+				Throwable tmpCause = aExp instanceof CompletionException ? aExp.getCause() : aExp;
+				if (tmpCause instanceof UncheckedIOException)
+					tmpCause = tmpCause.getCause();
+				tmpCause.printStackTrace();
+				String tmpMsg = "Unable to save the six views: " + tmpCause.getMessage();
+				SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(JOptionPane.getFrameForComponent(this),
+						tmpMsg, "Error Saving Files", JOptionPane.ERROR_MESSAGE));
+			});
+		}
 	}
 
 	@Override
@@ -0,0 +1,295 @@
+package edu.jhuapl.saavtk.illum;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Rotation;
+import org.apache.commons.math3.geometry.euclidean.threed.RotationConvention;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.saavtk.model.plateColoring.ColoringData;
+import edu.jhuapl.saavtk.model.plateColoring.ColoringDataFactory;
+import edu.jhuapl.saavtk.model.plateColoring.LoadableColoringData;
+import edu.jhuapl.saavtk.util.file.ColumnarIndexableTuple;
+
+/**
+ * Accumulates the insolation of every face of a shape model over a series of
+ * {@link IlluminationField} samples, for example the sun directions over one
+ * rotation of the body. Each sample has a duration; fluxes are assumed to be in
+ * W/m^2 and durations in seconds.
+ * <p>
+ * Only the running totals are kept, so memory use does not depend on the number
+ * of samples. The face geometry and shadow-ray search tree of the
+ * {@link PolyhedralModelIlluminator} are reused for every sample. A batch of
+ * samples is evaluated in parallel: the faces are split into chunks, and each
+ * chunk is run through every sample of the batch on its own thread.
+ * <p>
+ * Non-uniform fields are queried from several threads at once, so they must be
+ * thread-safe.
+ */
+public class InsolationAccumulator
+{
+	/**
+	 * The quantities that can be obtained as {@link ColoringData}.
+	 */
+	public enum Product
+	{
+		CUMULATIVE("Cumulative insolation", "J/m^2"),
+		AVERAGE("Average insolation", "W/m^2"),
+		LIT_FRACTION("Illuminated fraction", "");
+
+		private final String name;
+		private final String units;
+
+		private Product(String name, String units)
+		{
+			this.name = name;
+			this.units = units;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public String getUnits()
+		{
+			return units;
+		}
+	}
+
+	// Number of faces processed by one task.
+	private static final int ChunkSize = 4096;
+
+	private final PolyhedralModelIlluminator illuminator;
+	private final double[] cumulativeInsolation;
+	private final double[] litDuration;
+	private double totalDuration;
+	private int numberSamples;
+
+	public InsolationAccumulator(PolyhedralModelIlluminator illuminator)
+	{
+		this.illuminator = Preconditions.checkNotNull(illuminator);
+		this.cumulativeInsolation = new double[illuminator.getNumberOfFaces()];
+		this.litDuration = new double[illuminator.getNumberOfFaces()];
+		this.totalDuration = 0.;
+		this.numberSamples = 0;
+	}
+
+	/**
+	 * Add one sample.
+	 *
+	 * @param illumField the illumination field
+	 * @param duration   the length of time the sample represents, in seconds
+	 */
+	public void add(IlluminationField illumField, double duration)
+	{
+		addAll(ImmutableList.of(illumField), duration);
+	}
+
+	/**
+	 * Add a batch of samples that each represent the same length of time.
+	 *
+	 * @param illumFields the illumination fields
+	 * @param duration    the length of time each sample represents, in seconds
+	 */
+	public synchronized void addAll(List<? extends IlluminationField> illumFields, double duration)
+	{
+		Preconditions.checkArgument(duration >= 0.);
+
+		int numberFields = illumFields.size();
+
+		// Uniform fields have the same direction and magnitude for every face.
+		double[][] uniformFluxes = new double[numberFields][];
+		for (int field = 0; field < numberFields; ++field)
+		{
+			IlluminationField illumField = illumFields.get(field);
+			if (illumField instanceof UniformIlluminationField)
+			{
+				uniformFluxes[field] = getFlux(((UniformIlluminationField) illumField).getFlux());
+			}
+		}
+
+		int numberFaces = cumulativeInsolation.length;
+		int numberChunks = (numberFaces + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			int[] stack = illuminator.createStack();
+
+			int begin = chunk * ChunkSize;
+			int end = Math.min(numberFaces, begin + ChunkSize);
+			for (int field = 0; field < numberFields; ++field)
+			{
+				IlluminationField illumField = illumFields.get(field);
+				double[] uniformFlux = uniformFluxes[field];
+				for (int faceId = begin; faceId < end; ++faceId)
+				{
+					double[] flux = uniformFlux != null ? uniformFlux : getFlux(illumField.getUnobstructedFlux(illuminator.getFaceCenter(faceId)));
+
+					// A source with no flux lights nothing.
+					if (flux[3] == 0.)
+						continue;
+
+					double factor = illuminator.computeIlluminationFactor(faceId, flux[0], flux[1], flux[2], stack);
+					if (factor > 0.)
+					{
+						cumulativeInsolation[faceId] += flux[3] * factor * duration;
+						litDuration[faceId] += duration;
+					}
+				}
+			}
+		});
+
+		totalDuration += numberFields * duration;
+		numberSamples += numberFields;
+	}
+
+	/**
+	 * Add samples evenly spaced over one rotation of the body, for a distant
+	 * source with a fixed flux in the inertial frame. The body-fixed frame is
+	 * assumed to coincide with the inertial frame at the start of the rotation.
+	 *
+	 * @param flux          the flux in the inertial frame, in W/m^2
+	 * @param spinAxis      the spin axis, in the body-fixed frame
+	 * @param period        the rotation period, in seconds
+	 * @param numberSamples the number of samples
+	 */
+	public void addRotation(Vector3D flux, Vector3D spinAxis, double period, int numberSamples)
+	{
+		Preconditions.checkArgument(numberSamples > 0);
+
+		List<IlluminationField> illumFields = new ArrayList<>(numberSamples);
+		for (int sample = 0; sample < numberSamples; ++sample)
+		{
+			// Sample the middle of each time step. The source turns the opposite way
+			// to the body as seen from the body.
+			double phase = 2. * Math.PI * (sample + 0.5) / numberSamples;
+			Rotation rotation = new Rotation(spinAxis, -phase, RotationConvention.VECTOR_OPERATOR);
+			illumFields.add(new UniformIlluminationField(rotation.applyTo(flux)));
+		}
+
+		addAll(illumFields, period / numberSamples);
+	}
+
+	public synchronized int getNumberOfSamples()
+	{
+		return numberSamples;
+	}
+
+	/**
+	 * Return the total length of time of all samples added so far, in seconds.
+	 */
+	public synchronized double getTotalDuration()
+	{
+		return totalDuration;
+	}
+
+	/**
+	 * Return the energy received per unit area by each face, in J/m^2.
+	 */
+	public synchronized double[] getCumulativeInsolation()
+	{
+		return cumulativeInsolation.clone();
+	}
+
+	/**
+	 * Return the mean flux received by each face over the total duration, in
+	 * W/m^2.
+	 */
+	public synchronized double[] getAverageInsolation()
+	{
+		return divide(cumulativeInsolation);
+	}
+
+	/**
+	 * Return the fraction of the total duration for which each face was lit.
+	 */
+	public synchronized double[] getLitFraction()
+	{
+		return divide(litDuration);
+	}
+
+	/**
+	 * Return the values of the specified product for each face.
+	 */
+	public synchronized double[] getValues(Product product)
+	{
+		switch (product)
+		{
+		case CUMULATIVE:
+			return getCumulativeInsolation();
+		case AVERAGE:
+			return getAverageInsolation();
+		case LIT_FRACTION:
+			return getLitFraction();
+		default:
+			throw new AssertionError("Unhandled product " + product);
+		}
+	}
+
+	/**
+	 * Return the specified product as an in-memory {@link ColoringData} with one
+	 * value per face.
+	 */
+	public ColoringData createColoringData(Product product)
+	{
+		String name = product.getName();
+		double[] values = getValues(product);
+
+		return ColoringDataFactory.of(name, product.getUnits(), values.length, ImmutableList.of(name), false, //
+				ColumnarIndexableTuple.ofColumns(ColumnarIndexableTuple.indexableOf(ImmutableList.of(name)), ColumnarIndexableTuple.indexableOf(ImmutableList.of(product.getUnits())), values));
+	}
+
+	/**
+	 * Save the specified product to a file, and return a {@link LoadableColoringData}
+	 * that reads it back through the usual plate coloring path, and so may be
+	 * added to a model's custom colorings. The file is written in VTK format, so
+	 * its name should end in ".vtk".
+	 *
+	 * @param product the product to save
+	 * @param file    the file to write
+	 * @return the coloring
+	 * @throws IOException if the file cannot be written
+	 */
+	public LoadableColoringData saveColoringData(Product product, File file) throws IOException
+	{
+		LoadableColoringData result = ColoringDataFactory.of(createColoringData(product), file);
+		result.save();
+
+		return result;
+	}
+
+	private double[] divide(double[] values)
+	{
+		Preconditions.checkState(totalDuration > 0., "No samples with a non-zero duration have been added");
+
+		double[] result = new double[values.length];
+		for (int index = 0; index < values.length; ++index)
+		{
+			result[index] = values[index] / totalDuration;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Return the unit vector towards the source and the magnitude of the specified
+	 * flux, packed in a 4-element array. The unit vector is zero if the flux is.
+	 */
+	private static double[] getFlux(Vector3D flux)
+	{
+		double magnitude = flux.getNorm();
+		if (magnitude == 0.)
+		{
+			return new double[4];
+		}
+
+		return new double[] { -flux.getX() / magnitude, -flux.getY() / magnitude, -flux.getZ() / magnitude, magnitude };
+	}
+
+}
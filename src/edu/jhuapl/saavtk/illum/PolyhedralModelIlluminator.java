@@ -1,100 +1,285 @@
 package edu.jhuapl.saavtk.illum;
 
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 import edu.jhuapl.saavtk.model.PolyhedralModel;
-import vtk.vtkIdList;
-import vtk.vtkOBBTree;
+import edu.jhuapl.saavtk.util.mesh.TriangleBvh;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
 import vtk.vtkPolyData;
-import vtk.vtkTriangle;
 
+/**
+ * Computes the illumination factor of the faces of a shape model, that is the
+ * cosine of the incidence angle for faces that see the source, and 0 for faces
+ * that face away from it or are shadowed by other faces. Illumination is
+ * computed just from the viewpoint of the face centers.
+ * <p>
+ * The face geometry and a {@link TriangleBvh} are computed once by the
+ * constructor, which copies everything it needs out of the VTK objects. After
+ * that no VTK calls are made, and shadow rays are cast on all available cores.
+ * Instances may be used from several threads, except that the methods that
+ * store their result for {@link #getIlluminationFactor(int)} should not be
+ * called concurrently.
+ */
 public class PolyhedralModelIlluminator
 {
-	double[] illuminationFactor;
-	vtkPolyData polyDataCopy;
-	vtkOBBTree searchTree;
-	double rayLength;
-	
+	// Number of faces processed by one task.
+	private static final int ChunkSize = 4096;
+
+	private final TriangleBvh searchTree;
+	private final int numberFaces;
+	// Unit normal and center of each face, three values per cell id.
+	private final double[] normals;
+	private final double[] centers;
+	private final double rayLength;
+	private double[] illuminationFactor;
+
 	public PolyhedralModelIlluminator(PolyhedralModel model)
 	{
-		polyDataCopy=new vtkPolyData();
-		polyDataCopy.DeepCopy(model.getSmallBodyPolyData());
-		searchTree=new vtkOBBTree();
-		searchTree.SetDataSet(polyDataCopy);
-		searchTree.SetTolerance(1e-12);
-		searchTree.BuildLocator();
-		double[] bounds=polyDataCopy.GetBounds();
-		double dx=bounds[1]-bounds[0];
-		double dy=bounds[3]-bounds[2];
-		double dz=bounds[5]-bounds[4];
-		rayLength=2*Math.sqrt(dx*dx+dy*dy+dz*dz);
-	}
-	
-	public void illuminate(IlluminationField illumField)	// compute illumination just from viewpoint of triangle centers; a more sophisticated approach can be implemented later
-	{
-		List<Integer> faceIndices=Lists.newArrayList();
-		for (int c=0; c<polyDataCopy.GetNumberOfCells(); c++)
-			faceIndices.add(c);
-		illuminationFactor=illuminate(illumField, faceIndices);
+		this(model.getSmallBodyPolyData());
 	}
 
-	public double[] illuminate(IlluminationField illumField, List<Integer> faceIndices)	// get illumination just for a subset of the faces
+	public PolyhedralModelIlluminator(vtkPolyData polyData)
 	{
-		illuminationFactor=new double[faceIndices.size()];
-		for (int m=0; m<faceIndices.size(); m++)
+		searchTree = TriangleBvh.of(polyData);
+		numberFaces = (int) polyData.GetNumberOfCells();
+
+		double[] points = VtkArrayUtil.getPoints(polyData.GetPoints());
+		vtkCellArray polys = polyData.GetPolys();
+		long[] cells = VtkArrayUtil.getLegacyCells(polys);
+		int numberPolys = (int) polys.GetNumberOfCells();
+
+		// Cell ids of polys come after those of verts and lines, which have no
+		// geometry here (zero normal) and so are never illuminated.
+		int cellIdOffset = (int) (polyData.GetNumberOfVerts() + polyData.GetNumberOfLines());
+
+		normals = new double[3 * numberFaces];
+		centers = new double[3 * numberFaces];
+		for (int index = 0, poly = 0; poly < numberPolys; ++poly)
 		{
-			int c=faceIndices.get(m);
-			vtkTriangle tri=(vtkTriangle)polyDataCopy.GetCell(c);
-			double[] pt0=tri.GetPoints().GetPoint(0);
-			double[] pt1=tri.GetPoints().GetPoint(1);
-			double[] pt2=tri.GetPoints().GetPoint(2);
-			double[] normal=new double[3];
-			double[] center=new double[3];
-			tri.ComputeNormal(pt0,pt1,pt2,normal);
-			tri.TriangleCenter(pt0,pt1,pt2,center);
-			Vector3D normalVec=new Vector3D(normal);
-			Vector3D centerVec=new Vector3D(center);
-			Vector3D invIllumUnitVec=illumField.getUnobstructedFlux(centerVec).negate().normalize();
-			double incidenceCosine=invIllumUnitVec.dotProduct(normalVec);
-			if (incidenceCosine<0)
+			int numberIds = (int) cells[index];
+			if (numberIds >= 3)
 			{
-				illuminationFactor[m]=0;
-				continue;
+				int p0 = 3 * (int) cells[index + 1];
+				int p1 = 3 * (int) cells[index + 2];
+				int p2 = 3 * (int) cells[index + 3];
+				int f = 3 * (cellIdOffset + poly);
+
+				double e1x = points[p1] - points[p0], e1y = points[p1 + 1] - points[p0 + 1], e1z = points[p1 + 2] - points[p0 + 2];
+				double e2x = points[p2] - points[p0], e2y = points[p2 + 1] - points[p0 + 1], e2z = points[p2 + 2] - points[p0 + 2];
+				double nx = e1y * e2z - e1z * e2y;
+				double ny = e1z * e2x - e1x * e2z;
+				double nz = e1x * e2y - e1y * e2x;
+				double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+				if (length > 0.)
+				{
+					normals[f] = nx / length;
+					normals[f + 1] = ny / length;
+					normals[f + 2] = nz / length;
+				}
+
+				centers[f] = (points[p0] + points[p1] + points[p2]) / 3.;
+				centers[f + 1] = (points[p0 + 1] + points[p1 + 1] + points[p2 + 1]) / 3.;
+				centers[f + 2] = (points[p0 + 2] + points[p1 + 2] + points[p2 + 2]) / 3.;
 			}
-			//
-			Vector3D invIllumRay=invIllumUnitVec.scalarMultiply(rayLength);
-			vtkIdList ids=new vtkIdList();
-			double[] rayOrigin=centerVec.toArray();
-			double[] rayEndpoint=centerVec.add(invIllumRay).toArray();
-			searchTree.IntersectWithLine(rayOrigin, rayEndpoint, null, ids);
-			boolean hit=false;
-			for (int i=0; i<ids.GetNumberOfIds() && !hit; i++)
+			index += numberIds + 1;
+		}
+
+		double[] bounds = polyData.GetBounds();
+		double dx = bounds[1] - bounds[0];
+		double dy = bounds[3] - bounds[2];
+		double dz = bounds[5] - bounds[4];
+		rayLength = 2 * Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * Return the number of faces (cells) of the model.
+	 */
+	public int getNumberOfFaces()
+	{
+		return numberFaces;
+	}
+
+	/**
+	 * Return the center of the specified face, the point from which its
+	 * illumination is computed.
+	 */
+	public Vector3D getFaceCenter(int faceId)
+	{
+		int f = 3 * faceId;
+
+		return new Vector3D(centers[f], centers[f + 1], centers[f + 2]);
+	}
+
+	/**
+	 * Compute the illumination factor of every face, and store the result for
+	 * {@link #getIlluminationFactor(int)}.
+	 */
+	public void illuminate(IlluminationField illumField)
+	{
+		illuminate(illumField, IntStream.range(0, numberFaces).toArray());
+	}
+
+	/**
+	 * Compute the illumination factor of a subset of the faces, and store the
+	 * result for {@link #getIlluminationFactor(int)}, which is then indexed like
+	 * the list of faces.
+	 */
+	public double[] illuminate(IlluminationField illumField, List<Integer> faceIndices)
+	{
+		return illuminate(illumField, faceIndices.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * Compute the illumination factor of the specified faces, and store the result
+	 * for {@link #getIlluminationFactor(int)}, which is then indexed like the
+	 * array of faces.
+	 *
+	 * @param illumField the illumination field
+	 * @param faceIds    the ids of the faces
+	 * @return the illumination factor of each face
+	 */
+	public double[] illuminate(IlluminationField illumField, int[] faceIds)
+	{
+		illuminationFactor = illuminate(ImmutableList.of(illumField), faceIds)[0];
+
+		return illuminationFactor;
+	}
+
+	/**
+	 * Compute the illumination factors of the specified faces for each of several
+	 * illumination fields, for example the sun directions of a time series. All
+	 * (field, face) combinations are processed in parallel. The result is not
+	 * stored for {@link #getIlluminationFactor(int)}.
+	 *
+	 * @param illumFields the illumination fields
+	 * @param faceIds     the ids of the faces
+	 * @return for each field, the illumination factor of each face
+	 */
+	public double[][] illuminate(List<? extends IlluminationField> illumFields, int[] faceIds)
+	{
+		for (int faceId : faceIds)
+		{
+			Preconditions.checkElementIndex(faceId, numberFaces);
+		}
+
+		int numberFields = illumFields.size();
+		double[][] result = new double[numberFields][faceIds.length];
+
+		// Directions of uniform fields are the same for every face.
+		double[][] uniformDirections = new double[numberFields][];
+		for (int field = 0; field < numberFields; ++field)
+		{
+			uniformDirections[field] = getUniformDirection(illumFields.get(field));
+		}
+
+		int numberChunks = (faceIds.length + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberFields * numberChunks).parallel().forEach(task -> {
+			int field = task / numberChunks;
+			int chunk = task % numberChunks;
+			IlluminationField illumField = illumFields.get(field);
+			double[] direction = uniformDirections[field];
+			double[] fieldResult = result[field];
+			int[] stack = createStack();
+
+			int end = Math.min(faceIds.length, (chunk + 1) * ChunkSize);
+			for (int index = chunk * ChunkSize; index < end; ++index)
 			{
-				int id=(int)ids.GetId(i);
-				if (id==c)
-					continue;	// ignore self-intersections
+				int faceId = faceIds[index];
+				if (direction != null)
+				{
+					fieldResult[index] = computeIlluminationFactor(faceId, direction[0], direction[1], direction[2], stack);
+				}
 				else
-					hit=true;	// but catch intersections with other faces
+				{
+					fieldResult[index] = computeIlluminationFactor(faceId, illumField, stack);
+				}
 			}
-			if (hit)
-				illuminationFactor[m]=0;
-			else
-				illuminationFactor[m]=incidenceCosine;
+		});
+
+		return result;
+	}
+
+	/**
+	 * Return a new traversal stack for the single-face methods. Each thread needs
+	 * its own stack.
+	 */
+	public int[] createStack()
+	{
+		return searchTree.createStack();
+	}
+
+	/**
+	 * Compute the illumination factor of one face for an arbitrary illumination
+	 * field.
+	 *
+	 * @param faceId     the id of the face
+	 * @param illumField the illumination field
+	 * @param stack      a stack obtained from {@link #createStack()}
+	 * @return the illumination factor
+	 */
+	public double computeIlluminationFactor(int faceId, IlluminationField illumField, int[] stack)
+	{
+		Vector3D invIllumUnitVec = illumField.getUnobstructedFlux(getFaceCenter(faceId)).negate().normalize();
+
+		return computeIlluminationFactor(faceId, invIllumUnitVec.getX(), invIllumUnitVec.getY(), invIllumUnitVec.getZ(), stack);
+	}
+
+	/**
+	 * Compute the illumination factor of one face for a distant source in the
+	 * specified direction. This does not allocate anything.
+	 *
+	 * @param faceId the id of the face
+	 * @param ux     x component of the unit vector pointing towards the source
+	 * @param uy     y component of the unit vector pointing towards the source
+	 * @param uz     z component of the unit vector pointing towards the source
+	 * @param stack  a stack obtained from {@link #createStack()}
+	 * @return the illumination factor
+	 */
+	public double computeIlluminationFactor(int faceId, double ux, double uy, double uz, int[] stack)
+	{
+		int f = 3 * faceId;
+		double incidenceCosine = ux * normals[f] + uy * normals[f + 1] + uz * normals[f + 2];
+
+		// Faces seen edge-on or from behind get 0 whether or not they are shadowed.
+		if (!(incidenceCosine > 0.))
+		{
+			return 0.;
 		}
-		return illuminationFactor;
+
+		// Ignore self-intersections, but catch intersections with other faces.
+		boolean hit = searchTree.isOccluded(centers[f], centers[f + 1], centers[f + 2], ux, uy, uz, rayLength, faceId, stack);
+
+		return hit ? 0. : incidenceCosine;
 	}
 
 	public double getIlluminationFactor(int c)
 	{
 		return illuminationFactor[c];
 	}
-	
+
 	public double[] getIlluminationFactorArray()
 	{
 		return illuminationFactor;
 	}
+
+	/**
+	 * Return the unit vector pointing towards the source of a uniform field, or
+	 * null if the field is not uniform.
+	 */
+	private static double[] getUniformDirection(IlluminationField illumField)
+	{
+		if (!(illumField instanceof UniformIlluminationField))
+		{
+			return null;
+		}
+
+		return ((UniformIlluminationField) illumField).getFlux().negate().normalize().toArray();
+	}
 }
@@ -16,5 +16,10 @@ public class UniformIlluminationField implements IlluminationField
 	{
 		return flux;
 	}
+
+	public Vector3D getFlux()
+	{
+		return flux;
+	}
 	
 }
@@ -0,0 +1,861 @@
+package edu.jhuapl.saavtk.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.saavtk.util.Configuration;
+import edu.jhuapl.saavtk.util.FileCacheMessageUtil;
+import edu.jhuapl.saavtk.util.Profiler;
+import edu.jhuapl.saavtk.util.SafeURLPaths;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkDataArray;
+import vtk.vtkDoubleArray;
+import vtk.vtkFloatArray;
+import vtk.vtkPointData;
+import vtk.vtkPolyData;
+
+/**
+ * Bounded cache of the footprints computed by a {@link GenericPolyhedralModel},
+ * so that showing, coloring or exporting the same image again does not clip the
+ * model again.
+ * <p>
+ * Footprints are keyed by the geometry of their frusta (origins and corner
+ * directions, quantized so that values that differ only by round-off share an
+ * entry), the resolution level of the model and a hash of the mesh they were
+ * computed on. The points, polygons and numeric point data arrays of a
+ * footprint are kept in primitive arrays, and a new vtkPolyData is built from
+ * them for every hit, so callers may modify what they get. A footprint that
+ * turned out to be empty is cached too.
+ * <p>
+ * The memory tier holds the most recently used footprints up to a byte budget.
+ * The optional disk tier, off by default, keeps footprints in compact binary
+ * files under a directory named for the mesh, so footprints survive from one
+ * session to the next, and are never confused with those of another mesh or of
+ * the same mesh at another position. It has its own byte budget, shared by all
+ * the meshes in the directory; when a write takes it over budget, the least
+ * recently used files are deleted.
+ * <p>
+ * Lookups are timed with two {@link Profiler}s, one for hits and one for misses,
+ * so that the hit rate and the time saved can be obtained from their summaries
+ * when profiling is enabled.
+ */
+public class FootprintCache
+{
+    // Quantum of the corner directions, and of origins relative to their distance from the center.
+    private static final double Quantum = 1.e-9;
+
+    private static final int Magic = 0x53424650; // "SBFP"
+    private static final int Version = 2;
+    private static final String FileExtension = ".sbfp";
+    private static final long DefaultDiskByteBudget = 1L << 30;
+
+    private static final Profiler HitProfiler = Profiler.of("footprint-cache-hits");
+    private static final Profiler MissProfiler = Profiler.of("footprint-cache-misses");
+
+    /**
+     * Return the directory under the {@link edu.jhuapl.saavtk.util.FileCache}
+     * directory in which the disk tier is kept when enabled with
+     * {@link #setDiskCacheEnabled(boolean)}.
+     */
+    public static File getDefaultDiskDirectory()
+    {
+        return SafeURLPaths.instance().get(Configuration.getCacheDir(), "footprints").toFile();
+    }
+
+    /**
+     * A point data array of a footprint. Exactly one of floatValues and
+     * doubleValues is non-null; arrays of other types are kept as doubles.
+     */
+    private static final class PointArray
+    {
+        private final String name;
+        // Attribute type (normals, scalars...) of the array, or -1 if none.
+        private final int attribute;
+        private final int numberComponents;
+        private final float[] floatValues;
+        private final double[] doubleValues;
+
+        PointArray(String name, int attribute, int numberComponents, float[] floatValues, double[] doubleValues)
+        {
+            this.name = name;
+            this.attribute = attribute;
+            this.numberComponents = numberComponents;
+            this.floatValues = floatValues;
+            this.doubleValues = doubleValues;
+        }
+
+        static PointArray of(vtkDataArray array, int attribute)
+        {
+            float[] floatValues = array instanceof vtkFloatArray ? ((vtkFloatArray) array).GetJavaArray() : null;
+            double[] doubleValues = floatValues == null ? VtkArrayUtil.getValues(array) : null;
+
+            return new PointArray(array.GetName(), attribute, array.GetNumberOfComponents(), floatValues, doubleValues);
+        }
+
+        int getNumberValues()
+        {
+            return floatValues != null ? floatValues.length : doubleValues.length;
+        }
+
+        long getBytes()
+        {
+            return 32 + (floatValues != null ? 4L : 8L) * getNumberValues();
+        }
+
+        vtkDataArray toArray()
+        {
+            vtkDataArray result;
+            if (floatValues != null)
+            {
+                result = VtkArrayUtil.createFloatArray(numberComponents, floatValues);
+            }
+            else
+            {
+                result = new vtkDoubleArray();
+                result.SetNumberOfComponents(numberComponents);
+                VtkArrayUtil.setValues(result, doubleValues);
+            }
+            if (name != null)
+            {
+                result.SetName(name);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * A footprint in primitive arrays. Exactly one of floatPoints and doublePoints
+     * is non-null, unless the footprint is empty, in which case both are.
+     */
+    private static final class Entry
+    {
+        private final float[] floatPoints;
+        private final double[] doublePoints;
+        private final long numberCells;
+        private final long[] cells;
+        private final PointArray[] pointArrays;
+
+        Entry(float[] floatPoints, double[] doublePoints, long numberCells, long[] cells, PointArray[] pointArrays)
+        {
+            this.floatPoints = floatPoints;
+            this.doublePoints = doublePoints;
+            this.numberCells = numberCells;
+            this.cells = cells;
+            this.pointArrays = pointArrays;
+        }
+
+        static Entry of(vtkPolyData polyData)
+        {
+            if (polyData == null)
+            {
+                return new Entry(null, null, 0, new long[0], new PointArray[0]);
+            }
+
+            vtkDataArray data = polyData.GetPoints().GetData();
+            float[] floatPoints = data instanceof vtkFloatArray ? ((vtkFloatArray) data).GetJavaArray() : null;
+            double[] doublePoints = floatPoints == null ? VtkArrayUtil.getPoints(polyData.GetPoints()) : null;
+
+            // Numeric point data arrays; GetArray returns null for the others.
+            vtkPointData pointData = polyData.GetPointData();
+            List<PointArray> pointArrays = new ArrayList<>();
+            for (int index = 0; index < pointData.GetNumberOfArrays(); ++index)
+            {
+                vtkDataArray array = pointData.GetArray(index);
+                if (array != null)
+                {
+                    pointArrays.add(PointArray.of(array, pointData.IsArrayAnAttribute(index)));
+                }
+            }
+
+            return new Entry(floatPoints, doublePoints, polyData.GetNumberOfPolys(), VtkArrayUtil.getLegacyCells(polyData.GetPolys()), pointArrays.toArray(new PointArray[0]));
+        }
+
+        boolean isEmpty()
+        {
+            return floatPoints == null && doublePoints == null;
+        }
+
+        long getBytes()
+        {
+            long bytes = 64 + (floatPoints != null ? 4L * floatPoints.length : doublePoints != null ? 8L * doublePoints.length : 0) + 8L * cells.length;
+            for (PointArray pointArray : pointArrays)
+            {
+                bytes += pointArray.getBytes();
+            }
+
+            return bytes;
+        }
+
+        vtkPolyData toPolyData()
+        {
+            if (isEmpty())
+            {
+                return null;
+            }
+
+            vtkPolyData result = new vtkPolyData();
+            result.SetPoints(floatPoints != null ? VtkArrayUtil.createPoints(floatPoints) : VtkArrayUtil.createPoints(doublePoints));
+            result.SetPolys(VtkArrayUtil.createCellArray(numberCells, cells, cells.length));
+
+            vtkPointData pointData = result.GetPointData();
+            for (PointArray pointArray : pointArrays)
+            {
+                int index = pointData.AddArray(pointArray.toArray());
+                if (pointArray.attribute >= 0)
+                {
+                    pointData.SetActiveAttribute(index, pointArray.attribute);
+                }
+            }
+
+            return result;
+        }
+    }
+
+    // Keyed by the quantized geometry and resolution level, in access order.
+    private final LinkedHashMap<String, Entry> entries;
+    private long byteBudget;
+    private long residentBytes;
+    private boolean diskCacheEnabled;
+    private File diskDirectory;
+    private long diskByteBudget;
+    // Bytes in the disk directory, counted when first needed and then kept up to date by writes, or -1 if not counted.
+    private long diskBytes;
+    private boolean diskPruning;
+    // Hash of the mesh the cached footprints were computed on, or null if not yet computed.
+    private String meshId;
+    // Incremented by invalidate, so that footprints of the previous mesh still being computed are not added.
+    private long generation;
+    private long hitCount;
+    private long diskHitCount;
+    private long missCount;
+
+    /**
+     * Create a cache with the specified memory budget and the disk tier disabled.
+     *
+     * @param byteBudget the maximum number of bytes of footprints to keep in
+     *                   memory
+     */
+    public FootprintCache(long byteBudget)
+    {
+        Preconditions.checkArgument(byteBudget >= 0);
+
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.byteBudget = byteBudget;
+        this.residentBytes = 0;
+        this.diskCacheEnabled = false;
+        this.diskDirectory = null;
+        this.diskByteBudget = DefaultDiskByteBudget;
+        this.diskBytes = -1;
+        this.diskPruning = false;
+        this.meshId = null;
+        this.generation = 0;
+        this.hitCount = 0;
+        this.diskHitCount = 0;
+        this.missCount = 0;
+    }
+
+    public synchronized long getByteBudget()
+    {
+        return byteBudget;
+    }
+
+    /**
+     * Set the maximum number of bytes of footprints to keep in memory, discarding
+     * the least recently used ones as needed.
+     *
+     * @param byteBudget the budget, in bytes
+     */
+    public synchronized void setByteBudget(long byteBudget)
+    {
+        Preconditions.checkArgument(byteBudget >= 0);
+
+        this.byteBudget = byteBudget;
+        trim();
+    }
+
+    public synchronized boolean isDiskCacheEnabled()
+    {
+        return diskCacheEnabled;
+    }
+
+    /**
+     * Enable or disable the disk tier, in the directory returned by
+     * {@link #getDefaultDiskDirectory()} unless another was set with
+     * {@link #setDiskDirectory(File)}.
+     */
+    public synchronized void setDiskCacheEnabled(boolean enable)
+    {
+        this.diskCacheEnabled = enable;
+    }
+
+    public synchronized File getDiskDirectory()
+    {
+        return diskDirectory != null ? diskDirectory : getDefaultDiskDirectory();
+    }
+
+    public synchronized void setDiskDirectory(File diskDirectory)
+    {
+        this.diskDirectory = diskDirectory;
+        this.diskBytes = -1;
+    }
+
+    public synchronized long getDiskByteBudget()
+    {
+        return diskByteBudget;
+    }
+
+    /**
+     * Set the maximum number of bytes of footprint files to keep in the disk
+     * directory. The files are pruned to the budget the next time a footprint is
+     * written.
+     *
+     * @param diskByteBudget the budget, in bytes
+     */
+    public synchronized void setDiskByteBudget(long diskByteBudget)
+    {
+        Preconditions.checkArgument(diskByteBudget >= 0);
+
+        this.diskByteBudget = diskByteBudget;
+    }
+
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Return the number of hits that were read from the disk tier. These are
+     * included in {@link #getHitCount()}.
+     */
+    public synchronized long getDiskHitCount()
+    {
+        return diskHitCount;
+    }
+
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Return the number of footprints currently in memory.
+     */
+    public synchronized int getResidentCount()
+    {
+        return entries.size();
+    }
+
+    public synchronized long getResidentBytes()
+    {
+        return residentBytes;
+    }
+
+    /**
+     * Discard the footprints in memory. This must be called whenever the mesh
+     * changes. Footprints on disk are kept, since they are filed under the hash of
+     * the mesh they belong to.
+     */
+    public synchronized void invalidate()
+    {
+        entries.clear();
+        residentBytes = 0;
+        meshId = null;
+        ++generation;
+    }
+
+    /**
+     * Return the footprint of the specified frusta on the specified mesh from the
+     * cache, or compute it and add it to the cache.
+     *
+     * @param polyData        the mesh the footprint is computed on
+     * @param resolutionLevel the resolution level of the mesh
+     * @param frustumGeometry the origin and the four corner directions of each
+     *                        frustum, packed in the order in which they are
+     *                        passed to the computation
+     * @param computation     computes the footprint, or returns null if it is
+     *                        empty
+     * @return the footprint, or null if it is empty
+     */
+    public vtkPolyData get(vtkPolyData polyData, int resolutionLevel, double[] frustumGeometry, Supplier<vtkPolyData> computation)
+    {
+        long startTime = System.nanoTime();
+
+        String key = createKey(resolutionLevel, frustumGeometry);
+        Entry entry;
+        File directory = null;
+        String id = null;
+        long entryGeneration;
+        synchronized (this)
+        {
+            entryGeneration = generation;
+            entry = entries.get(key);
+            if (entry == null && diskCacheEnabled)
+            {
+                directory = getDiskDirectory();
+                id = meshId;
+            }
+        }
+
+        // The mesh is hashed outside the lock, since hashing a large mesh takes a
+        // while and other footprints may be found in memory meanwhile.
+        File diskFile = null;
+        if (directory != null)
+        {
+            if (id == null)
+            {
+                id = computeMeshId(polyData);
+                synchronized (this)
+                {
+                    if (generation == entryGeneration)
+                    {
+                        meshId = id;
+                    }
+                }
+            }
+            diskFile = new File(new File(directory, id), hash(key) + FileExtension);
+        }
+
+        boolean fromDisk = false;
+        if (entry == null && diskFile != null && diskFile.isFile())
+        {
+            entry = read(diskFile);
+            fromDisk = entry != null;
+            if (fromDisk)
+            {
+                // Keep the modification times in order of use for pruning.
+                diskFile.setLastModified(System.currentTimeMillis());
+            }
+        }
+
+        boolean hit = entry != null;
+        if (!hit)
+        {
+            entry = Entry.of(computation.get());
+            if (diskFile != null)
+            {
+                long numberBytes = write(diskFile, entry);
+                if (numberBytes > 0)
+                {
+                    addDiskBytes(directory, numberBytes);
+                }
+            }
+        }
+
+        synchronized (this)
+        {
+            if (hit)
+            {
+                ++hitCount;
+            }
+            else
+            {
+                ++missCount;
+            }
+            if (fromDisk)
+            {
+                ++diskHitCount;
+            }
+
+            if (generation == entryGeneration && !entries.containsKey(key))
+            {
+                entries.put(key, entry);
+                residentBytes += entry.getBytes();
+                trim();
+            }
+        }
+
+        vtkPolyData result = entry.toPolyData();
+
+        Profiler profiler = hit ? HitProfiler : MissProfiler;
+        profiler.accumulate(System.nanoTime() - startTime);
+        profiler.reportElapsedTimes();
+
+        return result;
+    }
+
+    /**
+     * Discard the least recently used footprints until the budget is met. The
+     * most recently used footprint is kept even if it alone exceeds the budget.
+     */
+    private void trim()
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (residentBytes > byteBudget && entries.size() > 1)
+        {
+            residentBytes -= iterator.next().getBytes();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Count a file just written to the disk directory, and prune the directory if
+     * this takes it over budget. Only one thread prunes at a time; writes made
+     * meanwhile are counted and left for the next pruning.
+     */
+    private void addDiskBytes(File directory, long numberBytes)
+    {
+        long budget;
+        synchronized (this)
+        {
+            if (!directory.equals(getDiskDirectory()) || diskPruning)
+                return;
+
+            if (diskBytes >= 0)
+            {
+                diskBytes += numberBytes;
+                if (diskBytes <= diskByteBudget)
+                    return;
+            }
+            diskPruning = true;
+            budget = diskByteBudget;
+        }
+
+        long remainingBytes = -1;
+        try
+        {
+            remainingBytes = pruneDisk(directory, budget);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                diskPruning = false;
+                if (directory.equals(getDiskDirectory()))
+                {
+                    diskBytes = remainingBytes;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used footprint files of every mesh in the
+     * directory until the rest fit the budget, and the directories of meshes left
+     * without any.
+     *
+     * @return the number of bytes in the remaining files
+     */
+    private static long pruneDisk(File directory, long budget)
+    {
+        List<File> files = new ArrayList<>();
+        File[] meshDirectories = directory.listFiles(File::isDirectory);
+        if (meshDirectories == null)
+            return 0;
+
+        for (File meshDirectory : meshDirectories)
+        {
+            File[] meshFiles = meshDirectory.listFiles((dir, name) -> name.endsWith(FileExtension));
+            if (meshFiles != null)
+            {
+                files.addAll(Arrays.asList(meshFiles));
+            }
+        }
+
+        long[] lastModified = new long[files.size()];
+        long[] lengths = new long[files.size()];
+        Integer[] order = new Integer[files.size()];
+        long totalBytes = 0;
+        for (int index = 0; index < files.size(); ++index)
+        {
+            lastModified[index] = files.get(index).lastModified();
+            lengths[index] = files.get(index).length();
+            order[index] = index;
+            totalBytes += lengths[index];
+        }
+        Arrays.sort(order, Comparator.comparingLong(index -> lastModified[index]));
+
+        for (int index = 0; index < order.length && totalBytes > budget; ++index)
+        {
+            File file = files.get(order[index]);
+            if (file.delete() || !file.exists())
+            {
+                totalBytes -= lengths[order[index]];
+            }
+            else
+            {
+                FileCacheMessageUtil.debugCache().err().println("Unable to delete footprint cache file " + file);
+            }
+        }
+
+        for (File meshDirectory : meshDirectories)
+        {
+            String[] names = meshDirectory.list();
+            if (names != null && names.length == 0)
+            {
+                meshDirectory.delete();
+            }
+        }
+
+        return totalBytes;
+    }
+
+    /**
+     * Return the hash of the points and polygons of the mesh.
+     */
+    private static String computeMeshId(vtkPolyData polyData)
+    {
+        MessageDigest digest = createDigest();
+
+        double[] points = VtkArrayUtil.getPoints(polyData.GetPoints());
+        ByteBuffer buffer = ByteBuffer.allocate(8 * points.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asDoubleBuffer().put(points);
+        digest.update(buffer);
+
+        long[] cells = VtkArrayUtil.getLegacyCells(polyData.GetPolys());
+        buffer = ByteBuffer.allocate(8 * cells.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asLongBuffer().put(cells);
+        digest.update(buffer);
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Return a key made of the resolution level and the quantized geometry. Each
+     * group of 15 values is an origin followed by four unit directions.
+     */
+    private static String createKey(int resolutionLevel, double[] frustumGeometry)
+    {
+        Preconditions.checkArgument(frustumGeometry.length > 0 && frustumGeometry.length % 15 == 0);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(resolutionLevel);
+        for (int frustum = 0; frustum < frustumGeometry.length; frustum += 15)
+        {
+            double[] origin = Arrays.copyOfRange(frustumGeometry, frustum, frustum + 3);
+            double originQuantum = Quantum * Math.max(1., Math.sqrt(origin[0] * origin[0] + origin[1] * origin[1] + origin[2] * origin[2]));
+            for (int index = 0; index < 15; ++index)
+            {
+                double quantum = index < 3 ? originQuantum : Quantum;
+                builder.append(',');
+                builder.append(Math.round(frustumGeometry[frustum + index] / quantum));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static Entry read(File file)
+    {
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != Magic || buffer.getInt() != Version)
+                return null;
+
+            boolean isEmpty = buffer.getInt() != 0;
+            boolean isDouble = buffer.getInt() != 0;
+            int numberCoords = buffer.getInt();
+            long numberCells = buffer.getLong();
+            int cellsLength = buffer.getInt();
+            if (isEmpty)
+            {
+                return new Entry(null, null, 0, new long[0], new PointArray[0]);
+            }
+
+            float[] floatPoints = null;
+            double[] doublePoints = null;
+            if (isDouble)
+            {
+                doublePoints = new double[numberCoords];
+                buffer.asDoubleBuffer().get(doublePoints);
+                buffer.position(buffer.position() + 8 * numberCoords);
+            }
+            else
+            {
+                floatPoints = new float[numberCoords];
+                buffer.asFloatBuffer().get(floatPoints);
+                buffer.position(buffer.position() + 4 * numberCoords);
+            }
+
+            long[] cells = new long[cellsLength];
+            buffer.asLongBuffer().get(cells);
+            buffer.position(buffer.position() + 8 * cellsLength);
+
+            PointArray[] pointArrays = new PointArray[buffer.getInt()];
+            for (int index = 0; index < pointArrays.length; ++index)
+            {
+                int attribute = buffer.getInt();
+                int numberComponents = buffer.getInt();
+                boolean isDoubleArray = buffer.getInt() != 0;
+                int numberValues = buffer.getInt();
+                int nameLength = buffer.getInt();
+                String name = null;
+                if (nameLength >= 0)
+                {
+                    byte[] nameBytes = new byte[nameLength];
+                    buffer.get(nameBytes);
+                    name = new String(nameBytes, StandardCharsets.UTF_8);
+                }
+
+                float[] floatValues = null;
+                double[] doubleValues = null;
+                if (isDoubleArray)
+                {
+                    doubleValues = new double[numberValues];
+                    buffer.asDoubleBuffer().get(doubleValues);
+                    buffer.position(buffer.position() + 8 * numberValues);
+                }
+                else
+                {
+                    floatValues = new float[numberValues];
+                    buffer.asFloatBuffer().get(floatValues);
+                    buffer.position(buffer.position() + 4 * numberValues);
+                }
+                pointArrays[index] = new PointArray(name, attribute, numberComponents, floatValues, doubleValues);
+            }
+
+            return new Entry(floatPoints, doublePoints, numberCells, cells, pointArrays);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // A damaged file is not fatal; the footprint will simply be computed again.
+            FileCacheMessageUtil.debugCache().err().println("Ignoring unreadable footprint cache file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the entry to the file, through a temporary file so that a reader never
+     * sees a partial file.
+     *
+     * @return the number of bytes written, or 0 if the file could not be written
+     */
+    private static long write(File file, Entry entry)
+    {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try
+        {
+            file.getParentFile().mkdirs();
+
+            boolean isDouble = entry.doublePoints != null;
+            int numberCoords = isDouble ? entry.doublePoints.length : entry.floatPoints != null ? entry.floatPoints.length : 0;
+            byte[][] names = new byte[entry.pointArrays.length][];
+            long length = 4 * 5 + 8 + 4 + (isDouble ? 8L : 4L) * numberCoords + 8L * entry.cells.length + 4;
+            for (int index = 0; index < entry.pointArrays.length; ++index)
+            {
+                PointArray pointArray = entry.pointArrays[index];
+                names[index] = pointArray.name != null ? pointArray.name.getBytes(StandardCharsets.UTF_8) : null;
+                length += 4 * 5 + (names[index] != null ? names[index].length : 0) + (pointArray.floatValues != null ? 4L : 8L) * pointArray.getNumberValues();
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(length)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(Magic);
+            buffer.putInt(Version);
+            buffer.putInt(entry.isEmpty() ? 1 : 0);
+            buffer.putInt(isDouble ? 1 : 0);
+            buffer.putInt(numberCoords);
+            buffer.putLong(entry.numberCells);
+            buffer.putInt(entry.cells.length);
+            if (isDouble)
+            {
+                buffer.asDoubleBuffer().put(entry.doublePoints);
+                buffer.position(buffer.position() + 8 * numberCoords);
+            }
+            else if (entry.floatPoints != null)
+            {
+                buffer.asFloatBuffer().put(entry.floatPoints);
+                buffer.position(buffer.position() + 4 * numberCoords);
+            }
+            buffer.asLongBuffer().put(entry.cells);
+            buffer.position(buffer.position() + 8 * entry.cells.length);
+            buffer.putInt(entry.pointArrays.length);
+            for (int index = 0; index < entry.pointArrays.length; ++index)
+            {
+                PointArray pointArray = entry.pointArrays[index];
+                buffer.putInt(pointArray.attribute);
+                buffer.putInt(pointArray.numberComponents);
+                buffer.putInt(pointArray.doubleValues != null ? 1 : 0);
+                buffer.putInt(pointArray.getNumberValues());
+                buffer.putInt(names[index] != null ? names[index].length : -1);
+                if (names[index] != null)
+                {
+                    buffer.put(names[index]);
+                }
+                if (pointArray.doubleValues != null)
+                {
+                    buffer.asDoubleBuffer().put(pointArray.doubleValues);
+                    buffer.position(buffer.position() + 8 * pointArray.doubleValues.length);
+                }
+                else
+                {
+                    buffer.asFloatBuffer().put(pointArray.floatValues);
+                    buffer.position(buffer.position() + 4 * pointArray.floatValues.length);
+                }
+            }
+            buffer.rewind();
+
+            try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw"); FileChannel channel = raf.getChannel())
+            {
+                raf.setLength(0);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+
+            if (file.exists() && !file.delete())
+                throw new IOException("Unable to replace " + file);
+            if (!tmpFile.renameTo(file))
+                throw new IOException("Unable to rename " + tmpFile + " to " + file);
+
+            return length;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            FileCacheMessageUtil.debugCache().err().println("Unable to write footprint cache file " + file + ": " + e.getMessage());
+            tmpFile.delete();
+
+            return 0;
+        }
+    }
+
+    private static String hash(String key)
+    {
+        MessageDigest digest = createDigest();
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java implementation is required to support SHA-256.
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder builder = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes)
+        {
+            builder.append(String.format("%02x", b));
+        }
+
+        return builder.toString();
+    }
+
+}
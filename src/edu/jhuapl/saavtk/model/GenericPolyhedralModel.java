@@ -2,55 +2,73 @@ package edu.jhuapl.saavtk.model;
 
 import java.awt.Color;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Doubles;
 
 import edu.jhuapl.saavtk.color.table.ColorMapAttr;
 import edu.jhuapl.saavtk.colormap.Colormap;
 import edu.jhuapl.saavtk.colormap.Colormaps;
 import edu.jhuapl.saavtk.config.IBodyViewConfig;
 import edu.jhuapl.saavtk.config.IViewConfig;
+import edu.jhuapl.saavtk.model.plateColoring.BasicColoringData;
 import edu.jhuapl.saavtk.model.plateColoring.BasicColoringDataManager;
 import edu.jhuapl.saavtk.model.plateColoring.ColoringData;
+import edu.jhuapl.saavtk.model.plateColoring.ColoringDataCache;
 import edu.jhuapl.saavtk.model.plateColoring.ColoringDataFactory;
 import edu.jhuapl.saavtk.model.plateColoring.ColoringDataUtils;
 import edu.jhuapl.saavtk.model.plateColoring.CustomizableColoringDataManager;
 import edu.jhuapl.saavtk.model.plateColoring.FacetColoringData;
+import edu.jhuapl.saavtk.model.plateColoring.LoadableColoringData;
+import edu.jhuapl.saavtk.model.plateColoring.PlateDataExporter;
 import edu.jhuapl.saavtk.util.BoundingBox;
 import edu.jhuapl.saavtk.util.Configuration;
 import edu.jhuapl.saavtk.util.ConvertResourceToFile;
 import edu.jhuapl.saavtk.util.Debug;
+import edu.jhuapl.saavtk.util.DownloadableFileState;
 import edu.jhuapl.saavtk.util.FileCache;
 import edu.jhuapl.saavtk.util.Frustum;
 import edu.jhuapl.saavtk.util.LatLon;
 import edu.jhuapl.saavtk.util.MapUtil;
 import edu.jhuapl.saavtk.util.MathUtil;
 import edu.jhuapl.saavtk.util.PolyDataUtil;
+import edu.jhuapl.saavtk.util.ProgressListener;
 import edu.jhuapl.saavtk.util.Properties;
 import edu.jhuapl.saavtk.util.SafeURLPaths;
 import edu.jhuapl.saavtk.util.SmallBodyCubes;
 import edu.jhuapl.saavtk.util.file.IndexableTuple;
+import edu.jhuapl.saavtk.util.mesh.FrustumIntersector;
+import edu.jhuapl.saavtk.util.mesh.FrustumOverlap;
+import edu.jhuapl.saavtk.util.mesh.JavaMesh;
+import edu.jhuapl.saavtk.util.mesh.PointKdTree;
+import edu.jhuapl.saavtk.util.mesh.SurfacePathTracer;
+import edu.jhuapl.saavtk.util.mesh.SurfacePatcher;
+import edu.jhuapl.saavtk.util.mesh.TriangleBvh;
 import edu.jhuapl.saavtk.view.lod.LodMode;
 import edu.jhuapl.saavtk.view.lod.LodUtil;
 import edu.jhuapl.saavtk.view.lod.VtkLodActor;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
 import edu.jhuapl.saavtk.vtk.VtkDrawUtil;
 import edu.jhuapl.ses.jsqrl.impl.gson.Serializers;
 import vtk.vtkActor;
 import vtk.vtkCamera;
-import vtk.vtkCell;
 import vtk.vtkCellData;
 import vtk.vtkCellDataToPointData;
 import vtk.vtkContourFilter;
@@ -63,7 +81,6 @@ import vtk.vtkGenericCell;
 import vtk.vtkIdList;
 import vtk.vtkIdTypeArray;
 import vtk.vtkLookupTable;
-import vtk.vtkMassProperties;
 import vtk.vtkPointLocator;
 import vtk.vtkPoints;
 import vtk.vtkPolyData;
@@ -137,6 +154,14 @@ public class GenericPolyhedralModel extends PolyhedralModel
     private vtksbCellLocator originalCellLocator;
     private vtkPointLocator originalPointLocator;
     private vtkPointLocator lowResPointLocator;
+    // Thread-safe counterparts of cellLocator and pointLocator; built on demand.
+    private volatile TriangleBvh triangleBvh;
+    private volatile JavaMesh javaMesh;
+    private volatile PointKdTree vertexKdTree;
+    private volatile SurfacePathTracer surfacePathTracer;
+    private volatile SurfacePatcher surfacePatcher;
+    private volatile FrustumIntersector frustumIntersector;
+    private final FootprintCache footprintCache = new FootprintCache(Runtime.getRuntime().maxMemory() / 16);
     private vtkScalarBarActor scalarBarActor;
     private SmallBodyCubes smallBodyCubes;
     private File defaultModelFile;
@@ -538,6 +563,7 @@ public class GenericPolyhedralModel extends PolyhedralModel
     	if (polydata != null)
         {
     		smallBodyPolyDataAtPosition.DeepCopy(polydata);
+    		clearDerivedIndexes();
     		initializeLocators();
             initializeCellIds();
             getCellNormals();
@@ -556,6 +582,7 @@ public class GenericPolyhedralModel extends PolyhedralModel
         {
             smallBodyPolyData.DeepCopy(polydata);
             smallBodyPolyDataAtPosition.DeepCopy(polydata);
+            clearDerivedIndexes();
         }
         for (int i = 0; i < coloringNames.length; ++i)
         {
@@ -841,6 +868,7 @@ public class GenericPolyhedralModel extends PolyhedralModel
         	}
             smallBodyPolyData.ShallowCopy(polydata);
             smallBodyPolyDataAtPosition.ShallowCopy(polydata);
+            clearDerivedIndexes();
         }
         catch (Exception e)
         {
@@ -874,6 +902,7 @@ public class GenericPolyhedralModel extends PolyhedralModel
             vtkPolyData polydata = PolyDataUtil.loadShapeModel(defaultModelFile.getAbsolutePath());
             smallBodyPolyData.ShallowCopy(polydata);
             smallBodyPolyDataAtPosition.ShallowCopy(polydata);
+            clearDerivedIndexes();
         }
         catch (Exception e)
         {
@@ -1006,6 +1035,122 @@ public class GenericPolyhedralModel extends PolyhedralModel
         return pointLocator;
     }
 
+    /**
+     * Drop the indexes derived from the shape model at its current position, so
+     * that each is built again from the new shape model the next time it is
+     * needed. Every index that is built on demand from
+     * smallBodyPolyDataAtPosition must be dropped here.
+     */
+    private synchronized void clearDerivedIndexes()
+    {
+        triangleBvh = null;
+        javaMesh = null;
+        frustumIntersector = null;
+        footprintCache.invalidate();
+        vertexKdTree = null;
+        surfacePathTracer = null;
+        surfacePatcher = null;
+    }
+
+    /**
+     * Return a pure-Java bounding volume hierarchy over the cells of the model at
+     * its current position. The hierarchy is built the first time this method is
+     * called after the shape model changes. Unlike {@link #getCellLocator()}, the
+     * returned object may be queried from multiple threads at once.
+     *
+     * @return the hierarchy
+     */
+    public synchronized TriangleBvh getTriangleBvh()
+    {
+        if (triangleBvh == null)
+        {
+            triangleBvh = TriangleBvh.of(smallBodyPolyDataAtPosition);
+        }
+
+        return triangleBvh;
+    }
+
+    /**
+     * Return a primitive-array snapshot of the triangles of the model at its
+     * current position, for geometry computations that do not need VTK. Like
+     * {@link #getTriangleBvh()}, it is built on demand and may be used from
+     * multiple threads at once.
+     *
+     * @return the snapshot
+     */
+    public synchronized JavaMesh getJavaMesh()
+    {
+        if (javaMesh == null)
+        {
+            javaMesh = JavaMesh.of(smallBodyPolyDataAtPosition);
+        }
+
+        return javaMesh;
+    }
+
+    /**
+     * Return a pure-Java k-d tree over the vertices of the model at its current
+     * position. Like {@link #getTriangleBvh()}, it is built on demand and may be
+     * queried from multiple threads at once.
+     *
+     * @return the tree
+     */
+    public synchronized PointKdTree getVertexKdTree()
+    {
+        if (vertexKdTree == null)
+        {
+            vertexKdTree = PointKdTree.of(VtkArrayUtil.getPoints(smallBodyPolyDataAtPosition.GetPoints()));
+        }
+
+        return vertexKdTree;
+    }
+
+    /**
+     * Return a tracer for paths on the surface of the model at its current
+     * position, built on {@link #getJavaMesh()} and {@link #getTriangleBvh()}.
+     * Like them, it is built on demand and may be used from multiple threads at
+     * once.
+     *
+     * @return the tracer
+     */
+    @Override
+    public synchronized SurfacePathTracer getSurfacePathTracer()
+    {
+        if (surfacePathTracer == null)
+        {
+            surfacePathTracer = SurfacePathTracer.of(getJavaMesh(), getTriangleBvh());
+        }
+
+        return surfacePathTracer;
+    }
+
+    /**
+     * Return a patcher that cuts small patches out of the surface of the model at
+     * its current position, built on {@link #getJavaMesh()},
+     * {@link #getTriangleBvh()} and {@link #getVertexKdTree()}. The point normals
+     * of the model are copied into it. Like them, it is built on demand and may be
+     * used from multiple threads at once.
+     *
+     * @return the patcher
+     */
+    @Override
+    public synchronized SurfacePatcher getSurfacePatcher()
+    {
+        if (surfacePatcher == null)
+        {
+            double[] normals = null;
+            vtkDataArray pointNormals = smallBodyPolyDataAtPosition.GetPointData().GetNormals();
+            if (pointNormals != null && pointNormals.GetNumberOfTuples() == smallBodyPolyDataAtPosition.GetNumberOfPoints())
+            {
+                normals = VtkArrayUtil.getValues(pointNormals);
+            }
+
+            surfacePatcher = SurfacePatcher.of(getJavaMesh(), getTriangleBvh(), getVertexKdTree(), normals);
+        }
+
+        return surfacePatcher;
+    }
+
     public void calculateCubeSize(boolean useCustomBodyCubeSizeIfAvailable, double overlap)
     {
     	cubeOverlapCheck = overlap;
@@ -1101,6 +1246,24 @@ public class GenericPolyhedralModel extends PolyhedralModel
         return getSmallBodyCubes().getIntersectingCubes(bb);
     }
 
+    /**
+     * Same as {@link #getIntersectingCubes(vtkPolyData)}, but return the cube ids
+     * in increasing order in a primitive array.
+     */
+    public int[] getIntersectingCubeIds(vtkPolyData polydata)
+    {
+        return getSmallBodyCubes().getIntersectingCubeIds(polydata);
+    }
+
+    /**
+     * Same as {@link #getIntersectingCubes(BoundingBox)}, but return the cube ids
+     * in increasing order in a primitive array.
+     */
+    public int[] getIntersectingCubeIds(BoundingBox bb)
+    {
+        return getSmallBodyCubes().getIntersectingCubeIds(bb);
+    }
+
     public int getCubeId(double[] point)
     {
         return getSmallBodyCubes().getCubeId(point);
@@ -1178,17 +1341,68 @@ public class GenericPolyhedralModel extends PolyhedralModel
 		depthSorter.Update();
     }
 
+    /**
+     * Return the engine used to compute footprints on the model at its current
+     * position. Like {@link #getTriangleBvh()}, which it shares, it is built on
+     * demand and may be used from multiple threads at once.
+     *
+     * @return the engine
+     */
+    public synchronized FrustumIntersector getFrustumIntersector()
+    {
+        if (frustumIntersector == null)
+        {
+            frustumIntersector = new FrustumIntersector(smallBodyPolyDataAtPosition, getTriangleBvh());
+        }
+
+        return frustumIntersector;
+    }
+
+    /**
+     * Return the cache of the footprints computed by
+     * {@link #computeFrustumIntersection(double[], double[], double[], double[], double[])}
+     * and {@link #computeMultipleFrustumIntersection(List)}, which may be used to
+     * enable its disk tier or change its memory budget.
+     *
+     * @return the cache
+     */
+    public FootprintCache getFootprintCache()
+    {
+        return footprintCache;
+    }
+
     public vtkPolyData computeFrustumIntersection(double[] origin, double[] ul, double[] ur, double[] lr, double[] ll)
     {
-		return PolyDataUtil.computeFrustumIntersection(smallBodyPolyDataAtPosition, getCellLocator(), getPointLocator(), origin, ul, ur, lr,
-				ll);
-		
-//		return PolyDataUtil.computeVTKFrustumIntersection(smallBodyPolyData, origin, ul, ur, lr, ll);
+        double[] geometry = Doubles.concat(origin, ul, ur, lr, ll);
+        return footprintCache.get(smallBodyPolyDataAtPosition, resolutionLevel, geometry, () -> {
+            return getFrustumIntersector().computeFrustumIntersection(origin, ul, ur, lr, ll);
+        });
     }
 
     public vtkPolyData computeMultipleFrustumIntersection(List<Frustum> frustums)
     {
-        return PolyDataUtil.computeMultipleFrustumIntersection(smallBodyPolyDataAtPosition, getCellLocator(), getPointLocator(), frustums);
+        // Corners in the order in which they are passed on to the computation.
+        double[] geometry = new double[0];
+        for (Frustum f : frustums)
+        {
+            geometry = Doubles.concat(geometry, f.origin, f.ul, f.ur, f.ll, f.lr);
+        }
+        return footprintCache.get(smallBodyPolyDataAtPosition, resolutionLevel, geometry, () -> {
+            return computeFrustumOverlap(frustums).computeIntersection();
+        });
+    }
+
+    /**
+     * Classify the model against several frusta in one pass. The footprint shared
+     * by all of them, or by any pair or other subset, may then be obtained from
+     * the result without searching the model again.
+     *
+     * @param frustums the frusta, at least one
+     * @return the classification
+     */
+    public FrustumOverlap computeFrustumOverlap(List<Frustum> frustums)
+    {
+        return getFrustumIntersector().computeOverlap(frustums);
     }
 
     @Override
@@ -1284,11 +1498,7 @@ public class GenericPolyhedralModel extends PolyhedralModel
     public double[] findClosestPoint(double[] pt)
     {
         double[] closestPoint = new double[3];
-        long[] cellId = new long[1];
-        int[] subId = new int[1];
-        double[] dist2 = new double[1];
-
-        getCellLocator().FindClosestPoint(pt, closestPoint, genericCell, cellId, subId, dist2);
+        getTriangleBvh().findClosestCell(pt, closestPoint);
 
         return closestPoint;
     }
@@ -1303,13 +1513,13 @@ public class GenericPolyhedralModel extends PolyhedralModel
      */
     public double[] findClosestVertex(double[] pt)
     {
-        int id = (int)getPointLocator().FindClosestPoint(pt);
+        int id = (int)findClosestVertexId(pt);
         return smallBodyPolyDataAtPosition.GetPoint(id).clone();
     }
 
     public long findClosestVertexId(double[] pt)
     {
-        return getPointLocator().FindClosestPoint(pt);
+        return getVertexKdTree().findClosestPoint(pt[0], pt[1], pt[2]);
     }
 
     /**
@@ -1322,15 +1532,9 @@ public class GenericPolyhedralModel extends PolyhedralModel
      */
     public int findClosestCell(double[] pt, double[] closestPoint)
     {
-        long[] cellId = new long[1];
-        int[] subId = new int[1];
-        double[] dist2 = new double[1];
-
-        // Use FindClosestPoint rather the FindCell since not sure what tolerance to use
-        // in the latter.
-        getCellLocator().FindClosestPoint(pt, closestPoint, genericCell, cellId, subId, dist2);
-
-        return (int)cellId[0];
+        // Use a closest point search rather than a containment test since not
+        // sure what tolerance to use in the latter.
+        return getTriangleBvh().findClosestCell(pt, closestPoint);
     }
 
     /**
@@ -1428,6 +1632,62 @@ public class GenericPolyhedralModel extends PolyhedralModel
             return -1;
     }
 
+    /**
+     * Compute the intersections of a batch of rays with the model. Each ray is
+     * handled exactly as by {@link #computeRayIntersection(double[], double[], double[])},
+     * but the rays are processed in parallel using {@link #getTriangleBvh()}
+     * rather than the VTK cell locator.
+     * <p>
+     * All arrays are packed three values per ray (x0, y0, z0, x1, ...).
+     *
+     * @param origins packed ray origins
+     * @param directions packed ray directions (must be unit vectors)
+     * @param intersectPoints (returned) packed intersection points, NaN for rays
+     *            that miss the model
+     * @return the cellId hit by each ray, or -1 for rays that miss the model
+     */
+    public int[] computeRayIntersections(double[] origins, double[] directions, double[] intersectPoints)
+    {
+        Preconditions.checkArgument(origins.length % 3 == 0, "Origin array length must be a multiple of 3");
+
+        int[] cellIds = new int[origins.length / 3];
+        computeRayIntersections(DoubleBuffer.wrap(origins), DoubleBuffer.wrap(directions), DoubleBuffer.wrap(intersectPoints), IntBuffer.wrap(cellIds));
+
+        return cellIds;
+    }
+
+    /**
+     * Buffer form of {@link #computeRayIntersections(double[], double[], double[])}.
+     * The number of rays is determined by the number of values remaining in
+     * origins. Buffers are read and written starting at their current positions,
+     * which are not changed, and may be direct buffers.
+     *
+     * @param origins packed ray origins
+     * @param directions packed ray directions (must be unit vectors)
+     * @param intersectPoints (returned) packed intersection points
+     * @param cellIds (returned) the cellId hit by each ray, or -1
+     */
+    public void computeRayIntersections(DoubleBuffer origins, DoubleBuffer directions, DoubleBuffer intersectPoints, IntBuffer cellIds)
+    {
+        int numberRays = origins.remaining() / 3;
+
+        // Match the finite segment used by computeRayIntersection for each ray.
+        double diagonalLength = getBoundingBoxDiagonalLength();
+        double[] maxDistances = new double[numberRays];
+        int start = origins.position();
+        for (int ray = 0; ray < numberRays; ++ray)
+        {
+            int i = start + 3 * ray;
+            double x = origins.get(i);
+            double y = origins.get(i + 1);
+            double z = origins.get(i + 2);
+            double distance = Math.sqrt(x * x + y * y + z * z);
+            maxDistances[ray] = 2.0 * (distance != 0 ? distance : diagonalLength);
+        }
+
+        getTriangleBvh().intersectRays(origins, directions, DoubleBuffer.wrap(maxDistances), intersectPoints, cellIds);
+    }
+
     protected void initializeActorsAndMappers()
     {
         if (smallBodyActor == null)
@@ -1622,99 +1882,29 @@ public class GenericPolyhedralModel extends PolyhedralModel
 
     public double[] computeLargestSmallestMeanEdgeLength()
     {
-        double[] largestSmallestMean = new double[3];
+        System.out.println(smallBodyPolyDataAtPosition.GetNumberOfCells());
 
-        double minLength = Double.MAX_VALUE;
-        double maxLength = 0.0;
-        double meanLength = 0.0;
+        double[] edgeLengths = getJavaMesh().computeEdgeLengthStatistics();
 
-        int numberOfCells = (int)smallBodyPolyDataAtPosition.GetNumberOfCells();
+        System.out.println("minLength  " + edgeLengths[0]);
+        System.out.println("maxLength  " + edgeLengths[1]);
+        System.out.println("meanLength  " + edgeLengths[2]);
 
-        System.out.println(numberOfCells);
-
-        for (int i = 0; i < numberOfCells; ++i)
-        {
-            vtkCell cell = smallBodyPolyDataAtPosition.GetCell(i);
-            vtkPoints points = cell.GetPoints();
-            double[] pt0 = points.GetPoint(0);
-            double[] pt1 = points.GetPoint(1);
-            double[] pt2 = points.GetPoint(2);
-            double dist0 = MathUtil.distanceBetween(pt0, pt1);
-            double dist1 = MathUtil.distanceBetween(pt1, pt2);
-            double dist2 = MathUtil.distanceBetween(pt2, pt0);
-            if (dist0 < minLength)
-                minLength = dist0;
-            if (dist0 > maxLength)
-                maxLength = dist0;
-            if (dist1 < minLength)
-                minLength = dist1;
-            if (dist1 > maxLength)
-                maxLength = dist1;
-            if (dist2 < minLength)
-                minLength = dist2;
-            if (dist2 > maxLength)
-                maxLength = dist2;
-
-            meanLength += (dist0 + dist1 + dist2);
-            points.Delete();
-            cell.Delete();
-        }
-
-        meanLength /= (numberOfCells * 3);
-
-        System.out.println("minLength  " + minLength);
-        System.out.println("maxLength  " + maxLength);
-        System.out.println("meanLength  " + meanLength);
-
-        largestSmallestMean[0] = minLength;
-        largestSmallestMean[1] = maxLength;
-        largestSmallestMean[2] = meanLength;
-
-        return largestSmallestMean;
+        return edgeLengths;
     }
 
     protected void computeShapeModelStatistics()
     {
-    	//For some reason, the skin OBJ is made with quads and not triangles, which causes the vtkMassProperties class to freak out and throw a bunch of warnings.  All other items are fine.  
+    	//For some reason, the skin OBJ is made with quads and not triangles, so its per-cell statistics would really be per-triangle ones.  All other items are fine.
     	if (modelFiles[0].contains("organ-skin.obj")) return;
-        vtkMassProperties massProp = new vtkMassProperties();
-        massProp.SetInputData(smallBodyPolyDataAtPosition);
-        massProp.Update();
+        JavaMesh mesh = getJavaMesh();
+        double[] areas = mesh.computeAreaStatistics();
 
-        surfaceArea = massProp.GetSurfaceArea();
-        volume = massProp.GetVolume();
+        surfaceArea = areas[2];
+        volume = mesh.computeVolume();
         meanCellArea = surfaceArea / smallBodyPolyDataAtPosition.GetNumberOfCells();
-        minCellArea = massProp.GetMinCellArea();
-        maxCellArea = massProp.GetMaxCellArea();
-
-        /*
-         *
-         * // The following computes the surface area directly rather than using
-         * vtkMassProperties // It gives exactly the same results as vtkMassProperties
-         * but is much slower.
-         *
-         * int numberOfCells = smallBodyPolyData.GetNumberOfCells();
-         *
-         * System.out.println(numberOfCells); double totalArea = 0.0; minCellArea =
-         * Double.MAX_VALUE; maxCellArea = 0.0; for (int i=0; i<numberOfCells; ++i) {
-         * vtkCell cell = smallBodyPolyData.GetCell(i); vtkPoints points =
-         * cell.GetPoints(); double[] pt0 = points.GetPoint(0); double[] pt1 =
-         * points.GetPoint(1); double[] pt2 = points.GetPoint(2); double area =
-         * MathUtil.triangleArea(pt0, pt1, pt2); totalArea += area; if (area <
-         * minCellArea) minCellArea = area; if (area > maxCellArea) maxCellArea = area;
-         * }
-         *
-         * meanCellArea = totalArea / (double)(numberOfCells);
-         *
-         *
-         * System.out.println("Surface area   " + massProp.GetSurfaceArea());
-         * System.out.println("Surface area2  " + totalArea);
-         * System.out.println("min cell area  " + massProp.GetMinCellArea());
-         * System.out.println("min cell area2 " + minCellArea);
-         * System.out.println("max cell area  " + massProp.GetMaxCellArea());
-         * System.out.println("max cell area2 " + maxCellArea);
-         * System.out.println("Volume " + massProp.GetVolume());
-         */
+        minCellArea = areas[0];
+        maxCellArea = areas[1];
     }
 
     @Override
@@ -1764,6 +1954,43 @@ public class GenericPolyhedralModel extends PolyhedralModel
         
     }
 
+    /**
+     * Download in the background the shape model, gravity vector and plate
+     * coloring files of the specified resolution level, so that switching to it
+     * later does not have to wait for them. Files already in the cache are only
+     * checked for updates.
+     *
+     * @param level the resolution level
+     * @return a future that completes once all the files have been downloaded
+     */
+    public CompletableFuture<List<DownloadableFileState>> prefetchModelResolution(int level)
+    {
+        Preconditions.checkArgument(level >= 0 && level < getNumberResolutionLevels(), "No resolution level " + level);
+
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        builder.add(modelFiles[level]);
+
+        String gravityVectorFilePath = getGravityVectorFilePath(level);
+        if (gravityVectorFilePath != null)
+        {
+            builder.add(gravityVectorFilePath);
+        }
+
+        ImmutableList<Integer> resolutions = coloringDataManager.getResolutions();
+        if (level < resolutions.size())
+        {
+            for (ColoringData data : coloringDataManager.get(resolutions.get(level)))
+            {
+                if (data instanceof LoadableColoringData)
+                {
+                    builder.add(((LoadableColoringData) data).getFileId());
+                }
+            }
+        }
+
+        return FileCache.prefetch(builder.build());
+    }
+
     @Override
     public void reloadShapeModel() throws IOException
     {
@@ -1776,6 +2003,7 @@ public class GenericPolyhedralModel extends PolyhedralModel
         cellNormals = null;
         gravityVector = null;
         boundingBox = null;
+        clearDerivedIndexes();
 
         File smallBodyFile = FileCache.getFileFromServer(modelFiles[resolutionLevel]);
 
@@ -2103,8 +2331,6 @@ public class GenericPolyhedralModel extends PolyhedralModel
     @Override
     public double[] getAllColoringValues(double[] pt) throws IOException
     {
-        loadAllColoringData();
-
         double[] closestPoint = new double[3];
         int cellId = findClosestCell(pt, closestPoint);
 
@@ -2119,7 +2345,17 @@ public class GenericPolyhedralModel extends PolyhedralModel
         int valueIndex = 0;
         for (ColoringData data : coloringData)
         {
-            double[] coloringVector = getVectorValue(closestPoint, data.getData(), cellId, data.getFieldNames().size());
+            // Cell values of colorings loaded from files may be read without loading the
+            // whole coloring, if the file format allows it.
+            double[] coloringVector;
+            if (coloringValueType != ColoringValueType.POINT_DATA && data instanceof LoadableColoringData)
+            {
+                coloringVector = ((LoadableColoringData) data).getTupleValues(cellId);
+            }
+            else
+            {
+                coloringVector = getVectorValue(closestPoint, data.getData(), cellId, data.getFieldNames().size());
+            }
             for (int index = 0; index < coloringVector.length; ++index, ++valueIndex)
             {
                 result[valueIndex] = coloringVector[index];
@@ -2129,6 +2365,81 @@ public class GenericPolyhedralModel extends PolyhedralModel
         return result;
     }
 
+    /**
+     * Same as the base implementation, but each coloring is copied into a
+     * primitive array once, and the points are then processed in parallel using
+     * {@link #getTriangleBvh()} and {@link #getJavaMesh()} instead of VTK. This
+     * loads the whole of the specified colorings (and no others).
+     */
+    @Override
+    public double[][] getColoringValues(int[] coloringIndices, double[] points) throws IOException
+    {
+        TriangleBvh bvh = getTriangleBvh();
+        JavaMesh mesh = getJavaMesh();
+        boolean pointData = coloringValueType == ColoringValueType.POINT_DATA;
+
+        int numberPoints = points.length / 3;
+        double[][] columns = new double[coloringIndices.length][];
+        double[][] result = new double[coloringIndices.length][];
+        for (int i = 0; i < coloringIndices.length; ++i)
+        {
+            if (coloringIndices[i] != -1)
+            {
+                columns[i] = getColoringColumn(getColoringData(coloringIndices[i]));
+                result[i] = new double[numberPoints];
+            }
+        }
+
+        IntStream.range(0, numberPoints).parallel().forEach(p -> {
+            double[] point = { points[3 * p], points[3 * p + 1], points[3 * p + 2] };
+            double[] closestPoint = new double[3];
+            int[] triangle = new int[3];
+            int cellId = bvh.findClosestCell(point, closestPoint, triangle);
+
+            // Point data are interpolated within the triangle of the closest cell
+            // that contains the closest point.
+            double[][] vertices = null;
+            if (pointData && cellId >= 0)
+            {
+                vertices = new double[3][3];
+                for (int k = 0; k < 3; ++k)
+                {
+                    mesh.getVertex(triangle[k], vertices[k]);
+                }
+            }
+
+            for (int i = 0; i < columns.length; ++i)
+            {
+                double[] column = columns[i];
+                if (column == null)
+                    continue;
+
+                if (cellId < 0)
+                    result[i][p] = Double.NaN;
+                else if (pointData)
+                    result[i][p] = MathUtil.interpolateWithinTriangle(closestPoint, vertices[0], vertices[1], vertices[2],
+                            column[triangle[0]], column[triangle[1]], column[triangle[2]]);
+                else
+                    result[i][p] = column[cellId];
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Return the first column of the specified coloring. The copy made by a
+     * {@link BasicColoringData} is kept with its data, counts against the
+     * {@link ColoringDataCache} budget and is discarded with the data.
+     */
+    private static double[] getColoringColumn(ColoringData coloringData)
+    {
+        if (coloringData instanceof BasicColoringData)
+            return ((BasicColoringData) coloringData).getFieldValues(0);
+
+        return ColoringDataUtils.copyField(coloringData.getData(), 0);
+    }
+
     /**
      * Subclass must override this method if it wants to support loading gravity
      * vector.
@@ -2426,14 +2737,18 @@ public class GenericPolyhedralModel extends PolyhedralModel
                     if (smallBodyActors.contains(linesActor))
                         smallBodyActors.remove(linesActor);
 
-                    vtkUnsignedCharArray rgbColorData = new vtkUnsignedCharArray();
-                    rgbColorData.SetNumberOfComponents(3);
-                    for (int index = 0; index < floatArray.GetNumberOfTuples(); ++index)
+                    float[] values = floatArray.GetJavaArray();
+                    int numberTuples = (int) floatArray.GetNumberOfTuples();
+                    byte[] rgbValues = new byte[3 * numberTuples];
+                    for (int index = 0; index < numberTuples; ++index)
                     {
-                        double value = floatArray.GetValue(index);
+                        double value = values[index];
                         Color c = colormap.getColor(value);
-                        rgbColorData.InsertNextTuple3(c.getRed(), c.getGreen(), c.getBlue());
+                        rgbValues[3 * index] = (byte) c.getRed();
+                        rgbValues[3 * index + 1] = (byte) c.getGreen();
+                        rgbValues[3 * index + 2] = (byte) c.getBlue();
                     }
+                    vtkUnsignedCharArray rgbColorData = VtkArrayUtil.createUnsignedCharArray(3, rgbValues);
 
                     smallBodyMapper.SetLookupTable(colormap.getLookupTable());
 
@@ -2843,21 +3158,9 @@ public class GenericPolyhedralModel extends PolyhedralModel
     @Override
     public void savePlateData(File file) throws IOException
     {
-        savePlateData(new Indexable<Integer>() {
-
-            @Override
-            public int size()
-            {
-                return (int)smallBodyPolyDataAtPosition.GetNumberOfCells();
-            }
-
-            @Override
-            public Integer get(int index)
-            {
-                return index;
-            }
-
-        }, file);
+        BitSet cellIds = new BitSet();
+        cellIds.set(0, (int)smallBodyPolyDataAtPosition.GetNumberOfCells());
+        savePlateData(cellIds, file, null);
     }
 
     /**
@@ -2872,22 +3175,24 @@ public class GenericPolyhedralModel extends PolyhedralModel
     @Override
     public void savePlateDataInsidePolydata(vtkPolyData polydata, File file) throws IOException
     {
-        ImmutableList<Integer> cellIdList = getClosestCellList(polydata);
-        savePlateData(new Indexable<Integer>() {
-
-            @Override
-            public int size()
-            {
-                return cellIdList.size();
-            }
-
-            @Override
-            public Integer get(int index)
-            {
-                return cellIdList.get(index);
-            }
+        savePlateDataInsidePolydata(polydata, file, null);
+    }
 
-        }, file);
+    /**
+     * Given a polydata that is coincident with part of the shape model, save out
+     * the plate data for all cells of the shape model that touch the polydata (even
+     * a little bit). The file is written as a FITS binary table if its name ends
+     * with .fits, .fit or .fts, and as CSV otherwise.
+     *
+     * @param polydata
+     * @param file
+     * @param listener if not null, notified of the percentage of plates written
+     * @throws IOException
+     */
+    @Override
+    public void savePlateDataInsidePolydata(vtkPolyData polydata, File file, ProgressListener listener) throws IOException
+    {
+        savePlateData(getClosestCells(polydata), file, listener);
     }
 
     /**
@@ -2902,59 +3207,65 @@ public class GenericPolyhedralModel extends PolyhedralModel
     @Override
     public FacetColoringData[] getPlateDataInsidePolydata(vtkPolyData polydata)
     {
-        ImmutableList<Integer> cellIdList = getClosestCellList(polydata);
-        FacetColoringData[] coloringData = getColoringDataFor(new Indexable<Integer>() {
-
-            @Override
-            public int size()
-            {
-                return cellIdList.size();
-            }
+        BitSet cellIds = getClosestCells(polydata);
+        ImmutableList<ColoringData> allColoringData = getAllColoringData();
+        JavaMesh mesh = getJavaMesh();
 
-            @Override
-            public Integer get(int index)
-            {
-                return cellIdList.get(index);
-            }
+        FacetColoringData[] coloringData = cellIds.stream().mapToObj(cellId -> new FacetColoringData(cellId, allColoringData)).toArray(FacetColoringData[]::new);
+        Arrays.stream(coloringData).parallel().forEach(facetData -> facetData.generateDataFromMesh(mesh));
 
-        });
         return coloringData;
-
     }
 
     public ImmutableList<Integer> getClosestCellList(vtkPolyData polydata)
     {
-        // Go through every cell inside the polydata and find the closest cell to it
-        // in the shape model and get the plate data for that cell.
-        // First put the cells into an ordered set, so we don't save out the
-        // same cell twice.
-        TreeSet<Integer> cellIds = new TreeSet<>();
+        ImmutableList.Builder<Integer> builder = ImmutableList.builder();
+        getClosestCells(polydata).stream().forEach(builder::add);
 
-        int numCells = (int)polydata.GetNumberOfCells();
+        return builder.build();
+    }
 
-        double[] pt0 = new double[3];
-        double[] pt1 = new double[3];
-        double[] pt2 = new double[3];
-        double[] center = new double[3];
-        double[] closestPoint = new double[3];
+    /**
+     * Return the ids of the cells of the shape model closest to the centers of the
+     * cells of the specified polydata.
+     *
+     * @param polydata a polydata that is coincident with part of the shape model
+     * @return the cell ids
+     */
+    public BitSet getClosestCells(vtkPolyData polydata)
+    {
+        // Go through every cell inside the polydata and find the closest cell to
+        // its center in the shape model. Copy the geometry out of VTK once, then
+        // run the searches in parallel. A bit set ensures each cell is listed once
+        // and in order.
+        double[] points = VtkArrayUtil.getPoints(polydata.GetPoints());
+        long[] cells = VtkArrayUtil.getLegacyCells(polydata.GetPolys());
+        int numCells = (int)polydata.GetNumberOfPolys();
 
-        for (int i = 0; i < numCells; ++i)
+        double[] centers = new double[3 * numCells];
+        for (int i = 0, index = 0; i < numCells; ++i)
         {
-            vtkTriangle cell = (vtkTriangle) polydata.GetCell(i);
-            vtkPoints points = cell.GetPoints();
-            points.GetPoint(0, pt0);
-            points.GetPoint(1, pt1);
-            points.GetPoint(2, pt2);
-            cell.TriangleCenter(pt0, pt1, pt2, center);
-
-            int cellId = findClosestCell(center, closestPoint);
-
-            cellIds.add(cellId);
+            int numberIds = (int)cells[index];
+            for (int j = 1; j <= numberIds; ++j)
+            {
+                int p = 3 * (int)cells[index + j];
+                centers[3 * i] += points[p];
+                centers[3 * i + 1] += points[p + 1];
+                centers[3 * i + 2] += points[p + 2];
+            }
+            centers[3 * i] /= numberIds;
+            centers[3 * i + 1] /= numberIds;
+            centers[3 * i + 2] /= numberIds;
+            index += numberIds + 1;
+        }
 
-            points.Delete();
-            cell.Delete();
+        BitSet cellIds = new BitSet();
+        for (int cellId : getTriangleBvh().findClosestCells(centers, null))
+        {
+            cellIds.set(cellId);
         }
-        return ImmutableList.copyOf(cellIds);
+
+        return cellIds;
     }
 
     @Override
@@ -2987,73 +3298,14 @@ public class GenericPolyhedralModel extends PolyhedralModel
         return lidarDataSourceL;
     }
 
-    private void savePlateData(Indexable<Integer> indexable, File file) throws IOException
+    private void savePlateData(BitSet cellIds, File file, ProgressListener listener) throws IOException
     {
         loadAllColoringData();
 
-        try (FileWriter fstream = new FileWriter(file))
-        {
-            try (BufferedWriter out = new BufferedWriter(fstream))
-            {
-                final String lineSeparator = System.getProperty("line.separator");
-
-                out.write("Plate Id");
-                out.write(",Area (km^2)");
-                out.write(",Center X (km)");
-                out.write(",Center Y (km)");
-                out.write(",Center Z (km)");
-                out.write(",Center Latitude (deg)");
-                out.write(",Center Longitude (deg)");
-                out.write(",Center Radius (km)");
-                ImmutableList<ColoringData> allColoringData = getAllColoringData();
-                for (ColoringData data : allColoringData)
-                {
-                    String units = data.getUnits();
-                    for (String name : data.getFieldNames())
-                    {
-                        out.write("," + name);
-                        if (units != null && !units.isEmpty())
-                            out.write(" (" + units + ")");
-                    }
-
-                }
-                out.write(lineSeparator);
-
-                vtkTriangle triangle = new vtkTriangle();
-
-                vtkPoints points = smallBodyPolyDataAtPosition.GetPoints();
-                int numberCells = (int)smallBodyPolyDataAtPosition.GetNumberOfCells();
-                smallBodyPolyDataAtPosition.BuildCells();
-                vtkIdList idList = new vtkIdList();
-
-                for (int index = 0; index < indexable.size(); ++index)
-                {
-                    int cellId = indexable.get(index);
-                    FacetColoringData facetData = new FacetColoringData(cellId, allColoringData);
-                    facetData.generateDataFromPolydata(smallBodyPolyDataAtPosition, numberCells, triangle, points, idList);
-                    facetData.writeTo(out);
-                    out.write(lineSeparator);
-                }
-                triangle.Delete();
-                idList.Delete();
-            }
-        }
+        PlateDataExporter exporter = PlateDataExporter.of(getJavaMesh(), getAllColoringData());
+        exporter.export(cellIds, file, PlateDataExporter.Format.of(file), listener);
     }
 
-    private FacetColoringData[] getColoringDataFor(Indexable<Integer> indexable)
-    {
-        FacetColoringData[] data = new FacetColoringData[indexable.size()];
-        ImmutableList<ColoringData> allColoringData = getAllColoringData();
-        for (int index = 0; index < indexable.size(); ++index)
-        {
-            int cellId = indexable.get(index);
-            FacetColoringData facetData = new FacetColoringData(cellId, allColoringData);
-            facetData.generateDataFromPolydata(smallBodyPolyDataAtPosition);
-            data[index] = facetData;
-        }
-        return data;
-    }
-    
     @Override
     public vtkTransform getCurrentTransform()
     {
@@ -15,6 +15,9 @@ import edu.jhuapl.saavtk.model.plateColoring.CustomizableColoringDataManager;
 import edu.jhuapl.saavtk.model.plateColoring.FacetColoringData;
 import edu.jhuapl.saavtk.util.BoundingBox;
 import edu.jhuapl.saavtk.util.LatLon;
+import edu.jhuapl.saavtk.util.ProgressListener;
+import edu.jhuapl.saavtk.util.mesh.SurfacePathTracer;
+import edu.jhuapl.saavtk.util.mesh.SurfacePatcher;
 import vtk.vtkDataArray;
 import vtk.vtkPointLocator;
 import vtk.vtkPolyData;
@@ -246,12 +249,86 @@ public abstract class PolyhedralModel extends AbstractModel implements PolyModel
 
 	public abstract double[] getGravityVector(double[] pt);
 
+	/**
+	 * Returns the values of the specified colorings at many points at once. Each
+	 * value is the first field of the coloring, as {@link #getAllColoringValues}
+	 * would return it for the point. The base implementation calls that method
+	 * once per point.
+	 *
+	 * @param coloringIndices indices of the colorings. Entries of -1 are skipped.
+	 * @param points          packed points (x0, y0, z0, x1, ...)
+	 * @return the values, indexed by [coloring][point]. The row of a skipped
+	 *         coloring is null.
+	 */
+	public double[][] getColoringValues(int[] coloringIndices, double[] points) throws IOException
+	{
+		// Locate the first column of each coloring
+		List<ColoringData> coloringDataL = getAllColoringData();
+		int[] columns = new int[coloringDataL.size()];
+		for (int i = 1; i < columns.length; ++i)
+			columns[i] = columns[i - 1] + coloringDataL.get(i - 1).getFieldNames().size();
+
+		int numPoints = points.length / 3;
+		double[][] result = new double[coloringIndices.length][];
+		for (int i = 0; i < coloringIndices.length; ++i)
+		{
+			if (coloringIndices[i] != -1)
+				result[i] = new double[numPoints];
+		}
+
+		double[] point = new double[3];
+		for (int p = 0; p < numPoints; ++p)
+		{
+			System.arraycopy(points, 3 * p, point, 0, 3);
+			double[] values = getAllColoringValues(point);
+			for (int i = 0; i < coloringIndices.length; ++i)
+			{
+				if (coloringIndices[i] != -1)
+					result[i][p] = values[columns[coloringIndices[i]]];
+			}
+		}
+
+		return result;
+	}
+
 	public abstract double getMinShiftAmount();
 
 	public abstract void savePlateDataInsidePolydata(vtkPolyData polydata, File file) throws IOException;
 
+	/**
+	 * Same as {@link #savePlateDataInsidePolydata(vtkPolyData, File)}, reporting
+	 * progress to the specified listener. The base implementation does not report
+	 * progress.
+	 */
+	public void savePlateDataInsidePolydata(vtkPolyData polydata, File file, ProgressListener listener) throws IOException
+	{
+		savePlateDataInsidePolydata(polydata, file);
+	}
+
 	public abstract FacetColoringData[] getPlateDataInsidePolydata(vtkPolyData polydata);
 
+	/**
+	 * Returns a {@link SurfacePathTracer} over the model at its current position,
+	 * for drawing paths on the surface without cutting the whole model. The base
+	 * implementation returns null, in which case paths are drawn by cutting the
+	 * whole model.
+	 */
+	public SurfacePathTracer getSurfacePathTracer()
+	{
+		return null;
+	}
+
+	/**
+	 * Returns a {@link SurfacePatcher} over the model at its current position, for
+	 * drawing ellipses and points without touching the VTK state of the model. The
+	 * base implementation returns null, in which case they are drawn on the model
+	 * itself, one at a time.
+	 */
+	public SurfacePatcher getSurfacePatcher()
+	{
+		return null;
+	}
+
 	public abstract String getModelName();
 
 	public abstract List<String> getModelFileNames();
@@ -159,9 +159,13 @@ public abstract class BasicColoringData implements ColoringData
         };
     }
 
+    // Primitive copies of fields of the cached data, indexed by field; guarded by this.
+    private double[][] fieldValues;
+
     protected BasicColoringData()
     {
         super();
+        this.fieldValues = null;
     }
 
     protected abstract AtomicReference<IndexableTuple> getDataReference();
@@ -177,25 +181,126 @@ public abstract class BasicColoringData implements ColoringData
      * {@inheritDoc}
      */
     @Override
-    public final synchronized IndexableTuple getData()
+    public final IndexableTuple getData()
     {
-        load();
+        IndexableTuple data;
+        boolean provided;
+        synchronized (this)
+        {
+            provided = getDataReference().get() == null;
+            load();
+            data = getDataReference().get();
+        }
+
+        accessed(provided);
 
-        return getDataReference().get();
+        return data;
     }
 
     /**
-     * Call the {@link #load()} method to load the data and compute their range,
-     * then extract and return the data's range.
+     * Return the data's range, calling the {@link #load()} method to load the data
+     * and compute their range if the range is not already cached. The range may
+     * remain cached after the data themselves have been discarded.
      * <p>
      * {@inheritDoc}
      */
     @Override
     public final double[] getDefaultRange()
     {
-        load();
+        double[] range = getRangeReference().get();
+        if (range != null)
+        {
+            return range;
+        }
+
+        boolean provided;
+        synchronized (this)
+        {
+            provided = getDataReference().get() == null;
+            load();
+            range = getRangeReference().get();
+        }
+
+        accessed(provided);
+
+        return range;
+    }
+
+    /**
+     * Return the values of one field of every tuple in a primitive array, which
+     * may then be read from any number of threads. The array is copied from the
+     * data the first time it is requested, and is kept until the data themselves
+     * are cleared or discarded. Callers must not modify it.
+     * 
+     * @param fieldIndex the index of the field
+     * @return the values of the field, indexed by tuple
+     */
+    public final double[] getFieldValues(int fieldIndex)
+    {
+        Preconditions.checkElementIndex(fieldIndex, getFieldNames().size());
+
+        IndexableTuple data = getData();
+        double[] values;
+        synchronized (this)
+        {
+            if (fieldValues != null && fieldValues[fieldIndex] != null)
+            {
+                return fieldValues[fieldIndex];
+            }
+
+            values = ColoringDataUtils.copyField(data, fieldIndex);
+
+            // Keep the copy only if it was made from the data still cached, so that it
+            // never outlives them.
+            if (getDataReference().get() != data)
+            {
+                return values;
+            }
+
+            if (fieldValues == null)
+            {
+                fieldValues = new double[getFieldNames().size()][];
+            }
+            fieldValues[fieldIndex] = values;
+        }
+
+        fieldValuesCopied(values);
+
+        return values;
+    }
+
+    /**
+     * Called by {@link #getFieldValues(int)} after a field has been copied and
+     * kept with the data. This is called without holding the lock on this object.
+     * The base implementation does nothing.
+     * 
+     * @param values the copy of the field
+     */
+    protected void fieldValuesCopied(double[] values)
+    {
+
+    }
+
+    /**
+     * Discard the copies of fields made by {@link #getFieldValues(int)}. This must
+     * be called whenever the cached data are reset.
+     */
+    protected final synchronized void clearFieldValues()
+    {
+        fieldValues = null;
+    }
+
+    /**
+     * Called by {@link #getData()} and {@link #getDefaultRange()} after the data
+     * have been loaded, if necessary. This is called without holding the lock on
+     * this object. The base implementation does nothing.
+     * 
+     * @param provided true if the data were just obtained from
+     *            {@link #provideData()}, false if they were already cached
+     */
+    protected void accessed(boolean provided)
+    {
 
-        return getRangeReference().get();
     }
 
     /**
@@ -211,6 +316,7 @@ public abstract class BasicColoringData implements ColoringData
     {
         IndexableTuple data = getDataReference().getAndSet(null);
         getRangeReference().set(null);
+        clearFieldValues();
         ColoringDataUtils.deleteVtkData(data);
     }
 
@@ -314,6 +420,7 @@ public abstract class BasicColoringData implements ColoringData
 
         getDataReference().set(destTuples);
         getRangeReference().set(destRange);
+        clearFieldValues();
     }
 
     protected static void checkArguments(IndexableTuple data, int numberElements, int numberComponents)
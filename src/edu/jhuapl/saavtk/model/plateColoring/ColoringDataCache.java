@@ -0,0 +1,316 @@
+package edu.jhuapl.saavtk.model.plateColoring;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.saavtk.util.file.ColumnarIndexableTuple;
+import edu.jhuapl.saavtk.util.file.IndexableTuple;
+
+/**
+ * Memory budget shared by all {@link LoadableColoringData} objects.
+ * <p>
+ * Every coloring loaded from a file is registered here together with the
+ * (estimated) number of bytes its data, and any copies of their fields, occupy.
+ * When the total exceeds the budget, the data of the least recently used
+ * colorings are discarded, to be loaded again from their files the next time
+ * they are needed. Only the data are discarded; the colorings themselves, their
+ * metadata and their ranges stay available.
+ * <p>
+ * Colorings whose data did not come from a file (for example copies that have
+ * not been saved yet) are never registered, so their data are never
+ * discarded.
+ */
+public final class ColoringDataCache
+{
+    private static final ColoringDataCache INSTANCE = new ColoringDataCache(Runtime.getRuntime().maxMemory() / 4);
+
+    /**
+     * Return the cache shared by all {@link LoadableColoringData} objects. Its
+     * initial budget is one quarter of the maximum heap size.
+     *
+     * @return the cache
+     */
+    public static ColoringDataCache instance()
+    {
+        return INSTANCE;
+    }
+
+    private static final class Entry
+    {
+        private final WeakReference<LoadableColoringData> reference;
+        private long bytes;
+
+        Entry(LoadableColoringData coloringData, long bytes)
+        {
+            this.reference = new WeakReference<>(coloringData);
+            this.bytes = bytes;
+        }
+    }
+
+    // Keyed by LoadableColoringData#getCacheId(), in access order.
+    private final LinkedHashMap<Long, Entry> entries;
+    private long byteBudget;
+    private long residentBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long tupleReadCount;
+
+    private ColoringDataCache(long byteBudget)
+    {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.byteBudget = byteBudget;
+        this.residentBytes = 0;
+        this.hitCount = 0;
+        this.missCount = 0;
+        this.evictionCount = 0;
+        this.tupleReadCount = 0;
+    }
+
+    /**
+     * Return the maximum number of bytes of coloring data to keep in memory.
+     */
+    public synchronized long getByteBudget()
+    {
+        return byteBudget;
+    }
+
+    /**
+     * Set the maximum number of bytes of coloring data to keep in memory,
+     * discarding the data of colorings as needed to meet the new budget. The most
+     * recently used coloring is kept even if it alone exceeds the budget.
+     *
+     * @param byteBudget the budget, in bytes
+     */
+    public void setByteBudget(long byteBudget)
+    {
+        Preconditions.checkArgument(byteBudget >= 0);
+
+        List<LoadableColoringData> victims;
+        synchronized (this)
+        {
+            this.byteBudget = byteBudget;
+            victims = selectVictims(null);
+        }
+
+        evict(victims);
+    }
+
+    /**
+     * Return the estimated number of bytes of coloring data currently in memory.
+     */
+    public synchronized long getResidentBytes()
+    {
+        return residentBytes;
+    }
+
+    /**
+     * Return the number of colorings whose data are currently in memory.
+     */
+    public synchronized int getResidentCount()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Return the number of times coloring data were requested and were already
+     * in memory.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Return the number of times coloring data were requested and had to be
+     * loaded from a file.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Return the number of times the data of a coloring were discarded to meet the
+     * budget.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Return the number of single tuples read from files without loading the
+     * whole coloring, see {@link LoadableColoringData#getTupleValues(int)}.
+     */
+    public synchronized long getTupleReadCount()
+    {
+        return tupleReadCount;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("Coloring data: %d colorings, %.1f of %.1f MB resident; %d hits, %d misses, %d evictions, %d tuple reads", //
+                entries.size(), residentBytes / 1048576., byteBudget / 1048576., hitCount, missCount, evictionCount, tupleReadCount);
+    }
+
+    /**
+     * Register the data just loaded for the specified coloring, and discard the
+     * data of other colorings as needed to meet the budget.
+     */
+    void loaded(LoadableColoringData coloringData, IndexableTuple data)
+    {
+        List<LoadableColoringData> victims;
+        synchronized (this)
+        {
+            ++missCount;
+
+            purge();
+
+            Entry entry = new Entry(coloringData, estimateBytes(data));
+            Entry previous = entries.put(coloringData.getCacheId(), entry);
+            if (previous != null)
+            {
+                residentBytes -= previous.bytes;
+            }
+            residentBytes += entry.bytes;
+
+            victims = selectVictims(coloringData);
+        }
+
+        evict(victims);
+    }
+
+    /**
+     * Add bytes kept alongside the registered data of the specified coloring (see
+     * {@link BasicColoringData#getFieldValues(int)}), and discard the data of
+     * other colorings as needed to meet the budget. Nothing is added if the data
+     * are not registered.
+     */
+    void grown(LoadableColoringData coloringData, long bytes)
+    {
+        List<LoadableColoringData> victims;
+        synchronized (this)
+        {
+            Entry entry = entries.get(coloringData.getCacheId());
+            if (entry == null)
+            {
+                return;
+            }
+            entry.bytes += bytes;
+            residentBytes += bytes;
+
+            victims = selectVictims(coloringData);
+        }
+
+        evict(victims);
+    }
+
+    /**
+     * Record a use of the data of the specified coloring, if they are registered.
+     */
+    synchronized void accessed(LoadableColoringData coloringData)
+    {
+        if (entries.get(coloringData.getCacheId()) != null)
+        {
+            ++hitCount;
+        }
+    }
+
+    /**
+     * Record that one tuple was read from a file.
+     */
+    synchronized void tupleRead()
+    {
+        ++tupleReadCount;
+    }
+
+    /**
+     * Unregister the specified coloring, whose data have been discarded.
+     */
+    synchronized void removed(LoadableColoringData coloringData)
+    {
+        Entry entry = entries.remove(coloringData.getCacheId());
+        if (entry != null)
+        {
+            residentBytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Remove the entries of colorings that have been garbage collected.
+     */
+    private void purge()
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            if (entry.reference.get() == null)
+            {
+                residentBytes -= entry.bytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove least recently used entries until the budget is met, never removing
+     * the entry of the specified coloring, nor the last entry. Return the
+     * colorings whose data must be discarded. This is called holding the lock on
+     * the cache, but the data must be discarded without holding it.
+     */
+    private List<LoadableColoringData> selectVictims(LoadableColoringData keep)
+    {
+        List<LoadableColoringData> victims = new ArrayList<>();
+
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        while (residentBytes > byteBudget && entries.size() > 1 && iterator.hasNext())
+        {
+            Map.Entry<Long, Entry> mapEntry = iterator.next();
+            LoadableColoringData coloringData = mapEntry.getValue().reference.get();
+            if (coloringData == keep)
+            {
+                continue;
+            }
+
+            residentBytes -= mapEntry.getValue().bytes;
+            iterator.remove();
+
+            if (coloringData != null)
+            {
+                victims.add(coloringData);
+                ++evictionCount;
+            }
+        }
+
+        return victims;
+    }
+
+    private static void evict(List<LoadableColoringData> victims)
+    {
+        for (LoadableColoringData coloringData : victims)
+        {
+            coloringData.evict();
+        }
+    }
+
+    /**
+     * Return the approximate number of bytes used by the values of the specified
+     * data.
+     */
+    static long estimateBytes(IndexableTuple data)
+    {
+        int bytesPerValue = data instanceof ColumnarIndexableTuple && ((ColumnarIndexableTuple) data).isSinglePrecision() ? 4 : 8;
+
+        return (long) data.size() * data.getNumberFields() * bytesPerValue;
+    }
+
+}
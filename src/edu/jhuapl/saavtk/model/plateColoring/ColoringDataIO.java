@@ -29,6 +29,40 @@ public interface ColoringDataIO
      */
     IndexableTuple loadColoringData(File file) throws IOException, IncorrectFileFormatException, FieldNotFoundException;
 
+    /**
+     * Return true if {@link #loadTuple(File, int)} reads one tuple from the
+     * specified {@link File} without reading the whole file. If not, a caller
+     * that needs tuples one at a time is better off loading all the coloring
+     * data once. The base implementation returns false.
+     * 
+     * @param file the file from which to load the coloring data
+     * @return true if one tuple can be read cheaply
+     */
+    default boolean canLoadTuple(File file)
+    {
+        return false;
+    }
+
+    /**
+     * Load the values of the fields of just one tuple (facet) from the specified
+     * {@link File}. The base implementation loads all the coloring data and
+     * extracts the tuple; override this, and {@link #canLoadTuple(File)}, for
+     * formats that can read one tuple more cheaply.
+     * 
+     * @param file the file from which to load the coloring data
+     * @param tupleIndex the index of the tuple
+     * @return the values of the fields of the tuple
+     * @throws IOException if IOException prevents loading the file
+     * @throws IncorrectFileFormatException if the file exists but the
+     *             implementation cannot handle files with that format
+     * @throws FieldNotFoundException if the file has the correct format but does
+     *             not contain the expected fields
+     */
+    default double[] loadTuple(File file, int tupleIndex) throws IOException, IncorrectFileFormatException, FieldNotFoundException
+    {
+        return loadColoringData(file).get(tupleIndex).get();
+    }
+
     /**
      * Save the specified coloring data {@link IndexableTuple} to the specified
      * file.
@@ -6,10 +6,13 @@ import java.nio.file.Files;
 
 import com.google.common.base.Preconditions;
 
+import edu.jhuapl.saavtk.util.file.ColumnarIndexableTuple;
 import edu.jhuapl.saavtk.util.file.IndexableTuple;
 import edu.jhuapl.saavtk.util.file.Tuple;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
 import vtk.vtkDataArray;
 import vtk.vtkDoubleArray;
+import vtk.vtkFloatArray;
 
 /**
  * Static utility methods useful for manipulating coloring-related abstractions.
@@ -67,6 +70,42 @@ public class ColoringDataUtils
         }
     }
 
+    /**
+     * Copy one field of every tuple of the specified {@link IndexableTuple} into a
+     * primitive array, which may then be read from any number of threads.
+     * VTK-backed tuples are copied in one bulk transfer rather than one element
+     * at a time.
+     *
+     * @param tuples the source {@link IndexableTuple}
+     * @param fieldIndex the index of the field to copy
+     * @return the values of the field, indexed by tuple
+     */
+    public static double[] copyField(IndexableTuple tuples, int fieldIndex)
+    {
+        int numberTuples = tuples.size();
+        int numberFields = tuples.getNumberFields();
+        Preconditions.checkElementIndex(fieldIndex, numberFields);
+
+        double[] result = new double[numberTuples];
+        if (tuples instanceof VtkArrayIndexable)
+        {
+            double[] values = VtkArrayUtil.getValues(((VtkArrayIndexable) tuples).getVtkArray());
+            for (int index = 0; index < numberTuples; ++index)
+            {
+                result[index] = values[index * numberFields + fieldIndex];
+            }
+        }
+        else
+        {
+            for (int index = 0; index < numberTuples; ++index)
+            {
+                result[index] = tuples.get(index).get(fieldIndex);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Copy data elements from the specified source {@link IndexableTuple} into the
      * specified destination {@link vtkDataArray}.
@@ -88,6 +127,21 @@ public class ColoringDataUtils
             vtkArray.DeepCopy(inputArray);
 //            System.err.println("Time to copy was " + (System.currentTimeMillis() - startTime));
         }
+        else if (tuples instanceof ColumnarIndexableTuple && (vtkArray instanceof vtkFloatArray || vtkArray instanceof vtkDoubleArray))
+        {
+            // Optimization in this case: interleave the columns in Java and hand the
+            // result to VTK in a single call rather than one call per value.
+            ColumnarIndexableTuple columnar = (ColumnarIndexableTuple) tuples;
+            vtkArray.SetNumberOfComponents(columnar.getNumberFields());
+            if (vtkArray instanceof vtkFloatArray)
+            {
+                ((vtkFloatArray) vtkArray).SetJavaArray(columnar.toInterleavedFloats());
+            }
+            else
+            {
+                ((vtkDoubleArray) vtkArray).SetJavaArray(columnar.toInterleavedDoubles());
+            }
+        }
         else
         {
             int numberFields = tuples.getNumberFields();
@@ -98,9 +152,10 @@ public class ColoringDataUtils
 
             for (int recordIndex = 0; recordIndex < numberRecords; ++recordIndex)
             {
+                Tuple tuple = tuples.get(recordIndex);
                 for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
                 {
-                    vtkArray.SetComponent(recordIndex, fieldIndex, tuples.get(recordIndex).get(fieldIndex));
+                    vtkArray.SetComponent(recordIndex, fieldIndex, tuple.get(fieldIndex));
                 }
             }
         }
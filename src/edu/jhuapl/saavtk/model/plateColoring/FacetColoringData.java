@@ -8,6 +8,7 @@ import com.google.common.collect.ImmutableList;
 
 import edu.jhuapl.saavtk.util.LatLon;
 import edu.jhuapl.saavtk.util.MathUtil;
+import edu.jhuapl.saavtk.util.mesh.JavaMesh;
 import vtk.vtkIdList;
 import vtk.vtkPoints;
 import vtk.vtkPolyData;
@@ -15,6 +16,11 @@ import vtk.vtkTriangle;
 
 public class FacetColoringData
 {
+	/**
+	 * Number of geometry values of a facet; see {@link #getGeometryValues(double[])}.
+	 */
+	static final int NumberGeometryValues = 8;
+
 	int cellId;
 	double area;
 	double[] center;
@@ -149,6 +155,77 @@ public class FacetColoringData
 
 	}
 
+	/**
+	 * Same as {@link #generateDataFromPolydata(vtkPolyData)}, but reads the
+	 * geometry from a snapshot of the shape model, so it may be called for many
+	 * facets in parallel.
+	 */
+	public void generateDataFromMesh(JavaMesh mesh)
+	{
+		int triangle = mesh.getFirstTriangle(cellId);
+		if (triangle < 0)
+		{
+			throw new IllegalArgumentException("No plate with id " + cellId);
+		}
+
+		int[] ids = new int[3];
+		double[][] pts = new double[3][3];
+		mesh.getTriangle(triangle, ids);
+		center = new double[3];
+		for (int k = 0; k < 3; ++k)
+		{
+			mesh.getVertex(ids[k], pts[k]);
+			for (int i = 0; i < 3; ++i)
+				center[i] += pts[k][i];
+		}
+		for (int i = 0; i < 3; ++i)
+			center[i] /= 3.0;
+
+		area = triangleArea(pts[0], pts[1], pts[2]);
+		llr = MathUtil.reclat(center);
+	}
+
+	/**
+	 * Returns the area of a triangle computed as vtkTriangle.TriangleArea does
+	 * (Heron's formula), so that the area matches that of
+	 * {@link #generateDataFromPolydata(vtkPolyData)} to the last digit.
+	 */
+	private static double triangleArea(double[] p1, double[] p2, double[] p3)
+	{
+		double a = distance2(p1, p2);
+		double b = distance2(p2, p3);
+		double c = distance2(p3, p1);
+
+		return 0.25 * Math.sqrt(Math.abs(4.0 * a * c - (a - b + c) * (a - b + c)));
+	}
+
+	private static double distance2(double[] p1, double[] p2)
+	{
+		double dx = p1[0] - p2[0];
+		double dy = p1[1] - p2[1];
+		double dz = p1[2] - p2[2];
+
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Copies the geometry of the facet, in the order in which
+	 * {@link #writeTo(BufferedWriter)} writes it: cell id, area, center x, y and
+	 * z, and latitude and longitude in degrees and radius of the center. The
+	 * geometry must have been generated first.
+	 */
+	void getGeometryValues(double[] values)
+	{
+		values[0] = cellId;
+		values[1] = area;
+		values[2] = center[0];
+		values[3] = center[1];
+		values[4] = center[2];
+		values[5] = llr.lat * 180.0 / Math.PI;
+		values[6] = llr.lon * 180.0 / Math.PI;
+		values[7] = llr.rad;
+	}
+
 	public void writeTo(BufferedWriter out) throws IOException
 	{
 		out.write(cellId + ",");
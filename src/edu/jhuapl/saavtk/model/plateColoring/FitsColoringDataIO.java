@@ -38,6 +38,24 @@ final class FitsColoringDataIO implements ColoringDataIO
         return FitsFileReader.of().readTuples(file, tableId, columnNumbers);
     }
 
+    /**
+     * Only the headers and the requested row of an uncompressed FITS file are
+     * read; a gzipped file must be decompressed up to the row.
+     */
+    @Override
+    public boolean canLoadTuple(File file)
+    {
+        return !file.getName().toLowerCase().endsWith(".gz");
+    }
+
+    @Override
+    public double[] loadTuple(File file, int tupleIndex) throws IOException, IncorrectFileFormatException, FieldNotFoundException
+    {
+        Preconditions.checkNotNull(file);
+
+        return FitsFileReader.of().readTuple(file, tableId, columnNumbers, tupleIndex);
+    }
+
     @Override
     public void saveColoringData(IndexableTuple tuples, File file) throws IOException
     {
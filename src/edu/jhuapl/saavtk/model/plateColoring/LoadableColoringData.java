@@ -5,11 +5,15 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 import edu.jhuapl.saavtk.util.FileCache;
+import edu.jhuapl.saavtk.util.file.DataFileReader.IncorrectFileFormatException;
+import edu.jhuapl.saavtk.util.file.FieldNotFoundException;
 import edu.jhuapl.saavtk.util.file.IndexableTuple;
 import edu.jhuapl.ses.jsqrl.api.Key;
 import edu.jhuapl.ses.jsqrl.api.Metadata;
@@ -26,18 +30,35 @@ import edu.jhuapl.ses.jsqrl.impl.SettableMetadata;
  * The additional capabilities are provided using methods that are not part of
  * the {@link ColoringData} interface, so downcasting may be necessary when
  * using this class.
+ * <p>
+ * Data loaded from files are registered with the {@link ColoringDataCache},
+ * which may discard them again (keeping the range) when the memory budget for
+ * coloring data is exceeded. Copies of fields made by
+ * {@link #getFieldValues(int)} count against the same budget and are discarded
+ * with the data. They are then reloaded the next time they are
+ * needed.
  * 
  * @author James Peachey
  *
  */
 public abstract class LoadableColoringData extends BasicColoringData
 {
+    private static final AtomicLong NextCacheId = new AtomicLong();
+
+    /**
+     * Number of single-tuple reads from the file after which
+     * {@link #getTupleValues(int)} loads the whole coloring instead.
+     */
+    private static final int TupleReadsBeforeLoad = 16;
+
     private final String name;
     private final String units;
     private final int numberElements;
     private final ImmutableList<String> fieldNames;
     private final boolean hasNulls;
     private final String fileId;
+    private final long cacheId;
+    private final AtomicInteger tupleReads;
 
     protected LoadableColoringData(String name, String units, int numberElements, ImmutableList<String> fieldNames, boolean hasNulls, String fileId)
     {
@@ -49,6 +70,8 @@ public abstract class LoadableColoringData extends BasicColoringData
         this.fieldNames = Preconditions.checkNotNull(fieldNames);
         this.hasNulls = hasNulls;
         this.fileId = Preconditions.checkNotNull(fileId);
+        this.cacheId = NextCacheId.getAndIncrement();
+        this.tupleReads = new AtomicInteger();
     }
 
     @Override
@@ -97,6 +120,112 @@ public abstract class LoadableColoringData extends BasicColoringData
         return hasNulls;
     }
 
+    /**
+     * Return the values of the fields of one tuple (facet). If the data are in
+     * memory, the values are taken from them. Otherwise, if the file format can
+     * read one tuple without reading the whole file (see
+     * {@link ColoringDataIO#canLoadTuple(File)}), only the one tuple is read and
+     * the data are not loaded. After a number of such reads, or right away for
+     * other formats such as CSV, the data are loaded, on the assumption that more
+     * tuples are coming.
+     * 
+     * @param tupleIndex the index of the tuple
+     * @return the values of the fields of the tuple
+     * @throws IOException if the tuple cannot be read from the file
+     */
+    public double[] getTupleValues(int tupleIndex) throws IOException
+    {
+        Preconditions.checkElementIndex(tupleIndex, getNumberElements());
+
+        ColoringDataCache cache = ColoringDataCache.instance();
+
+        IndexableTuple data = getDataReference().get();
+        if (data != null)
+        {
+            cache.accessed(this);
+            return data.get(tupleIndex).get();
+        }
+
+        File file = fetchFile();
+        if (!getIOHandler().canLoadTuple(file) || tupleReads.incrementAndGet() > TupleReadsBeforeLoad)
+        {
+            return getData().get(tupleIndex).get();
+        }
+
+        cache.tupleRead();
+        try
+        {
+            return getIOHandler().loadTuple(file, tupleIndex);
+        }
+        catch (IncorrectFileFormatException | FieldNotFoundException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Register data just loaded from the file with the {@link ColoringDataCache},
+     * or record a use of data already loaded.
+     */
+    @Override
+    protected void accessed(boolean provided)
+    {
+        ColoringDataCache cache = ColoringDataCache.instance();
+        if (provided)
+        {
+            IndexableTuple data = getDataReference().get();
+            if (data != null)
+            {
+                cache.loaded(this, data);
+            }
+        }
+        else
+        {
+            cache.accessed(this);
+        }
+    }
+
+    /**
+     * Count the copy of the field against the budget of the
+     * {@link ColoringDataCache}, as part of the data it was copied from.
+     */
+    @Override
+    protected void fieldValuesCopied(double[] values)
+    {
+        ColoringDataCache.instance().grown(this, 8L * values.length);
+    }
+
+    /**
+     * In addition to the base implementation, unregister this coloring from the
+     * {@link ColoringDataCache}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear()
+    {
+        super.clear();
+        tupleReads.set(0);
+        ColoringDataCache.instance().removed(this);
+    }
+
+    /**
+     * Discard the data, but not their range, to free memory. Unlike
+     * {@link #clear()}, this does not delete any VTK objects, because the caller
+     * of {@link #getData()} may still be using them.
+     */
+    synchronized void evict()
+    {
+        getDataReference().set(null);
+        clearFieldValues();
+        tupleReads.set(0);
+    }
+
+    final long getCacheId()
+    {
+        return cacheId;
+    }
+
     public Metadata getMetadata()
     {
         SettableMetadata metadata = SettableMetadata.of(COLORING_DATA_VERSION);
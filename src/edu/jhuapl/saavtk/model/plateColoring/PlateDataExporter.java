@@ -0,0 +1,302 @@
+package edu.jhuapl.saavtk.model.plateColoring;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.saavtk.util.ProgressListener;
+import edu.jhuapl.saavtk.util.file.IndexableTuple;
+import edu.jhuapl.saavtk.util.mesh.JavaMesh;
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsUtil;
+import nom.tam.fits.Header;
+import nom.tam.util.BufferedDataOutputStream;
+
+/**
+ * Writes plate data (the geometry of each plate followed by the values of all
+ * colorings) for a set of plates of a shape model to a CSV file or a FITS
+ * binary table.
+ * <p>
+ * Rows are produced and written a chunk at a time, so memory use does not
+ * depend on the number of plates exported. The geometry of the plates in each
+ * chunk is computed in parallel from a {@link JavaMesh}, without touching VTK.
+ * Coloring values are read on the calling thread, since some colorings are
+ * backed by VTK arrays.
+ * <p>
+ * The columns are, in order: plate id, area, X, Y and Z of the plate center,
+ * latitude and longitude of the center (in degrees), distance of the center to
+ * the origin, then each field of each coloring.
+ */
+public class PlateDataExporter
+{
+    /**
+     * Output file formats.
+     */
+    public enum Format
+    {
+        CSV,
+        FITS;
+
+        /**
+         * Return the format suggested by the extension of the specified file:
+         * {@link #FITS} for .fits, .fit or .fts, {@link #CSV} otherwise.
+         */
+        public static Format of(File file)
+        {
+            String name = file.getName().toLowerCase();
+
+            return name.endsWith(".fits") || name.endsWith(".fit") || name.endsWith(".fts") ? FITS : CSV;
+        }
+    }
+
+    // Number of plates computed and written at once.
+    private static final int ChunkSize = 4096;
+
+    private static final int NumberGeometryColumns = FacetColoringData.NumberGeometryValues;
+
+    private static final ImmutableList<String> GeometryNames = ImmutableList.of( //
+            "Plate Id", "Area", "Center X", "Center Y", "Center Z", //
+            "Center Latitude", "Center Longitude", "Center Radius");
+
+    private static final ImmutableList<String> GeometryUnits = ImmutableList.of( //
+            "", "km^2", "km", "km", "km", "deg", "deg", "km");
+
+    public static PlateDataExporter of(JavaMesh mesh, ImmutableList<ColoringData> coloringData)
+    {
+        Preconditions.checkNotNull(mesh);
+        Preconditions.checkNotNull(coloringData);
+
+        return new PlateDataExporter(mesh, coloringData);
+    }
+
+    private final JavaMesh mesh;
+    private final ImmutableList<ColoringData> coloringData;
+    private final ImmutableList<String> names;
+    private final ImmutableList<String> units;
+
+    protected PlateDataExporter(JavaMesh mesh, ImmutableList<ColoringData> coloringData)
+    {
+        this.mesh = mesh;
+        this.coloringData = coloringData;
+
+        ImmutableList.Builder<String> namesBuilder = ImmutableList.builder();
+        ImmutableList.Builder<String> unitsBuilder = ImmutableList.builder();
+        namesBuilder.addAll(GeometryNames);
+        unitsBuilder.addAll(GeometryUnits);
+        for (ColoringData data : coloringData)
+        {
+            String dataUnits = data.getUnits() != null ? data.getUnits() : "";
+            for (String name : data.getFieldNames())
+            {
+                namesBuilder.add(name);
+                unitsBuilder.add(dataUnits);
+            }
+        }
+        this.names = namesBuilder.build();
+        this.units = unitsBuilder.build();
+    }
+
+    /**
+     * Return the number of columns in each row.
+     */
+    public int getNumberColumns()
+    {
+        return names.size();
+    }
+
+    /**
+     * Write the plate data for the specified plates, in order of plate id.
+     *
+     * @param cellIds the ids of the plates to write
+     * @param file the output file
+     * @param format the output format
+     * @param listener if not null, notified of the percentage of plates written
+     * @throws IOException if the file could not be written
+     */
+    public void export(BitSet cellIds, File file, Format format, ProgressListener listener) throws IOException
+    {
+        Preconditions.checkNotNull(cellIds);
+        Preconditions.checkNotNull(file);
+        Preconditions.checkNotNull(format);
+
+        switch (format)
+        {
+        case CSV:
+            exportCsv(cellIds, file, listener);
+            break;
+        case FITS:
+            exportFits(cellIds, file, listener);
+            break;
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    protected void exportCsv(BitSet cellIds, File file, ProgressListener listener) throws IOException
+    {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file)))
+        {
+            final String lineSeparator = System.getProperty("line.separator");
+
+            StringBuilder line = new StringBuilder();
+            for (int column = 0; column < names.size(); ++column)
+            {
+                if (column > 0)
+                    line.append(',');
+                line.append(names.get(column));
+                // The plate id column has no units.
+                if (column > 0 && !units.get(column).isEmpty())
+                    line.append(" (").append(units.get(column)).append(')');
+            }
+            out.write(line.toString());
+            out.write(lineSeparator);
+
+            forEachChunk(cellIds, listener, (ids, rows, numberRows) -> {
+                for (int row = 0; row < numberRows; ++row)
+                {
+                    double[] values = rows[row];
+                    line.setLength(0);
+                    line.append(ids[row]);
+                    for (int column = 1; column < values.length; ++column)
+                    {
+                        line.append(',').append(values[column]);
+                    }
+                    out.write(line.toString());
+                    out.write(lineSeparator);
+                }
+            });
+        }
+    }
+
+    protected void exportFits(BitSet cellIds, File file, ProgressListener listener) throws IOException
+    {
+        int numberColumns = names.size();
+        int rowBytes = Integer.BYTES + (numberColumns - 1) * Double.BYTES;
+        int numberRows = cellIds.cardinality();
+
+        try (BufferedDataOutputStream out = new BufferedDataOutputStream(new FileOutputStream(file)))
+        {
+            Header primary = new Header();
+            primary.setSimple(true);
+            primary.setBitpix(BasicHDU.BITPIX_BYTE);
+            primary.setNaxes(0);
+            primary.addValue("EXTEND", true, "Extensions may follow");
+            primary.write(out);
+
+            Header table = new Header();
+            table.setXtension("BINTABLE");
+            table.setBitpix(BasicHDU.BITPIX_BYTE);
+            table.setNaxes(2);
+            table.setNaxis(1, rowBytes);
+            table.setNaxis(2, numberRows);
+            table.addValue("PCOUNT", 0, "No heap");
+            table.addValue("GCOUNT", 1, "One group");
+            table.addValue("TFIELDS", numberColumns, "Number of columns");
+            for (int column = 0; column < numberColumns; ++column)
+            {
+                table.addValue("TTYPE" + (column + 1), names.get(column), null);
+                table.addValue("TFORM" + (column + 1), column == 0 ? "1J" : "1D", null);
+                if (!units.get(column).isEmpty())
+                    table.addValue("TUNIT" + (column + 1), units.get(column), null);
+            }
+            table.addValue("EXTNAME", "PLATEDATA", null);
+            table.write(out);
+
+            forEachChunk(cellIds, listener, (ids, rows, numberChunkRows) -> {
+                for (int row = 0; row < numberChunkRows; ++row)
+                {
+                    double[] values = rows[row];
+                    out.writeInt(ids[row]);
+                    for (int column = 1; column < values.length; ++column)
+                    {
+                        out.writeDouble(values[column]);
+                    }
+                }
+            });
+
+            FitsUtil.pad(out, (long) rowBytes * numberRows);
+        }
+        catch (FitsException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter
+    {
+        void write(int[] ids, double[][] rows, int numberRows) throws IOException;
+    }
+
+    /**
+     * Fill the rows for successive chunks of plates and pass them to the writer.
+     * The buffers are reused from one chunk to the next.
+     */
+    private void forEachChunk(BitSet cellIds, ProgressListener listener, ChunkWriter writer) throws IOException
+    {
+        int numberColumns = names.size();
+        int numberPlates = cellIds.cardinality();
+
+        ImmutableList.Builder<IndexableTuple> builder = ImmutableList.builder();
+        for (ColoringData data : coloringData)
+        {
+            builder.add(data.getData());
+        }
+        ImmutableList<IndexableTuple> tuples = builder.build();
+
+        int[] ids = new int[ChunkSize];
+        double[][] rows = new double[ChunkSize][numberColumns];
+        int numberWritten = 0;
+        int lastProgress = -1;
+        for (int cellId = cellIds.nextSetBit(0); cellId >= 0;)
+        {
+            int numberRows = 0;
+            while (cellId >= 0 && numberRows < ChunkSize)
+            {
+                ids[numberRows++] = cellId;
+                cellId = cellId < Integer.MAX_VALUE ? cellIds.nextSetBit(cellId + 1) : -1;
+            }
+
+            int chunkRows = numberRows;
+            IntStream.range(0, chunkRows).parallel().forEach(row -> fillGeometry(ids[row], rows[row]));
+
+            for (int row = 0; row < chunkRows; ++row)
+            {
+                double[] values = rows[row];
+                int column = NumberGeometryColumns;
+                for (IndexableTuple data : tuples)
+                {
+                    double[] tuple = data.get(ids[row]).get();
+                    System.arraycopy(tuple, 0, values, column, tuple.length);
+                    column += tuple.length;
+                }
+            }
+
+            writer.write(ids, rows, chunkRows);
+
+            numberWritten += chunkRows;
+            int progress = (int) (100L * numberWritten / numberPlates);
+            if (listener != null && progress != lastProgress)
+            {
+                listener.setProgress(progress);
+                lastProgress = progress;
+            }
+        }
+    }
+
+    private void fillGeometry(int cellId, double[] values)
+    {
+        FacetColoringData facet = new FacetColoringData(cellId, ImmutableList.of());
+        facet.generateDataFromMesh(mesh);
+        facet.getGeometryValues(values);
+    }
+
+}
@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -66,6 +67,11 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 	private G1 activatedLine;
 	private int activatedControlPointIdx;
 
+	// Profile mode: the items drawn in vActivationPD and the index of the first cell of each (followed by the total)
+	private ImmutableList<G1> activationItemL;
+	private int[] activationBegIdxArr;
+	private Map<G1, Integer> activationIdxM;
+
 	private Color spawnColor;
 	private int maximumVerticesPerLine;
 
@@ -100,6 +106,10 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 		activatedLine = null;
 		activatedControlPointIdx = -1;
 
+		activationItemL = ImmutableList.of();
+		activationBegIdxArr = new int[] { 0 };
+		activationIdxM = new HashMap<>();
+
 		spawnColor = Color.MAGENTA;
 		maximumVerticesPerLine = Integer.MAX_VALUE;
 		if (hasProfileMode() == true)
@@ -470,10 +480,12 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 		{
 			// Retrieve the cellId corresponding to the specified control point index
 			int tmpCellId = getCellIdForControlPoint(aIdx);
-
-			vtkPoints points = vActivationPD.GetPoints();
-			points.SetPoint(tmpCellId, aPoint.toArray());
-			vActivationPD.Modified();
+			if (tmpCellId != -1)
+			{
+				vtkPoints points = vActivationPD.GetPoints();
+				points.SetPoint(tmpCellId, aPoint.toArray());
+				vActivationPD.Modified();
+			}
 
 			notifyListeners(this, ItemEventType.ItemsMutated);
 			notifyVtkStateChange();
@@ -532,9 +544,18 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 
 			vIdRegIL.SetNumberOfIds(1);
 
+			// Keep track of the cells of each item
+			List<G1> itemL = getAllItems();
+			activationItemL = ImmutableList.copyOf(itemL);
+			activationBegIdxArr = new int[itemL.size() + 1];
+			activationIdxM = new HashMap<>();
+
 			int count = 0;
-			for (G1 aItem : getAllItems())
+			for (G1 aItem : itemL)
 			{
+				activationBegIdxArr[activationIdxM.size()] = count;
+				activationIdxM.put(aItem, activationIdxM.size());
+
 				VtkPolyLinePainter<?> tmpPainter = getOrCreateVtkPainterFor(aItem, refSmallBody).getMainPainter();
 				List<Integer> controlPointIdL = tmpPainter.getControlPointIdList();
 				List<Vector3D> xyzPointL = tmpPainter.getXyzPointList();
@@ -553,6 +574,7 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 					colors.InsertNextTuple4(tmpColor.getRed(), tmpColor.getGreen(), tmpColor.getBlue(), tmpColor.getAlpha());
 				}
 			}
+			activationBegIdxArr[itemL.size()] = count;
 
 			refSmallBody.shiftPolyLineInNormalDirection(vActivationPD, refSmallBody.getMinShiftAmount());
 		}
@@ -671,26 +693,12 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 		if (hasProfileMode() == false)
 			return aCellId;
 
-		// Iterate through all the lines (which are all activated) and determine
-		// which vertex (of the corresponding line) aCellId corresponds to
-		for (G1 aItem : getAllItems())
-		{
-			// Skip to next if item has not been rendered
-			VtkPolyLinePainter<G1> tmpPainter = getVtkMainPainter(aItem);
-			if (tmpPainter == null)
-				continue;
-
-			int size = tmpPainter.getNumControlPointIds();
+		// All the lines are activated: locate the line that aCellId belongs to
+		int tmpIdx = getActivationIndexFor(aCellId);
+		if (tmpIdx == -1)
+			return -1;
 
-			if (aCellId == 0)
-				return 0;
-			else if (aCellId == 1 && size == 2)
-				return 1;
-			else
-				aCellId -= size;
-		}
-
-		return -1;
+		return aCellId - activationBegIdxArr[tmpIdx];
 	}
 
 	@Override
@@ -701,21 +709,11 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 		if (hasProfileMode() == false)
 			return activatedLine;
 
-		int count = 0;
-		for (G1 aItem : getAllItems())
-		{
-			// Skip to next if item has not been rendered
-			VtkPolyLinePainter<G1> tmpPainter = getVtkMainPainter(aItem);
-			if (tmpPainter == null)
-				continue;
-
-			int size = tmpPainter.getNumControlPointIds();
-			count += size;
-			if (aCellId < count)
-				return aItem;
-		}
+		int tmpIdx = getActivationIndexFor(aCellId);
+		if (tmpIdx == -1)
+			return null;
 
-		return null;
+		return activationItemL.get(tmpIdx);
 	}
 
 	@Override
@@ -835,7 +833,8 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 	/**
 	 * Returns the cellId corresponding to the specified control point index.
 	 * <P>
-	 * The returned cellId is associated with the activationActor.
+	 * The returned cellId is associated with the activationActor. Returns -1 if the activated line is not drawn by the
+	 * activationActor.
 	 */
 	private int getCellIdForControlPoint(int aIdx)
 	{
@@ -843,23 +842,38 @@ public class LineModel<G1 extends PolyLine> extends BaseStructureManager<G1, Vtk
 		if (hasProfileMode() == false)
 			return retCellId;
 
-		// Need to iterate through all items to locate the relevant cellId
-		retCellId = 0;
-		for (PolyLine aItem : getAllItems())
-		{
-			int size = aItem.getControlPoints().size();
-			if (aItem == activatedLine)
-			{
-				retCellId += aIdx;
-				break;
-			}
-
-			retCellId += size;
-		}
+		// Locate the first cell of the activated line
+		Integer tmpIdx = activationIdxM.get(activatedLine);
+		if (tmpIdx == null)
+			return -1;
 
+		retCellId = activationBegIdxArr[tmpIdx] + aIdx;
 		return retCellId;
 	}
 
+	/**
+	 * Returns the index (into activationItemL) of the item that owns the specified cell of the activationActor, or -1
+	 * if there is no such item.
+	 * <P>
+	 * Profile mode only. The cells of each item are contiguous so the owner is located via a binary search.
+	 */
+	private int getActivationIndexFor(int aCellId)
+	{
+		int numItems = activationItemL.size();
+		if (aCellId < 0 || aCellId >= activationBegIdxArr[numItems])
+			return -1;
+
+		// Locate the last item that begins at (or before) aCellId. Items without cells begin at the same index as the
+		// next item, so this is the item that owns the cell.
+		int tmpIdx = Arrays.binarySearch(activationBegIdxArr, 0, numItems, aCellId);
+		if (tmpIdx < 0)
+			return -tmpIdx - 2;
+
+		while (tmpIdx + 1 < numItems && activationBegIdxArr[tmpIdx + 1] == aCellId)
+			tmpIdx++;
+		return tmpIdx;
+	}
+
 	// TODO: Add comments
 	private void updateControlPoint(int aIdx, Vector3D aPoint)
 	{
@@ -8,11 +8,21 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import edu.jhuapl.saavtk.gui.render.SceneChangeNotifier;
 import edu.jhuapl.saavtk.gui.render.VtkPropProvider;
@@ -26,11 +36,15 @@ import edu.jhuapl.saavtk.status.StatusNotifier;
 import edu.jhuapl.saavtk.structure.io.StructureMiscUtil;
 import edu.jhuapl.saavtk.structure.util.ControlPointUtil;
 import edu.jhuapl.saavtk.structure.util.EllipseUtil;
+import edu.jhuapl.saavtk.structure.vtk.Segment;
+import edu.jhuapl.saavtk.structure.vtk.VtkEllipsePainter;
 import edu.jhuapl.saavtk.structure.vtk.VtkLabelPainter;
+import edu.jhuapl.saavtk.structure.vtk.VtkPointPainter;
 import edu.jhuapl.saavtk.structure.vtk.VtkPolyLinePainter2;
 import edu.jhuapl.saavtk.structure.vtk.VtkPolygonPainter;
 import edu.jhuapl.saavtk.structure.vtk.VtkStructureMultiPainter;
 import edu.jhuapl.saavtk.view.AssocActor;
+import edu.jhuapl.saavtk.vtk.VtkResource;
 import edu.jhuapl.saavtk.vtk.font.FontAttr;
 import glum.item.BaseItemManager;
 import glum.item.ItemEventType;
@@ -57,6 +71,11 @@ import vtk.vtkProp;
 public class AnyStructureManager extends BaseItemManager<Structure>
 		implements StructureManager<Structure>, PickListener, VtkPropProvider
 {
+	// Constants
+	private static final AtomicInteger ThreadCount = new AtomicInteger();
+	private static final int NumUpdateThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	private static final ThreadPoolExecutor UpdateExecutor = createUpdateExecutor();
+
 	// Reference vars
 	private final StatusNotifier refStatusNotifier;
 	private final PolyhedralModel refSmallBody;
@@ -115,6 +134,24 @@ public class AnyStructureManager extends BaseItemManager<Structure>
 		return ImmutableList.of(vPointVSMP, vRegularVSMP);
 	}
 
+	/**
+	 * Returns the rendered structures whose bounding boxes intersect the specified box, such as the bounds of a
+	 * footprint.
+	 * <p>
+	 * The result is conservative: the caller should refine it with an exact test if needed.
+	 *
+	 * @param aBoundsArr
+	 *    The box of interest: (xmin, xmax, ymin, ymax, zmin, zmax).
+	 */
+	public List<Structure> getItemsInBox(double[] aBoundsArr)
+	{
+		var retItemL = new ArrayList<Structure>();
+		for (var aPainterVSMP : getAllPainters())
+			retItemL.addAll(aPainterVSMP.getItemsInBox(aBoundsArr));
+
+		return retItemL;
+	}
+
 	/**
 	 * Returns the vtkPolyData associated with the exterior of the structure.
 	 * <p>
@@ -229,8 +266,42 @@ public class AnyStructureManager extends BaseItemManager<Structure>
 		var fullS = new LinkedHashSet<>(aItemC);
 		var newS = Sets.difference(fullS, currS);
 
-		// Init the VTK state of the new items
-		int tmpCnt = 0;
+		// Trace the segments of all new paths and polygons at once
+		var segmentL = new ArrayList<Segment>();
+		for (var aItem : newS)
+		{
+			if (aItem.getType() != StructureType.Path && aItem.getType() != StructureType.Polygon)
+				continue;
+
+			var mainPainter = getMultiPainterFor(aItem).getOrCreateVtkPainterFor(aItem, refSmallBody).getMainPainter();
+			if (mainPainter instanceof VtkPolyLinePainter2 aPainter)
+				segmentL.addAll(aPainter.getSegments());
+			else if (mainPainter instanceof VtkPolygonPainter aPainter)
+				segmentL.addAll(aPainter.getSegments());
+		}
+		Segment.updateAll(refSmallBody, segmentL);
+
+		// Draw the shapes of all new ellipses, circles, and points concurrently. These only draw on the model's
+		// SurfacePatcher (and the model's bounding box which is computed beforehand) so they do not share VTK state.
+		var concurrentPainterS = new LinkedHashSet<VtkResource>();
+		for (var aItem : newS)
+		{
+			var mainPainter = getMultiPainterFor(aItem).getOrCreateVtkPainterFor(aItem, refSmallBody).getMainPainter();
+			if (mainPainter instanceof VtkEllipsePainter || mainPainter instanceof VtkPointPainter)
+				concurrentPainterS.add(mainPainter);
+		}
+		if (concurrentPainterS.isEmpty() == false && refSmallBody.getSurfacePatcher() == null)
+			concurrentPainterS.clear();
+		refSmallBody.getBoundingBoxDiagonalLength();
+
+		if (updatePaintersConcurrently(aTask, concurrentPainterS, newS.size()) == false)
+		{
+			ThreadUtil.invokeAndWaitOnAwt(() -> setAllItems(getAllItems()));
+			return;
+		}
+
+		// Init the (remaining) VTK state of the new items
+		int tmpCnt = concurrentPainterS.size();
 		for (var aItem : newS)
 		{
 			// Bail if aTask is aborted
@@ -244,6 +315,9 @@ public class AnyStructureManager extends BaseItemManager<Structure>
 			var compPainter = multiPainter.getOrCreateVtkPainterFor(aItem, refSmallBody);
 			compPainter.vtkUpdateState();
 
+			if (concurrentPainterS.contains(compPainter.getMainPainter()) == true)
+				continue;
+
 			aTask.setProgress(tmpCnt, newS.size());
 			tmpCnt++;
 		}
@@ -666,6 +740,70 @@ public class AnyStructureManager extends BaseItemManager<Structure>
 		return getMultiPainterFor(aItem).getVtkTextPainter(aItem);
 	}
 
+	/**
+	 * Helper method that updates the VTK state of the specified painters concurrently. The painters must not share
+	 * (mutable) VTK state with each other or with the reference model.
+	 * <p>
+	 * Progress is reported to (and aTask is polled from) the calling thread. Once aTask is no longer active, painters
+	 * that have not been started are skipped, but this method still waits for the painters that are being updated.
+	 * <p>
+	 * Returns false if aTask was aborted.
+	 */
+	private boolean updatePaintersConcurrently(Task aTask, Collection<VtkResource> aPainterC, int aTotalCnt)
+	{
+		var isAbortedAB = new AtomicBoolean(false);
+		var doneQ = new LinkedBlockingQueue<Future<Void>>();
+		var tmpCS = new ExecutorCompletionService<Void>(UpdateExecutor, doneQ);
+		for (var aPainter : aPainterC)
+		{
+			tmpCS.submit(() -> {
+				if (isAbortedAB.get() == false)
+					aPainter.vtkUpdateState();
+				return null;
+			});
+		}
+
+		RuntimeException failExp = null;
+		for (int tmpCnt = 0; tmpCnt < aPainterC.size(); tmpCnt++)
+		{
+			try
+			{
+				Futures.getDone(Uninterruptibles.takeUninterruptibly(doneQ));
+			}
+			catch (ExecutionException aExp)
+			{
+				isAbortedAB.set(true);
+				if (failExp == null)
+					failExp = new RuntimeException(aExp.getCause());
+			}
+
+			if (aTask.isActive() == false)
+				isAbortedAB.set(true);
+			else
+				aTask.setProgress(tmpCnt, aTotalCnt);
+		}
+
+		if (failExp != null)
+			throw failExp;
+
+		return isAbortedAB.get() == false;
+	}
+
+	/**
+	 * Helper method that creates the (daemon) thread pool used to update painters concurrently.
+	 */
+	private static ThreadPoolExecutor createUpdateExecutor()
+	{
+		var retExecutor = new ThreadPoolExecutor(NumUpdateThreads, NumUpdateThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), aRunnable -> {
+					var tmpThread = new Thread(aRunnable, "StructureUpdate-" + ThreadCount.incrementAndGet());
+					tmpThread.setDaemon(true);
+					return tmpThread;
+				});
+		retExecutor.allowCoreThreadTimeOut(true);
+		return retExecutor;
+	}
+
 	/**
 	 * Return all of the XYZ points for the specified item.
 	 * <P>
@@ -54,6 +54,9 @@ public class StructureSaveUtil
 		var tmpType = aStructureL.get(0).getType();
 		writeHeaderComments(out, tmpType, standardColoringUnitArr);
 
+		// Evaluate the standard colorings of all items at once
+		var standardColoringValueM = EllipseUtil.getStandardColoringValues(aTask, aManager, aStructureL, aSmallBody);
+
 		// Write the data content
 		for (var aItem : aStructureL)
 		{
@@ -97,7 +100,7 @@ public class StructureSaveUtil
 
 			str += "\t";
 
-			double[] values = EllipseUtil.getStandardColoringValues(aTask, aManager, aItem, aSmallBody);
+			double[] values = standardColoringValueM.get(aItem);
 			for (int i = 0; i < values.length; ++i)
 			{
 				str += Double.isNaN(values[i]) ? "NA" : values[i];
@@ -1,7 +1,12 @@
 package edu.jhuapl.saavtk.structure.util;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
@@ -13,10 +18,9 @@ import edu.jhuapl.saavtk.structure.Point;
 import edu.jhuapl.saavtk.structure.Structure;
 import edu.jhuapl.saavtk.structure.StructureType;
 import edu.jhuapl.saavtk.util.MathUtil;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
 import glum.task.Task;
-import vtk.vtkCellArray;
-import vtk.vtkIdTypeArray;
-import vtk.vtkPoints;
+import vtk.vtkPolyData;
 import vtk.vtkTransform;
 
 /**
@@ -238,6 +242,9 @@ public class EllipseUtil
 	 * <p>
 	 * If a value is not available then NaN will be stored at the relevant index.
 	 * <p>
+	 * The values are evaluated point by point, which avoids copying the colorings. To retrieve the values of many items
+	 * use {@link #getStandardColoringValues(Task, AnyStructureManager, Collection, PolyhedralModel)}.
+	 * <p>
 	 * Source Basis (~2019Oct07):<br>
 	 * edu.jhuapl.saavtk.model.structure.AbstractEllipsePolygonModel.java
 	 */
@@ -251,36 +258,13 @@ public class EllipseUtil
 		if (aSmallBody.isColoringDataAvailable() == false)
 			return retValueArr;
 
-		int slopeIdx = -1;
-		int elevationIdx = -1;
-		int accelerationIdx = -1;
-		int potentialIdx = -1;
-
-		// Locate any of the 4 standard plate colorings in the list of all colorings
-		// available for this resolution.
-		// Usually the standard colorings are first in the list, so the loop could
-		// terminate after all 4 are >= 0, but omitting this check for brevity and
-		// readability.
-		List<ColoringData> coloringDataL = aSmallBody.getAllColoringData();
-		for (int aIndex = 0; aIndex < coloringDataL.size(); ++aIndex)
-		{
-			String name = coloringDataL.get(aIndex).getName();
-			if (name.equalsIgnoreCase(PolyhedralModel.SlopeStr))
-				slopeIdx = aIndex;
-			if (name.equalsIgnoreCase(PolyhedralModel.ElevStr))
-				elevationIdx = aIndex;
-			if (name.equalsIgnoreCase(PolyhedralModel.GravAccStr))
-				accelerationIdx = aIndex;
-			if (name.equalsIgnoreCase(PolyhedralModel.GravPotStr))
-				potentialIdx = aIndex;
-
-			// Hack: Unfortunately in at least OREx's case, this vector is named differently
-			if (name.equalsIgnoreCase("Gravitational Magnitude"))
-				accelerationIdx = aIndex;
-		}
-
-		// Get all the coloring values interpolated at the center of the polygon.
-		double[] allValueArr;
+		// Locate the first column of each of the 4 standard plate colorings in the values of all colorings, as does
+		// PolyhedralModel.getColoringValues()
+		var coloringIdxArr = getStandardColoringIndexes(aSmallBody);
+		var coloringDataL = aSmallBody.getAllColoringData();
+		var columnArr = new int[coloringDataL.size()];
+		for (int aIndex = 1; aIndex < columnArr.length; ++aIndex)
+			columnArr[aIndex] = columnArr[aIndex - 1] + coloringDataL.get(aIndex - 1).getFieldNames().size();
 
 		try
 		{
@@ -292,56 +276,56 @@ public class EllipseUtil
 			else
 				throw new Error("Unsupported type: " + aItem.getClass());
 
-			allValueArr = aSmallBody.getAllColoringValues(center.toArray());
-			var tmpType = aItem.getType();
-			if (tmpType != StructureType.Point)
+			// Get all the coloring values interpolated at the center of the polygon.
+			double[] allValueArr = aSmallBody.getAllColoringValues(center.toArray());
+			for (int aCol = 0; aCol < retValueArr.length; aCol++)
+			{
+				if (coloringIdxArr[aCol] != -1)
+					retValueArr[aCol] = allValueArr[columnArr[coloringIdxArr[aCol]]];
+			}
+
+			// Replace slope and/or elevation central values with the average over the rim of the circle.
+			var isRimAveraged = coloringIdxArr[0] != -1 || coloringIdxArr[1] != -1;
+			if (aItem.getType() != StructureType.Point && isRimAveraged == true)
 			{
-				// Replace slope and/or elevation central values with the average over the rim
-				// of the circle.
-				if (slopeIdx != -1 || elevationIdx != -1)
+				vtkPolyData exteriorPD = aManager.getVtkExteriorPolyDataFor(aItem);
+				long[] idArr = VtkArrayUtil.getLegacyCells(exteriorPD.GetLines());
+				double[] pointArr = VtkArrayUtil.getPoints(exteriorPD.GetPoints());
+
+				double totalLength = 0.0;
+				double[] totalValueArr = new double[2];
+				double[] midpoint = new double[3];
+				double[] pt1 = new double[3];
+				double[] pt2 = new double[3];
+				for (int i = 0; i < idArr.length; i += 3)
 				{
-					if (slopeIdx != -1)
-						allValueArr[slopeIdx] = 0.; // Accumulate weighted sum in situ.
-					if (elevationIdx != -1)
-						allValueArr[elevationIdx] = 0.; // Accumulate weighted sum in situ.
+					if (idArr[i] != 2)
+					{
+						aTask.logRegln("Big problem: polydata corrupted");
+						return new double[] { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+					}
 
-					vtkCellArray lines = aManager.getVtkExteriorPolyDataFor(aItem).GetLines();
-					vtkPoints points = aManager.getVtkExteriorPolyDataFor(aItem).GetPoints();
+					System.arraycopy(pointArr, 3 * (int) idArr[i + 1], pt1, 0, 3);
+					System.arraycopy(pointArr, 3 * (int) idArr[i + 2], pt2, 0, 3);
 
-					vtkIdTypeArray idArray = lines.GetData();
-					int size = (int) idArray.GetNumberOfTuples();
+					MathUtil.midpointBetween(pt1, pt2, midpoint);
+					double dist = MathUtil.distanceBetween(pt1, pt2);
+					totalLength += dist;
 
-					double totalLength = 0.0;
-					double[] midpoint = new double[3];
-					for (int i = 0; i < size; i += 3)
+					// Accumulate sums weighted by the length of this polygon segment.
+					double[] valuesAtMidpoint = aSmallBody.getAllColoringValues(midpoint);
+					for (int aCol = 0; aCol < totalValueArr.length; aCol++)
 					{
-						if (idArray.GetValue(i) != 2)
-						{
-							aTask.logRegln("Big problem: polydata corrupted");
-							return retValueArr;
-						}
-
-						double[] pt1 = points.GetPoint(idArray.GetValue(i + 1));
-						double[] pt2 = points.GetPoint(idArray.GetValue(i + 2));
-
-						MathUtil.midpointBetween(pt1, pt2, midpoint);
-						double dist = MathUtil.distanceBetween(pt1, pt2);
-						totalLength += dist;
-
-						double[] valuesAtMidpoint = aSmallBody.getAllColoringValues(midpoint);
-
-						// Accumulate sums weighted by the length of this polygon segment.
-						if (slopeIdx != -1)
-							allValueArr[slopeIdx] += valuesAtMidpoint[slopeIdx] * dist;
-						if (elevationIdx != -1)
-							allValueArr[elevationIdx] += valuesAtMidpoint[elevationIdx] * dist;
+						if (coloringIdxArr[aCol] != -1)
+							totalValueArr[aCol] += valuesAtMidpoint[columnArr[coloringIdxArr[aCol]]] * dist;
 					}
+				}
 
-					// Normalize by the total (perimeter).
-					if (slopeIdx != -1)
-						allValueArr[slopeIdx] /= totalLength;
-					if (elevationIdx != -1)
-						allValueArr[elevationIdx] /= totalLength;
+				// Normalize by the total (perimeter).
+				for (int aCol = 0; aCol < totalValueArr.length; aCol++)
+				{
+					if (coloringIdxArr[aCol] != -1)
+						retValueArr[aCol] = totalValueArr[aCol] / totalLength;
 				}
 			}
 		}
@@ -349,23 +333,179 @@ public class EllipseUtil
 		{
 			aTask.logRegln("Plate coloring values are not available.");
 			aTask.logRegln("Exception: " + aExp.getMessage());
+			return new double[] { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+		}
 
-			allValueArr = new double[coloringDataL.size()];
-			for (int aIndex = 0; aIndex < allValueArr.length; ++aIndex)
-				allValueArr[aIndex] = Double.NaN;
+		return retValueArr;
+	}
+
+	/**
+	 * Returns the 4 standard coloring values of each of the specified items. The values of an item are the same as
+	 * those returned by {@link #getStandardColoringValues(Task, AnyStructureManager, Structure, PolyhedralModel)}:
+	 * the values at the center, except that slope and elevation of non point items are averaged over the rim.
+	 * <p>
+	 * The centers and the midpoints of the rim segments of all items are gathered first and then evaluated in a single
+	 * (parallel) pass over copies of the standard colorings. See
+	 * {@link PolyhedralModel#getColoringValues(int[], double[])}.
+	 *
+	 * @return A map of each item to its values, in the order of aItemC.
+	 */
+	public static Map<Structure, double[]> getStandardColoringValues(Task aTask, AnyStructureManager aManager,
+			Collection<? extends Structure> aItemC, PolyhedralModel aSmallBody) throws IOException
+	{
+		// Assume that none of the standard colorings are available
+		var retValueM = new LinkedHashMap<Structure, double[]>();
+		for (var aItem : aItemC)
+			retValueM.put(aItem, new double[] { Double.NaN, Double.NaN, Double.NaN, Double.NaN });
+
+		if (aSmallBody.isColoringDataAvailable() == false)
+			return retValueM;
+
+		// Locate any of the 4 standard plate colorings in the list of all colorings available for this resolution.
+		var coloringIdxArr = getStandardColoringIndexes(aSmallBody);
+		var isRimAveraged = coloringIdxArr[0] != -1 || coloringIdxArr[1] != -1;
+
+		// Gather the sample points of each item: its center followed by the midpoints of its rim segments. Each rim
+		// sample is weighted by the length of its segment.
+		var itemL = new ArrayList<Structure>(retValueM.keySet());
+		var sampleBegArr = new int[itemL.size() + 1];
+		var isCorruptArr = new boolean[itemL.size()];
+		var samplePointArr = new double[3 * Math.max(itemL.size(), 16)];
+		var sampleWeightArr = new double[itemL.size()];
+		var numSamples = 0;
+		var midpoint = new double[3];
+		var pt1 = new double[3];
+		var pt2 = new double[3];
+		for (int aIdx = 0; aIdx < itemL.size(); aIdx++)
+		{
+			var tmpItem = itemL.get(aIdx);
+			sampleBegArr[aIdx] = numSamples;
+
+			var center = (Vector3D) null;
+			if (tmpItem instanceof Point aPoint)
+				center = aPoint.getCenter();
+			else if (tmpItem instanceof Ellipse aEllipse)
+				center = aEllipse.getCenter();
+			else
+				throw new Error("Unsupported type: " + tmpItem.getClass());
+
+			var idArr = new long[0];
+			var pointArr = new double[0];
+			if (tmpItem.getType() != StructureType.Point && isRimAveraged == true)
+			{
+				vtkPolyData exteriorPD = aManager.getVtkExteriorPolyDataFor(tmpItem);
+				idArr = VtkArrayUtil.getLegacyCells(exteriorPD.GetLines());
+				pointArr = VtkArrayUtil.getPoints(exteriorPD.GetPoints());
+			}
+
+			int numItemSamples = 1 + idArr.length / 3;
+			int minSize = numSamples + numItemSamples;
+			if (3 * minSize > samplePointArr.length)
+				samplePointArr = Arrays.copyOf(samplePointArr, Math.max(3 * minSize, 2 * samplePointArr.length));
+			if (minSize > sampleWeightArr.length)
+				sampleWeightArr = Arrays.copyOf(sampleWeightArr, Math.max(minSize, 2 * sampleWeightArr.length));
+
+			System.arraycopy(center.toArray(), 0, samplePointArr, 3 * numSamples, 3);
+			sampleWeightArr[numSamples] = 0.0;
+			numSamples++;
+
+			for (int i = 0; i < idArr.length; i += 3)
+			{
+				if (idArr[i] != 2)
+				{
+					aTask.logRegln("Big problem: polydata corrupted");
+					isCorruptArr[aIdx] = true;
+					break;
+				}
+
+				System.arraycopy(pointArr, 3 * (int) idArr[i + 1], pt1, 0, 3);
+				System.arraycopy(pointArr, 3 * (int) idArr[i + 2], pt2, 0, 3);
+
+				MathUtil.midpointBetween(pt1, pt2, midpoint);
+				System.arraycopy(midpoint, 0, samplePointArr, 3 * numSamples, 3);
+				sampleWeightArr[numSamples] = MathUtil.distanceBetween(pt1, pt2);
+				numSamples++;
+			}
+		}
+		sampleBegArr[itemL.size()] = numSamples;
+
+		// Evaluate all of the sample points in a single pass
+		double[][] sampleValueArr;
+		try
+		{
+			sampleValueArr = aSmallBody.getColoringValues(coloringIdxArr, Arrays.copyOf(samplePointArr, 3 * numSamples));
+		}
+		catch (Exception aExp)
+		{
+			aTask.logRegln("Plate coloring values are not available.");
+			aTask.logRegln("Exception: " + aExp.getMessage());
+			return retValueM;
 		}
 
-		// Populate the (returned) 4-element standard coloring array
-		if (slopeIdx != -1)
-			retValueArr[0] = allValueArr[slopeIdx];
-		if (elevationIdx != -1)
-			retValueArr[1] = allValueArr[elevationIdx];
-		if (accelerationIdx != -1)
-			retValueArr[2] = allValueArr[accelerationIdx];
-		if (potentialIdx != -1)
-			retValueArr[3] = allValueArr[potentialIdx];
+		for (int aIdx = 0; aIdx < itemL.size(); aIdx++)
+		{
+			if (isCorruptArr[aIdx] == true)
+				continue;
 
-		return retValueArr;
+			var retValueArr = retValueM.get(itemL.get(aIdx));
+			int begIdx = sampleBegArr[aIdx];
+			int endIdx = sampleBegArr[aIdx + 1];
+			for (int aCol = 0; aCol < retValueArr.length; aCol++)
+			{
+				var tmpValueArr = sampleValueArr[aCol];
+				if (tmpValueArr == null)
+					continue;
+
+				// Values at the center
+				retValueArr[aCol] = tmpValueArr[begIdx];
+
+				// Replace slope and/or elevation central values with the average over the rim of the circle.
+				if (aCol > 1 || itemL.get(aIdx).getType() == StructureType.Point)
+					continue;
+
+				double totalLength = 0.0;
+				double totalValue = 0.0;
+				for (int aSample = begIdx + 1; aSample < endIdx; aSample++)
+				{
+					totalLength += sampleWeightArr[aSample];
+					totalValue += tmpValueArr[aSample] * sampleWeightArr[aSample];
+				}
+				retValueArr[aCol] = totalValue / totalLength;
+			}
+		}
+
+		return retValueM;
+	}
+
+	/**
+	 * Helper method that returns the indexes of the 4 standard colorings, in the order: (Slope, Elevation, GravAccel,
+	 * GravPotential). The index of a coloring that is not available is -1.
+	 */
+	private static int[] getStandardColoringIndexes(PolyhedralModel aSmallBody)
+	{
+		int[] retIdxArr = { -1, -1, -1, -1 };
+
+		// Usually the standard colorings are first in the list, so the loop could terminate after all 4 are >= 0, but
+		// omitting this check for brevity and readability.
+		List<ColoringData> coloringDataL = aSmallBody.getAllColoringData();
+		for (int aIndex = 0; aIndex < coloringDataL.size(); ++aIndex)
+		{
+			String name = coloringDataL.get(aIndex).getName();
+			if (name.equalsIgnoreCase(PolyhedralModel.SlopeStr))
+				retIdxArr[0] = aIndex;
+			if (name.equalsIgnoreCase(PolyhedralModel.ElevStr))
+				retIdxArr[1] = aIndex;
+			if (name.equalsIgnoreCase(PolyhedralModel.GravAccStr))
+				retIdxArr[2] = aIndex;
+			if (name.equalsIgnoreCase(PolyhedralModel.GravPotStr))
+				retIdxArr[3] = aIndex;
+
+			// Hack: Unfortunately in at least OREx's case, this vector is named differently
+			if (name.equalsIgnoreCase("Gravitational Magnitude"))
+				retIdxArr[2] = aIndex;
+		}
+
+		return retIdxArr;
 	}
 
 	/**
@@ -1,6 +1,7 @@
 package edu.jhuapl.saavtk.structure.vtk;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Objects;
 
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
@@ -10,6 +11,7 @@ import com.google.common.collect.ImmutableList;
 import edu.jhuapl.saavtk.model.PolyhedralModel;
 import edu.jhuapl.saavtk.util.LatLon;
 import edu.jhuapl.saavtk.util.MathUtil;
+import edu.jhuapl.saavtk.util.mesh.SurfacePathTracer;
 import edu.jhuapl.saavtk.vtk.VtkDrawUtil;
 import vtk.vtkPoints;
 import vtk.vtkPolyData;
@@ -79,6 +81,48 @@ public class Segment
 		return intermediatePointL;
 	}
 
+	/**
+	 * Utility method that will update all of the specified {@link Segment}s.
+	 * <p>
+	 * The stale segments are traced in parallel via the small body's {@link SurfacePathTracer}. Any segment that can
+	 * not be traced that way (or all of them, if the small body has no tracer) is updated via
+	 * {@link #update(PolyhedralModel)}.
+	 */
+	public static void updateAll(PolyhedralModel aSmallBody, Collection<Segment> aSegmentC)
+	{
+		var tmpTracer = aSmallBody.getSurfacePathTracer();
+
+		// Gather the segments that need to be traced
+		var traceL = new ArrayList<Segment>();
+		for (var aSegment : aSegmentC)
+		{
+			if (aSegment.isStale == true && aSegment.isDegenerate() == false)
+				traceL.add(aSegment);
+		}
+
+		if (tmpTracer != null && traceL.size() > 0)
+		{
+			var begArr = new double[3 * traceL.size()];
+			var endArr = new double[3 * traceL.size()];
+			for (var aIdx = 0; aIdx < traceL.size(); aIdx++)
+			{
+				System.arraycopy(MathUtil.latrec(traceL.get(aIdx).pointLL1), 0, begArr, 3 * aIdx, 3);
+				System.arraycopy(MathUtil.latrec(traceL.get(aIdx).pointLL2), 0, endArr, 3 * aIdx, 3);
+			}
+
+			var pathArrArr = tmpTracer.traceAll(begArr, endArr);
+			for (var aIdx = 0; aIdx < traceL.size(); aIdx++)
+			{
+				if (pathArrArr[aIdx] != null)
+					traceL.get(aIdx).setPath(pathArrArr[aIdx]);
+			}
+		}
+
+		// Update the remaining segments
+		for (var aSegment : aSegmentC)
+			aSegment.update(aSmallBody);
+	}
+
 	/**
 	 * Method that will update the intermediate points within this {@link Segment}.
 	 */
@@ -97,8 +141,7 @@ public class Segment
 
 		var vTmpPD = (vtkPolyData) null;
 		var vTmpP = (vtkPoints) null;
-		if (Math.abs(pointLL1.lat - pointLL2.lat) < 1e-8 && Math.abs(pointLL1.lon - pointLL2.lon) < 1e-8
-				&& Math.abs(pointLL1.rad - pointLL2.rad) < 1e-8)
+		if (isDegenerate() == true)
 		{
 			vTmpP = new vtkPoints();
 			vTmpP.InsertNextPoint(pt1Arr);
@@ -106,9 +149,9 @@ public class Segment
 		}
 		else
 		{
-			var vSurfacePD = aSmallBody.getSmallBodyPolyData();
+			var vSurfacePD = aSmallBody.getSmallBodyPolyDataAtPosition();
 			var vSurfacePL = aSmallBody.getPointLocator();
-			vTmpPD = VtkDrawUtil.drawPathPolyOn(vSurfacePD, vSurfacePL, pt1, pt2);
+			vTmpPD = VtkDrawUtil.drawPathPolyOn(aSmallBody.getSurfacePathTracer(), vSurfacePD, vSurfacePL, pt1, pt2);
 			if (vTmpPD == null)
 				return;
 
@@ -140,6 +183,38 @@ public class Segment
 			vTmpP.Delete();
 	}
 
+	/**
+	 * Helper method that returns true if the 2 control points are (nearly) coincident.
+	 */
+	private boolean isDegenerate()
+	{
+		return Math.abs(pointLL1.lat - pointLL2.lat) < 1e-8 && Math.abs(pointLL1.lon - pointLL2.lon) < 1e-8
+				&& Math.abs(pointLL1.rad - pointLL2.rad) < 1e-8;
+	}
+
+	/**
+	 * Helper method that sets the intermediate points to the specified packed points (x0, y0, z0, x1, ...).
+	 */
+	private void setPath(double[] aPointArr)
+	{
+		isStale = false;
+
+		var tmpPointL = new ArrayList<Vector3D>();
+		var numPts = aPointArr.length / 3;
+
+		pathLen = 0.0;
+		var prevPt = new Vector3D(aPointArr[0], aPointArr[1], aPointArr[2]);
+		for (var aIdx = 0; aIdx < numPts; aIdx++)
+		{
+			var currPt = new Vector3D(aPointArr[3 * aIdx], aPointArr[3 * aIdx + 1], aPointArr[3 * aIdx + 2]);
+			tmpPointL.add(currPt);
+			pathLen += prevPt.distance(currPt);
+
+			prevPt = currPt;
+		}
+		intermediatePointL = ImmutableList.copyOf(tmpPointL);
+	}
+
 	@Override
 	public boolean equals(Object obj)
 	{
@@ -133,15 +133,18 @@ public class VtkEllipsePainter implements VtkStructurePainter
 		if (refItem.getShowInterior() == false)
 			vTmpInteriorRegPD = null;
 
-		var vTmpPD = refSmallBody.getSmallBodyPolyData();
-		var vTmpPL = refSmallBody.getPointLocator();
 		var center = refItem.getCenter();
 		var radius = refItem.getRadius();
 		var flattening = refItem.getFlattening();
 		var angle = refItem.getAngle();
 		var numSides = renderAttr.numRoundSides();
-		VtkDrawUtil.drawEllipseOn(vTmpPD, vTmpPL, center, radius, flattening, angle, numSides, vTmpInteriorRegPD,
-				vExteriorRegPD);
+		var tmpPatcher = refSmallBody.getSurfacePatcher();
+		if (tmpPatcher != null)
+			VtkDrawUtil.drawEllipseOn(tmpPatcher, center, radius, flattening, angle, numSides, vTmpInteriorRegPD,
+					vExteriorRegPD);
+		else
+			VtkDrawUtil.drawEllipseOn(refSmallBody.getSmallBodyPolyDataAtPosition(), refSmallBody.getPointLocator(), center,
+					radius, flattening, angle, numSides, vTmpInteriorRegPD, vExteriorRegPD);
 
 		// Update the Ellipse's RenderState
 		var pathLength = Double.NaN;
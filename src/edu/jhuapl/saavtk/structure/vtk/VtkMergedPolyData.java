@@ -0,0 +1,542 @@
+package edu.jhuapl.saavtk.structure.vtk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
+import vtk.vtkDataArray;
+import vtk.vtkPoints;
+import vtk.vtkPolyData;
+
+/**
+ * Class that maintains a single {@link vtkPolyData} holding the lines (or polygons) of many items.
+ * <p>
+ * Unlike a vtkAppendPolyData, which rebuilds its output from all of its inputs, the merged data is kept in persistent
+ * buffers in which every item owns a contiguous range (slot) of points, cells and connectivity. Changing an item only
+ * rewrites that item's slot:
+ * <ul>
+ * <li>If the new data fits in the slot then it is written in place. Unused cells of the slot are collapsed onto a
+ * single point (so they render nothing and can not be picked).
+ * <li>Otherwise the old slot is collapsed the same way and a new slot (with some slack) is appended.
+ * </ul>
+ * Collapsed (dead) slots keep the cell ids of all other items stable. Once more of the buffers are dead than alive, the
+ * buffers are compacted: live slots are packed in order of their cells, and the cell ids of all items change.
+ * <p>
+ * Changes are sent to VTK on {@link #flush()}. Small changes are patched into the VTK arrays element by element; large
+ * changes (and compactions) replace the VTK arrays in bulk.
+ * <p>
+ * Only the lines (or only the polygons) of an item's data are merged.
+ */
+class VtkMergedPolyData<G>
+{
+	// Constants
+	/** Buffers with fewer points than this are never compacted. */
+	private static final int MinCompactPointCnt = 4096;
+	/** Changes to more than this fraction of all values are sent to VTK in bulk. */
+	private static final double MaxPatchFraction = 0.125;
+
+	// Attributes
+	private final boolean isPolys;
+	private final int minCellSize;
+
+	// State vars
+	private final Map<G, Slot> slotM;
+	private final TreeMap<Integer, G> itemAtCellM;
+	private float[] pointArr;
+	private long[] offsetArr;
+	private long[] connArr;
+	private int numPoints;
+	private int numCells;
+	private int numConn;
+	private int numDeadPoints;
+	private int numDeadConn;
+
+	// Pending VTK changes: ranges of [begIdx, endIdx) pairs
+	private final DirtyRanges dirtyPointDR;
+	private final DirtyRanges dirtyOffsetDR;
+	private final DirtyRanges dirtyConnDR;
+	private boolean isRebuildNeeded;
+	private int vtkNumPoints;
+	private int vtkNumCells;
+	private int vtkNumConn;
+
+	// VTK vars
+	private final vtkPolyData vOutputPD;
+
+	/**
+	 * Standard Constructor
+	 *
+	 * @param aOutputPD
+	 *    The {@link vtkPolyData} that will hold the merged data.
+	 * @param aIsPolys
+	 *    True if polygons are merged, false if lines are merged.
+	 */
+	VtkMergedPolyData(vtkPolyData aOutputPD, boolean aIsPolys)
+	{
+		isPolys = aIsPolys;
+		minCellSize = aIsPolys == true ? 3 : 2;
+
+		slotM = new HashMap<>();
+		itemAtCellM = new TreeMap<>();
+		pointArr = new float[3 * 64];
+		offsetArr = new long[64 + 1];
+		connArr = new long[256];
+		numPoints = 0;
+		numCells = 0;
+		numConn = 0;
+		numDeadPoints = 0;
+		numDeadConn = 0;
+
+		dirtyPointDR = new DirtyRanges();
+		dirtyOffsetDR = new DirtyRanges();
+		dirtyConnDR = new DirtyRanges();
+		isRebuildNeeded = true;
+
+		vOutputPD = aOutputPD;
+	}
+
+	/**
+	 * Returns the index of the first cell of the specified item, or -1 if the item has no data.
+	 */
+	int getCellBegIdx(G aItem)
+	{
+		var tmpSlot = slotM.get(aItem);
+		if (tmpSlot == null)
+			return -1;
+
+		return tmpSlot.cellBeg;
+	}
+
+	/**
+	 * Returns the number of (live) cells of the specified item.
+	 */
+	int getNumCells(G aItem)
+	{
+		var tmpSlot = slotM.get(aItem);
+		if (tmpSlot == null)
+			return 0;
+
+		return tmpSlot.numLiveCells;
+	}
+
+	/**
+	 * Returns the item that owns the specified cell, or null if the cell is not a live cell of any item.
+	 */
+	G getItemForCellId(int aCellId)
+	{
+		var tmpEntry = itemAtCellM.floorEntry(aCellId);
+		if (tmpEntry == null)
+			return null;
+
+		var tmpSlot = slotM.get(tmpEntry.getValue());
+		if (aCellId >= tmpSlot.cellBeg + tmpSlot.numLiveCells)
+			return null;
+
+		return tmpEntry.getValue();
+	}
+
+	/**
+	 * Returns the number of cells in the merged data, including dead cells.
+	 */
+	int getNumberOfCells()
+	{
+		return numCells;
+	}
+
+	/**
+	 * Returns true if data has been installed for the specified item.
+	 */
+	boolean hasItem(G aItem)
+	{
+		return slotM.containsKey(aItem);
+	}
+
+	/**
+	 * Installs the data of the specified item, replacing any previous data.
+	 *
+	 * @param aItem
+	 *    The item.
+	 * @param aPointArr
+	 *    The packed point coordinates (x0, y0, z0, x1, ...).
+	 * @param aOffsetArr
+	 *    The offsets of the cells (see {@link VtkArrayUtil#getOffsets(vtkCellArray)}).
+	 * @param aConnArr
+	 *    The point ids of the cells (see {@link VtkArrayUtil#getConnectivity(vtkCellArray)}).
+	 */
+	void put(G aItem, double[] aPointArr, long[] aOffsetArr, long[] aConnArr)
+	{
+		int tmpNumPoints = aPointArr.length / 3;
+		int tmpNumCells = Math.max(aOffsetArr.length - 1, 0);
+		int tmpNumConn = aConnArr.length;
+
+		// Write the data in place if it fits
+		var oldSlot = slotM.get(aItem);
+		if (oldSlot != null && oldSlot.fits(tmpNumPoints, tmpNumCells, tmpNumConn, minCellSize) == true)
+		{
+			writeSlot(oldSlot, aPointArr, aOffsetArr, aConnArr);
+			return;
+		}
+
+		// Otherwise release the old slot and append a new one. Give the new slot some slack if the item has been
+		// resized before, as items that change once tend to change again.
+		var isResized = oldSlot != null;
+		if (oldSlot != null)
+			remove(aItem);
+
+		var newSlot = appendSlot(tmpNumPoints, tmpNumCells, tmpNumConn, isResized);
+		slotM.put(aItem, newSlot);
+		if (newSlot.cellCap > 0)
+			itemAtCellM.put(newSlot.cellBeg, aItem);
+		writeSlot(newSlot, aPointArr, aOffsetArr, aConnArr);
+	}
+
+	/**
+	 * Removes the data of the specified item. Its cells are collapsed but keep their ids until the next compaction.
+	 */
+	void remove(G aItem)
+	{
+		var tmpSlot = slotM.remove(aItem);
+		if (tmpSlot == null)
+			return;
+
+		if (tmpSlot.cellCap > 0)
+			itemAtCellM.remove(tmpSlot.cellBeg);
+
+		Arrays.fill(connArr, tmpSlot.connBeg, tmpSlot.connBeg + tmpSlot.connCap, tmpSlot.pointBeg);
+		dirtyConnDR.add(tmpSlot.connBeg, tmpSlot.connBeg + tmpSlot.connCap);
+
+		numDeadPoints += tmpSlot.pointCap;
+		numDeadConn += tmpSlot.connCap;
+	}
+
+	/**
+	 * Removes the data of all items.
+	 */
+	void clear()
+	{
+		slotM.clear();
+		itemAtCellM.clear();
+		numPoints = 0;
+		numCells = 0;
+		numConn = 0;
+		numDeadPoints = 0;
+		numDeadConn = 0;
+
+		dirtyPointDR.clear();
+		dirtyOffsetDR.clear();
+		dirtyConnDR.clear();
+		isRebuildNeeded = true;
+	}
+
+	/**
+	 * Sends all pending changes to the output {@link vtkPolyData}, compacting the buffers first if needed.
+	 *
+	 * @return Returns true if the cells of the items were renumbered (the buffers were compacted).
+	 */
+	boolean flush()
+	{
+		var isCompacted = false;
+		if (numPoints >= MinCompactPointCnt && (numDeadPoints > numPoints / 2 || numDeadConn > numConn / 2))
+		{
+			compact();
+			isCompacted = true;
+		}
+
+		// Send large changes in bulk
+		long numChangedValues = 3L * dirtyPointDR.count + dirtyOffsetDR.count + dirtyConnDR.count;
+		numChangedValues += 3L * (numPoints - vtkNumPoints) + (numCells - vtkNumCells) + (numConn - vtkNumConn);
+		long numTotalValues = 3L * numPoints + numCells + numConn;
+		if (isRebuildNeeded == true || numChangedValues > numTotalValues * MaxPatchFraction)
+			replaceVtkArrays();
+		else
+			patchVtkArrays();
+
+		dirtyPointDR.clear();
+		dirtyOffsetDR.clear();
+		dirtyConnDR.clear();
+		isRebuildNeeded = false;
+		vtkNumPoints = numPoints;
+		vtkNumCells = numCells;
+		vtkNumConn = numConn;
+
+		return isCompacted;
+	}
+
+	/**
+	 * Helper method that appends a new slot, large enough for the specified amount of data, to the end of the buffers.
+	 */
+	private Slot appendSlot(int aNumPoints, int aNumCells, int aNumConn, boolean aAddSlack)
+	{
+		int pointCap = aNumPoints;
+		int cellCap = aNumCells;
+		int connCap = aNumConn;
+		if (aAddSlack == true)
+		{
+			// Slack cells need at least minCellSize point ids each
+			int slackCells = aNumCells / 4 + 1;
+			pointCap += aNumPoints / 4 + 1;
+			cellCap += slackCells;
+			connCap += aNumConn / 4 + slackCells * minCellSize;
+		}
+
+		var retSlot = new Slot(numPoints, pointCap, numCells, cellCap, numConn, connCap);
+		numPoints += pointCap;
+		numCells += cellCap;
+		numConn += connCap;
+
+		if (3 * numPoints > pointArr.length)
+			pointArr = Arrays.copyOf(pointArr, Math.max(3 * numPoints, 2 * pointArr.length));
+		if (numCells + 1 > offsetArr.length)
+			offsetArr = Arrays.copyOf(offsetArr, Math.max(numCells + 1, 2 * offsetArr.length));
+		if (numConn > connArr.length)
+			connArr = Arrays.copyOf(connArr, Math.max(numConn, 2 * connArr.length));
+
+		offsetArr[numCells] = numConn;
+
+		return retSlot;
+	}
+
+	/**
+	 * Helper method that writes the specified data to the specified slot. Unused cells of the slot are collapsed onto
+	 * the slot's first point.
+	 */
+	private void writeSlot(Slot aSlot, double[] aPointArr, long[] aOffsetArr, long[] aConnArr)
+	{
+		int tmpNumPoints = aPointArr.length / 3;
+		int tmpNumCells = Math.max(aOffsetArr.length - 1, 0);
+		int tmpNumConn = aConnArr.length;
+
+		for (int aIdx = 0; aIdx < 3 * tmpNumPoints; aIdx++)
+			pointArr[3 * aSlot.pointBeg + aIdx] = (float) aPointArr[aIdx];
+		dirtyPointDR.add(aSlot.pointBeg, aSlot.pointBeg + tmpNumPoints);
+
+		for (int aIdx = 0; aIdx < tmpNumCells; aIdx++)
+			offsetArr[aSlot.cellBeg + aIdx] = aSlot.connBeg + aOffsetArr[aIdx];
+		for (int aIdx = 0; aIdx < tmpNumConn; aIdx++)
+			connArr[aSlot.connBeg + aIdx] = aSlot.pointBeg + aConnArr[aIdx];
+
+		// Collapse the unused cells. The first one takes up all of the unused point ids.
+		int connIdx = aSlot.connBeg + tmpNumConn;
+		for (int aIdx = tmpNumCells; aIdx < aSlot.cellCap; aIdx++)
+		{
+			offsetArr[aSlot.cellBeg + aIdx] = connIdx;
+			connIdx += aIdx == tmpNumCells ? aSlot.connCap - tmpNumConn - (aSlot.cellCap - tmpNumCells - 1) * minCellSize
+					: minCellSize;
+		}
+		Arrays.fill(connArr, aSlot.connBeg + tmpNumConn, aSlot.connBeg + aSlot.connCap, aSlot.pointBeg);
+
+		dirtyOffsetDR.add(aSlot.cellBeg, aSlot.cellBeg + aSlot.cellCap);
+		dirtyConnDR.add(aSlot.connBeg, aSlot.connBeg + aSlot.connCap);
+
+		aSlot.numLiveCells = tmpNumCells;
+	}
+
+	/**
+	 * Helper method that packs the live cells of all items, in order of their current cells, and drops all slack.
+	 */
+	private void compact()
+	{
+		var slotL = new ArrayList<Map.Entry<G, Slot>>(slotM.entrySet());
+		slotL.sort((aEntry1, aEntry2) -> Integer.compare(aEntry1.getValue().cellBeg, aEntry2.getValue().cellBeg));
+
+		var oldPointArr = pointArr;
+		var oldOffsetArr = offsetArr;
+		var oldConnArr = connArr;
+		pointArr = new float[Math.max(3 * (numPoints - numDeadPoints), 3 * 64)];
+		offsetArr = new long[Math.max(numCells + 1, 64 + 1)];
+		connArr = new long[Math.max(numConn - numDeadConn, 256)];
+		clear();
+
+		for (var aEntry : slotL)
+		{
+			var oldSlot = aEntry.getValue();
+
+			// Determine the extent of the live data
+			int tmpNumCells = oldSlot.numLiveCells;
+			int tmpNumConn = (int) (oldOffsetArr[oldSlot.cellBeg + tmpNumCells] - oldSlot.connBeg);
+			int tmpNumPoints = 0;
+			for (int aIdx = 0; aIdx < tmpNumConn; aIdx++)
+				tmpNumPoints = Math.max(tmpNumPoints, (int) (oldConnArr[oldSlot.connBeg + aIdx] - oldSlot.pointBeg) + 1);
+
+			var tmpPointArr = new double[3 * tmpNumPoints];
+			for (int aIdx = 0; aIdx < tmpPointArr.length; aIdx++)
+				tmpPointArr[aIdx] = oldPointArr[3 * oldSlot.pointBeg + aIdx];
+			var tmpOffsetArr = new long[tmpNumCells + 1];
+			for (int aIdx = 0; aIdx <= tmpNumCells; aIdx++)
+				tmpOffsetArr[aIdx] = oldOffsetArr[oldSlot.cellBeg + aIdx] - oldSlot.connBeg;
+			var tmpConnArr = new long[tmpNumConn];
+			for (int aIdx = 0; aIdx < tmpNumConn; aIdx++)
+				tmpConnArr[aIdx] = oldConnArr[oldSlot.connBeg + aIdx] - oldSlot.pointBeg;
+
+			put(aEntry.getKey(), tmpPointArr, tmpOffsetArr, tmpConnArr);
+		}
+	}
+
+	/**
+	 * Helper method that replaces the points and cells of the output with copies of the buffers.
+	 */
+	private void replaceVtkArrays()
+	{
+		vtkPoints vTmpP = VtkArrayUtil.createPoints(Arrays.copyOf(pointArr, 3 * numPoints));
+		vtkCellArray vTmpCA = VtkArrayUtil.createCellArray(Arrays.copyOf(offsetArr, numCells + 1),
+				Arrays.copyOf(connArr, numConn));
+
+		vOutputPD.SetPoints(vTmpP);
+		if (isPolys == true)
+			vOutputPD.SetPolys(vTmpCA);
+		else
+			vOutputPD.SetLines(vTmpCA);
+		vOutputPD.Modified();
+
+		vTmpP.Delete();
+		vTmpCA.Delete();
+	}
+
+	/**
+	 * Helper method that writes the changed (and appended) values to the arrays of the output, one element at a time.
+	 * <p>
+	 * The cell lookup structures of the output are released as they no longer match the patched cells.
+	 */
+	private void patchVtkArrays()
+	{
+		var vPoints = vOutputPD.GetPoints();
+		var vCells = isPolys == true ? vOutputPD.GetPolys() : vOutputPD.GetLines();
+
+		// Points
+		vtkDataArray vPointDA = vPoints.GetData();
+		for (int aRangeIdx = 0; aRangeIdx < dirtyPointDR.size; aRangeIdx++)
+		{
+			int endIdx = Math.min(dirtyPointDR.endIdx(aRangeIdx), vtkNumPoints);
+			for (int aIdx = dirtyPointDR.begIdx(aRangeIdx); aIdx < endIdx; aIdx++)
+				vPointDA.SetTuple3(aIdx, pointArr[3 * aIdx], pointArr[3 * aIdx + 1], pointArr[3 * aIdx + 2]);
+		}
+		for (int aIdx = vtkNumPoints; aIdx < numPoints; aIdx++)
+			vPointDA.InsertNextTuple3(pointArr[3 * aIdx], pointArr[3 * aIdx + 1], pointArr[3 * aIdx + 2]);
+
+		// Offsets: the last offset of the VTK array marks the end of the existing cells and is where appended cells begin
+		vtkDataArray vOffsetDA = vCells.GetOffsetsArray();
+		for (int aRangeIdx = 0; aRangeIdx < dirtyOffsetDR.size; aRangeIdx++)
+		{
+			int endIdx = Math.min(dirtyOffsetDR.endIdx(aRangeIdx), vtkNumCells);
+			for (int aIdx = dirtyOffsetDR.begIdx(aRangeIdx); aIdx < endIdx; aIdx++)
+				vOffsetDA.SetTuple1(aIdx, offsetArr[aIdx]);
+		}
+		for (int aIdx = vtkNumCells + 1; aIdx <= numCells; aIdx++)
+			vOffsetDA.InsertNextTuple1(offsetArr[aIdx]);
+
+		// Connectivity
+		vtkDataArray vConnDA = vCells.GetConnectivityArray();
+		for (int aRangeIdx = 0; aRangeIdx < dirtyConnDR.size; aRangeIdx++)
+		{
+			int endIdx = Math.min(dirtyConnDR.endIdx(aRangeIdx), vtkNumConn);
+			for (int aIdx = dirtyConnDR.begIdx(aRangeIdx); aIdx < endIdx; aIdx++)
+				vConnDA.SetTuple1(aIdx, connArr[aIdx]);
+		}
+		for (int aIdx = vtkNumConn; aIdx < numConn; aIdx++)
+			vConnDA.InsertNextTuple1(connArr[aIdx]);
+
+		vPointDA.Modified();
+		vPoints.Modified();
+		vOffsetDA.Modified();
+		vConnDA.Modified();
+		vCells.Modified();
+		vOutputPD.DeleteCells();
+		vOutputPD.Modified();
+
+		vPointDA.Delete();
+		vPoints.Delete();
+		vOffsetDA.Delete();
+		vConnDA.Delete();
+		vCells.Delete();
+	}
+
+	/**
+	 * Class that describes the range of the buffers owned by an item.
+	 */
+	private static class Slot
+	{
+		private final int pointBeg;
+		private final int pointCap;
+		private final int cellBeg;
+		private final int cellCap;
+		private final int connBeg;
+		private final int connCap;
+		private int numLiveCells;
+
+		private Slot(int aPointBeg, int aPointCap, int aCellBeg, int aCellCap, int aConnBeg, int aConnCap)
+		{
+			pointBeg = aPointBeg;
+			pointCap = aPointCap;
+			cellBeg = aCellBeg;
+			cellCap = aCellCap;
+			connBeg = aConnBeg;
+			connCap = aConnCap;
+			numLiveCells = 0;
+		}
+
+		/**
+		 * Returns true if the specified amount of data fits in this slot. Any unused cells must be able to take up the
+		 * unused point ids, with at least aMinCellSize point ids each.
+		 */
+		private boolean fits(int aNumPoints, int aNumCells, int aNumConn, int aMinCellSize)
+		{
+			if (aNumPoints > pointCap || aNumCells > cellCap || aNumConn > connCap)
+				return false;
+
+			// Collapsed cells refer to the slot's first point
+			if (pointCap == 0 && cellCap > aNumCells)
+				return false;
+
+			int unusedCells = cellCap - aNumCells;
+			int unusedConn = connCap - aNumConn;
+			if (unusedCells == 0)
+				return unusedConn == 0;
+
+			return unusedConn >= unusedCells * aMinCellSize;
+		}
+	}
+
+	/**
+	 * Class that records a list of index ranges.
+	 */
+	private static class DirtyRanges
+	{
+		private int[] rangeArr = new int[32];
+		private int size;
+		private long count;
+
+		private void add(int aBegIdx, int aEndIdx)
+		{
+			if (aEndIdx <= aBegIdx)
+				return;
+
+			if (2 * size + 2 > rangeArr.length)
+				rangeArr = Arrays.copyOf(rangeArr, 2 * rangeArr.length);
+			rangeArr[2 * size] = aBegIdx;
+			rangeArr[2 * size + 1] = aEndIdx;
+			size++;
+			count += aEndIdx - aBegIdx;
+		}
+
+		private int begIdx(int aRangeIdx)
+		{
+			return rangeArr[2 * aRangeIdx];
+		}
+
+		private int endIdx(int aRangeIdx)
+		{
+			return rangeArr[2 * aRangeIdx + 1];
+		}
+
+		private void clear()
+		{
+			size = 0;
+			count = 0;
+		}
+	}
+
+}
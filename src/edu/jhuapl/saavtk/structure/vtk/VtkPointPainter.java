@@ -121,15 +121,18 @@ public class VtkPointPainter implements VtkStructurePainter
 		vIsStale = false;
 
 		// Draw the (high quality) ellipse
-		var vTmpPD = refSmallBody.getSmallBodyPolyData();
-		var vTmpPL = refSmallBody.getPointLocator();
 		var center = refItem.getCenter();
 		var pointSizeMin = EllipseUtil.getPointSizeDef(refSmallBody) / 100.0;
 		var pointSize = renderAttr.pointRadius();
 		if (pointSize < pointSizeMin)
 			pointSize = pointSizeMin;
 		var numSides = renderAttr.numPointSides();
-		VtkDrawUtil.drawEllipseOn(vTmpPD, vTmpPL, center, pointSize, 1.0, 0.0, numSides, vInteriorRegPD, vExteriorRegPD);
+		var tmpPatcher = refSmallBody.getSurfacePatcher();
+		if (tmpPatcher != null)
+			VtkDrawUtil.drawEllipseOn(tmpPatcher, center, pointSize, 1.0, 0.0, numSides, vInteriorRegPD, vExteriorRegPD);
+		else
+			VtkDrawUtil.drawEllipseOn(refSmallBody.getSmallBodyPolyDataAtPosition(), refSmallBody.getPointLocator(), center,
+					pointSize, 1.0, 0.0, numSides, vInteriorRegPD, vExteriorRegPD);
 
 		// Update the Point's RenderState
 		var pathLength = Double.NaN;
@@ -12,6 +12,7 @@ import edu.jhuapl.saavtk.structure.PolyLine;
 import edu.jhuapl.saavtk.structure.StructureType;
 import edu.jhuapl.saavtk.util.LatLon;
 import edu.jhuapl.saavtk.util.MathUtil;
+import edu.jhuapl.saavtk.util.mesh.SurfacePathTracer;
 import edu.jhuapl.saavtk.vtk.VtkDrawUtil;
 import edu.jhuapl.saavtk.vtk.VtkResource;
 import vtk.vtkPointLocator;
@@ -339,6 +340,9 @@ public class VtkPolyLinePainter<G1 extends PolyLine> implements VtkResource
 	 */
 	private void updateSegmentAll()
 	{
+		// Trace all of the segments at once
+		double[][] pathArrArr = traceSegmentAll();
+
 		controlPointIdL.clear();
 		List<Vector3D> tmpPointL = new ArrayList<>();
 
@@ -352,16 +356,47 @@ public class VtkPolyLinePainter<G1 extends PolyLine> implements VtkResource
 			tmpPointL.add(Vector3D.ZERO);
 
 			if (aIdx > 0)
-				updateSegmentAt(aIdx - 1, tmpPointL);
+				updateSegmentAt(aIdx - 1, tmpPointL, pathArrArr[aIdx - 1]);
 		}
 
 		if (refItem.isClosed() == true)
-			updateSegmentAt(controlPointIdL.size() - 1, tmpPointL);
+			updateSegmentAt(controlPointIdL.size() - 1, tmpPointL, pathArrArr[controlPointIdL.size() - 1]);
 
 		xyzPointL = ImmutableList.copyOf(tmpPointL);
 		updatePathLength();
 	}
 
+	/**
+	 * Helper method that traces the segments between all consecutive control
+	 * points (including the one from the last control point to the first, if
+	 * closed) in parallel via the small body's {@link SurfacePathTracer}.
+	 * <P>
+	 * Returns the packed path points of each segment, where the element for a
+	 * segment that could not be traced is null.
+	 */
+	private double[][] traceSegmentAll()
+	{
+		List<LatLon> controlPtL = refItem.getControlPoints();
+		int numPoints = controlPtL.size();
+		int numSegments = numPoints;
+		if (refItem.isClosed() == false)
+			numSegments = Math.max(numPoints - 1, 0);
+
+		SurfacePathTracer tmpTracer = refSmallBody.getSurfacePathTracer();
+		if (tmpTracer == null || numPoints < 2)
+			return new double[numSegments][];
+
+		double[] begArr = new double[3 * numSegments];
+		double[] endArr = new double[3 * numSegments];
+		for (int aIdx = 0; aIdx < numSegments; aIdx++)
+		{
+			System.arraycopy(MathUtil.latrec(controlPtL.get(aIdx)), 0, begArr, 3 * aIdx, 3);
+			System.arraycopy(MathUtil.latrec(controlPtL.get((aIdx + 1) % numPoints)), 0, endArr, 3 * aIdx, 3);
+		}
+
+		return tmpTracer.traceAll(begArr, endArr);
+	}
+
 	/**
 	 * Helper method to update the individual segment at the specified index.
 	 * <P>
@@ -369,6 +404,17 @@ public class VtkPolyLinePainter<G1 extends PolyLine> implements VtkResource
 	 * will be utilized as the other end point.
 	 */
 	private void updateSegmentAt(int aBegIdx, List<Vector3D> aPointL)
+	{
+		updateSegmentAt(aBegIdx, aPointL, null);
+	}
+
+	/**
+	 * Helper method to update the individual segment at the specified index.
+	 * <P>
+	 * If aPathArr is not null then it is used as the (already traced) packed
+	 * points of the segment; otherwise the segment is drawn on the small body.
+	 */
+	private void updateSegmentAt(int aBegIdx, List<Vector3D> aPointL, double[] aPathArr)
 	{
 		int nextIdx = aBegIdx + 1;
 		if (nextIdx == refItem.getControlPoints().size())
@@ -400,11 +446,18 @@ public class VtkPolyLinePainter<G1 extends PolyLine> implements VtkResource
 		}
 		else
 		{
-			vtkPolyData vSurfacePD = refSmallBody.getSmallBodyPolyData();
-			vtkPointLocator vSurfacePL = refSmallBody.getPointLocator();
-			vTmpPD = VtkDrawUtil.drawPathPolyOn(vSurfacePD, vSurfacePL, pt1, pt2);
-			if (vTmpPD == null)
-				return;
+			if (aPathArr != null)
+			{
+				vTmpPD = VtkDrawUtil.formPolyLine(aPathArr);
+			}
+			else
+			{
+				vtkPolyData vSurfacePD = refSmallBody.getSmallBodyPolyDataAtPosition();
+				vtkPointLocator vSurfacePL = refSmallBody.getPointLocator();
+				vTmpPD = VtkDrawUtil.drawPathPolyOn(refSmallBody.getSurfacePathTracer(), vSurfacePD, vSurfacePL, pt1, pt2);
+				if (vTmpPD == null)
+					return;
+			}
 
 			vTmpP = vTmpPD.GetPoints();
 		}
@@ -67,6 +67,40 @@ public class VtkPolyLinePainter2 implements VtkStructurePainter
 		return cPointL;
 	}
 
+	/**
+	 * Returns the {@link Segment}s between consecutive control points of the reference {@link PolyLine}.
+	 * <p>
+	 * Segments from the prior update are reused. The returned segments may not have been updated yet; see
+	 * {@link Segment#updateAll(PolyhedralModel, java.util.Collection)}.
+	 */
+	public ImmutableList<Segment> getSegments()
+	{
+		var oldSegmentM = cSegmentM;
+
+		var controlPtL = refItem.getControlPoints();
+		var prevLL = controlPtL.get(0);
+		var tmpSegmentM = new LinkedHashMap<Segment, Segment>();
+		var retSegmentL = new ArrayList<Segment>();
+		for (var aIdx = 1; aIdx < controlPtL.size(); aIdx++)
+		{
+			var nextLL = controlPtL.get(aIdx);
+
+			// Retrieve (or create) the segment and then cache it
+			var tmpSegment = new Segment(prevLL, nextLL);
+			var currSegment = oldSegmentM.get(tmpSegment);
+			if (currSegment == null)
+				currSegment = tmpSegment;
+
+			tmpSegmentM.put(currSegment, currSegment);
+			retSegmentL.add(currSegment);
+
+			prevLL = nextLL;
+		}
+		cSegmentM = ImmutableMap.copyOf(tmpSegmentM);
+
+		return ImmutableList.copyOf(retSegmentL);
+	}
+
 	@Override
 	public void vtkDispose()
 	{
@@ -117,39 +151,21 @@ public class VtkPolyLinePainter2 implements VtkStructurePainter
 			return;
 		vIsStale = false;
 
-		// Refresh the Segment cache
-		var oldSegmentM = ImmutableMap.copyOf(cSegmentM);
+		// Refresh the Segment cache and ensure all segments are up to date
+		var segmentL = getSegments();
+		Segment.updateAll(refSmallBody, segmentL);
 
+		// Extract all of the 3D points from each segment
 		var fullPointL = new ArrayList<Vector3D>();
-		var controlPtL = refItem.getControlPoints();
-		var prevLL = controlPtL.get(0);
-		var tmpSegmentM = new LinkedHashMap<Segment, Segment>();
 		var lastSegment = (Segment) null;
-
-		// Iterate through each segment:
-		// - Ensure the segment is up to date
-		// - Extract all of the 3D points from each segment
-		for (var aIdx = 1; aIdx < controlPtL.size(); aIdx++)
+		for (var aSegment : segmentL)
 		{
-			var nextLL = controlPtL.get(aIdx);
-
-			// Retrieve (or create) the segment, update it, and then cache it
-			var tmpSegment = new Segment(prevLL, nextLL);
-			var currSegment = oldSegmentM.get(tmpSegment);
-			if (currSegment == null)
-				currSegment = tmpSegment;
-
-			currSegment.update(refSmallBody);
-			tmpSegmentM.put(currSegment, currSegment);
-
 			// Grab the first n-1 points from each segment
-			var tmpPointL = currSegment.getPoints3D();
+			var tmpPointL = aSegment.getPoints3D();
 			fullPointL.addAll(tmpPointL.subList(0, tmpPointL.size() - 1));
 
-			prevLL = nextLL;
-			lastSegment = currSegment;
+			lastSegment = aSegment;
 		}
-		cSegmentM = ImmutableMap.copyOf(tmpSegmentM);
 
 		// Note we need to add the very last connecting point (from the last segment)
 		var lastPointIdx = lastSegment.getPoints3D().size() - 1;
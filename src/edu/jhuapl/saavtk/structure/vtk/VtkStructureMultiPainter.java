@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -20,11 +21,12 @@ import edu.jhuapl.saavtk.structure.Polygon;
 import edu.jhuapl.saavtk.structure.RenderAttr;
 import edu.jhuapl.saavtk.structure.Structure;
 import edu.jhuapl.saavtk.util.PolyDataUtil;
+import edu.jhuapl.saavtk.util.mesh.BoxTree;
 import edu.jhuapl.saavtk.view.lod.LodMode;
 import edu.jhuapl.saavtk.view.lod.VtkLodActor;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
 import edu.jhuapl.saavtk.vtk.VtkUtil;
 import vtk.vtkActor;
-import vtk.vtkAppendPolyData;
 import vtk.vtkPolyData;
 import vtk.vtkPolyDataMapper;
 import vtk.vtkProp;
@@ -39,6 +41,11 @@ import vtk.vtkUnsignedCharArray;
  * <li>line width
  * <li>offset (from surface)
  * </ul>
+ * <p>
+ * The exteriors (lines) and interiors (polygons) of all items are merged into persistent buffers (see
+ * {@link VtkMergedPolyData}). On an update only the items whose VTK state has changed are rewritten, and only the
+ * changed part of the merged data is sent to VTK. The bounding boxes of the installed items are kept in a
+ * {@link BoxTree} so that region queries do not need to visit every item.
  *
  * @author lopeznr1
  */
@@ -61,22 +68,25 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 	private final Map<Structure, VtkCompositePainter<Structure, VtkStructurePainter>> vPainterM;
 
 	// Attributes
-	private Map<Structure, VtkDrawState> drawM;
+	private final Map<Structure, VtkDrawState> drawM;
+	private final BoxTree<Structure> boxTree;
+	private double drawRadialOffset;
+	private boolean isColorStale;
 
 	// VTK vars
 	private final List<vtkProp> actorL;
 	private vtkPolyData vExteriorRegPD;
 	private vtkPolyData vExteriorDecPD;
-	private vtkAppendPolyData vExteriorFilterRegAPD;
-	private vtkAppendPolyData vExteriorFilterDecAPD;
+	private final VtkMergedPolyData<Structure> vExteriorRegMPD;
+	private final VtkMergedPolyData<Structure> vExteriorDecMPD;
 	private vtkPolyDataMapper vExteriorRegPDM;
 	private vtkPolyDataMapper vExteriorDecPDM;
 	private VtkLodActor vExteriorActor;
 
 	private vtkPolyData vInteriorRegPD;
 	private vtkPolyData vInteriorDecPD;
-	private vtkAppendPolyData vInteriorFilterRegAPD;
-	private vtkAppendPolyData vInteriorFilterDecAPD;
+	private final VtkMergedPolyData<Structure> vInteriorRegMPD;
+	private final VtkMergedPolyData<Structure> vInteriorDecMPD;
 	private vtkPolyDataMapper vInteriorRegPDM;
 	private vtkPolyDataMapper vInteriorDecPDM;
 	private VtkLodActor vInteriorActor;
@@ -86,8 +96,6 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 	private vtkUnsignedCharArray vInteriorColorsRegUCA;
 	private vtkUnsignedCharArray vInteriorColorsDecUCA;
 
-	private vtkPolyData vEmptyPD;
-
 	/** Standard Constructor */
 	public VtkStructureMultiPainter(SceneChangeNotifier aSceneChangeNotifier, PolyhedralModel aSmallBody,
 			RenderAttr aRenderAttr)
@@ -107,8 +115,9 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 		vPainterM = new HashMap<>();
 
 		drawM = new HashMap<>();
-
-		vEmptyPD = new vtkPolyData();
+		boxTree = new BoxTree<>();
+		drawRadialOffset = Double.NaN;
+		isColorStale = false;
 
 		vExteriorColorsRegUCA = new vtkUnsignedCharArray();
 		vExteriorColorsDecUCA = new vtkUnsignedCharArray();
@@ -122,10 +131,8 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 
 		vExteriorRegPD = new vtkPolyData();
 		vExteriorDecPD = new vtkPolyData();
-		vExteriorFilterRegAPD = new vtkAppendPolyData();
-		vExteriorFilterRegAPD.UserManagedInputsOn();
-		vExteriorFilterDecAPD = new vtkAppendPolyData();
-		vExteriorFilterDecAPD.UserManagedInputsOn();
+		vExteriorRegMPD = new VtkMergedPolyData<>(vExteriorRegPD, false);
+		vExteriorDecMPD = new VtkMergedPolyData<>(vExteriorDecPD, false);
 		vExteriorRegPDM = new vtkPolyDataMapper();
 		vExteriorDecPDM = new vtkPolyDataMapper();
 		vExteriorActor = new VtkLodActor(this);
@@ -135,10 +142,8 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 
 		vInteriorRegPD = new vtkPolyData();
 		vInteriorDecPD = new vtkPolyData();
-		vInteriorFilterRegAPD = new vtkAppendPolyData();
-		vInteriorFilterRegAPD.UserManagedInputsOn();
-		vInteriorFilterDecAPD = new vtkAppendPolyData();
-		vInteriorFilterDecAPD.UserManagedInputsOn();
+		vInteriorRegMPD = new VtkMergedPolyData<>(vInteriorRegPD, true);
+		vInteriorDecMPD = new VtkMergedPolyData<>(vInteriorDecPD, true);
 		vInteriorRegPDM = new vtkPolyDataMapper();
 		vInteriorDecPDM = new vtkPolyDataMapper();
 		vInteriorActor = new VtkLodActor(this);
@@ -181,6 +186,10 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 
 	public void setDrawColor(Color aColor)
 	{
+		// The draw color applies to all items
+		if (Objects.equals(drawColor, aColor) == false)
+			isColorStale = true;
+
 		drawColor = aColor;
 	}
 
@@ -226,6 +235,7 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 	 * Returns the structure corresponding to the specified cell id.
 	 * <p>
 	 * Many cells are associated with each item, thus we need to determine which item the selected cell corresponds to.
+	 * The merged buffers keep track of the cell range of each item.
 	 */
 	public Structure getItemFromCellId(vtkProp aProp, int aCellId)
 	{
@@ -234,28 +244,24 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 			return null;
 
 		// Locate the item corresponding to aCellId
-		int fullCellCnt = 0;
-		for (var aItem : workItemS)
-		{
-			// Skip over invisible items
-			if (aItem.getVisible() == false)
-				continue;
-
-			// Skip over non rendered items
-			var tmpPainter = getVtkMainPainter(aItem);
-			if (tmpPainter == null)
-				continue;
-
-			if (aProp == vInteriorActor)
-				fullCellCnt += tmpPainter.vtkGetInteriorRegPD().GetNumberOfCells();
-			else
-				fullCellCnt += tmpPainter.vtkGetExteriorRegPD().GetNumberOfCells();
-
-			if (fullCellCnt > aCellId)
-				return aItem;
-		}
+		if (aProp == vInteriorActor)
+			return vInteriorRegMPD.getItemForCellId(aCellId);
+		else
+			return vExteriorRegMPD.getItemForCellId(aCellId);
+	}
 
-		return null;
+	/**
+	 * Returns the rendered items whose bounding boxes intersect the specified box.
+	 * <p>
+	 * The result is conservative: the caller should refine it with an exact test (such as against a footprint) if
+	 * needed.
+	 *
+	 * @param aBoundsArr
+	 *    The box of interest: (xmin, xmax, ymin, ymax, zmin, zmax).
+	 */
+	public List<Structure> getItemsInBox(double[] aBoundsArr)
+	{
+		return boxTree.findOverlapping(aBoundsArr);
 	}
 
 	/**
@@ -337,112 +343,105 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 
 		actorL.clear();
 
-		if (workItemS.size() > 0)
+		// All items need to be shifted again if the offset has changed
+		if (radialOffset != drawRadialOffset)
 		{
-			vExteriorFilterRegAPD.SetNumberOfInputs(workItemS.size());
-			vExteriorFilterDecAPD.SetNumberOfInputs(workItemS.size());
-			vInteriorFilterRegAPD.SetNumberOfInputs(workItemS.size());
-			vInteriorFilterDecAPD.SetNumberOfInputs(workItemS.size());
-
-			// Keep track of the begin idx for each item (and corresponding PolyData)
-			drawM = new HashMap<>();
-			int extCurrCntDec = 0;
-			int extCurrCntReg = 0;
-			int intCurrCntDec = 0;
-			int intCurrCntReg = 0;
-			int idx = 0;
-			for (var aItem : workItemS)
-			{
-				var tmpPainter = getOrCreateVtkPainterFor(aItem, refSmallBody);
-				tmpPainter.vtkUpdateState();
-
-				var mainPainter = tmpPainter.getMainPainter();
-				var extRegPD = mainPainter.vtkGetExteriorRegPD();
-				var extDecPD = mainPainter.vtkGetExteriorDecPD();
-				var intRegPD = mainPainter.vtkGetInteriorRegPD();
-				var intDecPD = mainPainter.vtkGetInteriorDecPD();
-				if (aItem.getVisible() == false)
-				{
-					extRegPD = vEmptyPD;
-					extDecPD = vEmptyPD;
-					intRegPD = vEmptyPD;
-					intDecPD = vEmptyPD;
-				}
-
-				drawM.put(aItem, new VtkDrawState(extCurrCntDec, extCurrCntReg, intCurrCntDec, intCurrCntReg));
-				extCurrCntDec += extDecPD.GetNumberOfCells();
-				extCurrCntReg += extRegPD.GetNumberOfCells();
-				intCurrCntDec += intDecPD.GetNumberOfCells();
-				intCurrCntReg += intRegPD.GetNumberOfCells();
-
-				vExteriorFilterRegAPD.SetInputDataByNumber(idx, extRegPD);
-				vExteriorFilterDecAPD.SetInputDataByNumber(idx, extDecPD);
-				vInteriorFilterRegAPD.SetInputDataByNumber(idx, intRegPD);
-				vInteriorFilterDecAPD.SetInputDataByNumber(idx, intDecPD);
-
-				idx++;
-
-				// Keep track of captions that are displayed
-				var textPainter = tmpPainter.getTextPainter();
-				var tmpActor = textPainter.getActor();
-				if (tmpActor != null)
-					actorL.add(tmpActor);
-			}
+			vExteriorRegMPD.clear();
+			vExteriorDecMPD.clear();
+			vInteriorRegMPD.clear();
+			vInteriorDecMPD.clear();
+			drawM.clear();
+			boxTree.clear();
+			drawRadialOffset = radialOffset;
+		}
 
-			vExteriorFilterRegAPD.Update();
-			vExteriorFilterDecAPD.Update();
-			vInteriorFilterRegAPD.Update();
-			vInteriorFilterDecAPD.Update();
-
-			var exteriorFilterAppendRegOutput = vExteriorFilterRegAPD.GetOutput();
-			var exteriorFilterAppendDecOutput = vExteriorFilterDecAPD.GetOutput();
-			var interiorFilterAppendRegOutput = vInteriorFilterRegAPD.GetOutput();
-			var interiorFilterAppendDecOutput = vInteriorFilterDecAPD.GetOutput();
-			vExteriorRegPD.DeepCopy(exteriorFilterAppendRegOutput);
-			vExteriorDecPD.DeepCopy(exteriorFilterAppendDecOutput);
-			vInteriorRegPD.DeepCopy(interiorFilterAppendRegOutput);
-			vInteriorDecPD.DeepCopy(interiorFilterAppendDecOutput);
-
-			refSmallBody.shiftPolyLineInNormalDirection(vExteriorRegPD, radialOffset);
-			refSmallBody.shiftPolyLineInNormalDirection(vExteriorDecPD, radialOffset);
-			PolyDataUtil.shiftPolyDataInNormalDirection(vInteriorRegPD, radialOffset);
-			PolyDataUtil.shiftPolyDataInNormalDirection(vInteriorDecPD, radialOffset);
-
-			vExteriorColorsRegUCA.SetNumberOfTuples(vExteriorRegPD.GetNumberOfCells());
-			vExteriorColorsDecUCA.SetNumberOfTuples(vExteriorDecPD.GetNumberOfCells());
-			vInteriorColorsRegUCA.SetNumberOfTuples(vInteriorRegPD.GetNumberOfCells());
-			vInteriorColorsDecUCA.SetNumberOfTuples(vInteriorDecPD.GetNumberOfCells());
+		// Release the items that are no longer rendered
+		var staleItemL = new ArrayList<Structure>();
+		for (var aItem : drawM.keySet())
+		{
+			if (workItemS.contains(aItem) == false || aItem.getVisible() == false)
+				staleItemL.add(aItem);
+		}
+		for (var aItem : staleItemL)
+		{
+			vExteriorRegMPD.remove(aItem);
+			vExteriorDecMPD.remove(aItem);
+			vInteriorRegMPD.remove(aItem);
+			vInteriorDecMPD.remove(aItem);
+			drawM.remove(aItem);
+			boxTree.remove(aItem);
+		}
 
-			updateVtkColorsFor(workItemS, false);
+		// Install the items whose VTK state has changed
+		var updateItemL = new ArrayList<Structure>();
+		for (var aItem : workItemS)
+		{
+			var tmpPainter = getOrCreateVtkPainterFor(aItem, refSmallBody);
+			tmpPainter.vtkUpdateState();
 
-			var exteriorRegCD = vExteriorRegPD.GetCellData();
-			var exteriorDecCD = vExteriorDecPD.GetCellData();
-			var interiorRegCD = vInteriorRegPD.GetCellData();
-			var interiorDecCD = vInteriorDecPD.GetCellData();
+			// Keep track of captions that are displayed
+			var textPainter = tmpPainter.getTextPainter();
+			var tmpActor = textPainter.getActor();
+			if (tmpActor != null)
+				actorL.add(tmpActor);
 
-			actorL.add(vInteriorActor);
-			actorL.add(vExteriorActor);
+			// Skip over invisible items
+			if (aItem.getVisible() == false)
+				continue;
+
+			var mainPainter = tmpPainter.getMainPainter();
+			var tmpDrawState = new VtkDrawState(mainPainter.vtkGetExteriorRegPD().GetMTime(),
+					mainPainter.vtkGetExteriorDecPD().GetMTime(), mainPainter.vtkGetInteriorRegPD().GetMTime(),
+					mainPainter.vtkGetInteriorDecPD().GetMTime());
+			if (tmpDrawState.equals(drawM.get(aItem)) == true)
+				continue;
 
-			exteriorRegCD.SetScalars(vExteriorColorsRegUCA);
-			exteriorDecCD.SetScalars(vExteriorColorsDecUCA);
-			interiorRegCD.SetScalars(vInteriorColorsRegUCA);
-			interiorDecCD.SetScalars(vInteriorColorsDecUCA);
-
-			exteriorFilterAppendRegOutput.Delete();
-			exteriorFilterAppendDecOutput.Delete();
-			interiorFilterAppendRegOutput.Delete();
-			interiorFilterAppendDecOutput.Delete();
-			exteriorRegCD.Delete();
-			exteriorDecCD.Delete();
-			interiorRegCD.Delete();
-			interiorDecCD.Delete();
+			installItem(aItem, mainPainter, radialOffset);
+			drawM.put(aItem, tmpDrawState);
+			updateItemL.add(aItem);
 		}
+
+		// Send the changes to VTK. Compaction renumbers the cells of all items.
+		var isCompacted = false;
+		isCompacted |= vExteriorRegMPD.flush();
+		isCompacted |= vExteriorDecMPD.flush();
+		isCompacted |= vInteriorRegMPD.flush();
+		isCompacted |= vInteriorDecMPD.flush();
+
+		vExteriorColorsRegUCA.SetNumberOfTuples(vExteriorRegMPD.getNumberOfCells());
+		vExteriorColorsDecUCA.SetNumberOfTuples(vExteriorDecMPD.getNumberOfCells());
+		vInteriorColorsRegUCA.SetNumberOfTuples(vInteriorRegMPD.getNumberOfCells());
+		vInteriorColorsDecUCA.SetNumberOfTuples(vInteriorDecMPD.getNumberOfCells());
+
+		if (isCompacted == true || isColorStale == true)
+			updateVtkColorsFor(workItemS, false);
 		else
+			updateVtkColorsFor(updateItemL, false);
+		isColorStale = false;
+		vExteriorColorsRegUCA.Modified();
+		vExteriorColorsDecUCA.Modified();
+		vInteriorColorsRegUCA.Modified();
+		vInteriorColorsDecUCA.Modified();
+
+		var exteriorRegCD = vExteriorRegPD.GetCellData();
+		var exteriorDecCD = vExteriorDecPD.GetCellData();
+		var interiorRegCD = vInteriorRegPD.GetCellData();
+		var interiorDecCD = vInteriorDecPD.GetCellData();
+
+		exteriorRegCD.SetScalars(vExteriorColorsRegUCA);
+		exteriorDecCD.SetScalars(vExteriorColorsDecUCA);
+		interiorRegCD.SetScalars(vInteriorColorsRegUCA);
+		interiorDecCD.SetScalars(vInteriorColorsDecUCA);
+
+		exteriorRegCD.Delete();
+		exteriorDecCD.Delete();
+		interiorRegCD.Delete();
+		interiorDecCD.Delete();
+
+		if (workItemS.size() > 0)
 		{
-			vExteriorRegPD.DeepCopy(vEmptyPD);
-			vExteriorDecPD.DeepCopy(vEmptyPD);
-			vInteriorRegPD.DeepCopy(vEmptyPD);
-			vInteriorDecPD.DeepCopy(vEmptyPD);
+			actorL.add(vInteriorActor);
+			actorL.add(vExteriorActor);
 		}
 
 		vExteriorRegPDM.SetInputData(vExteriorRegPD);
@@ -479,13 +478,11 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 				continue;
 
 			// Skip to next if not rendered
-			var tmpPainter = getVtkMainPainter(aItem);
-			if (tmpPainter == null)
+			if (getVtkMainPainter(aItem) == null)
 				continue;
 
-			// Skip to next if no associated draw state
-			var vDrawState = drawM.get(aItem);
-			if (vDrawState == null)
+			// Skip to next if not installed
+			if (drawM.containsKey(aItem) == false)
 				continue;
 
 			// Update label color
@@ -508,27 +505,10 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 				else if (pickItemS.contains(aItem) == true)
 					tmpColor = pickColor;
 			}
-			int begIdx, endIdx;
-
-			begIdx = vDrawState.extBegIdxReg;
-			endIdx = begIdx + (int) tmpPainter.vtkGetExteriorRegPD().GetNumberOfCells();
-			for (int aIdx = begIdx; aIdx < endIdx; aIdx++)
-				VtkUtil.setColorOnUCA4(vExteriorColorsRegUCA, aIdx, tmpColor);
-
-			begIdx = vDrawState.extBegIdxDec;
-			endIdx = begIdx + (int) tmpPainter.vtkGetExteriorDecPD().GetNumberOfCells();
-			for (int aIdx = begIdx; aIdx < endIdx; aIdx++)
-				VtkUtil.setColorOnUCA4(vExteriorColorsDecUCA, aIdx, tmpColor);
-
-			begIdx = vDrawState.intBegIdxReg;
-			endIdx = begIdx + (int) tmpPainter.vtkGetInteriorRegPD().GetNumberOfCells();
-			for (int aIdx = begIdx; aIdx < endIdx; aIdx++)
-				VtkUtil.setColorOnUCA4(vInteriorColorsRegUCA, aIdx, tmpColor);
-
-			begIdx = vDrawState.intBegIdxDec;
-			endIdx = begIdx + (int) tmpPainter.vtkGetInteriorDecPD().GetNumberOfCells();
-			for (int aIdx = begIdx; aIdx < endIdx; aIdx++)
-				VtkUtil.setColorOnUCA4(vInteriorColorsDecUCA, aIdx, tmpColor);
+			setColorOnCells(vExteriorColorsRegUCA, vExteriorRegMPD, aItem, tmpColor);
+			setColorOnCells(vExteriorColorsDecUCA, vExteriorDecMPD, aItem, tmpColor);
+			setColorOnCells(vInteriorColorsRegUCA, vInteriorRegMPD, aItem, tmpColor);
+			setColorOnCells(vInteriorColorsDecUCA, vInteriorDecMPD, aItem, tmpColor);
 		}
 
 		// Bail if notification is not needed
@@ -566,6 +546,101 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 		throw new Error("Unsupported Structure: " + aItem.getClass() + " -> type: " + aItem.getType());
 	}
 
+	/**
+	 * Helper method that (re)installs the VTK state of the specified item into the merged buffers and updates its
+	 * bounding box.
+	 */
+	private void installItem(Structure aItem, VtkStructurePainter aMainPainter, double aRadialOffset)
+	{
+		var boundsArr = new double[] { Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+				Double.MAX_VALUE, -Double.MAX_VALUE };
+		installOn(vExteriorRegMPD, aItem, aMainPainter.vtkGetExteriorRegPD(), aRadialOffset, false, boundsArr);
+		installOn(vExteriorDecMPD, aItem, aMainPainter.vtkGetExteriorDecPD(), aRadialOffset, false, boundsArr);
+		installOn(vInteriorRegMPD, aItem, aMainPainter.vtkGetInteriorRegPD(), aRadialOffset, true, boundsArr);
+		installOn(vInteriorDecMPD, aItem, aMainPainter.vtkGetInteriorDecPD(), aRadialOffset, true, boundsArr);
+
+		// Items without any geometry are removed
+		boxTree.put(aItem, boundsArr);
+	}
+
+	/**
+	 * Helper method that installs the lines (or polygons) of the specified {@link vtkPolyData} into the specified
+	 * merged buffer.
+	 * <p>
+	 * The points are shifted as the merged exterior and interior used to be: lines along the normals of the small body
+	 * and polygons along their own normals. The bounds are grown to include the shifted points.
+	 */
+	private void installOn(VtkMergedPolyData<Structure> aMergedPD, Structure aItem, vtkPolyData aSourcePD,
+			double aRadialOffset, boolean aIsInterior, double[] aBoundsArr)
+	{
+		var vTmpP = aSourcePD.GetPoints();
+		if (vTmpP == null || vTmpP.GetNumberOfPoints() == 0)
+		{
+			aMergedPD.put(aItem, new double[0], new long[] { 0 }, new long[0]);
+			return;
+		}
+
+		var vTmpCA = aIsInterior == true ? aSourcePD.GetPolys() : aSourcePD.GetLines();
+		var pointArr = VtkArrayUtil.getPoints(vTmpP);
+		var offsetArr = VtkArrayUtil.getOffsets(vTmpCA);
+		var connArr = VtkArrayUtil.getConnectivity(vTmpCA);
+		vTmpP.Delete();
+		vTmpCA.Delete();
+
+		if (aIsInterior == true)
+			PolyDataUtil.shiftPolyDataInNormalDirection(pointArr, offsetArr, connArr, aRadialOffset);
+		else
+			shiftAlongSurfaceNormals(pointArr, aRadialOffset);
+
+		for (int aIdx = 0; aIdx < pointArr.length; aIdx++)
+		{
+			var k = aIdx % 3;
+			aBoundsArr[2 * k] = Math.min(aBoundsArr[2 * k], pointArr[aIdx]);
+			aBoundsArr[2 * k + 1] = Math.max(aBoundsArr[2 * k + 1], pointArr[aIdx]);
+		}
+
+		aMergedPD.put(aItem, pointArr, offsetArr, connArr);
+	}
+
+	/**
+	 * Helper method that shifts the specified points along the normals of the small body.
+	 */
+	private void shiftAlongSurfaceNormals(double[] aPointArr, double aRadialOffset)
+	{
+		var tmpPatcher = refSmallBody.getSurfacePatcher();
+		if (tmpPatcher != null)
+		{
+			tmpPatcher.shiftAlongNormals(aPointArr, aRadialOffset);
+			return;
+		}
+
+		var vTmpP = VtkArrayUtil.createPoints(aPointArr);
+		var vTmpPD = new vtkPolyData();
+		vTmpPD.SetPoints(vTmpP);
+		refSmallBody.shiftPolyLineInNormalDirection(vTmpPD, aRadialOffset);
+
+		var vShiftP = vTmpPD.GetPoints();
+		System.arraycopy(VtkArrayUtil.getPoints(vShiftP), 0, aPointArr, 0, aPointArr.length);
+		vShiftP.Delete();
+		vTmpPD.Delete();
+		vTmpP.Delete();
+	}
+
+	/**
+	 * Helper method that sets the color of the cells of the specified item in the specified merged buffer.
+	 */
+	private static void setColorOnCells(vtkUnsignedCharArray aUCA, VtkMergedPolyData<Structure> aMergedPD,
+			Structure aItem, Color aColor)
+	{
+		int begIdx = aMergedPD.getCellBegIdx(aItem);
+		if (begIdx < 0)
+			return;
+
+		int endIdx = begIdx + aMergedPD.getNumCells(aItem);
+		for (int aIdx = begIdx; aIdx < endIdx; aIdx++)
+			VtkUtil.setColorOnUCA4(aUCA, aIdx, aColor);
+	}
+
 	/**
 	 * Helper method that returns the primary painter for the specified item. This is the painter responsible for
 	 * rendering a structure's shape.
@@ -588,11 +663,12 @@ public class VtkStructureMultiPainter implements VtkPropProvider
 	}
 
 	/**
-	 * Record used to track the VTK (index) state associated with a structure.
+	 * Record used to track the VTK state (modification times of the painter's {@link vtkPolyData}) that has been
+	 * installed for a structure.
 	 *
 	 * @author lopeznr1
 	 */
-	record VtkDrawState(int extBegIdxDec, int extBegIdxReg, int intBegIdxDec, int intBegIdxReg)
+	record VtkDrawState(long extRegMTime, long extDecMTime, long intRegMTime, long intDecMTime)
 	{
 	}
 
@@ -0,0 +1,260 @@
+package edu.jhuapl.saavtk.util;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs URL and file accessibility checks for a {@link DownloadableFileManager}
+ * on a bounded pool of background threads, so that the status of a large
+ * catalog of files can be refreshed without probing the server one URL at a
+ * time, and without opening more than a fixed number of connections at once.
+ * <p>
+ * Each check is made by a {@link DownloadableFileAccessQuerier}. A request for a
+ * URL that is already being checked joins that check instead of starting
+ * another one. The time of the last completed check of each URL is remembered:
+ * a URL whose last check is older than the time-to-live is checked again even
+ * if no forced update is requested, so that statuses such as
+ * {@link UrlStatus#NOT_AUTHORIZED} do not stay cached for the whole session.
+ * The first request for a URL is not forced, since the status may be known
+ * already; the time-to-live then runs from that request.
+ * <p>
+ * Results are delivered through {@link CompletableFuture}s, or as a
+ * {@link Stream} that yields each result as soon as it arrives. The threads are
+ * daemon threads, so a scheduler does not need to be shut down.
+ */
+public class AccessQueryScheduler
+{
+    /**
+     * Default maximum number of simultaneous checks.
+     */
+    public static final int DefaultParallelism = 8;
+
+    /**
+     * Default time after which a completed check is repeated, in milliseconds.
+     */
+    public static final long DefaultTimeToLive = TimeUnit.MINUTES.toMillis(10);
+
+    private static final AtomicInteger ThreadCount = new AtomicInteger();
+
+    public static AccessQueryScheduler of(DownloadableFileManager manager, int maximumParallelism, long timeToLive)
+    {
+        Preconditions.checkNotNull(manager);
+        Preconditions.checkArgument(maximumParallelism > 0);
+        Preconditions.checkArgument(timeToLive >= 0);
+
+        return new AccessQueryScheduler(manager, maximumParallelism, timeToLive);
+    }
+
+    private final DownloadableFileManager manager;
+    private final ThreadPoolExecutor executor;
+    private final long timeToLive;
+    // Checks waiting or running, keyed by canonical URL and flags.
+    private final ConcurrentMap<String, CompletableFuture<DownloadableFileState>> inFlight;
+    // Time of the last completed check of each canonical URL, or of its first request.
+    private final ConcurrentMap<String, Long> lastChecked;
+
+    protected AccessQueryScheduler(DownloadableFileManager manager, int maximumParallelism, long timeToLive)
+    {
+        this.manager = manager;
+        this.executor = new ThreadPoolExecutor(maximumParallelism, maximumParallelism, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "AccessQuery-" + ThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeToLive = timeToLive;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.lastChecked = new ConcurrentHashMap<>();
+    }
+
+    public int getMaximumParallelism()
+    {
+        return executor.getMaximumPoolSize();
+    }
+
+    public long getTimeToLive()
+    {
+        return timeToLive;
+    }
+
+    /**
+     * Return the number of checks waiting or running.
+     */
+    public int getPendingCount()
+    {
+        return inFlight.size();
+    }
+
+    /**
+     * Expire the checks of all URLs requested so far, so that the next request for
+     * any of them checks it again.
+     */
+    public void expireAll()
+    {
+        lastChecked.replaceAll((url, checkTime) -> Long.MIN_VALUE);
+    }
+
+    /**
+     * Request a check of one URL and its associated file.
+     *
+     * @param urlString the URL or path segment of the file
+     * @param enableServerCheck if true, check the URL on the server as well as
+     *            the file. If false, check only the file
+     * @param forceUpdate if true, check the URL even if an earlier check has not
+     *            expired
+     * @return a future that completes with the state of the file once it has been
+     *         checked, or with the exception that prevented the check
+     */
+    public CompletableFuture<DownloadableFileState> submit(String urlString, boolean enableServerCheck, boolean forceUpdate)
+    {
+        Preconditions.checkNotNull(urlString);
+
+        String url = manager.getUrl(urlString).toString();
+        String suffix = enableServerCheck ? "" : " (local)";
+
+        long now = System.currentTimeMillis();
+        Long checkTime = lastChecked.putIfAbsent(url, now);
+        if (checkTime != null && (checkTime == Long.MIN_VALUE || now - checkTime >= timeToLive))
+        {
+            forceUpdate = true;
+        }
+
+        // A forced check also answers an unforced request.
+        String forcedKey = url + " (forced)" + suffix;
+        if (!forceUpdate)
+        {
+            CompletableFuture<DownloadableFileState> forced = inFlight.get(forcedKey);
+            if (forced != null)
+            {
+                return forced;
+            }
+        }
+
+        String key = forceUpdate ? forcedKey : url + suffix;
+        boolean force = forceUpdate;
+
+        CompletableFuture<DownloadableFileState> future = new CompletableFuture<>();
+        CompletableFuture<DownloadableFileState> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        executor.execute(() -> {
+            try
+            {
+                DownloadableFileState state = manager.doQuery(manager.getUrl(url), enableServerCheck, force);
+                if (enableServerCheck && isDefinitive(state.getUrlState().getStatus()))
+                {
+                    lastChecked.put(url, System.currentTimeMillis());
+                }
+                future.complete(state);
+            }
+            catch (Exception e)
+            {
+                future.completeExceptionally(e);
+            }
+            finally
+            {
+                inFlight.remove(key, future);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Request checks of several URLs.
+     *
+     * @param urlStrings the URLs or path segments of the files
+     * @param enableServerCheck if true, check the URLs on the server as well as
+     *            the files. If false, check only the files
+     * @param forceUpdate if true, check the URLs even if earlier checks have not
+     *            expired
+     * @return the futures of the checks, in the same order as the URLs
+     */
+    public ImmutableList<CompletableFuture<DownloadableFileState>> submitAll(Iterable<String> urlStrings, boolean enableServerCheck, boolean forceUpdate)
+    {
+        ImmutableList.Builder<CompletableFuture<DownloadableFileState>> builder = ImmutableList.builder();
+        for (String urlString : urlStrings)
+        {
+            builder.add(submit(urlString, enableServerCheck, forceUpdate));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Return a stream of the specified futures in the order they complete. The
+     * stream is sequential and blocks while waiting for the next future to
+     * complete.
+     *
+     * @param futures the futures
+     * @return the stream
+     */
+    public static <T> Stream<CompletableFuture<T>> inCompletionOrder(List<CompletableFuture<T>> futures)
+    {
+        Preconditions.checkNotNull(futures);
+
+        BlockingQueue<CompletableFuture<T>> completed = new LinkedBlockingQueue<>();
+        for (CompletableFuture<T> future : futures)
+        {
+            future.whenComplete((result, exception) -> completed.add(future));
+        }
+
+        int numberFutures = futures.size();
+        Spliterator<CompletableFuture<T>> spliterator = new Spliterators.AbstractSpliterator<CompletableFuture<T>>(numberFutures, Spliterator.NONNULL) {
+            private int numberTaken = 0;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super CompletableFuture<T>> action)
+            {
+                if (numberTaken == numberFutures)
+                {
+                    return false;
+                }
+
+                try
+                {
+                    action.accept(completed.take());
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                ++numberTaken;
+
+                return true;
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Return true if a check that found the specified status need not be repeated
+     * before the time-to-live expires. Transient failures are retried on the next
+     * request anyway.
+     */
+    protected boolean isDefinitive(UrlStatus status)
+    {
+        return status != UrlStatus.UNKNOWN && status != UrlStatus.CONNECTION_ERROR && status != UrlStatus.HTTP_ERROR;
+    }
+
+}
@@ -0,0 +1,294 @@
+package edu.jhuapl.saavtk.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs downloads for a {@link DownloadableFileManager} on a bounded pool of
+ * background threads, so that the many files needed to open a body (shape
+ * models, plate colorings, lidar sources...) are fetched in parallel rather than
+ * one round-trip at a time.
+ * <p>
+ * Each request has a {@link Priority}. Waiting {@link Priority#INTERACTIVE}
+ * requests always start before waiting {@link Priority#PREFETCH} requests, and
+ * requests of the same priority start in the order they were made. A request
+ * for a URL that is already waiting or downloading joins that download instead
+ * of starting another one; if it has a higher priority than the waiting
+ * request, the waiting request is promoted.
+ * <p>
+ * Canceling a returned future withdraws the request if it is still waiting.
+ * Since requests for the same URL share one future, this withdraws it for all
+ * of them. A download that is already running is not interrupted, but its
+ * result is dropped.
+ * <p>
+ * Results are delivered through {@link CompletableFuture}s, which complete with
+ * the state of the file after the download, or exceptionally with the
+ * exception thrown by {@link DownloadableFileManager#getDownloadedFile(String, boolean)}.
+ * The threads are daemon threads, so a scheduler does not need to be shut
+ * down.
+ */
+public class DownloadScheduler
+{
+    /**
+     * The priority classes of download requests, from highest to lowest.
+     */
+    public enum Priority
+    {
+        /**
+         * A file the user is waiting for.
+         */
+        INTERACTIVE,
+
+        /**
+         * A file that may be needed later.
+         */
+        PREFETCH
+    }
+
+    /**
+     * Default maximum number of simultaneous downloads.
+     */
+    public static final int DefaultParallelism = 4;
+
+    private static final AtomicInteger ThreadCount = new AtomicInteger();
+
+    public static DownloadScheduler of(DownloadableFileManager manager, int maximumParallelism)
+    {
+        Preconditions.checkNotNull(manager);
+        Preconditions.checkArgument(maximumParallelism > 0);
+
+        return new DownloadScheduler(manager, maximumParallelism);
+    }
+
+    /**
+     * A download waiting in the queue or running. Ordered by priority, then by
+     * the sequence number of the request that created or last promoted it.
+     */
+    private final class Task implements Runnable, Comparable<Task>
+    {
+        private final String key;
+        private final String urlString;
+        private final boolean forceDownload;
+        private final CompletableFuture<DownloadableFileState> future;
+        private volatile Priority priority;
+        private volatile long sequence;
+
+        Task(String key, String urlString, boolean forceDownload, Priority priority)
+        {
+            this.key = key;
+            this.urlString = urlString;
+            this.forceDownload = forceDownload;
+            this.future = new CompletableFuture<>();
+            this.priority = priority;
+            this.sequence = nextSequence.getAndIncrement();
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized (inFlight)
+            {
+                // Canceled after it was taken from the queue, but before it started.
+                if (future.isCancelled())
+                {
+                    inFlight.remove(key, this);
+                    return;
+                }
+                running.put(key, this);
+            }
+
+            try
+            {
+                future.complete(manager.getDownloadedFile(urlString, forceDownload));
+            }
+            catch (Exception e)
+            {
+                future.completeExceptionally(e);
+            }
+            finally
+            {
+                synchronized (inFlight)
+                {
+                    inFlight.remove(key, this);
+                    running.remove(key, this);
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(Task other)
+        {
+            int result = priority.compareTo(other.priority);
+
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final DownloadableFileManager manager;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong nextSequence;
+    // Requests waiting or running, keyed by canonical URL and force flag.
+    private final Map<String, Task> inFlight;
+    // The subset of inFlight that is running; these can no longer be promoted.
+    private final Map<String, Task> running;
+
+    protected DownloadScheduler(DownloadableFileManager manager, int maximumParallelism)
+    {
+        this.manager = manager;
+        this.executor = new ThreadPoolExecutor(maximumParallelism, maximumParallelism, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Download-" + ThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.nextSequence = new AtomicLong();
+        this.inFlight = new HashMap<>();
+        this.running = new HashMap<>();
+    }
+
+    public int getMaximumParallelism()
+    {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Change the maximum number of simultaneous downloads. Downloads already
+     * running are not interrupted.
+     *
+     * @param maximumParallelism the new maximum
+     */
+    public void setMaximumParallelism(int maximumParallelism)
+    {
+        Preconditions.checkArgument(maximumParallelism > 0);
+
+        synchronized (executor)
+        {
+            if (maximumParallelism > executor.getMaximumPoolSize())
+            {
+                executor.setMaximumPoolSize(maximumParallelism);
+                executor.setCorePoolSize(maximumParallelism);
+            }
+            else
+            {
+                executor.setCorePoolSize(maximumParallelism);
+                executor.setMaximumPoolSize(maximumParallelism);
+            }
+        }
+    }
+
+    /**
+     * Return the number of requests waiting or running.
+     */
+    public int getPendingCount()
+    {
+        synchronized (inFlight)
+        {
+            return inFlight.size();
+        }
+    }
+
+    /**
+     * Request a download.
+     *
+     * @param urlString the URL or path segment of the file
+     * @param forceDownload if true, download the file even if the cached copy is
+     *            up to date
+     * @param priority the priority of the request
+     * @return a future that completes with the state of the file once it has been
+     *         downloaded, or with the exception that prevented the download
+     */
+    public CompletableFuture<DownloadableFileState> submit(String urlString, boolean forceDownload, Priority priority)
+    {
+        Preconditions.checkNotNull(urlString);
+        Preconditions.checkNotNull(priority);
+
+        String key = manager.getUrl(urlString).toString() + (forceDownload ? " (forced)" : "");
+
+        synchronized (inFlight)
+        {
+            Task task = inFlight.get(key);
+            if (task == null)
+            {
+                task = new Task(key, urlString, forceDownload, priority);
+                inFlight.put(key, task);
+                Task newTask = task;
+                task.future.whenComplete((state, exception) -> {
+                    if (newTask.future.isCancelled())
+                    {
+                        withdraw(newTask);
+                    }
+                });
+                executor.execute(task);
+            }
+            else if (priority.compareTo(task.priority) < 0 && !running.containsKey(key))
+            {
+                // Re-queue the waiting request at the new priority. If it has just been
+                // taken from the queue, it is about to run anyway.
+                if (executor.getQueue().remove(task))
+                {
+                    task.priority = priority;
+                    task.sequence = nextSequence.getAndIncrement();
+                    executor.execute(task);
+                }
+            }
+
+            return task.future;
+        }
+    }
+
+    /**
+     * Remove a canceled request from the queue if it is still waiting, so that a
+     * new request for the same URL starts a new download.
+     */
+    private void withdraw(Task task)
+    {
+        synchronized (inFlight)
+        {
+            if (executor.getQueue().remove(task))
+            {
+                inFlight.remove(task.key, task);
+            }
+        }
+    }
+
+    /**
+     * Request downloads of several files at the same priority.
+     *
+     * @param urlStrings the URLs or path segments of the files
+     * @param forceDownload if true, download the files even if the cached copies
+     *            are up to date
+     * @param priority the priority of the requests
+     * @return a future that completes with the states of the files, in the same
+     *         order, once all have been downloaded, or exceptionally as soon as
+     *         any of the downloads fails
+     */
+    public CompletableFuture<List<DownloadableFileState>> submitAll(Iterable<String> urlStrings, boolean forceDownload, Priority priority)
+    {
+        ImmutableList.Builder<CompletableFuture<DownloadableFileState>> builder = ImmutableList.builder();
+        for (String urlString : urlStrings)
+        {
+            builder.add(submit(urlString, forceDownload, priority));
+        }
+        ImmutableList<CompletableFuture<DownloadableFileState>> futures = builder.build();
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(ignored -> {
+            ImmutableList.Builder<DownloadableFileState> states = ImmutableList.builder();
+            for (CompletableFuture<DownloadableFileState> future : futures)
+            {
+                states.add(future.join());
+            }
+            return states.build();
+        });
+    }
+
+}
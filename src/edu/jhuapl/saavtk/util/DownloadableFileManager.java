@@ -16,19 +16,25 @@ import java.net.URLEncoder;
 import java.net.UnknownHostException;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 import edu.jhuapl.saavtk.util.CloseableUrlConnection.HttpRequestMethod;
+import edu.jhuapl.saavtk.util.DownloadScheduler.Priority;
 import edu.jhuapl.saavtk.util.FileInfo.FileState;
 import edu.jhuapl.saavtk.util.FileInfo.FileStatus;
 import edu.jhuapl.saavtk.util.ServerSettingsManager.ServerSettings;
@@ -100,6 +106,8 @@ public class DownloadableFileManager
     private static final AtomicReference<String> profileAreaPrefix = new AtomicReference<>(null);
     private final AtomicReference<Profiler> checkProfiler;
     private final AtomicReference<Profiler> dropProfiler;
+    private final AtomicReference<DownloadScheduler> scheduler;
+    private final AtomicReference<AccessQueryScheduler> accessQueryScheduler;
 
     protected DownloadableFileManager(UrlAccessManager urlManager, FileAccessManager fileManager)
     {
@@ -114,6 +122,8 @@ public class DownloadableFileManager
         this.enableAccessChecksOnServer = new AtomicBoolean(true);
         this.checkProfiler = new AtomicReference<>();
         this.dropProfiler = new AtomicReference<>();
+        this.scheduler = new AtomicReference<>();
+        this.accessQueryScheduler = new AtomicReference<>();
     }
 
     /**
@@ -601,7 +611,10 @@ public class DownloadableFileManager
     /**
      * Query the server about the accessibility for all URLs/files tracked by this
      * manager. If server checking is performed, this opens a new connection for
-     * each such check, so it is time-consuming and generates a lot of queries.
+     * each such check, so it generates a lot of queries. The first URL is checked
+     * alone; once it has been reached, the others are run by the
+     * {@link #getAccessQueryScheduler()}, several at a time. Thus if the
+     * connection is down, only one check waits for it to fail.
      * <p>
      * If server-side access is currrently disabled (most likely because of internet
      * connectivity problems), this method will skip ALL server queries rather than
@@ -617,100 +630,190 @@ public class DownloadableFileManager
      * information for most URLs:
      * <p>
      * 1. If an {@link UnknownHostException} is thrown when checking any one URL, no
-     * further URLs will be checked and the method will return. This exception is
+     * URLs will be retried and the method will return. This exception is
      * interpreted to mean that there is no (reliable) internet connection.
      * <p>
      * 2. If a {@link SocketException} or {@link SocketTimeoutException} is thrown,
-     * the method will pause for the number of milliseconds indicated by the
-     * sleepInterval parameter before retrying the check. It will do this up to the
-     * limit set by the maximumNumberTries parameter. After that it will go on to
-     * the next URL.
+     * the URL will be retried once all the other checks have finished, after a
+     * pause of the number of milliseconds indicated by the sleepInterval
+     * parameter. The URLs that failed are retried together, up to the limit set by
+     * the maximumNumberTries parameter. If the first URL fails this way, the
+     * others are not checked, but retried after the pause with it.
      * <p>
      * 3. If any other {@link Exception} type is thrown when checking any URL, the
-     * method will go on to check the next URL.
+     * URL is not retried.
      * 
      * @param enableServerCheck if true, the method will attempt to check URLs on
      *            the server. If false, only file-system checks will be performed.
      * @param forceUpdate if true, forces a fresh check of access even if a previous
      *            check succeeded. This is useful for forcing a refresh of
      *            accessibility states. If false, checks will be performed only if a
-     *            successful check was not previously performed.
+     *            successful check was not previously performed, or has expired.
      * @param maximumNumberTries the number of times to retry online checks for URLs
      *            that failed because of socket/latency problems.
      * @param sleepIntervalAfterFailure the number of milliseconds to sleep
-     *            following an unsuccessful online URL check before retrying the
-     *            check.
+     *            following unsuccessful online URL checks before retrying the
+     *            checks.
      */
     protected void queryAll(boolean enableServerCheck, boolean forceUpdate, int maximumNumberTries, int sleepIntervalAfterFailure)
     {
         URL rootUrl = urlManager.getRootUrl();
         String rootUrlString = rootUrl.toString();
 
-        ImmutableList<String> urlList = urlManager.getUrlList();
+        // Do not check the root URL itself.
+        List<String> urlList = new ArrayList<>(urlManager.getUrlList());
+        urlList.remove(rootUrlString);
 
-        for (String urlString : urlList)
+        for (int index = 0; index < maximumNumberTries && !urlList.isEmpty(); ++index)
         {
-            if (urlString.equals(rootUrlString))
+            if (index > 0)
             {
-                // Do not check the root URL itself.
-                continue;
+                // 50 seconds is the result of heuristic tuning. It seems to be a good length of
+                // time to wait before trying again to get info about the URL. Much less
+                // time and two back-to-back time-outs become likely (which effectively doubles
+                // the pause length). On the other hand, pausing longer than 50 s does not
+                // seem to reduce the number of timeouts, thus 50 seems to be the "sweet spot".
+                try
+                {
+                    FileCacheMessageUtil.debugCache().err().println("Pausing before retrying " + urlList.size() + " URL(s)");
+                    Thread.sleep(sleepIntervalAfterFailure);
+                }
+                catch (InterruptedException e)
+                {
+                    // Ignore.
+                }
             }
 
-            boolean checkCompleted = false;
-            boolean doCheck = true;
-            for (int index = 0; index < maximumNumberTries && doCheck; ++index)
+            // Check the first URL alone. Only if it could be reached, check the others.
+            List<String> retryList = new ArrayList<>();
+            boolean unknownHost = awaitChecks(urlList.subList(0, 1), enableServerCheck, forceUpdate, retryList);
+            if (!unknownHost)
             {
-                try
+                if (retryList.isEmpty())
                 {
-                    URL url = urlManager.getUrl(urlString);
-                    doQuery(url, enableServerCheck, forceUpdate);
-                    doCheck = false;
-                    checkCompleted = true;
+                    unknownHost = awaitChecks(urlList.subList(1, urlList.size()), enableServerCheck, forceUpdate, retryList);
                 }
-                catch (SocketException ignored)
+                else
+                {
+                    retryList.addAll(urlList.subList(1, urlList.size()));
+                }
+            }
+
+            // If the host could not be reached, don't retry any URLs.
+            if (unknownHost)
+            {
+                break;
+            }
+
+            urlList = retryList;
+        }
+    }
+
+    /**
+     * Check the specified URLs with the {@link #getAccessQueryScheduler()} and
+     * wait for all the checks to finish, adding the URLs that should be retried
+     * to the retry list.
+     * 
+     * @return true if any check found that the host is unknown
+     */
+    private boolean awaitChecks(List<String> urlList, boolean enableServerCheck, boolean forceUpdate, List<String> retryList)
+    {
+        List<CompletableFuture<DownloadableFileState>> futures = getAccessQueryScheduler().submitAll(urlList, enableServerCheck, forceUpdate);
+
+        boolean unknownHost = false;
+        for (int urlIndex = 0; urlIndex < urlList.size(); ++urlIndex)
+        {
+            String urlString = urlList.get(urlIndex);
+            try
+            {
+                futures.get(urlIndex).join();
+            }
+            catch (CompletionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof SocketException)
                 {
+                    retryList.add(urlString);
                     FileCacheMessageUtil.debugCache().err().println("SocketException on " + urlString);
                 }
-                catch (SocketTimeoutException ignored)
+                else if (cause instanceof SocketTimeoutException)
                 {
+                    retryList.add(urlString);
                     FileCacheMessageUtil.debugCache().err().println("Timeout on " + urlString);
                 }
-                catch (UnknownHostException ignored)
+                else if (cause instanceof UnknownHostException)
                 {
-                    doCheck = false;
+                    unknownHost = true;
                     FileCacheMessageUtil.debugCache().err().println("Unknown host exception on " + urlString);
                 }
-                catch (Exception e)
-                {
-                    doCheck = false;
-                    e.printStackTrace(FileCacheMessageUtil.debugCache().err());
-                }
-
-                if (doCheck)
+                else
                 {
-                    // 50 seconds is the result of heuristic tuning. It seems to be a good length of
-                    // time to wait before trying again to get info about the URL. Much less
-                    // time and two back-to-back time-outs become likely (which effectively doubles
-                    // the pause length). On the other hand, pausing longer than 50 s does not
-                    // seem to reduce the number of timeouts, thus 50 seems to be the "sweet spot".
-                    try
-                    {
-                        FileCacheMessageUtil.debugCache().err().println("Pausing before retrying " + urlString);
-                        Thread.sleep(sleepIntervalAfterFailure);
-                    }
-                    catch (InterruptedException e)
-                    {
-                        // Ignore.
-                    }
+                    cause.printStackTrace(FileCacheMessageUtil.debugCache().err());
                 }
             }
+        }
 
-            // If check did not complete, don't continue with other URLs.
-            if (!checkCompleted)
-            {
-                break;
-            }
+        return unknownHost;
+    }
+
+    /**
+     * Return the scheduler that runs accessibility checks for this manager. It is
+     * created the first time it is needed, allowing up to
+     * {@link AccessQueryScheduler#DefaultParallelism} simultaneous checks, each
+     * of which is repeated after {@link AccessQueryScheduler#DefaultTimeToLive}.
+     * 
+     * @return the scheduler
+     */
+    public AccessQueryScheduler getAccessQueryScheduler()
+    {
+        if (accessQueryScheduler.get() == null)
+        {
+            accessQueryScheduler.compareAndSet(null, AccessQueryScheduler.of(this, AccessQueryScheduler.DefaultParallelism, AccessQueryScheduler.DefaultTimeToLive));
         }
+
+        return accessQueryScheduler.get();
+    }
+
+    /**
+     * Check the accessibility of a file on a background thread, as
+     * {@link #query(String, boolean)} does on the calling thread. A request for a
+     * file that is already being checked shares that check.
+     * 
+     * @param urlString the URL or path segment of the file
+     * @param forceUpdate if true, check the URL even if it was checked recently
+     * @return a future that completes with the state of the file after the check
+     */
+    public CompletableFuture<DownloadableFileState> queryAsync(String urlString, boolean forceUpdate)
+    {
+        return getAccessQueryScheduler().submit(urlString, urlManager.isServerAccessEnabled(), forceUpdate);
+    }
+
+    /**
+     * Check the accessibility of several files in the background, several at a
+     * time, and return the states of the files as the checks finish. If a check
+     * fails, the last known state of its file is returned instead, as
+     * {@link #query(String, boolean)} does.
+     * 
+     * @param urlStrings the URLs or path segments of the files
+     * @param forceUpdate if true, check the URLs even if they were checked
+     *            recently
+     * @return a sequential stream of the states, in the order the checks finish,
+     *         which blocks while waiting for the next check to finish
+     */
+    public Stream<DownloadableFileState> queryAllAsStream(Iterable<String> urlStrings, boolean forceUpdate)
+    {
+        Preconditions.checkNotNull(urlStrings);
+
+        List<CompletableFuture<DownloadableFileState>> futures = new ArrayList<>();
+        for (String urlString : urlStrings)
+        {
+            futures.add(queryAsync(urlString, forceUpdate).exceptionally(e -> {
+                FileCacheMessageUtil.debugCache().err().println("Problem querying server about " + urlString + ": " + e.getMessage());
+                return getState(urlString);
+            }));
+        }
+
+        return AccessQueryScheduler.inCompletionOrder(futures).map(CompletableFuture::join);
     }
 
     public void queryAllInBackground(boolean forceUpdate)
@@ -744,6 +847,41 @@ public class DownloadableFileManager
         return fileState;
     }
 
+    /**
+     * Return the scheduler that runs the downloads requested through
+     * {@link #getDownloadedFileAsync(String, boolean, Priority)}. It is created
+     * the first time it is needed, allowing up to
+     * {@link DownloadScheduler#DefaultParallelism} simultaneous downloads.
+     * 
+     * @return the scheduler
+     */
+    public DownloadScheduler getScheduler()
+    {
+        if (scheduler.get() == null)
+        {
+            scheduler.compareAndSet(null, DownloadScheduler.of(this, DownloadScheduler.DefaultParallelism));
+        }
+
+        return scheduler.get();
+    }
+
+    /**
+     * Download a file on a background thread, as
+     * {@link #getDownloadedFile(String, boolean)} does on the calling thread. A
+     * request for a file that is already being downloaded shares that download.
+     * 
+     * @param urlString the URL or path segment of the file
+     * @param forceDownload if true, download the file even if the cached copy is
+     *            up to date
+     * @param priority the priority of the request
+     * @return a future that completes with the state of the file after the
+     *         download
+     */
+    public CompletableFuture<DownloadableFileState> getDownloadedFileAsync(String urlString, boolean forceDownload, Priority priority)
+    {
+        return getScheduler().submit(urlString, forceDownload, priority);
+    }
+
     public void addStateListener(String urlString, StateListener listener)
     {
         addStateListener(urlString, listener, false);
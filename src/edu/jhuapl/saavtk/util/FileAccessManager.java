@@ -75,18 +75,7 @@ public class FileAccessManager
     {
         Preconditions.checkNotNull(file);
 
-        FileInfo result;
-        synchronized (this.fileInfoCache)
-        {
-            result = fileInfoCache.get(file);
-            if (result == null)
-            {
-                result = FileInfo.of(file);
-                fileInfoCache.put(file, result);
-            }
-        }
-
-        return result;
+        return fileInfoCache.computeIfAbsent(file, FileInfo::of);
     }
 
     public FileInfo queryFileSystem(String pathString, boolean forceUpdate)
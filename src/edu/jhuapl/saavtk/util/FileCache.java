@@ -14,12 +14,14 @@ import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.GZIPInputStream;
 
 import javax.swing.SwingWorker;
 
 import com.google.common.base.Preconditions;
 
+import edu.jhuapl.saavtk.util.DownloadScheduler.Priority;
 import edu.jhuapl.saavtk.util.DownloadableFileManager.StateListener;
 
 public final class FileCache
@@ -189,6 +191,20 @@ public final class FileCache
         worker.execute();
     }
 
+    /**
+     * Download the specified files in the background at prefetch priority, so that
+     * they are already in the cache when they are needed. Failures are not
+     * reported other than through the returned future, since a file that could not
+     * be prefetched will simply be downloaded again when it is requested.
+     * 
+     * @param urlStrings URLs to retrieve
+     * @return a future that completes once all the files have been downloaded
+     */
+    public static CompletableFuture<List<DownloadableFileState>> prefetch(Iterable<String> urlStrings)
+    {
+        return instance().getScheduler().submitAll(urlStrings, false, Priority.PREFETCH);
+    }
+
     private static DownloadableFileManager createDownloadManager()
     {
         DownloadableFileManager result = DownloadableFileManager.of(Configuration.getDataRootURL(), new File(Configuration.getCacheDir()));
@@ -3,15 +3,18 @@ package edu.jhuapl.saavtk.util;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Date;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import com.google.common.base.Preconditions;
 
@@ -256,6 +259,12 @@ public abstract class FileDownloader implements Runnable
 
         parent.mkdirs();
 
+        if (RangeDownloader.isApplicable(connection))
+        {
+            downloadInRanges(connection, tmpFile, contentLength, lastModifiedTime);
+            return;
+        }
+
         try (StreamGunzipper gunzipper = StreamGunzipper.of(connection.getInputStream()))
         {
             try (FileOutputStream outputStream = new FileOutputStream(tmpFile))
@@ -310,6 +319,78 @@ public abstract class FileDownloader implements Runnable
         fileInfo.update();
     }
 
+    /**
+     * Download a large file as parallel byte ranges, keeping what has been
+     * fetched if the download fails or is canceled so that the next attempt can
+     * resume it. See {@link RangeDownloader}.
+     */
+    protected void downloadInRanges(URLConnection connection, File tmpFile, long contentLength, long lastModifiedTime) throws IOException, InterruptedException
+    {
+        RangeDownloader rangeDownloader = new RangeDownloader(urlInfo.getState().getUrl(), connection, file);
+
+        long startTime = System.currentTimeMillis();
+        File partialFile = rangeDownloader.download(this::isCanceled, byteCount -> {
+            setProgress(byteCount, contentLength);
+
+            UnpackingStatus unpackingStatus = UnpackingStatus.of(byteCount, System.currentTimeMillis() - startTime);
+            String progressMessage = unpackingStatus.createProgressMessage("Downloading", contentLength);
+
+            setProgressMessage(progressMessage);
+            pcs.firePropertyChange(DOWNLOAD_PROGRESS, null, UnpackingStatus.of(progressMessage, byteCount, unpackingStatus.getElapsedTime()));
+        });
+
+        try
+        {
+            // The server sends gzipped files as they are, so unpack them as the
+            // streaming download does.
+            if (isGzipped(partialFile))
+            {
+                try (StreamGunzipper gunzipper = StreamGunzipper.of(new FileInputStream(partialFile)))
+                {
+                    try (FileOutputStream outputStream = new FileOutputStream(tmpFile))
+                    {
+                        gunzipper.unpack(outputStream);
+                    }
+                }
+                partialFile.delete();
+            }
+            else if (!partialFile.renameTo(tmpFile))
+            {
+                throw new IOException("Failed to rename downloaded file " + partialFile);
+            }
+
+            file.delete();
+
+            if (!tmpFile.renameTo(file))
+            {
+                throw new IOException("Failed to rename temporary file " + tmpFile);
+            }
+
+            if (lastModifiedTime > 0)
+                file.setLastModified(lastModifiedTime);
+        }
+        catch (Exception e)
+        {
+            if (!FileCacheMessageUtil.isDebugCache())
+            {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+            throw e;
+        }
+
+        fileInfo.update();
+    }
+
+    private static boolean isGzipped(File file) throws IOException
+    {
+        try (InputStream stream = new FileInputStream(file))
+        {
+            int magic = stream.read() & 0xff | ((stream.read() << 8) & 0xff00);
+
+            return magic == GZIPInputStream.GZIP_MAGIC;
+        }
+    }
+
     protected boolean isDownloadNeeded()
     {
         return !file.exists() || urlInfo.getState().getLastModified() > fileInfo.getState().getLastModified();
@@ -20,7 +20,10 @@ import java.util.concurrent.Future;
 
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
+import edu.jhuapl.saavtk.util.file.AsciiNumberTokenizer;
 import edu.jhuapl.saavtk.util.file.IndexableTuple;
+import edu.jhuapl.saavtk.util.mesh.JavaMesh;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
 import edu.jhuapl.saavtk.vtk.VtkDrawUtil;
 import nom.tam.fits.BasicHDU;
 import nom.tam.fits.Fits;
@@ -31,7 +34,6 @@ import vtk.vtkActor;
 import vtk.vtkAlgorithmOutput;
 import vtk.vtkAppendPolyData;
 import vtk.vtkCamera;
-import vtk.vtkCell;
 import vtk.vtkCellArray;
 import vtk.vtkCleanPolyData;
 import vtk.vtkClipPolyData;
@@ -812,10 +814,15 @@ public class PolyDataUtil
 
 	public static double[] computePolydataPointsBarycenter(vtkPolyData polyData)
 	{
-		Vector3D center = Vector3D.ZERO;
-		for (int i = 0; i < polyData.GetNumberOfPoints(); i++)
-			center = center.add(new Vector3D(polyData.GetPoint(i)));
-		return center.scalarMultiply(1. / polyData.GetNumberOfPoints()).toArray();
+		double[] points = VtkArrayUtil.getPoints(polyData.GetPoints());
+		int numberPoints = points.length / 3;
+		double[] center = new double[3];
+		for (int i = 0; i < numberPoints; i++)
+			for (int j = 0; j < 3; j++)
+				center[j] += points[3 * i + j];
+		for (int j = 0; j < 3; j++)
+			center[j] /= numberPoints;
+		return center;
 	}
 
 	public static double computeFarthestFrustumPlaneDepth(vtkPolyData polyData, double[] origin, double[] ul, double[] ur, double[] lr, double[] ll)
@@ -1583,24 +1590,72 @@ public class PolyDataUtil
 		normalsFilter.SplittingOff();
 		normalsFilter.Update();
 
-		vtkDataArray pointNormals = normalsFilter.GetOutput().GetPointData().GetNormals();
+		double[] pointNormals = VtkArrayUtil.getValues(normalsFilter.GetOutput().GetPointData().GetNormals());
 		vtkPoints points = polyData.GetPoints();
+		double[] coords = VtkArrayUtil.getPoints(points);
 
-		int numPoints = (int)points.GetNumberOfPoints();
+		for (int i = 0; i < coords.length; ++i)
+			coords[i] += pointNormals[i] * shiftAmount;
 
-		for (int i = 0; i < numPoints; ++i)
+		VtkArrayUtil.setPoints(points, coords);
+
+		polyData.Modified();
+	}
+
+	/**
+	 * Same as {@link #shiftPolyDataInNormalDirection(vtkPolyData, double)}, but
+	 * works on primitive copies of the points and polygons. The normal at a point
+	 * is the normalized sum of the unit normals of the polygons that use it, as
+	 * computed by vtkPolyDataNormals (without splitting) for consistently oriented
+	 * polygons. Points not used by any polygon are not moved.
+	 *
+	 * @param points      packed point coordinates, moved in place
+	 * @param offsets     offsets of the polygons (see VtkArrayUtil.getOffsets)
+	 * @param connectivity point ids of the polygons (see
+	 *                    VtkArrayUtil.getConnectivity)
+	 * @param shiftAmount the distance to move the points
+	 */
+	public static void shiftPolyDataInNormalDirection(double[] points, long[] offsets, long[] connectivity, double shiftAmount)
+	{
+		double[] pointNormals = new double[points.length];
+		for (int cell = 0; cell + 1 < offsets.length; ++cell)
 		{
-			double[] point = points.GetPoint(i);
-			double[] normal = pointNormals.GetTuple3(i);
+			int beg = (int) offsets[cell];
+			int end = (int) offsets[cell + 1];
 
-			point[0] += normal[0] * shiftAmount;
-			point[1] += normal[1] * shiftAmount;
-			point[2] += normal[2] * shiftAmount;
+			// Newell's method
+			double nx = 0.0, ny = 0.0, nz = 0.0;
+			for (int i = beg; i < end; ++i)
+			{
+				int p0 = 3 * (int) connectivity[i];
+				int p1 = 3 * (int) connectivity[i + 1 < end ? i + 1 : beg];
+				nx += (points[p0 + 1] - points[p1 + 1]) * (points[p0 + 2] + points[p1 + 2]);
+				ny += (points[p0 + 2] - points[p1 + 2]) * (points[p0] + points[p1]);
+				nz += (points[p0] - points[p1]) * (points[p0 + 1] + points[p1 + 1]);
+			}
+			double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if (length == 0.0)
+				continue;
 
-			points.SetPoint(i, point);
+			for (int i = beg; i < end; ++i)
+			{
+				int p = 3 * (int) connectivity[i];
+				pointNormals[p] += nx / length;
+				pointNormals[p + 1] += ny / length;
+				pointNormals[p + 2] += nz / length;
+			}
 		}
 
-		polyData.Modified();
+		for (int p = 0; p < points.length; p += 3)
+		{
+			double length = Math.sqrt(pointNormals[p] * pointNormals[p] + pointNormals[p + 1] * pointNormals[p + 1] + pointNormals[p + 2] * pointNormals[p + 2]);
+			if (length == 0.0)
+				continue;
+
+			points[p] += pointNormals[p] / length * shiftAmount;
+			points[p + 1] += pointNormals[p + 1] / length * shiftAmount;
+			points[p + 2] += pointNormals[p + 2] / length * shiftAmount;
+		}
 	}
 
 	public static void shiftPolyDataInMeanNormalDirection(vtkPolyData polyData, double shiftAmount)
@@ -1725,15 +1780,7 @@ public class PolyDataUtil
 	 */
 	public static double computeSurfaceArea(vtkPolyData polydata)
 	{
-		int numberOfCells = (int)polydata.GetNumberOfCells();
-
-		double totalArea = 0.0;
-		for (int i = 0; i < numberOfCells; ++i)
-		{
-			totalArea += ((vtkTriangle) polydata.GetCell(i)).ComputeArea();
-		}
-
-		return totalArea;
+		return JavaMesh.of(polydata).getSurfaceArea();
 	}
 
 	/**
@@ -1745,21 +1792,23 @@ public class PolyDataUtil
 	 */
 	public static double computeLength(vtkPolyData polyline)
 	{
-		vtkPoints points = polyline.GetPoints();
-		vtkCellArray lines = polyline.GetLines();
-		vtkIdTypeArray idArray = lines.GetData();
+		double[] points = VtkArrayUtil.getPoints(polyline.GetPoints());
+		long[] idArray = VtkArrayUtil.getLegacyCells(polyline.GetLines());
 
-		int size = (int)idArray.GetNumberOfTuples();
+		int size = idArray.length;
 		double totalLength = 0.0;
 		int index = 0;
 		while (index < size)
 		{
-			int numPointsPerLine = (int)idArray.GetValue(index++);
+			int numPointsPerLine = (int)idArray[index++];
 			for (int i = 0; i < numPointsPerLine - 1; ++i)
 			{
-				double[] pt0 = points.GetPoint(idArray.GetValue(index));
-				double[] pt1 = points.GetPoint(idArray.GetValue(++index));
-				totalLength += MathUtil.distanceBetween(pt0, pt1);
+				int p0 = 3 * (int)idArray[index];
+				int p1 = 3 * (int)idArray[++index];
+				double dx = points[p1] - points[p0];
+				double dy = points[p1 + 1] - points[p0 + 1];
+				double dz = points[p1 + 2] - points[p0 + 2];
+				totalLength += Math.sqrt(dx * dx + dy * dy + dz * dz);
 			}
 			++index;
 		}
@@ -2480,24 +2529,7 @@ public class PolyDataUtil
 	 */
 	public static double getSurfaceArea(vtkPolyData polydata)
 	{
-		double area = 0.0;
-
-		int numberOfCells = (int)polydata.GetNumberOfCells();
-
-		for (int i = 0; i < numberOfCells; ++i)
-		{
-			vtkCell cell = polydata.GetCell(i);
-			vtkPoints points = cell.GetPoints();
-			double[] pt0 = points.GetPoint(0);
-			double[] pt1 = points.GetPoint(1);
-			double[] pt2 = points.GetPoint(2);
-
-			area += MathUtil.triangleArea(pt0, pt1, pt2);
-			points.Delete();
-			cell.Delete();
-		}
-
-		return area;
+		return JavaMesh.of(polydata).getSurfaceArea();
 	}
 
 	public static void getBoundary(vtkPolyData polydata, vtkPolyData boundary)
@@ -2557,72 +2589,58 @@ public class PolyDataUtil
 	 */
 	public static vtkPolyData loadPDSShapeModel(String filename) throws Exception
 	{
-		vtkPolyData polydata = new vtkPolyData();
-		vtkPoints points = new vtkPoints();
-		vtkCellArray cells = new vtkCellArray();
-		polydata.SetPoints(points);
-		polydata.SetPolys(cells);
-
-		InputStream fs = new FileInputStream(filename);
-		InputStreamReader isr = new InputStreamReader(fs);
-		BufferedReader in = new BufferedReader(isr);
-
-		// Read in the first line which list the number of points and plates
-		String val = in.readLine().trim();
-		String[] vals = val.split("\\s+");
-		int numPoints = -1;
-		int numCells = -1;
-		if (vals.length == 1)
-		{
-			numPoints = Integer.parseInt(vals[0]);
-		}
-		else if (vals.length == 2)
+		try (AsciiNumberTokenizer tokenizer = AsciiNumberTokenizer.of(new File(filename)))
 		{
-			numPoints = Integer.parseInt(vals[0]);
-			numCells = Integer.parseInt(vals[1]);
-		}
-		else
-		{
-			in.close();
-			throw new IOException("Format not valid");
-		}
-
-		for (int j = 0; j < numPoints; ++j)
-		{
-			vals = in.readLine().trim().split("\\s+");
-			double x = Double.parseDouble(vals[1]);
-			double y = Double.parseDouble(vals[2]);
-			double z = Double.parseDouble(vals[3]);
-			points.InsertNextPoint(x, y, z);
-		}
+			// Read in the first line which list the number of points and plates
+			int numPoints = -1;
+			int numCells = -1;
+			int numVals = tokenizer.countTokensOnLine();
+			if (numVals == 1)
+			{
+				numPoints = tokenizer.nextInt();
+			}
+			else if (numVals == 2)
+			{
+				numPoints = tokenizer.nextInt();
+				numCells = tokenizer.nextInt();
+			}
+			else
+			{
+				throw new IOException("Format not valid");
+			}
+			tokenizer.skipLine();
 
-		if (numCells == -1)
-		{
-			val = in.readLine().trim();
-			numCells = Integer.parseInt(val);
-		}
+			float[] coords = new float[3 * numPoints];
+			tokenizer.parseLines(numPoints, (lineTokenizer, j) -> {
+				lineTokenizer.skipToken();
+				coords[3 * j] = (float) lineTokenizer.nextDouble();
+				coords[3 * j + 1] = (float) lineTokenizer.nextDouble();
+				coords[3 * j + 2] = (float) lineTokenizer.nextDouble();
+			});
 
-		vtkIdList idList = new vtkIdList();
-		idList.SetNumberOfIds(3);
-		for (int j = 0; j < numCells; ++j)
-		{
-			vals = in.readLine().trim().split("\\s+");
-			int idx1 = Integer.parseInt(vals[1]) - 1;
-			int idx2 = Integer.parseInt(vals[2]) - 1;
-			int idx3 = Integer.parseInt(vals[3]) - 1;
-			idList.SetId(0, idx1);
-			idList.SetId(1, idx2);
-			idList.SetId(2, idx3);
-			cells.InsertNextCell(idList);
-		}
+			if (numCells == -1)
+			{
+				numCells = tokenizer.nextInt();
+				tokenizer.skipLine();
+			}
 
-		idList.Delete();
+			long[] cellIds = new long[4 * numCells];
+			tokenizer.parseLines(numCells, (lineTokenizer, j) -> {
+				lineTokenizer.skipToken();
+				cellIds[4 * j] = 3;
+				cellIds[4 * j + 1] = lineTokenizer.nextInt() - 1;
+				cellIds[4 * j + 2] = lineTokenizer.nextInt() - 1;
+				cellIds[4 * j + 3] = lineTokenizer.nextInt() - 1;
+			});
 
-		in.close();
+			vtkPolyData polydata = new vtkPolyData();
+			polydata.SetPoints(VtkArrayUtil.createPoints(coords));
+			polydata.SetPolys(VtkArrayUtil.createCellArray(numCells, cellIds, cellIds.length));
 
-		addPointNormalsToShapeModel(polydata);
+			addPointNormalsToShapeModel(polydata);
 
-		return polydata;
+			return polydata;
+		}
 	}
 
 	/**
@@ -2638,70 +2656,44 @@ public class PolyDataUtil
 	 */
 	public static vtkPolyData loadTempel1AndWild2ShapeModel(String filename, boolean inMeters) throws Exception
 	{
-		vtkPolyData polydata = new vtkPolyData();
-		vtkPoints points = new vtkPoints();
-		vtkCellArray cells = new vtkCellArray();
-		polydata.SetPoints(points);
-		polydata.SetPolys(cells);
-
-		InputStream fs = new FileInputStream(filename);
-		InputStreamReader isr = new InputStreamReader(fs);
-		BufferedReader in = new BufferedReader(isr);
-
-		// Read in the first line which lists the number of points and plates
-		String val = in.readLine().trim();
-		String[] vals = val.split("\\s+");
-		int numPoints = -1;
-		int numCells = -1;
-		if (vals.length == 2)
-		{
-			numPoints = Integer.parseInt(vals[0]);
-			numCells = Integer.parseInt(vals[1]);
-		}
-		else
-		{
-			in.close();
-			throw new IOException("Format not valid");
-		}
-
-		for (int j = 0; j < numPoints; ++j)
+		try (AsciiNumberTokenizer tokenizer = AsciiNumberTokenizer.of(new File(filename)))
 		{
-			vals = in.readLine().trim().split("\\s+");
-			double x = Double.parseDouble(vals[0]);
-			double y = Double.parseDouble(vals[1]);
-			double z = Double.parseDouble(vals[2]);
-
-			if (inMeters)
+			// Read in the first line which lists the number of points and plates
+			if (tokenizer.countTokensOnLine() != 2)
 			{
-				x /= 1000.0;
-				y /= 1000.0;
-				z /= 1000.0;
+				throw new IOException("Format not valid");
 			}
+			int numPoints = tokenizer.nextInt();
+			int numCells = tokenizer.nextInt();
+			tokenizer.skipLine();
 
-			points.InsertNextPoint(x, y, z);
-		}
-
-		vtkIdList idList = new vtkIdList();
-		idList.SetNumberOfIds(3);
-		for (int j = 0; j < numCells; ++j)
-		{
-			vals = in.readLine().trim().split("\\s+");
-			int idx1 = Integer.parseInt(vals[0]);
-			int idx2 = Integer.parseInt(vals[1]);
-			int idx3 = Integer.parseInt(vals[2]);
-			idList.SetId(0, idx1);
-			idList.SetId(1, idx2);
-			idList.SetId(2, idx3);
-			cells.InsertNextCell(idList);
-		}
+			float[] coords = new float[3 * numPoints];
+			tokenizer.parseLines(numPoints, (lineTokenizer, j) -> {
+				for (int k = 0; k < 3; ++k)
+				{
+					double value = lineTokenizer.nextDouble();
+					if (inMeters)
+						value /= 1000.0;
+					coords[3 * j + k] = (float) value;
+				}
+			});
 
-		idList.Delete();
+			long[] cellIds = new long[4 * numCells];
+			tokenizer.parseLines(numCells, (lineTokenizer, j) -> {
+				cellIds[4 * j] = 3;
+				cellIds[4 * j + 1] = lineTokenizer.nextInt();
+				cellIds[4 * j + 2] = lineTokenizer.nextInt();
+				cellIds[4 * j + 3] = lineTokenizer.nextInt();
+			});
 
-		in.close();
+			vtkPolyData polydata = new vtkPolyData();
+			polydata.SetPoints(VtkArrayUtil.createPoints(coords));
+			polydata.SetPolys(VtkArrayUtil.createCellArray(numCells, cellIds, cellIds.length));
 
-		addPointNormalsToShapeModel(polydata);
+			addPointNormalsToShapeModel(polydata);
 
-		return polydata;
+			return polydata;
+		}
 	}
 
 	/**
@@ -2740,31 +2732,24 @@ public class PolyDataUtil
 		// First pass
 		double latLonSpacing = 0.0;
 		int latIndex = 0;
-		int lonIndex = 1;
-
-		InputStream fs = new FileInputStream(filename);
-		InputStreamReader isr = new InputStreamReader(fs);
-		BufferedReader in = new BufferedReader(isr);
 
+		try (AsciiNumberTokenizer tokenizer = AsciiNumberTokenizer.of(new File(filename)))
 		{
 			// We only need to look at the first 2 lines of the file
 			// in the first pass to determine everything we need.
-			String[] vals = in.readLine().trim().split("\\s+");
-			double a1 = Double.parseDouble(vals[0]);
-			double b1 = Double.parseDouble(vals[1]);
-			vals = in.readLine().trim().split("\\s+");
-			double a2 = Double.parseDouble(vals[0]);
-			double b2 = Double.parseDouble(vals[1]);
+			double a1 = tokenizer.nextDouble();
+			double b1 = tokenizer.nextDouble();
+			tokenizer.skipLine();
+			double a2 = tokenizer.nextDouble();
+			double b2 = tokenizer.nextDouble();
 
 			if (a1 == 0.0)
 			{
 				latIndex = 1;
-				lonIndex = 0;
 			}
 			else if (a1 == -90.0 || a1 == 90.0)
 			{
 				latIndex = 0;
-				lonIndex = 1;
 			}
 			else
 			{
@@ -2777,61 +2762,53 @@ public class PolyDataUtil
 				latLonSpacing = Math.abs(b2 - b1);
 			else
 				System.out.println("Error occurred");
-
-			in.close();
 		}
 
 		// Second pass
-		fs = new FileInputStream(filename);
-		isr = new InputStreamReader(fs);
-		in = new BufferedReader(isr);
-
-		vtkPolyData body = new vtkPolyData();
-		vtkPoints points = new vtkPoints();
-		vtkCellArray polys = new vtkCellArray();
-		body.SetPoints(points);
-		body.SetPolys(polys);
-
 		int numRows = (int) Math.round(180.0 / latLonSpacing) + 1;
 		int numCols = (int) Math.round(360.0 / latLonSpacing) + 1;
 
 		int count = 0;
 		int[][] indices = new int[numRows][numCols];
-		String line;
-		while ((line = in.readLine()) != null)
+		float[] coords = new float[3 * numRows * numCols];
+		try (AsciiNumberTokenizer tokenizer = AsciiNumberTokenizer.of(new File(filename)))
 		{
-			String[] vals = line.trim().split("\\s+");
-			double lat = Double.parseDouble(vals[latIndex]);
-			double lon = Double.parseDouble(vals[lonIndex]);
-			double rad = Double.parseDouble(vals[2]);
-
-			int row = (int) Math.round((lat + 90.0) / latLonSpacing);
-			int col = (int) Math.round(lon / latLonSpacing);
-
-			// Only include 1 point at each pole and don't include any points
-			// at longitude 360 since it's the same as longitude 0
-			if ((lat == -90.0 && lon > 0.0) || (lat == 90.0 && lon > 0.0) || lon == 360.0)
-			{
-				indices[row][col] = -1;
-			}
-			else
+			while (tokenizer.hasNext())
 			{
-				if (westLongitude)
-					lon = -lon;
-
-				indices[row][col] = count++;
-				LatLon ll = new LatLon(lat * Math.PI / 180.0, lon * Math.PI / 180.0, rad);
-				double[] pt = MathUtil.latrec(ll);
-				points.InsertNextPoint(pt);
+				double val0 = tokenizer.nextDouble();
+				double val1 = tokenizer.nextDouble();
+				double rad = tokenizer.nextDouble();
+				tokenizer.skipLine();
+				double lat = latIndex == 0 ? val0 : val1;
+				double lon = latIndex == 0 ? val1 : val0;
+
+				int row = (int) Math.round((lat + 90.0) / latLonSpacing);
+				int col = (int) Math.round(lon / latLonSpacing);
+
+				// Only include 1 point at each pole and don't include any points
+				// at longitude 360 since it's the same as longitude 0
+				if ((lat == -90.0 && lon > 0.0) || (lat == 90.0 && lon > 0.0) || lon == 360.0)
+				{
+					indices[row][col] = -1;
+				}
+				else
+				{
+					if (westLongitude)
+						lon = -lon;
+
+					LatLon ll = new LatLon(lat * Math.PI / 180.0, lon * Math.PI / 180.0, rad);
+					double[] pt = MathUtil.latrec(ll);
+					for (int k = 0; k < 3; ++k)
+						coords[3 * count + k] = (float) pt[k];
+					indices[row][col] = count++;
+				}
 			}
 		}
 
-		in.close();
-
 		// Now add connectivity information
 		int i0, i1, i2, i3;
-		vtkIdList idList = new vtkIdList();
-		idList.SetNumberOfIds(3);
+		long[] cellIds = new long[8 * (numRows - 1) * (numCols - 1)];
+		int numCellIds = 0;
 		for (int m = 0; m <= numRows - 2; ++m)
 			for (int n = 0; n <= numCols - 2; ++n)
 			{
@@ -2847,10 +2824,7 @@ public class PolyDataUtil
 
 					if (i0 >= 0 && i1 >= 0 && i2 >= 0)
 					{
-						idList.SetId(0, i2);
-						idList.SetId(1, i1);
-						idList.SetId(2, i0);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i2, i1, i0);
 					}
 					else
 					{
@@ -2870,10 +2844,7 @@ public class PolyDataUtil
 
 					if (i0 >= 0 && i1 >= 0 && i2 >= 0)
 					{
-						idList.SetId(0, i2);
-						idList.SetId(1, i1);
-						idList.SetId(2, i0);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i2, i1, i0);
 					}
 					else
 					{
@@ -2900,10 +2871,7 @@ public class PolyDataUtil
 					// Add upper left triangle
 					if (i0 >= 0 && i1 >= 0 && i2 >= 0)
 					{
-						idList.SetId(0, i2);
-						idList.SetId(1, i1);
-						idList.SetId(2, i0);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i2, i1, i0);
 					}
 					else
 					{
@@ -2913,10 +2881,7 @@ public class PolyDataUtil
 					// Add bottom right triangle
 					if (i2 >= 0 && i1 >= 0 && i3 >= 0)
 					{
-						idList.SetId(0, i3);
-						idList.SetId(1, i1);
-						idList.SetId(2, i2);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i3, i1, i2);
 					}
 					else
 					{
@@ -2925,11 +2890,9 @@ public class PolyDataUtil
 				}
 			}
 
-		//vtkPolyDataWriter writer = new vtkPolyDataWriter();
-		//writer.SetInput(body);
-		//writer.SetFileName("/tmp/coneeros.vtk");
-		////writer.SetFileTypeToBinary();
-		//writer.Write();
+		vtkPolyData body = new vtkPolyData();
+		body.SetPoints(VtkArrayUtil.createPoints(Arrays.copyOf(coords, 3 * count)));
+		body.SetPolys(VtkArrayUtil.createCellArray(numCellIds / 4, cellIds, numCellIds));
 
 		addPointNormalsToShapeModel(body);
 
@@ -2950,82 +2913,74 @@ public class PolyDataUtil
 	{
 
 		double latLonSpacing = 1.0;
-		int latIndex = 1;
-		int lonIndex = 0;
-
-		InputStream fs = new FileInputStream(filename);
-		InputStreamReader isr = new InputStreamReader(fs);
-		BufferedReader in = new BufferedReader(isr);
-
-		vtkPolyData body = new vtkPolyData();
-		vtkPoints points = new vtkPoints();
-		vtkCellArray polys = new vtkCellArray();
-		body.SetPoints(points);
-		body.SetPolys(polys);
 
 		int numRows = (int) Math.round(180.0 / latLonSpacing) + 2;
 		int numCols = (int) Math.round(360.0 / latLonSpacing);
 
 		int count = 0;
 		int[][] indices = new int[numRows][numCols];
-		String line;
+		float[] coords = new float[3 * numRows * numCols];
 		double[] northPole = { 0.0, 0.0, 0.0 };
 		double[] southPole = { 0.0, 0.0, 0.0 };
 
-		indices[0][0] = count++;
-		points.InsertNextPoint(southPole); // placeholder for south pole
+		indices[0][0] = count++; // placeholder for south pole
 
-		while ((line = in.readLine()) != null)
+		try (AsciiNumberTokenizer tokenizer = AsciiNumberTokenizer.of(new File(filename)))
 		{
-			String[] vals = line.trim().split("\\s+");
-			double lat = Double.parseDouble(vals[latIndex]);
-			double lon = Double.parseDouble(vals[lonIndex]);
-			double rad = Double.parseDouble(vals[2]) / 1000.0;
+			while (tokenizer.hasNext())
+			{
+				// Longitude is the first column, latitude the second
+				double lon = tokenizer.nextDouble();
+				double lat = tokenizer.nextDouble();
+				double rad = tokenizer.nextDouble() / 1000.0;
+				tokenizer.skipLine();
 
-			int row = (int) Math.round((lat + 89.5) / latLonSpacing) + 1;
-			int col = (int) Math.round((lon - 0.5) / latLonSpacing);
+				int row = (int) Math.round((lat + 89.5) / latLonSpacing) + 1;
+				int col = (int) Math.round((lon - 0.5) / latLonSpacing);
 
-			if (westLongitude)
-				lon = -lon;
+				if (westLongitude)
+					lon = -lon;
 
-			indices[row][col] = count++;
-			LatLon ll = new LatLon(lat * Math.PI / 180.0, lon * Math.PI / 180.0, rad);
-			double[] pt = MathUtil.latrec(ll);
-			points.InsertNextPoint(pt);
+				LatLon ll = new LatLon(lat * Math.PI / 180.0, lon * Math.PI / 180.0, rad);
+				double[] pt = MathUtil.latrec(ll);
+				for (int k = 0; k < 3; ++k)
+					coords[3 * count + k] = (float) pt[k];
+				indices[row][col] = count++;
 
-			// We need to compute the pole points (not included in the file)
-			// by avereging the points at latitudes 89.5 and -89.5
-			if (lat == -89.5)
-			{
-				southPole[0] += pt[0];
-				southPole[1] += pt[1];
-				southPole[2] += pt[2];
-			}
-			else if (lat == 89.5)
-			{
-				northPole[0] += pt[0];
-				northPole[1] += pt[1];
-				northPole[2] += pt[2];
+				// We need to compute the pole points (not included in the file)
+				// by avereging the points at latitudes 89.5 and -89.5
+				if (lat == -89.5)
+				{
+					southPole[0] += pt[0];
+					southPole[1] += pt[1];
+					southPole[2] += pt[2];
+				}
+				else if (lat == 89.5)
+				{
+					northPole[0] += pt[0];
+					northPole[1] += pt[1];
+					northPole[2] += pt[2];
+				}
 			}
 		}
 
-		in.close();
-
 		for (int i = 0; i < 3; ++i)
 		{
 			southPole[i] /= 360.0;
 			northPole[i] /= 360.0;
 		}
 
-		points.SetPoint(0, southPole);
+		for (int k = 0; k < 3; ++k)
+			coords[k] = (float) southPole[k];
 
-		indices[numRows - 1][0] = count++;
-		points.InsertNextPoint(northPole); // north pole
+		for (int k = 0; k < 3; ++k)
+			coords[3 * count + k] = (float) northPole[k];
+		indices[numRows - 1][0] = count++; // north pole
 
 		// Now add connectivity information
 		int i0, i1, i2, i3;
-		vtkIdList idList = new vtkIdList();
-		idList.SetNumberOfIds(3);
+		long[] cellIds = new long[8 * numRows * numCols];
+		int numCellIds = 0;
 		for (int m = 0; m <= numRows - 2; ++m)
 			for (int n = 0; n <= numCols - 1; ++n)
 			{
@@ -3041,10 +2996,7 @@ public class PolyDataUtil
 
 					if (i0 >= 0 && i1 >= 0 && i2 >= 0)
 					{
-						idList.SetId(0, i2);
-						idList.SetId(1, i1);
-						idList.SetId(2, i0);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i2, i1, i0);
 					}
 					else
 					{
@@ -3064,10 +3016,7 @@ public class PolyDataUtil
 
 					if (i0 >= 0 && i1 >= 0 && i2 >= 0)
 					{
-						idList.SetId(0, i2);
-						idList.SetId(1, i1);
-						idList.SetId(2, i0);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i2, i1, i0);
 					}
 					else
 					{
@@ -3094,10 +3043,7 @@ public class PolyDataUtil
 					// Add upper left triangle
 					if (i0 >= 0 && i1 >= 0 && i2 >= 0)
 					{
-						idList.SetId(0, i2);
-						idList.SetId(1, i1);
-						idList.SetId(2, i0);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i2, i1, i0);
 					}
 					else
 					{
@@ -3107,10 +3053,7 @@ public class PolyDataUtil
 					// Add bottom right triangle
 					if (i2 >= 0 && i1 >= 0 && i3 >= 0)
 					{
-						idList.SetId(0, i3);
-						idList.SetId(1, i1);
-						idList.SetId(2, i2);
-						polys.InsertNextCell(idList);
+						numCellIds = addTriangle(cellIds, numCellIds, i3, i1, i2);
 					}
 					else
 					{
@@ -3119,11 +3062,28 @@ public class PolyDataUtil
 				}
 			}
 
+		vtkPolyData body = new vtkPolyData();
+		body.SetPoints(VtkArrayUtil.createPoints(Arrays.copyOf(coords, 3 * count)));
+		body.SetPolys(VtkArrayUtil.createCellArray(numCellIds / 4, cellIds, numCellIds));
+
 		addPointNormalsToShapeModel(body);
 
 		return body;
 	}
 
+	/**
+	 * Append a triangle to connectivity stored in the legacy VTK layout and return
+	 * the new number of used entries.
+	 */
+	private static int addTriangle(long[] cellIds, int numCellIds, int id0, int id1, int id2)
+	{
+		cellIds[numCellIds++] = 3;
+		cellIds[numCellIds++] = id0;
+		cellIds[numCellIds++] = id1;
+		cellIds[numCellIds++] = id2;
+		return numCellIds;
+	}
+
 	public static vtkPolyData loadVTKShapeModel(String filename) throws Exception
 	{
 		vtkPolyDataReader smallBodyReader = new vtkPolyDataReader();
@@ -3197,12 +3157,7 @@ public class PolyDataUtil
 
 	public static vtkPolyData loadFITShapeModel(String filename) throws Exception
 	{
-		vtkPoints points = new vtkPoints();
-		vtkCellArray polys = new vtkCellArray();
 		vtkPolyData shapeModel = new vtkPolyData();
-		vtkIdList idList = new vtkIdList();
-		shapeModel.SetPoints(points);
-		shapeModel.SetPolys(polys);
 
 		Fits f = new Fits(filename);
 		BasicHDU hdu = f.getHDU(0);
@@ -3278,7 +3233,13 @@ public class PolyDataUtil
 		float x, y, z;
 		float INVALID_VALUE = -1.0e38f;
 
-		// First add points to the vtkPoints array
+		// Collect the points and triangles in Java arrays, then hand them to VTK in
+		// bulk.
+		float[] coords = new float[3 * liveSize * liveSize2];
+		long[] cellIds = new long[8 * Math.max(liveSize - 1, 0) * Math.max(liveSize2 - 1, 0)];
+		int numCellIds = 0;
+
+		// First add points to the points array
 		for (int m = 0; m < liveSize; ++m)
 			for (int n = 0; n < liveSize2; ++n)
 			{
@@ -3295,14 +3256,14 @@ public class PolyDataUtil
 				// Only add point if everything is valid
 				if (valid)
 				{
-					points.InsertNextPoint(x, y, z);
+					coords[3 * c] = x;
+					coords[3 * c + 1] = y;
+					coords[3 * c + 2] = z;
 					indices[m][n] = c;
 					++c;
 				}
 			}
 
-		idList.SetNumberOfIds(3);
-
 		// Now add connectivity information
 		int i0, i1, i2, i3;
 		for (int m = 1; m < liveSize; ++m)
@@ -3317,21 +3278,24 @@ public class PolyDataUtil
 				// Add upper left triangle
 				if (i0 >= 0 && i1 >= 0 && i2 >= 0)
 				{
-					idList.SetId(0, i1);
-					idList.SetId(1, i2);
-					idList.SetId(2, i0);
-					polys.InsertNextCell(idList);
+					cellIds[numCellIds++] = 3;
+					cellIds[numCellIds++] = i1;
+					cellIds[numCellIds++] = i2;
+					cellIds[numCellIds++] = i0;
 				}
 				// Add bottom right triangle
 				if (i2 >= 0 && i1 >= 0 && i3 >= 0)
 				{
-					idList.SetId(0, i1);
-					idList.SetId(1, i2);
-					idList.SetId(2, i3);
-					polys.InsertNextCell(idList);
+					cellIds[numCellIds++] = 3;
+					cellIds[numCellIds++] = i1;
+					cellIds[numCellIds++] = i2;
+					cellIds[numCellIds++] = i3;
 				}
 			}
 
+		shapeModel.SetPoints(VtkArrayUtil.createPoints(Arrays.copyOf(coords, 3 * c)));
+		shapeModel.SetPolys(VtkArrayUtil.createCellArray(numCellIds / 4, cellIds, numCellIds));
+
 		addPointNormalsToShapeModel(shapeModel);
 		f.close();
 		return shapeModel;
@@ -3347,11 +3311,29 @@ public class PolyDataUtil
 	 * This function also adds normal vectors to the returned polydata, if not
 	 * available in the file.
 	 *
+	 * If the file is in the {@link FileCache} directory, the parsed model is saved
+	 * to a binary cache next to the file (see {@link ShapeModelCache}), and later
+	 * calls load the cache instead of parsing the file again as long as the file
+	 * has not changed.
+	 *
 	 * @param filename
 	 * @return
 	 * @throws Exception
 	 */
 	public static vtkPolyData loadShapeModel(String filename) throws Exception
+	{
+		File file = new File(filename);
+		vtkPolyData shapeModel = ShapeModelCache.load(file);
+		if (shapeModel != null)
+			return shapeModel;
+
+		shapeModel = parseShapeModel(filename);
+		ShapeModelCache.save(file, shapeModel);
+
+		return shapeModel;
+	}
+
+	private static vtkPolyData parseShapeModel(String filename) throws Exception
 	{
 		vtkPolyData shapeModel = new vtkPolyData();
 		if (filename.toLowerCase().endsWith(".vtk"))
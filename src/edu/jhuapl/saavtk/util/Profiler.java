@@ -115,6 +115,28 @@ public class Profiler
         }
     }
 
+    /**
+     * Store an elapsed time measured by the caller in the list of elapsed times.
+     * This is useful for timing individual operations that interleave with other
+     * work, where the time between calls to {@link #accumulate()} would not be
+     * meaningful. The number of times stored then also serves as a count of
+     * those operations.
+     *
+     * @param elapsedTime the elapsed time in nano-seconds
+     */
+    public void accumulate(long elapsedTime)
+    {
+        if (!GlobalEnableProfiling.get())
+        {
+            return;
+        }
+
+        synchronized (this.times)
+        {
+            times.add(elapsedTime);
+        }
+    }
+
     /**
      * Write the elapsed times that have been accumulated up to this point in
      * program execution to a randomly named file in the profiling directory. The
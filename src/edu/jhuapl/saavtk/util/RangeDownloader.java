@@ -0,0 +1,528 @@
+package edu.jhuapl.saavtk.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.saavtk.util.CloseableUrlConnection.HttpRequestMethod;
+
+/**
+ * Downloads one large file from an HTTP server as a set of byte ranges fetched
+ * in parallel, for use by {@link FileDownloader}.
+ * <p>
+ * The ranges are written with positional writes into a preallocated partial
+ * file next to the destination. A small state file beside it records which
+ * ranges are complete, together with the length, last-modified time and entity
+ * tag of the remote file. If the transfer is interrupted or canceled, both
+ * files are kept, and the next attempt fetches only the missing ranges,
+ * provided the remote file has not changed in the meantime (checked with an
+ * If-Range header on every request).
+ * <p>
+ * Once all the ranges are present the partial file is checked against a
+ * checksum, if one is available: from a Digest (SHA-256 or MD5) or Content-MD5
+ * response header, or else from a sidecar file with the same URL plus
+ * ".sha256". A file that fails the check is discarded.
+ * <p>
+ * All the range downloads in progress share a fixed number of connections, so
+ * that several large files downloaded at once do not open more connections to
+ * the server than a single one does.
+ */
+final class RangeDownloader
+{
+    // Files smaller than this are downloaded in one piece.
+    static final long MinimumLength = 16L << 20;
+
+    private static final int ChunkSize = 8 << 20;
+    private static final int Parallelism = 4;
+    // Range requests open at once, over all the files being downloaded.
+    static final int MaximumConnections = 4;
+    private static final String PartialExtension = ".part";
+    private static final String StateExtension = ".part.state";
+
+    private static final Semaphore Connections = new Semaphore(MaximumConnections, true);
+
+    private static final ExecutorService Executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "RangeDownloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Return true if the file behind the specified connection, which has been
+     * connected, can be downloaded in ranges.
+     */
+    static boolean isApplicable(URLConnection connection)
+    {
+        if (!(connection instanceof HttpURLConnection))
+            return false;
+
+        return connection.getContentLengthLong() >= MinimumLength && //
+                "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges")) && //
+                connection.getHeaderField("Content-Encoding") == null;
+    }
+
+    /**
+     * Return the partial file used while downloading the specified file.
+     */
+    static File getPartialFile(File file)
+    {
+        return new File(file.getParentFile(), file.getName() + PartialExtension);
+    }
+
+    private final URL url;
+    private final File partialFile;
+    private final File stateFile;
+    private final long length;
+    private final long lastModified;
+    private final String entityTag;
+    private final String expectedDigest;
+    private final BitSet completed;
+    private final int numberChunks;
+
+    /**
+     * Prepare the download of the file behind the specified connection, which has
+     * been connected, to the specified file.
+     */
+    RangeDownloader(URL url, URLConnection connection, File file)
+    {
+        Preconditions.checkArgument(isApplicable(connection));
+
+        this.url = url;
+        this.partialFile = getPartialFile(file);
+        this.stateFile = new File(file.getParentFile(), file.getName() + StateExtension);
+        this.length = connection.getContentLengthLong();
+        this.lastModified = connection.getLastModified();
+        this.entityTag = connection.getHeaderField("ETag");
+        this.expectedDigest = getDigestFromHeaders(connection);
+        this.numberChunks = (int) ((length + ChunkSize - 1) / ChunkSize);
+        this.completed = new BitSet(numberChunks);
+    }
+
+    /**
+     * Fetch the missing ranges and verify the result.
+     *
+     * @param canceled reports whether the download has been canceled
+     * @param progress receives the number of bytes present so far
+     * @return the complete partial file, which the caller is expected to move or
+     *         unpack to its final location
+     * @throws IOException if any range cannot be fetched, the remote file changed
+     *             during the download or the result fails its checksum
+     * @throws InterruptedException if the download was canceled
+     */
+    File download(BooleanSupplier canceled, LongConsumer progress) throws IOException, InterruptedException
+    {
+        boolean resumed = loadState();
+        if (!resumed)
+        {
+            completed.clear();
+            partialFile.getParentFile().mkdirs();
+            try (RandomAccessFile raf = new RandomAccessFile(partialFile, "rw"))
+            {
+                raf.setLength(length);
+            }
+            saveState();
+        }
+        else
+        {
+            FileCacheMessageUtil.info().println("Resuming download of " + url + " with " + completed.cardinality() + " of " + numberChunks + " parts present");
+        }
+
+        AtomicLong bytesPresent = new AtomicLong();
+        for (int chunk = completed.nextSetBit(0); chunk >= 0; chunk = completed.nextSetBit(chunk + 1))
+        {
+            bytesPresent.addAndGet(getChunkLength(chunk));
+        }
+        progress.accept(bytesPresent.get());
+
+        // Once any range fails, the workers take no new range, but finish those in
+        // progress so that they can be kept. If the remote file changed, the ranges
+        // in progress are abandoned too, and the partial file is discarded once all
+        // the workers have stopped writing to it.
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicBoolean changed = new AtomicBoolean();
+        BooleanSupplier stopped = () -> canceled.getAsBoolean() || changed.get();
+        try (RandomAccessFile raf = new RandomAccessFile(partialFile, "rw"); FileChannel channel = raf.getChannel())
+        {
+            // Each worker takes the next missing range until none is left.
+            AtomicInteger nextChunk = new AtomicInteger();
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int worker = 0; worker < Parallelism; ++worker)
+            {
+                workers.add(Executor.submit(() -> {
+                    int chunk;
+                    while ((chunk = nextMissingChunk(nextChunk)) < numberChunks)
+                    {
+                        if (stopped.getAsBoolean() || failed.get() || !acquireConnection(() -> stopped.getAsBoolean() || failed.get()))
+                            break;
+
+                        try
+                        {
+                            fetchChunk(chunk, channel, bytesPresent, progress, stopped, changed);
+                        }
+                        catch (IOException | RuntimeException e)
+                        {
+                            failed.set(true);
+                            throw e;
+                        }
+                        finally
+                        {
+                            Connections.release();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            IOException exception = null;
+            for (Future<Void> worker : workers)
+            {
+                try
+                {
+                    worker.get();
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = e.getCause();
+                    // Cancellation is reported below.
+                    if (exception == null && !(cause instanceof InterruptedException))
+                        exception = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+            }
+
+            if (changed.get())
+            {
+                discard();
+            }
+            else
+            {
+                channel.force(false);
+            }
+
+            if (exception != null)
+                throw exception;
+        }
+
+        if (canceled.getAsBoolean() || completed.cardinality() < numberChunks)
+            throw new InterruptedException("Download of " + url + " canceled; " + completed.cardinality() + " of " + numberChunks + " parts kept for resuming");
+
+        verify();
+        stateFile.delete();
+
+        return partialFile;
+    }
+
+    /**
+     * Discard the partial file and its state.
+     */
+    void discard()
+    {
+        partialFile.delete();
+        stateFile.delete();
+    }
+
+    /**
+     * Wait for one of the shared connections, giving up if the download stops
+     * meanwhile.
+     *
+     * @return true if a connection was acquired, which the caller must release
+     */
+    private static boolean acquireConnection(BooleanSupplier stopped) throws InterruptedException
+    {
+        while (!Connections.tryAcquire(100, TimeUnit.MILLISECONDS))
+        {
+            if (stopped.getAsBoolean())
+                return false;
+        }
+
+        return true;
+    }
+
+    private int nextMissingChunk(AtomicInteger nextChunk)
+    {
+        synchronized (completed)
+        {
+            int chunk;
+            do
+            {
+                chunk = nextChunk.getAndIncrement();
+            }
+            while (chunk < numberChunks && completed.get(chunk));
+
+            return chunk;
+        }
+    }
+
+    private long getChunkLength(int chunk)
+    {
+        return Math.min(ChunkSize, length - (long) chunk * ChunkSize);
+    }
+
+    private void fetchChunk(int chunk, FileChannel channel, AtomicLong bytesPresent, LongConsumer progress, BooleanSupplier stopped, AtomicBoolean changed) throws IOException, InterruptedException
+    {
+        long begin = (long) chunk * ChunkSize;
+        long chunkLength = getChunkLength(chunk);
+
+        try (CloseableUrlConnection closeableConnection = CloseableUrlConnection.of(url, HttpRequestMethod.GET))
+        {
+            HttpURLConnection connection = (HttpURLConnection) closeableConnection.getConnection();
+            connection.setRequestProperty("Range", "bytes=" + begin + "-" + (begin + chunkLength - 1));
+            boolean validated = entityTag != null || lastModified > 0;
+            if (entityTag != null)
+            {
+                connection.setRequestProperty("If-Range", entityTag);
+            }
+            else if (lastModified > 0)
+            {
+                connection.setRequestProperty("If-Range", DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC)));
+            }
+
+            int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_PARTIAL)
+            {
+                // A 200 means the If-Range check failed: the file changed on the server.
+                // The partial file is discarded by the caller once every worker stopped.
+                changed.set(true);
+                throw new IOException("Server did not return part " + chunk + " of " + url + " (response code " + code + (validated ? ", file may have changed" : "") + ")");
+            }
+
+            byte[] bytes = new byte[1 << 16];
+            long position = begin;
+            try (InputStream stream = connection.getInputStream())
+            {
+                int numberRead;
+                while (position < begin + chunkLength && (numberRead = stream.read(bytes, 0, (int) Math.min(bytes.length, begin + chunkLength - position))) > 0)
+                {
+                    if (stopped.getAsBoolean())
+                    {
+                        // The partial range is not recorded, so it will be fetched again.
+                        bytesPresent.addAndGet(begin - position);
+                        throw new InterruptedException("Download canceled");
+                    }
+
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, numberRead);
+                    while (buffer.hasRemaining())
+                    {
+                        position += channel.write(buffer, position);
+                    }
+                    progress.accept(bytesPresent.addAndGet(numberRead));
+                }
+            }
+
+            if (position != begin + chunkLength)
+            {
+                bytesPresent.addAndGet(begin - position);
+                throw new IOException("Connection closed after " + (position - begin) + " of " + chunkLength + " bytes of part " + chunk + " of " + url);
+            }
+        }
+
+        // Record the range only once its bytes are on disk.
+        channel.force(false);
+        synchronized (completed)
+        {
+            completed.set(chunk);
+            if (!changed.get())
+            {
+                saveState();
+            }
+        }
+    }
+
+    /**
+     * Read the state of an earlier attempt, and return true if it matches the
+     * remote file, so that the download can be resumed.
+     */
+    private boolean loadState()
+    {
+        if (!stateFile.isFile() || !partialFile.isFile() || partialFile.length() != length)
+            return false;
+
+        Properties properties = new Properties();
+        try (InputStream stream = new FileInputStream(stateFile))
+        {
+            properties.load(stream);
+
+            if (!url.toString().equals(properties.getProperty("url")) || //
+                    length != Long.parseLong(properties.getProperty("length")) || //
+                    lastModified != Long.parseLong(properties.getProperty("lastModified")) || //
+                    !String.valueOf(entityTag).equals(properties.getProperty("entityTag")) || //
+                    ChunkSize != Integer.parseInt(properties.getProperty("chunkSize")))
+                return false;
+
+            completed.clear();
+            completed.or(BitSet.valueOf(Base64.getDecoder().decode(properties.getProperty("completed"))));
+
+            return true;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            return false;
+        }
+    }
+
+    private void saveState() throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty("url", url.toString());
+        properties.setProperty("length", Long.toString(length));
+        properties.setProperty("lastModified", Long.toString(lastModified));
+        properties.setProperty("entityTag", String.valueOf(entityTag));
+        properties.setProperty("chunkSize", Integer.toString(ChunkSize));
+        properties.setProperty("completed", Base64.getEncoder().encodeToString(completed.toByteArray()));
+
+        File tmpFile = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+        try (OutputStream stream = new FileOutputStream(tmpFile))
+        {
+            properties.store(stream, null);
+        }
+
+        stateFile.delete();
+        if (!tmpFile.renameTo(stateFile))
+            throw new IOException("Unable to rename " + tmpFile + " to " + stateFile);
+    }
+
+    /**
+     * Check the partial file against the expected checksum, if any, and discard it
+     * if it does not match.
+     */
+    private void verify() throws IOException
+    {
+        String expected = expectedDigest != null ? expectedDigest : getDigestFromSidecar();
+        if (expected == null)
+        {
+            FileCacheMessageUtil.debugCache().err().println("No checksum available for " + url);
+            return;
+        }
+
+        String[] algorithmAndValue = expected.split(":", 2);
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance(algorithmAndValue[0]);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java implementation is required to support SHA-256 and MD5.
+            throw new AssertionError(e);
+        }
+
+        byte[] bytes = new byte[1 << 16];
+        try (InputStream stream = new FileInputStream(partialFile))
+        {
+            int numberRead;
+            while ((numberRead = stream.read(bytes)) > 0)
+            {
+                digest.update(bytes, 0, numberRead);
+            }
+        }
+
+        String actual = toHex(digest.digest());
+        if (!actual.equalsIgnoreCase(algorithmAndValue[1]))
+        {
+            discard();
+            throw new IOException("Checksum of " + url + " does not match: expected " + algorithmAndValue[1] + ", got " + actual);
+        }
+    }
+
+    /**
+     * Return the checksum given by the response headers, as algorithm:hex, or
+     * null if there is none.
+     */
+    private static String getDigestFromHeaders(URLConnection connection)
+    {
+        String digest = connection.getHeaderField("Digest");
+        if (digest != null)
+        {
+            for (String item : digest.split(","))
+            {
+                String[] pair = item.trim().split("=", 2);
+                if (pair.length == 2 && (pair[0].equalsIgnoreCase("sha-256") || pair[0].equalsIgnoreCase("md5")))
+                {
+                    return pair[0].toUpperCase() + ":" + toHex(Base64.getDecoder().decode(pair[1]));
+                }
+            }
+        }
+
+        String md5 = connection.getHeaderField("Content-MD5");
+        if (md5 != null)
+        {
+            return "MD5:" + toHex(Base64.getDecoder().decode(md5.trim()));
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the checksum in the sidecar file, as algorithm:hex, or null if there
+     * is none.
+     */
+    private String getDigestFromSidecar()
+    {
+        try (CloseableUrlConnection closeableConnection = CloseableUrlConnection.of(new URL(url + ".sha256"), HttpRequestMethod.GET))
+        {
+            HttpURLConnection connection = (HttpURLConnection) closeableConnection.getConnection();
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+                return null;
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII)))
+            {
+                String line = reader.readLine();
+                // The usual sha256sum format: the hash, optionally followed by the file name.
+                if (line != null && line.matches("\\s*[0-9a-fA-F]{64}(\\s.*)?"))
+                    return "SHA-256:" + line.trim().substring(0, 64);
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            FileCacheMessageUtil.debugCache().err().println("No checksum file for " + url + ": " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder builder = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes)
+        {
+            builder.append(String.format("%02x", b));
+        }
+
+        return builder.toString();
+    }
+
+}
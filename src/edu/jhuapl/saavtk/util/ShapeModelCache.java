@@ -0,0 +1,421 @@
+package edu.jhuapl.saavtk.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
+import vtk.vtkDataArray;
+import vtk.vtkDoubleArray;
+import vtk.vtkFloatArray;
+import vtk.vtkIdTypeArray;
+import vtk.vtkPoints;
+import vtk.vtkPolyData;
+
+/**
+ * Binary cache of shape models, stored as a sidecar file next to the
+ * {@link FileCache} managed model file it was created from. Model files
+ * elsewhere, such as those of custom shape models, are never cached: they may
+ * be in read-only or shared folders that the application does not own.
+ * <p>
+ * Parsing a large text shape model can take tens of seconds. The cache holds
+ * the already parsed vertices, connectivity, point normals and bounds in a
+ * compact binary layout that is read back in large blocks on later loads and
+ * handed to VTK through bulk array copies. The file is read rather than memory
+ * mapped, since a mapping keeps the file locked on some platforms until it is
+ * garbage collected, and the cache could then not be replaced when stale.
+ * <p>
+ * The header records the size, last modified time and SHA-256 hash of the
+ * source file. The cache is used as is when size and time match. Otherwise the
+ * source is hashed, and the cache is still used (and its time refreshed) when
+ * the hash matches, which happens when an unchanged file is downloaded again.
+ * Any other mismatch means the cache is stale and it is rebuilt.
+ * <p>
+ * Only shape models made of polygons, optionally with point normals, are
+ * cached. Anything else (vertex, line or strip cells, extra point or cell data
+ * arrays) is silently skipped so that no information is lost.
+ */
+public class ShapeModelCache
+{
+	// Extension appended to the source file name to form the cache file name
+	public static final String CacheExtension = ".sbmc";
+
+	private static final int Magic = 0x53424d43; // "SBMC"
+	private static final int Version = 1;
+
+	private static final int HashLength = 32;
+	private static final int HeaderLength = 4 + 4 + 8 + 8 + HashLength + 4 + 4 + 8 + 8 + 8 * 6;
+	private static final int TimeOffset = 4 + 4 + 8;
+
+	// Size of the block through which the payload is read
+	private static final int BlockLength = 1 << 22;
+
+	// Flags describing the payload
+	private static final int FlagDoublePoints = 0x1;
+	private static final int FlagNormals = 0x2;
+
+	/**
+	 * Returns true if the specified shape model file may have a cache file, that
+	 * is if it is inside the {@link FileCache} directory.
+	 */
+	public static boolean isCacheableLocation(File aSourceFile)
+	{
+		Path cachePath = Paths.get(Configuration.getCacheDir()).toAbsolutePath().normalize();
+
+		return aSourceFile.toPath().toAbsolutePath().normalize().startsWith(cachePath);
+	}
+
+	/**
+	 * Returns the cache file associated with the specified shape model file.
+	 */
+	public static File getCacheFile(File aSourceFile)
+	{
+		return new File(aSourceFile.getParentFile(), aSourceFile.getName() + CacheExtension);
+	}
+
+	/**
+	 * Loads the shape model from the cache associated with the specified file.
+	 * Returns null if there is no cache or if it is out of date or unreadable, in
+	 * which case the caller is expected to parse the source file.
+	 */
+	public static vtkPolyData load(File aSourceFile)
+	{
+		if (!isCacheableLocation(aSourceFile))
+			return null;
+
+		File cacheFile = getCacheFile(aSourceFile);
+		if (!cacheFile.isFile() || !aSourceFile.isFile())
+			return null;
+
+		try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "r"); FileChannel channel = raf.getChannel())
+		{
+			if (channel.size() < HeaderLength)
+				return null;
+
+			ByteBuffer buffer = ByteBuffer.allocate(HeaderLength).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, buffer);
+
+			if (buffer.getInt() != Magic || buffer.getInt() != Version)
+				return null;
+
+			long sourceSize = buffer.getLong();
+			long sourceTime = buffer.getLong();
+			byte[] sourceHash = new byte[HashLength];
+			buffer.get(sourceHash);
+			if (sourceSize != aSourceFile.length())
+				return null;
+
+			if (sourceTime != aSourceFile.lastModified())
+			{
+				if (!Arrays.equals(sourceHash, computeHash(aSourceFile)))
+					return null;
+
+				// Same content with a new time stamp: refresh the time so the next load
+				// does not need to hash the source again
+				refreshSourceTime(cacheFile, aSourceFile.lastModified());
+			}
+
+			int flags = buffer.getInt();
+			int numPoints = buffer.getInt();
+			long numCells = buffer.getLong();
+			long connectivityLength = buffer.getLong();
+			// The bounds that end the header are kept for tools that only need the
+			// extent of the model; VTK computes its own bounds from the points.
+
+			long length = HeaderLength + ((flags & FlagDoublePoints) != 0 ? 8L : 4L) * 3 * numPoints + 8L * connectivityLength;
+			if ((flags & FlagNormals) != 0)
+				length += 4L * 3 * numPoints;
+			if (channel.size() != length)
+				throw new IOException("Unexpected length " + channel.size() + " instead of " + length);
+
+			// The payload is read block by block, straight into the arrays handed to VTK
+			ByteBuffer block = ByteBuffer.allocateDirect(BlockLength).order(ByteOrder.LITTLE_ENDIAN);
+
+			vtkPolyData retPolyData = new vtkPolyData();
+
+			vtkPoints vPoints = new vtkPoints();
+			if ((flags & FlagDoublePoints) != 0)
+			{
+				double[] pointArr = new double[3 * numPoints];
+				readDoubles(channel, block, pointArr);
+
+				vtkDoubleArray vData = new vtkDoubleArray();
+				vData.SetNumberOfComponents(3);
+				vData.SetJavaArray(pointArr);
+				vPoints.SetData(vData);
+			}
+			else
+			{
+				float[] pointArr = new float[3 * numPoints];
+				readFloats(channel, block, pointArr);
+
+				vtkFloatArray vData = new vtkFloatArray();
+				vData.SetNumberOfComponents(3);
+				vData.SetJavaArray(pointArr);
+				vPoints.SetData(vData);
+			}
+			retPolyData.SetPoints(vPoints);
+
+			long[] connectivityArr = new long[Math.toIntExact(connectivityLength)];
+			readLongs(channel, block, connectivityArr);
+
+			vtkIdTypeArray vIds = new vtkIdTypeArray();
+			vIds.SetJavaArray(connectivityArr);
+			vtkCellArray vPolys = new vtkCellArray();
+			vPolys.SetCells(numCells, vIds);
+			retPolyData.SetPolys(vPolys);
+
+			if ((flags & FlagNormals) != 0)
+			{
+				float[] normalArr = new float[3 * numPoints];
+				readFloats(channel, block, normalArr);
+
+				vtkFloatArray vNormals = new vtkFloatArray();
+				vNormals.SetName("Normals");
+				vNormals.SetNumberOfComponents(3);
+				vNormals.SetJavaArray(normalArr);
+				retPolyData.GetPointData().SetNormals(vNormals);
+			}
+
+			return retPolyData;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// A damaged cache is not fatal; the source will simply be parsed again
+			FileCacheMessageUtil.debugCache().err().println("Ignoring unreadable shape model cache " + cacheFile + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the specified shape model, which was loaded from the specified source
+	 * file, to the associated cache file. Nothing is saved for files outside the
+	 * {@link FileCache} directory. Failures are reported but otherwise ignored,
+	 * since the cache is only an optimization.
+	 */
+	public static void save(File aSourceFile, vtkPolyData aPolyData)
+	{
+		if (!isCacheableLocation(aSourceFile) || !isCacheable(aPolyData))
+			return;
+
+		File cacheFile = getCacheFile(aSourceFile);
+		File tmpFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+		try
+		{
+			long sourceTime = aSourceFile.lastModified();
+			long sourceSize = aSourceFile.length();
+			byte[] sourceHash = computeHash(aSourceFile);
+
+			vtkDataArray vPointData = aPolyData.GetPoints().GetData();
+			boolean isDouble = vPointData instanceof vtkDoubleArray;
+			int numPoints = (int) aPolyData.GetNumberOfPoints();
+
+			long[] connectivityArr = VtkArrayUtil.getLegacyCells(aPolyData.GetPolys());
+			long numCells = aPolyData.GetNumberOfPolys();
+
+			vtkDataArray vNormals = aPolyData.GetPointData().GetNormals();
+			float[] normalArr = null;
+			if (vNormals instanceof vtkFloatArray)
+				normalArr = ((vtkFloatArray) vNormals).GetJavaArray();
+
+			int flags = (isDouble ? FlagDoublePoints : 0) | (normalArr != null ? FlagNormals : 0);
+			long length = HeaderLength + (isDouble ? 8L : 4L) * 3 * numPoints + 8L * connectivityArr.length;
+			if (normalArr != null)
+				length += 4L * normalArr.length;
+
+			// The file is assembled in memory and written in one go rather than mapped,
+			// since a mapped file cannot be renamed on some platforms until the mapping
+			// is garbage collected
+			ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(length)).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(Magic);
+			buffer.putInt(Version);
+			buffer.putLong(sourceSize);
+			buffer.putLong(sourceTime);
+			buffer.put(sourceHash);
+			buffer.putInt(flags);
+			buffer.putInt(numPoints);
+			buffer.putLong(numCells);
+			buffer.putLong(connectivityArr.length);
+			for (double aValue : aPolyData.GetBounds())
+				buffer.putDouble(aValue);
+
+			if (isDouble)
+			{
+				double[] pointArr = ((vtkDoubleArray) vPointData).GetJavaArray();
+				buffer.asDoubleBuffer().put(pointArr);
+				buffer.position(buffer.position() + 8 * pointArr.length);
+			}
+			else
+			{
+				float[] pointArr = toFloatArray(aPolyData.GetPoints());
+				buffer.asFloatBuffer().put(pointArr);
+				buffer.position(buffer.position() + 4 * pointArr.length);
+			}
+
+			buffer.asLongBuffer().put(connectivityArr);
+			buffer.position(buffer.position() + 8 * connectivityArr.length);
+
+			if (normalArr != null)
+				buffer.asFloatBuffer().put(normalArr);
+			buffer.rewind();
+
+			try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw"); FileChannel channel = raf.getChannel())
+			{
+				raf.setLength(0);
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+				channel.force(false);
+			}
+
+			if (cacheFile.exists() && !cacheFile.delete())
+				throw new IOException("Unable to replace " + cacheFile);
+			if (!tmpFile.renameTo(cacheFile))
+				throw new IOException("Unable to rename " + tmpFile + " to " + cacheFile);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			FileCacheMessageUtil.debugCache().err().println("Unable to write shape model cache " + cacheFile + ": " + e.getMessage());
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * Returns true if the shape model can be stored in the cache without losing
+	 * information.
+	 */
+	private static boolean isCacheable(vtkPolyData aPolyData)
+	{
+		if (aPolyData.GetNumberOfVerts() != 0 || aPolyData.GetNumberOfLines() != 0 || aPolyData.GetNumberOfStrips() != 0)
+			return false;
+
+		if (aPolyData.GetCellData().GetNumberOfArrays() != 0)
+			return false;
+
+		vtkDataArray vNormals = aPolyData.GetPointData().GetNormals();
+		int numPointArrays = aPolyData.GetPointData().GetNumberOfArrays();
+		if (vNormals == null)
+			return numPointArrays == 0;
+
+		return numPointArrays == 1 && vNormals instanceof vtkFloatArray;
+	}
+
+	private static void refreshSourceTime(File aCacheFile, long aSourceTime)
+	{
+		try (RandomAccessFile raf = new RandomAccessFile(aCacheFile, "rw"); FileChannel channel = raf.getChannel())
+		{
+			ByteBuffer timeBuf = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			timeBuf.putLong(0, aSourceTime);
+			channel.write(timeBuf, TimeOffset);
+		}
+		catch (IOException e)
+		{
+			// Not fatal: the source will just be hashed again next time
+		}
+	}
+
+	private static void readDoubles(FileChannel aChannel, ByteBuffer aBlock, double[] aValueArr) throws IOException
+	{
+		int blockSize = aBlock.capacity() / 8;
+		for (int i = 0; i < aValueArr.length; i += blockSize)
+		{
+			int numValues = Math.min(blockSize, aValueArr.length - i);
+			readBlock(aChannel, aBlock, 8 * numValues).asDoubleBuffer().get(aValueArr, i, numValues);
+		}
+	}
+
+	private static void readFloats(FileChannel aChannel, ByteBuffer aBlock, float[] aValueArr) throws IOException
+	{
+		int blockSize = aBlock.capacity() / 4;
+		for (int i = 0; i < aValueArr.length; i += blockSize)
+		{
+			int numValues = Math.min(blockSize, aValueArr.length - i);
+			readBlock(aChannel, aBlock, 4 * numValues).asFloatBuffer().get(aValueArr, i, numValues);
+		}
+	}
+
+	private static void readLongs(FileChannel aChannel, ByteBuffer aBlock, long[] aValueArr) throws IOException
+	{
+		int blockSize = aBlock.capacity() / 8;
+		for (int i = 0; i < aValueArr.length; i += blockSize)
+		{
+			int numValues = Math.min(blockSize, aValueArr.length - i);
+			readBlock(aChannel, aBlock, 8 * numValues).asLongBuffer().get(aValueArr, i, numValues);
+		}
+	}
+
+	/**
+	 * Reads the next aNumBytes bytes of the channel into the block, and returns the
+	 * block positioned at the start of those bytes.
+	 */
+	private static ByteBuffer readBlock(FileChannel aChannel, ByteBuffer aBlock, int aNumBytes) throws IOException
+	{
+		aBlock.clear().limit(aNumBytes);
+		readFully(aChannel, aBlock);
+
+		return aBlock;
+	}
+
+	/**
+	 * Fills the remainder of the buffer from the channel, and flips it so that it
+	 * is ready to be read.
+	 */
+	private static void readFully(FileChannel aChannel, ByteBuffer aBuffer) throws IOException
+	{
+		while (aBuffer.hasRemaining())
+		{
+			if (aChannel.read(aBuffer) < 0)
+				throw new IOException("Unexpected end of file");
+		}
+		aBuffer.flip();
+	}
+
+	private static float[] toFloatArray(vtkPoints aPoints)
+	{
+		vtkDataArray vData = aPoints.GetData();
+		if (vData instanceof vtkFloatArray)
+			return ((vtkFloatArray) vData).GetJavaArray();
+
+		double[] valueArr = VtkArrayUtil.getPoints(aPoints);
+		float[] retArr = new float[valueArr.length];
+		for (int i = 0; i < valueArr.length; i++)
+			retArr[i] = (float) valueArr[i];
+		return retArr;
+	}
+
+	private static byte[] computeHash(File aFile) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// Every Java implementation is required to support SHA-256
+			throw new AssertionError(e);
+		}
+
+		byte[] bufferArr = new byte[1 << 16];
+		try (InputStream is = new FileInputStream(aFile))
+		{
+			int numRead;
+			while ((numRead = is.read(bufferArr)) != -1)
+				digest.update(bufferArr, 0, numRead);
+		}
+
+		return digest.digest();
+	}
+
+}
@@ -1,22 +1,42 @@
 package edu.jhuapl.saavtk.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.TreeSet;
 
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
 import vtk.vtkPolyData;
 
 /**
  * This class is used to subdivide the bounding box of a shape model
  * into a contiguous grid of 3D cubes.
+ * <p>
+ * The cubes form a uniform grid, so the cubes overlapped by a box are found
+ * directly from its bounds rather than by testing every cube. Finding the cubes
+ * that intersect a polydata therefore takes time proportional to the number of
+ * its cells, not to the number of cells times the number of cubes.
  */
 public class SmallBodyCubes
 {
     private BoundingBox boundingBox;
-    private List<BoundingBox> allCubes = new ArrayList<BoundingBox>();
     private final double cubeSize;
     private final double buffer;
     private double overlap;
+    private int numCubesX;
+    private int numCubesY;
+    private int numCubesZ;
+    // Boundaries of the grid along each axis; cube i along x spans
+    // xGrid[i] to xGrid[i+1].
+    private double[] xGrid;
+    private double[] yGrid;
+    private double[] zGrid;
+    // Cube id of each grid cell (i + numCubesX * (j + numCubesY * k)), or -1 if
+    // the cube was removed, and the grid cell of each cube id.
+    private int[] cubeIds;
+    private int[] gridIndices;
 
     /**
      * Create a cube set structure for the given model, where each cube has side <tt>cubeSize</tt>
@@ -57,58 +77,78 @@ public class SmallBodyCubes
         boundingBox.zmin -= buffer;
 
 
-        int numCubesX = (int)Math.ceil( (boundingBox.xmax - boundingBox.xmin) / cubeSize );
-        int numCubesY = (int)Math.ceil( (boundingBox.ymax - boundingBox.ymin) / cubeSize );
-        int numCubesZ = (int)Math.ceil( (boundingBox.zmax - boundingBox.zmin) / cubeSize );
+        numCubesX = (int)Math.ceil( (boundingBox.xmax - boundingBox.xmin) / cubeSize );
+        numCubesY = (int)Math.ceil( (boundingBox.ymax - boundingBox.ymin) / cubeSize );
+        numCubesZ = (int)Math.ceil( (boundingBox.zmax - boundingBox.zmin) / cubeSize );
 
-        for (int k=0; k<numCubesZ; ++k)
+        xGrid = createGrid(boundingBox.xmin, numCubesX);
+        yGrid = createGrid(boundingBox.ymin, numCubesY);
+        zGrid = createGrid(boundingBox.zmin, numCubesZ);
+
+        int numberCubes = numCubesX * numCubesY * numCubesZ;
+        cubeIds = new int[numberCubes];
+        gridIndices = new int[numberCubes];
+        for (int i=0; i<numberCubes; ++i)
         {
-            double zmin = boundingBox.zmin + k * cubeSize;
-            double zmax = boundingBox.zmin + (k+1) * cubeSize;
-            for (int j=0; j<numCubesY; ++j)
-            {
-                double ymin = boundingBox.ymin + j * cubeSize;
-                double ymax = boundingBox.ymin + (j+1) * cubeSize;
-                for (int i=0; i<numCubesX; ++i)
-                {
-                    double xmin = boundingBox.xmin + i * cubeSize;
-                    double xmax = boundingBox.xmin + (i+1) * cubeSize;
-                    BoundingBox bb = new BoundingBox();
-                    bb.xmin = xmin;
-                    bb.xmax = xmax;
-                    bb.ymin = ymin;
-                    bb.ymax = ymax;
-                    bb.zmin = zmin;
-                    bb.zmax = zmax;
-                    allCubes.add(bb);
-                }
-            }
+            cubeIds[i] = i;
+            gridIndices[i] = i;
         }
     }
 
+    private double[] createGrid(double min, int numCubes)
+    {
+        double[] grid = new double[numCubes + 1];
+        for (int i=0; i<=numCubes; ++i)
+            grid[i] = min + i * cubeSize;
+
+        return grid;
+    }
+
     private void removeEmptyCubes(vtkPolyData smallBodyPolyData)
     {
-//        System.out.println("total cubes before reduction = " + allCubes.size());
+        // Remove from the grid all cubes that do not intersect the asteroid,
+        // and renumber the remaining ones in grid order.
+        int[] intersectingCubes = getIntersectingCubeIds(smallBodyPolyData);
 
-        // Remove from allCubes all cubes that do not intersect the asteroid
-        //long t0 = System.currentTimeMillis();
-        TreeSet<Integer> intersectingCubes = getIntersectingCubes(smallBodyPolyData);
-        //System.out.println("Time elapsed:  " + ((double)System.currentTimeMillis()-t0)/1000.0);
+        int[] tmpGridIndices = new int[intersectingCubes.length];
+        for (int i=0; i<intersectingCubes.length; ++i)
+        {
+            tmpGridIndices[i] = gridIndices[intersectingCubes[i]];
+        }
 
-        List<BoundingBox> tmpCubes = new ArrayList<BoundingBox>();
-        for (Integer i : intersectingCubes)
+        Arrays.fill(cubeIds, -1);
+        for (int i=0; i<tmpGridIndices.length; ++i)
         {
-            tmpCubes.add(allCubes.get(i));
+            cubeIds[tmpGridIndices[i]] = i;
         }
 
-        allCubes = tmpCubes;
+        gridIndices = tmpGridIndices;
+    }
 
-//        System.out.println("finished initializing cubes, total = " + allCubes.size());
+    /**
+     * Return the number of cubes, that is one more than the largest cube id.
+     */
+    public int getNumberOfCubes()
+    {
+        return gridIndices.length;
     }
 
     public BoundingBox getCube(int cubeId)
     {
-        return allCubes.get(cubeId);
+        int gridIndex = gridIndices[cubeId];
+        int i = gridIndex % numCubesX;
+        int j = (gridIndex / numCubesX) % numCubesY;
+        int k = gridIndex / numCubesX / numCubesY;
+
+        BoundingBox bb = new BoundingBox();
+        bb.xmin = xGrid[i];
+        bb.xmax = xGrid[i+1];
+        bb.ymin = yGrid[j];
+        bb.ymax = yGrid[j+1];
+        bb.zmin = zGrid[k];
+        bb.zmax = zGrid[k+1];
+
+        return bb;
     }
 
     /**
@@ -118,50 +158,65 @@ public class SmallBodyCubes
      */
     public TreeSet<Integer> getIntersectingCubes(vtkPolyData polydata)
     {
-        TreeSet<Integer> cubeIds = new TreeSet<Integer>();
-
-        // Iterate through each cube and check if it intersects
-        // with the bounding box of any of the polygons of the polydata
+        return toTreeSet(getIntersectingCubeIds(polydata));
+    }
 
-        BoundingBox polydataBB = new BoundingBox(polydata.GetBounds());
-        int numberPolygons = (int)polydata.GetNumberOfCells();
+    /**
+     * Get the ids, in increasing order, of all the cubes that intersect with the
+     * bounding box of at least one of the cells of <tt>polydata</tt>.
+     * <p>
+     * The cell bounds are computed from bulk copies of the points and
+     * connectivity of the polydata, and each one is mapped directly to the range
+     * of cubes it overlaps.
+     *
+     * @param polydata
+     * @return
+     */
+    public int[] getIntersectingCubeIds(vtkPolyData polydata)
+    {
+        if (polydata.GetNumberOfCells() == 0)
+            return new int[0];
 
-        // Store all the bounding boxes of all the individual polygons in an array first
-        // since the call to GetCellBounds is very slow.
+        BitSet cubeIdSet = new BitSet(getNumberOfCubes());
+        double[] points = VtkArrayUtil.getPoints(polydata.GetPoints());
         double[] cellBounds = new double[6];
-        List<BoundingBox> polyCellsBB = new ArrayList<BoundingBox>();
-        for (int j=0; j<numberPolygons; ++j)
-        {
-            polydata.GetCellBounds(j, cellBounds);
-            polyCellsBB.add(new BoundingBox(cellBounds));
-        }
-
 
-        int numberCubes = allCubes.size();
-        for (int i=0; i<numberCubes; ++i)
+        // The order of the cells does not matter, so go through each kind of cell in turn.
+        vtkCellArray[] cellArrays = { polydata.GetVerts(), polydata.GetLines(), polydata.GetPolys(), polydata.GetStrips() };
+        for (vtkCellArray cellArray : cellArrays)
         {
-            // Before checking each polygon individually, first see if the
-            // polydata as a whole intersects the cube
-            BoundingBox cube = getCube(i);
-            if (cube.intersects(polydataBB))
+            if (cellArray == null || cellArray.GetNumberOfCells() == 0)
+                continue;
+
+            long[] cells = VtkArrayUtil.getLegacyCells(cellArray);
+            int index = 0;
+            while (index < cells.length)
             {
-                for (int j=0; j<numberPolygons; ++j)
+                int numberIds = (int)cells[index];
+                if (numberIds > 0)
                 {
-                    BoundingBox bb = polyCellsBB.get(j);
-                    if (cube.intersects(bb))
+                    int p = 3 * (int)cells[index + 1];
+                    cellBounds[0] = cellBounds[1] = points[p];
+                    cellBounds[2] = cellBounds[3] = points[p + 1];
+                    cellBounds[4] = cellBounds[5] = points[p + 2];
+                    for (int id=2; id<=numberIds; ++id)
                     {
-                    	//this is here to ensure that there is at least a 10% overlap between the boxes, so we don't catch edges of polydata 
-                    	if (cube.getOverlapFactor(bb)*100.0 > overlap)
-                    	{
-                    		cubeIds.add(i);
-                    		break;
-                    	}
+                        p = 3 * (int)cells[index + id];
+                        cellBounds[0] = Math.min(cellBounds[0], points[p]);
+                        cellBounds[1] = Math.max(cellBounds[1], points[p]);
+                        cellBounds[2] = Math.min(cellBounds[2], points[p + 1]);
+                        cellBounds[3] = Math.max(cellBounds[3], points[p + 1]);
+                        cellBounds[4] = Math.min(cellBounds[4], points[p + 2]);
+                        cellBounds[5] = Math.max(cellBounds[5], points[p + 2]);
                     }
+
+                    addIntersectingCubes(cellBounds, cubeIdSet);
                 }
+                index += numberIds + 1;
             }
         }
 
-        return cubeIds;
+        return cubeIdSet.stream().toArray();
     }
 
     /**
@@ -171,22 +226,98 @@ public class SmallBodyCubes
      */
     public TreeSet<Integer> getIntersectingCubes(BoundingBox bb)
     {
-        TreeSet<Integer> cubeIds = new TreeSet<Integer>();
+        return toTreeSet(getIntersectingCubeIds(bb));
+    }
 
-        int numberCubes = allCubes.size();
-        for (int i=0; i<numberCubes; ++i)
+    /**
+     * Get the ids, in increasing order, of all the cubes that intersect with
+     * BoundingBox <tt>bb</tt>
+     * @param bb
+     * @return
+     */
+    public int[] getIntersectingCubeIds(BoundingBox bb)
+    {
+        BitSet cubeIdSet = new BitSet(getNumberOfCubes());
+        addIntersectingCubes(bb.getBounds(), cubeIdSet);
+
+        return cubeIdSet.stream().toArray();
+    }
+
+    /**
+     * Add to <tt>cubeIdSet</tt> the ids of the cubes that intersect with the box
+     * with the specified bounds, and overlap it by more than the overlap
+     * percentage. Only the cubes in the grid range spanned by the bounds (plus
+     * one on each side, to allow for rounding) are tested.
+     */
+    private void addIntersectingCubes(double[] bounds, BitSet cubeIdSet)
+    {
+        int iBegin = getBeginIndex(bounds[0], boundingBox.xmin, numCubesX);
+        int iEnd = getEndIndex(bounds[1], boundingBox.xmin, numCubesX);
+        int jBegin = getBeginIndex(bounds[2], boundingBox.ymin, numCubesY);
+        int jEnd = getEndIndex(bounds[3], boundingBox.ymin, numCubesY);
+        int kBegin = getBeginIndex(bounds[4], boundingBox.zmin, numCubesZ);
+        int kEnd = getEndIndex(bounds[5], boundingBox.zmin, numCubesZ);
+
+        for (int k=kBegin; k<kEnd; ++k)
         {
-            BoundingBox cube = getCube(i);
-            if (cube.intersects(bb))
+            if (bounds[5] < zGrid[k] || bounds[4] > zGrid[k+1])
+                continue;
+
+            for (int j=jBegin; j<jEnd; ++j)
             {
-            	if (cube.getOverlapFactor(bb)*100.0 > overlap)
-            	{
-            		cubeIds.add(i);
-            	}
+                if (bounds[3] < yGrid[j] || bounds[2] > yGrid[j+1])
+                    continue;
+
+                for (int i=iBegin; i<iEnd; ++i)
+                {
+                    if (bounds[1] < xGrid[i] || bounds[0] > xGrid[i+1])
+                        continue;
+
+                    int cubeId = cubeIds[i + numCubesX * (j + numCubesY * k)];
+                    if (cubeId < 0 || cubeIdSet.get(cubeId))
+                        continue;
+
+                    //this is here to ensure that there is at least a 10% overlap between the boxes, so we don't catch edges of polydata
+                    if (getOverlapFactor(i, j, k, bounds)*100.0 > overlap)
+                        cubeIdSet.set(cubeId);
+                }
             }
         }
+    }
 
-        return cubeIds;
+    /**
+     * Same as {@link BoundingBox#getOverlapFactor(BoundingBox)} called on the
+     * specified cube, without creating the boxes.
+     */
+    private double getOverlapFactor(int i, int j, int k, double[] bounds)
+    {
+        double xLength = Math.abs(xGrid[i+1] - bounds[0]);
+        double yLength = Math.abs(yGrid[j+1] - bounds[2]);
+        double zLength = Math.abs(zGrid[k+1] - bounds[4]);
+        double overlappingVolume = xLength*yLength*zLength;
+        double originalVolume = (xGrid[i+1]-xGrid[i])*(yGrid[j+1]-yGrid[j])*(zGrid[k+1]-zGrid[k]);
+        return overlappingVolume/originalVolume;
+    }
+
+    private int getBeginIndex(double min, double gridMin, int numCubes)
+    {
+        double index = Math.floor((min - gridMin) / cubeSize) - 1.0;
+        return (int)Math.max(0.0, Math.min(numCubes, index));
+    }
+
+    private int getEndIndex(double max, double gridMin, int numCubes)
+    {
+        double index = Math.floor((max - gridMin) / cubeSize) + 2.0;
+        return (int)Math.max(0.0, Math.min(numCubes, index));
+    }
+
+    private static TreeSet<Integer> toTreeSet(int[] cubeIdArr)
+    {
+        TreeSet<Integer> cubeIdSet = new TreeSet<Integer>();
+        for (int cubeId : cubeIdArr)
+            cubeIdSet.add(cubeId);
+
+        return cubeIdSet;
     }
 
     /**
@@ -199,12 +330,33 @@ public class SmallBodyCubes
         if (!boundingBox.contains(point))
             return -1;
 
-        int numberCubes = allCubes.size();
-        for (int i=0; i<numberCubes; ++i)
+        // Points on a face shared by two cubes belong to the one with the lower id.
+        int iBegin = getBeginIndex(point[0], boundingBox.xmin, numCubesX);
+        int iEnd = getEndIndex(point[0], boundingBox.xmin, numCubesX);
+        int jBegin = getBeginIndex(point[1], boundingBox.ymin, numCubesY);
+        int jEnd = getEndIndex(point[1], boundingBox.ymin, numCubesY);
+        int kBegin = getBeginIndex(point[2], boundingBox.zmin, numCubesZ);
+        int kEnd = getEndIndex(point[2], boundingBox.zmin, numCubesZ);
+        for (int k=kBegin; k<kEnd; ++k)
         {
-            BoundingBox cube = getCube(i);
-            if (cube.contains(point))
-                return i;
+            if (point[2] < zGrid[k] || point[2] > zGrid[k+1])
+                continue;
+
+            for (int j=jBegin; j<jEnd; ++j)
+            {
+                if (point[1] < yGrid[j] || point[1] > yGrid[j+1])
+                    continue;
+
+                for (int i=iBegin; i<iEnd; ++i)
+                {
+                    if (point[0] < xGrid[i] || point[0] > xGrid[i+1])
+                        continue;
+
+                    int cubeId = cubeIds[i + numCubesX * (j + numCubesY * k)];
+                    if (cubeId >= 0)
+                        return cubeId;
+                }
+            }
         }
 
         // If we reach here something is wrong
@@ -213,9 +365,16 @@ public class SmallBodyCubes
         return -1;
     }
 
+    /**
+     * Return a new list of all the cubes, indexed by cube id.
+     */
 	public List<BoundingBox> getAllCubes()
 	{
+		int numberCubes = getNumberOfCubes();
+		List<BoundingBox> allCubes = new ArrayList<BoundingBox>(numberCubes);
+		for (int i=0; i<numberCubes; ++i)
+			allCubes.add(getCube(i));
+
 		return allCubes;
 	}
 }
-
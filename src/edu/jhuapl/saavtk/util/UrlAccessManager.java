@@ -6,8 +6,11 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.common.base.Preconditions;
@@ -41,13 +44,16 @@ public class UrlAccessManager
     }
 
     private final URL rootUrl;
-    private final LinkedHashMap<String, UrlInfo> urlInfoCache;
+    private final ConcurrentMap<String, UrlInfo> urlInfoCache;
+    // Keys of urlInfoCache in the order they were added. Guards additions to the cache.
+    private final List<String> urlOrder;
     private final AtomicBoolean enableServerAccess;
 
     protected UrlAccessManager(URL rootUrl)
     {
         this.rootUrl = rootUrl;
-        this.urlInfoCache = new LinkedHashMap<>();
+        this.urlInfoCache = new ConcurrentHashMap<>();
+        this.urlOrder = new ArrayList<>();
         this.enableServerAccess = new AtomicBoolean(true);
     }
 
@@ -137,9 +143,9 @@ public class UrlAccessManager
 
     public ImmutableList<String> getUrlList()
     {
-        synchronized (this.urlInfoCache)
+        synchronized (this.urlOrder)
         {
-            return ImmutableList.copyOf(urlInfoCache.keySet());
+            return ImmutableList.copyOf(urlOrder);
         }
     }
 
@@ -251,17 +257,21 @@ public class UrlAccessManager
     {
         Preconditions.checkNotNull(url);
 
-        UrlInfo result;
+        // Retrieve a cached URLInfo object, or else add one to the cache. Lookups of
+        // URLs already in the cache do not lock.
         String urlString = url.toString();
-
-        synchronized (this.urlInfoCache)
+        UrlInfo result = urlInfoCache.get(urlString);
+        if (result == null)
         {
-            // Retrieve a cached URLInfo object, or else add one to the cache.
-            result = urlInfoCache.get(urlString);
-            if (result == null)
+            synchronized (this.urlOrder)
             {
-                result = UrlInfo.of(url);
-                urlInfoCache.put(urlString, result);
+                result = urlInfoCache.get(urlString);
+                if (result == null)
+                {
+                    result = UrlInfo.of(url);
+                    urlInfoCache.put(urlString, result);
+                    urlOrder.add(urlString);
+                }
             }
         }
 
@@ -0,0 +1,552 @@
+package edu.jhuapl.saavtk.util.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming tokenizer for whitespace-delimited ASCII numbers, such as the
+ * vertex and plate lines of PDS/Gaskell shape model files.
+ * <p>
+ * The tokenizer works directly on the bytes of a {@link ByteBuffer}, so reading
+ * a number allocates nothing: there is no String per line, no array of fields
+ * from split, and no String per field. Files are read through a window that is
+ * refilled from the channel as the tokenizer advances, so files of any size can
+ * be parsed and nothing stays mapped or open once the tokenizer is closed.
+ * Numbers with up to 15 significant digits and a moderate exponent are
+ * converted exactly from their digits; anything else falls back to
+ * {@link Double#parseDouble(String)}, so results are always identical to
+ * parsing the text with the standard library.
+ * <p>
+ * Instances are not thread safe. Large blocks of lines may however be parsed
+ * in parallel with {@link #parseLines(int, LineParser)}, which gives each task
+ * its own tokenizer over a slice of the window.
+ */
+public class AsciiNumberTokenizer implements Closeable
+{
+    /**
+     * Callback used by {@link #parseLines(int, LineParser)} to parse one line.
+     */
+    @FunctionalInterface
+    public interface LineParser
+    {
+        /**
+         * Parse the numbers of one line from the tokenizer, which is positioned at the
+         * start of the line and limited to that line's chunk.
+         *
+         * @param tokenizer the tokenizer
+         * @param lineIndex index of the line relative to the first line parsed
+         */
+        void parse(AsciiNumberTokenizer tokenizer, int lineIndex);
+    }
+
+    // Blocks of lines larger than this many bytes are parsed in parallel.
+    private static final int ParallelThreshold = 4 << 20;
+
+    // Number of lines parsed by each parallel task.
+    private static final int LinesPerChunk = 16384;
+
+    // Exactly representable powers of ten, for the fast conversion path.
+    private static final double[] PowersOfTen = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // Size of the window through which files are read.
+    private static final int WindowSize = 64 << 20;
+
+    // Source of the window, or null if the tokenizer works on a fixed buffer.
+    private final FileChannel channel;
+    private boolean endOfInput;
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Open the specified file and return a tokenizer positioned at its start. The
+     * file is read through a window of at most 64 MB, so its size is not limited
+     * to what a single buffer can hold. The tokenizer must be closed to release
+     * the file.
+     *
+     * @param file the file
+     * @return the tokenizer
+     * @throws IOException if the file cannot be opened or read
+     */
+    public static AsciiNumberTokenizer of(File file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try
+        {
+            AsciiNumberTokenizer result = new AsciiNumberTokenizer(channel, (int) Math.min(WindowSize, channel.size() + 1));
+            result.refill();
+
+            return result;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a tokenizer over the bytes from the position to the limit of the
+     * specified buffer. The buffer's position and limit are not changed.
+     *
+     * @param buffer the buffer
+     * @return the tokenizer
+     */
+    public static AsciiNumberTokenizer of(ByteBuffer buffer)
+    {
+        return new AsciiNumberTokenizer(buffer, buffer.position(), buffer.limit());
+    }
+
+    private AsciiNumberTokenizer(ByteBuffer buffer, int position, int limit)
+    {
+        this.channel = null;
+        this.endOfInput = true;
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    private AsciiNumberTokenizer(FileChannel channel, int windowSize)
+    {
+        this.channel = channel;
+        this.endOfInput = false;
+        this.buffer = ByteBuffer.allocate(windowSize);
+        this.position = 0;
+        this.limit = 0;
+    }
+
+    /**
+     * Close the file the tokenizer reads from, if any.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (channel != null)
+            channel.close();
+    }
+
+    /**
+     * Skip white space, including line ends, and return true if there is another
+     * token.
+     */
+    public boolean hasNext()
+    {
+        while (true)
+        {
+            while (position < limit && isWhitespace(buffer.get(position)))
+            {
+                ++position;
+            }
+
+            if (position < limit)
+                return true;
+            if (!refill())
+                return false;
+        }
+    }
+
+    /**
+     * Return the number of tokens between the current position and the end of the
+     * current line, without consuming them. If the position is at the end of a
+     * line, the following non-blank line is counted instead.
+     */
+    public int countTokensOnLine()
+    {
+        if (!hasNext())
+            return 0;
+        ensureLine();
+
+        int count = 0;
+        boolean inToken = false;
+        for (int index = position; index < limit; ++index)
+        {
+            byte b = buffer.get(index);
+            if (b == '\n' || b == '\r')
+                break;
+
+            boolean whitespace = isWhitespace(b);
+            if (!whitespace && !inToken)
+                ++count;
+            inToken = !whitespace;
+        }
+
+        return count;
+    }
+
+    /**
+     * Skip the remainder of the current line, including its line end.
+     */
+    public void skipLine()
+    {
+        do
+        {
+            while (position < limit)
+            {
+                byte b = buffer.get(position++);
+                if (b == '\n')
+                    return;
+            }
+        }
+        while (refill());
+    }
+
+    /**
+     * Skip the next token, whatever its content.
+     */
+    public void skipToken()
+    {
+        if (!hasNext())
+            return;
+        ensureLine();
+        while (position < limit && !isWhitespace(buffer.get(position)))
+        {
+            ++position;
+        }
+    }
+
+    /**
+     * Parse the next token as an int.
+     *
+     * @throws NumberFormatException if the token is not an integer that fits in an
+     *             int
+     */
+    public int nextInt()
+    {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new NumberFormatException("Value out of range for an int: " + value);
+
+        return (int) value;
+    }
+
+    /**
+     * Parse the next token as a long.
+     *
+     * @throws NumberFormatException if the token is not an integer
+     */
+    public long nextLong()
+    {
+        int start = startToken();
+
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+')
+        {
+            negative = b == '-';
+            ++position;
+        }
+
+        long value = 0;
+        int digitsStart = position;
+        while (position < limit && isDigit(b = buffer.get(position)))
+        {
+            if (value > (Long.MAX_VALUE - 9) / 10)
+                return Long.parseLong(fallbackToken(start));
+            value = 10 * value + (b - '0');
+            ++position;
+        }
+
+        if (position == digitsStart || (position < limit && !isWhitespace(buffer.get(position))))
+            return Long.parseLong(fallbackToken(start));
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse the next token as a double.
+     *
+     * @throws NumberFormatException if the token is not a number
+     */
+    public double nextDouble()
+    {
+        int start = startToken();
+
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+')
+        {
+            negative = b == '-';
+            ++position;
+        }
+
+        // Accumulate up to 18 significant digits into a long, tracking the decimal
+        // exponent.
+        long mantissa = 0;
+        int numberDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        boolean truncated = false;
+        while (position < limit && isDigit(b = buffer.get(position)))
+        {
+            anyDigits = true;
+            if (numberDigits < 18)
+            {
+                mantissa = 10 * mantissa + (b - '0');
+                if (mantissa != 0)
+                    ++numberDigits;
+            }
+            else
+            {
+                ++exponent;
+                truncated |= b != '0';
+            }
+            ++position;
+        }
+        if (position < limit && buffer.get(position) == '.')
+        {
+            ++position;
+            while (position < limit && isDigit(b = buffer.get(position)))
+            {
+                anyDigits = true;
+                if (numberDigits < 18)
+                {
+                    mantissa = 10 * mantissa + (b - '0');
+                    if (mantissa != 0)
+                        ++numberDigits;
+                    --exponent;
+                }
+                else
+                {
+                    truncated |= b != '0';
+                }
+                ++position;
+            }
+        }
+        if (!anyDigits)
+            return Double.parseDouble(fallbackToken(start));
+
+        if (position < limit && ((b = buffer.get(position)) == 'e' || b == 'E'))
+        {
+            ++position;
+            boolean negativeExponent = false;
+            if (position < limit && ((b = buffer.get(position)) == '-' || b == '+'))
+            {
+                negativeExponent = b == '-';
+                ++position;
+            }
+            int explicitExponent = 0;
+            int exponentStart = position;
+            while (position < limit && isDigit(b = buffer.get(position)))
+            {
+                if (explicitExponent < 100000)
+                    explicitExponent = 10 * explicitExponent + (b - '0');
+                ++position;
+            }
+            if (position == exponentStart)
+                return Double.parseDouble(fallbackToken(start));
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (position < limit && !isWhitespace(buffer.get(position)))
+            return Double.parseDouble(fallbackToken(start));
+
+        // Fast path: both the mantissa and the power of ten are exact doubles, so a
+        // single multiplication or division is correctly rounded.
+        if (!truncated && numberDigits <= 15 && exponent >= -22 && exponent <= 22)
+        {
+            double value = mantissa;
+            value = exponent < 0 ? value / PowersOfTen[-exponent] : value * PowersOfTen[exponent];
+            return negative ? -value : value;
+        }
+
+        return Double.parseDouble(fallbackToken(start));
+    }
+
+    /**
+     * Parse the specified number of non-blank lines starting at the current
+     * position, calling the parser once per line, and leave the tokenizer
+     * positioned after the last line. Numbers not consumed by the parser are
+     * ignored.
+     * <p>
+     * When the lines span more than a few megabytes they are parsed in parallel, so
+     * the parser must only write to locations determined by the line index.
+     *
+     * @param numberLines the number of lines to parse
+     * @param parser the parser
+     * @throws IOException if the buffer ends before all lines are read
+     */
+    public void parseLines(int numberLines, LineParser parser) throws IOException
+    {
+        // Lines are parsed in batches of whole lines held by the window. Locating
+        // line starts is a cheap byte scan; the conversion of numbers is what is
+        // worth spreading over threads.
+        int[] lineStarts = new int[Math.min(numberLines, LinesPerChunk) + 1];
+        int line = 0;
+        while (line < numberLines)
+        {
+            int firstLine = line;
+            int count = 0;
+            while (line < numberLines)
+            {
+                int start = position;
+                while (start < limit && isWhitespace(buffer.get(start)))
+                {
+                    ++start;
+                }
+                int end = findLineEnd(start);
+                if (start == limit || end < 0)
+                    break;
+
+                if (count + 1 >= lineStarts.length)
+                    lineStarts = Arrays.copyOf(lineStarts, 2 * lineStarts.length);
+                lineStarts[count++] = start;
+                position = end;
+                ++line;
+            }
+
+            if (count == 0)
+            {
+                if (!refill())
+                    throw new IOException("Unexpected end of file after " + line + " of " + numberLines + " lines");
+                continue;
+            }
+            lineStarts[count] = position;
+
+            parseBatch(lineStarts, count, firstLine, parser);
+        }
+    }
+
+    private void parseBatch(int[] lineStarts, int count, int firstLine, LineParser parser)
+    {
+        if (lineStarts[count] - lineStarts[0] < ParallelThreshold)
+        {
+            parseLineRange(lineStarts, 0, count, firstLine, parser);
+        }
+        else
+        {
+            int numberChunks = (count + LinesPerChunk - 1) / LinesPerChunk;
+            IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+                parseLineRange(lineStarts, chunk * LinesPerChunk, Math.min(count, (chunk + 1) * LinesPerChunk), firstLine, parser);
+            });
+        }
+    }
+
+    private void parseLineRange(int[] lineStarts, int first, int last, int firstLine, LineParser parser)
+    {
+        // Absolute get methods do not modify the buffer, so sharing it is safe.
+        for (int line = first; line < last; ++line)
+        {
+            AsciiNumberTokenizer lineTokenizer = new AsciiNumberTokenizer(buffer, lineStarts[line], lineStarts[line + 1]);
+            parser.parse(lineTokenizer, firstLine + line);
+        }
+    }
+
+    private int startToken()
+    {
+        if (!hasNext())
+            throw new NumberFormatException("Unexpected end of input");
+        ensureLine();
+
+        return position;
+    }
+
+    /**
+     * Return the index just past the line end of the line containing the specified
+     * index, the limit if the input ends before a line end, or -1 if the line
+     * continues past the window.
+     */
+    private int findLineEnd(int index)
+    {
+        for (; index < limit; ++index)
+        {
+            if (buffer.get(index) == '\n')
+                return index + 1;
+        }
+
+        return endOfInput ? limit : -1;
+    }
+
+    /**
+     * Make sure the window holds the whole line from the current position on, so
+     * tokens never straddle the end of the window.
+     */
+    private void ensureLine()
+    {
+        while (findLineEnd(position) < 0 && refill())
+        {
+        }
+    }
+
+    /**
+     * Discard the bytes before the current position and read more of the file into
+     * the window, growing it if a single line fills it. Return false if nothing
+     * more could be read.
+     */
+    private boolean refill()
+    {
+        if (endOfInput)
+            return false;
+
+        if (position == 0 && limit == buffer.capacity())
+        {
+            buffer = ByteBuffer.allocate(2 * buffer.capacity()).put(buffer.slice(0, limit));
+        }
+        else
+        {
+            buffer.limit(limit).position(position);
+            buffer.compact();
+        }
+        limit -= position;
+        position = 0;
+
+        try
+        {
+            int oldLimit = limit;
+            buffer.limit(buffer.capacity()).position(limit);
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer) < 0)
+                {
+                    endOfInput = true;
+                    break;
+                }
+            }
+            limit = buffer.position();
+
+            return limit > oldLimit;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Return the token starting at the specified position as a String, leaving the
+     * position after the token.
+     */
+    private String fallbackToken(int start)
+    {
+        position = start;
+        while (position < limit && !isWhitespace(buffer.get(position)))
+        {
+            ++position;
+        }
+
+        byte[] bytes = new byte[position - start];
+        for (int index = 0; index < bytes.length; ++index)
+        {
+            bytes[index] = buffer.get(start + index);
+        }
+
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0b;
+    }
+
+    private static boolean isDigit(byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,343 @@
+package edu.jhuapl.saavtk.util.file;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Implementation of {@link IndexableTuple} that stores each field as one
+ * primitive column array, either double[] or float[].
+ * <p>
+ * This is much more compact than a list of boxed values per tuple: a table
+ * with millions of tuples costs 8 (or 4) bytes per value, and the columns can
+ * be copied in bulk, for example into VTK arrays by
+ * {@link #toInterleavedFloats()}. Instances are immutable as long as the arrays
+ * used to create them are not modified.
+ */
+public final class ColumnarIndexableTuple extends BasicIndexableTuple
+{
+    /**
+     * Builder that accumulates tuples one at a time, for readers that do not know
+     * the number of tuples in advance.
+     */
+    public static final class Builder
+    {
+        private final int numberFields;
+        private final boolean singlePrecision;
+        private double[][] doubleColumns;
+        private float[][] floatColumns;
+        private int size;
+
+        private Builder(int numberFields, boolean singlePrecision, int initialCapacity)
+        {
+            this.numberFields = numberFields;
+            this.singlePrecision = singlePrecision;
+            int capacity = Math.max(16, initialCapacity);
+            if (singlePrecision)
+            {
+                this.floatColumns = new float[numberFields][capacity];
+            }
+            else
+            {
+                this.doubleColumns = new double[numberFields][capacity];
+            }
+            this.size = 0;
+        }
+
+        /**
+         * Add one tuple.
+         *
+         * @param values the values of the fields, which must have at least as many
+         *            elements as the number of fields
+         * @return this builder
+         */
+        public Builder add(double[] values)
+        {
+            Preconditions.checkArgument(values.length >= numberFields);
+
+            ensureCapacity(size + 1);
+            for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+            {
+                if (singlePrecision)
+                {
+                    floatColumns[fieldIndex][size] = (float) values[fieldIndex];
+                }
+                else
+                {
+                    doubleColumns[fieldIndex][size] = values[fieldIndex];
+                }
+            }
+            ++size;
+
+            return this;
+        }
+
+        /**
+         * Return the number of tuples added so far.
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * Build the {@link IndexableTuple} from the tuples added so far.
+         *
+         * @param names the names of the fields
+         * @param units the units of the fields
+         * @return the {@link IndexableTuple}
+         */
+        public ColumnarIndexableTuple build(Indexable<String> names, Indexable<String> units)
+        {
+            if (singlePrecision)
+            {
+                float[][] columns = new float[numberFields][];
+                for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+                {
+                    columns[fieldIndex] = Arrays.copyOf(floatColumns[fieldIndex], size);
+                }
+                return ofFloatColumns(names, units, columns);
+            }
+            else
+            {
+                double[][] columns = new double[numberFields][];
+                for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+                {
+                    columns[fieldIndex] = Arrays.copyOf(doubleColumns[fieldIndex], size);
+                }
+                return ofColumns(names, units, columns);
+            }
+        }
+
+        private void ensureCapacity(int capacity)
+        {
+            if (numberFields == 0)
+                return;
+
+            int currentCapacity = singlePrecision ? floatColumns[0].length : doubleColumns[0].length;
+            if (capacity <= currentCapacity)
+                return;
+
+            int newCapacity = Math.max(capacity, currentCapacity + (currentCapacity >> 1));
+            for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+            {
+                if (singlePrecision)
+                {
+                    floatColumns[fieldIndex] = Arrays.copyOf(floatColumns[fieldIndex], newCapacity);
+                }
+                else
+                {
+                    doubleColumns[fieldIndex] = Arrays.copyOf(doubleColumns[fieldIndex], newCapacity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a builder for tuples with the specified number of fields.
+     *
+     * @param numberFields the number of fields in each tuple
+     * @param singlePrecision if true, values are stored as floats, otherwise as
+     *            doubles
+     * @param initialCapacity the number of tuples expected; more may be added
+     * @return the builder
+     */
+    public static Builder builder(int numberFields, boolean singlePrecision, int initialCapacity)
+    {
+        Preconditions.checkArgument(numberFields >= 0);
+
+        return new Builder(numberFields, singlePrecision, initialCapacity);
+    }
+
+    /**
+     * Create an {@link IndexableTuple} that uses the specified arrays, one per
+     * field, without copying them.
+     *
+     * @param names the names of the fields
+     * @param units the units of the fields
+     * @param columns the values, one array per field, all of the same length
+     * @return the {@link IndexableTuple}
+     */
+    public static ColumnarIndexableTuple ofColumns(Indexable<String> names, Indexable<String> units, double[]... columns)
+    {
+        return new ColumnarIndexableTuple(names, units, columns, null);
+    }
+
+    /**
+     * Create an {@link IndexableTuple} that uses the specified single-precision
+     * arrays, one per field, without copying them.
+     *
+     * @param names the names of the fields
+     * @param units the units of the fields
+     * @param columns the values, one array per field, all of the same length
+     * @return the {@link IndexableTuple}
+     */
+    public static ColumnarIndexableTuple ofFloatColumns(Indexable<String> names, Indexable<String> units, float[]... columns)
+    {
+        return new ColumnarIndexableTuple(names, units, null, columns);
+    }
+
+    /**
+     * Return a view of the specified strings as an {@link Indexable}.
+     *
+     * @param strings the strings
+     * @return the {@link Indexable}
+     */
+    public static Indexable<String> indexableOf(List<String> strings)
+    {
+        return new Indexable<String>() {
+
+            @Override
+            public int size()
+            {
+                return strings.size();
+            }
+
+            @Override
+            public String get(int index)
+            {
+                return strings.get(index);
+            }
+
+        };
+    }
+
+    private final Indexable<String> names;
+    private final Indexable<String> units;
+    // Exactly one of these is non-null.
+    private final double[][] doubleColumns;
+    private final float[][] floatColumns;
+    private final int numberTuples;
+
+    private ColumnarIndexableTuple(Indexable<String> names, Indexable<String> units, double[][] doubleColumns, float[][] floatColumns)
+    {
+        Preconditions.checkNotNull(names);
+        Preconditions.checkNotNull(units);
+
+        int numberFields = doubleColumns != null ? doubleColumns.length : floatColumns.length;
+        Preconditions.checkArgument(names.size() == numberFields && units.size() == numberFields, "Number of names/units must match number of columns");
+
+        int numberTuples = 0;
+        for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+        {
+            int length = doubleColumns != null ? doubleColumns[fieldIndex].length : floatColumns[fieldIndex].length;
+            Preconditions.checkArgument(fieldIndex == 0 || length == numberTuples, "All columns must have the same length");
+            numberTuples = length;
+        }
+
+        this.names = names;
+        this.units = units;
+        this.doubleColumns = doubleColumns;
+        this.floatColumns = floatColumns;
+        this.numberTuples = numberTuples;
+    }
+
+    @Override
+    public int size()
+    {
+        return numberTuples;
+    }
+
+    /**
+     * Return true if values are stored in single precision.
+     */
+    public boolean isSinglePrecision()
+    {
+        return floatColumns != null;
+    }
+
+    /**
+     * Return the value of one field of one tuple, without creating a
+     * {@link Tuple}.
+     *
+     * @param tupleIndex the tuple index
+     * @param fieldIndex the field index
+     * @return the value
+     */
+    public double getValue(int tupleIndex, int fieldIndex)
+    {
+        return floatColumns != null ? floatColumns[fieldIndex][tupleIndex] : doubleColumns[fieldIndex][tupleIndex];
+    }
+
+    /**
+     * Return all the values in tuple order, that is, with the fields of each tuple
+     * adjacent, which is the layout VTK uses for multi-component arrays.
+     *
+     * @return a new array of size() * getNumberFields() values
+     */
+    public float[] toInterleavedFloats()
+    {
+        int numberFields = getNumberFields();
+        float[] result = new float[numberTuples * numberFields];
+        for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+        {
+            if (floatColumns != null)
+            {
+                float[] column = floatColumns[fieldIndex];
+                for (int tupleIndex = 0, index = fieldIndex; tupleIndex < numberTuples; ++tupleIndex, index += numberFields)
+                {
+                    result[index] = column[tupleIndex];
+                }
+            }
+            else
+            {
+                double[] column = doubleColumns[fieldIndex];
+                for (int tupleIndex = 0, index = fieldIndex; tupleIndex < numberTuples; ++tupleIndex, index += numberFields)
+                {
+                    result[index] = (float) column[tupleIndex];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Return all the values in tuple order, as {@link #toInterleavedFloats()} but
+     * in double precision.
+     *
+     * @return a new array of size() * getNumberFields() values
+     */
+    public double[] toInterleavedDoubles()
+    {
+        int numberFields = getNumberFields();
+        double[] result = new double[numberTuples * numberFields];
+        for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+        {
+            for (int tupleIndex = 0, index = fieldIndex; tupleIndex < numberTuples; ++tupleIndex, index += numberFields)
+            {
+                result[index] = getValue(tupleIndex, fieldIndex);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    protected Indexable<String> getNames()
+    {
+        return names;
+    }
+
+    @Override
+    protected Indexable<String> getUnits()
+    {
+        return units;
+    }
+
+    @Override
+    protected Tuple createTuple(int tupleIndex)
+    {
+        return new BasicTuple() {
+
+            @Override
+            protected double getValue(int fieldIndex)
+            {
+                return ColumnarIndexableTuple.this.getValue(tupleIndex, fieldIndex);
+            }
+
+        };
+    }
+
+}
@@ -6,13 +6,17 @@ import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
-import com.google.common.primitives.Doubles;
 
 import edu.jhuapl.saavtk.util.file.DataFileInfo.FileFormat;
 import edu.jhuapl.saavtk.util.file.DataObjectInfo.Description;
@@ -80,11 +84,12 @@ public class CsvFileReader extends DataFileReader
 	private static final CsvFileReader INSTANCE = new CsvFileReader();
 
 	/*
-	 * This Pattern will match on either quoted text or text between commas,
-	 * including whitespace, and accounting for beginning and end of line. Cribbed
-	 * from a Stacktrace post.
+	 * Results of recent scans, keyed by absolute file. Reading the file info and
+	 * then the tuples of the same file, which is what happens when coloring data
+	 * are imported, therefore only reads (and for gzipped files, decompresses) the
+	 * file once.
 	 */
-	private static final Pattern CSV_PATTERN = Pattern.compile("\"([^\"]*)\"|(?<=,|^)([^,]*)(?:,|$)");
+	private final Cache<File, Ingestion> ingestionCache = CacheBuilder.newBuilder().maximumSize(16).build();
 
 	/*
 	 * CSV files do not have metadata such as key-value pairs, so their data objects
@@ -92,6 +97,8 @@ public class CsvFileReader extends DataFileReader
 	 */
 	private static final Description BLANK_DESCRIPTION = Description.of(ImmutableList.of(), ImmutableList.of());
 
+	private static final String SECOND_LINE_NOT_NUMERIC = "Second line of CSV file is neither units nor numbers in the requested columns in file ";
+
 	public static CsvFileReader of()
 	{
 		return INSTANCE;
@@ -114,14 +121,21 @@ public class CsvFileReader extends DataFileReader
 	{
 		checkFormat(file);
 
-		if (isFileGzipped(file))
-		{
-			return readFileInfoGzipped(file);
-		}
-		else
+		Ingestion ingestion = getCachedIngestion(file);
+		if (ingestion == null)
 		{
-			return readFileInfoUncompressed(file);
+			try
+			{
+				ingestion = ingest(file, null);
+			}
+			catch (FieldNotFoundException e)
+			{
+				// Only thrown when specific columns are requested.
+				throw new AssertionError(e);
+			}
 		}
+
+		return ingestion.fileInfo;
 	}
 
 	public IndexableTuple readTuples(File file, Iterable<Integer> columnNumbers) throws FieldNotFoundException, IOException
@@ -135,269 +149,532 @@ public class CsvFileReader extends DataFileReader
 		Preconditions.checkNotNull(file);
 		Preconditions.checkArgument(file.exists());
 
-		if (isFileGzipped(file))
-		{
-			return readTuplesGzipped(file, numberColumns, columnNumbers);
-		}
-		else
+		int[] columns = new int[numberColumns];
+		int index = 0;
+		for (Integer columnNumber : columnNumbers)
 		{
-			return readTuplesUncompressed(file, numberColumns, columnNumbers);
+			columns[index++] = columnNumber;
 		}
-	}
 
-	protected DataFileInfo readFileInfoGzipped(File file) throws IOException, InvalidFileFormatException
-	{
-		try (BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)))))
+		// Reuse the values from an earlier scan (usually the one made by
+		// readFileInfo) if they are still available.
+		Ingestion ingestion = getCachedIngestion(file);
+		double[][] values = ingestion != null ? ingestion.getValues(file, columns) : null;
+		if (values == null)
 		{
-			return readFileInfo(file, in);
+			try
+			{
+				ingestion = ingest(file, columns);
+			}
+			catch (InvalidFileFormatException e)
+			{
+				throw new IOException(e);
+			}
+			values = ingestion.getValues(file, columns);
 		}
+
+		return ingestion.createTuples(file, columns, values);
 	}
 
-	protected DataFileInfo readFileInfoUncompressed(File file) throws IOException, InvalidFileFormatException
+	/**
+	 * Return the result of an earlier scan of the specified file, or null if there
+	 * was none or if the file has changed since.
+	 */
+	private Ingestion getCachedIngestion(File file)
 	{
-		try (BufferedReader in = new BufferedReader(new FileReader(file)))
+		Ingestion ingestion = ingestionCache.getIfPresent(file.getAbsoluteFile());
+		if (ingestion != null && (ingestion.fileLength != file.length() || ingestion.fileTime != file.lastModified()))
 		{
-			return readFileInfo(file, in);
+			ingestionCache.invalidate(file.getAbsoluteFile());
+			ingestion = null;
 		}
+
+		return ingestion;
 	}
 
-	protected DataFileInfo readFileInfo(File file, BufferedReader in) throws IOException, InvalidFileFormatException
+	/**
+	 * Read the whole file once, collecting the table metadata and the values of the
+	 * specified columns, and cache the result.
+	 * <p>
+	 * If columns is null, this is a metadata scan as done by readFileInfo: the
+	 * values of all columns are kept if they are all numeric (so a later call to
+	 * readTuples need not read the file again), and non-numeric values are
+	 * allowed. Otherwise, every value in the specified columns must be numeric,
+	 * apart from those in the title and units lines.
+	 * <p>
+	 * Title and units lines are sniffed from the start of the file. For the file
+	 * info, the first line is the title line if any of its fields is not a number,
+	 * and the second line is the units line if the first was a title line and any
+	 * of the second line's fields is not a number. For the tuples, only the
+	 * requested columns decide, so a text column elsewhere in the file does not
+	 * turn the first row of data into a units line. The first two lines are
+	 * therefore parsed in full and kept apart from the values of the other lines,
+	 * of which only the requested columns are parsed.
+	 */
+	private Ingestion ingest(File file, int[] columns) throws FieldNotFoundException, InvalidFileFormatException, IOException
 	{
-		// Iterate over the whole file to validate and extract available metadata.
-		int numberColumns = 0;
-		int numberRows = 0;
-		String line;
-		ImmutableList<String> columnNames = null;
-		ImmutableList<String> columnUnits = null;
-		while ((line = in.readLine()) != null)
+		boolean strict = columns != null;
+		long fileLength = file.length();
+		long fileTime = file.lastModified();
+
+		try (BufferedReader in = openReader(file))
 		{
-			ImmutableList<String> row = parseCSV(line);
-			numberColumns = getRowSize(row, numberColumns);
-			try
+			FieldScanner scanner = new FieldScanner();
+
+			String line = in.readLine();
+			if (line == null)
 			{
-				getRowAsDoubles(row);
-				++numberRows;
+				if (strict)
+				{
+					throw new FieldNotFoundException("CSV file has no content: " + file);
+				}
+
+				Ingestion ingestion = new Ingestion(file, fileLength, fileTime, 0, ImmutableList.of(), null, null, 0, null, null, null);
+				ingestionCache.put(file.getAbsoluteFile(), ingestion);
+				return ingestion;
 			}
-			catch (@SuppressWarnings("unused") NumberFormatException e)
+
+			// The first line: either titles or data, so parse every field.
+			scanner.scan(line);
+			final int numberColumnsInTable = scanner.size();
+			ImmutableList<String> firstRow = scanner.getStrings();
+			Row firstRowValues = new Row(scanner);
+			boolean firstRowAllNumeric = firstRowValues.isAllNumeric();
+
+			if (strict)
 			{
-				if (columnNames == null)
+				for (int columnNumber : columns)
 				{
-					columnNames = row;
+					if (numberColumnsInTable <= columnNumber)
+					{
+						throw new FieldNotFoundException("Cannot get column #" + columnNumber + "; CSV file has only " + numberColumnsInTable + " columns in file " + file);
+					}
 				}
-				else if (columnUnits == null)
+			}
+			else
+			{
+				columns = new int[numberColumnsInTable];
+				for (int column = 0; column < numberColumnsInTable; ++column)
 				{
-					columnUnits = row;
+					columns[column] = column;
 				}
-				else
+			}
+
+			ImmutableList<String> columnNames = firstRowAllNumeric ? null : firstRow;
+			ImmutableList<String> columnUnits = null;
+			int numberRows = firstRowAllNumeric ? 1 : 0;
+
+			// Values of the requested columns in the lines after the second.
+			Row secondRowValues = null;
+			double[][] values = new double[columns.length][1024];
+			int numberValues = 0;
+
+			int lineNumber = 1;
+			while ((line = in.readLine()) != null)
+			{
+				scanner.scan(line);
+				if (scanner.size() != numberColumnsInTable)
 				{
-					++numberRows;
+					if (strict)
+					{
+						throw new IOException("Line in CSV file: " + line + " does not have " + numberColumnsInTable + " values in file " + file);
+					}
+					throw new InvalidFileFormatException("Inconsistent number of columns in row of CSV file");
 				}
-			}
-		}
 
-		// Create column information.
-		ImmutableList.Builder<ColumnInfo> builder = ImmutableList.builder();
+				if (lineNumber++ == 1)
+				{
+					// The second line: units or data depending on the columns requested, so
+					// parse every field.
+					secondRowValues = new Row(scanner);
+					if (columnNames != null && !secondRowValues.isAllNumeric())
+					{
+						columnUnits = scanner.getStrings();
+					}
+					else
+					{
+						++numberRows;
+					}
+					continue;
+				}
 
-		for (int index = 0; index < numberColumns; ++index)
-		{
-			String name = columnNames != null ? columnNames.get(index) : "";
-			String units = columnUnits != null ? columnUnits.get(index) : "";
-			builder.add(ColumnInfo.of(name, units));
-		}
-		ImmutableList<ColumnInfo> columnInfo = builder.build();
+				++numberRows;
+				if (values == null)
+				{
+					continue;
+				}
 
-		return DataFileInfo.of(file, CSV_FORMAT, ImmutableList.of(TableInfo.of(file.getName(), BLANK_DESCRIPTION, numberRows, columnInfo)));
-	}
+				if (numberValues == values[0].length)
+				{
+					for (int index = 0; index < values.length; ++index)
+					{
+						values[index] = Arrays.copyOf(values[index], 2 * numberValues);
+					}
+				}
 
-	protected IndexableTuple readTuplesGzipped(File file, int numberColumns, Iterable<Integer> columnNumbers) throws FieldNotFoundException, IOException
-	{
-		try (BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)))))
-		{
-			return readTuples(file, in, numberColumns, columnNumbers);
+				try
+				{
+					for (int index = 0; index < columns.length; ++index)
+					{
+						values[index][numberValues] = scanner.getDouble(columns[index]);
+					}
+					++numberValues;
+				}
+				catch (NumberFormatException e)
+				{
+					if (strict)
+					{
+						throw new IOException(e);
+					}
+
+					// Not a numeric table; keep scanning for the metadata only.
+					values = null;
+				}
+			}
+
+			if (values != null)
+			{
+				for (int index = 0; index < values.length; ++index)
+				{
+					values[index] = Arrays.copyOf(values[index], numberValues);
+				}
+			}
+
+			Ingestion ingestion = new Ingestion(file, fileLength, fileTime, numberRows, firstRow, columnNames, columnUnits, numberColumnsInTable, firstRowValues, secondRowValues, values != null ? new KeptValues(columns, values) : null);
+			ingestionCache.put(file.getAbsoluteFile(), ingestion);
+
+			return ingestion;
 		}
 	}
 
-	protected IndexableTuple readTuplesUncompressed(File file, int numberColumns, Iterable<Integer> columnNumbers) throws FieldNotFoundException, IOException
+	private BufferedReader openReader(File file) throws IOException
 	{
-		try (BufferedReader in = new BufferedReader(new FileReader(file)))
-		{
-			return readTuples(file, in, numberColumns, columnNumbers);
-		}
+		return isFileGzipped(file) ? new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)))) : new BufferedReader(new FileReader(file));
 	}
 
-	protected IndexableTuple readTuples(File file, BufferedReader in, int numberFields, Iterable<Integer> columnNumbers) throws FieldNotFoundException, IOException
+	/**
+	 * Values of all fields of one of the first two lines, which may be titles,
+	 * units or data depending on which columns are requested.
+	 */
+	private static final class Row
 	{
-		ImmutableList.Builder<ImmutableList<Double>> builder = ImmutableList.builder();
+		private final double[] values;
+		private final boolean[] numeric;
 
-		// Parse the first line, which is interpreted as the column titles.
-		String line = in.readLine();
-		if (line == null)
+		Row(FieldScanner scanner)
 		{
-			throw new FieldNotFoundException("CSV file has no content: " + file);
+			this.values = new double[scanner.size()];
+			this.numeric = new boolean[scanner.size()];
+			for (int column = 0; column < values.length; ++column)
+			{
+				try
+				{
+					values[column] = scanner.getDouble(column);
+					numeric[column] = true;
+				}
+				catch (@SuppressWarnings("unused") NumberFormatException e)
+				{
+					// Not a number.
+				}
+			}
 		}
 
-		ImmutableList<String> values = parseCSV(line);
-		final int numberColumnsInTable = values.size();
-		for (Integer columnNumber : columnNumbers)
+		boolean isAllNumeric()
 		{
-			if (Integer.compare(numberColumnsInTable, columnNumber) <= 0)
+			for (boolean isNumeric : numeric)
 			{
-				throw new FieldNotFoundException("Cannot get column #" + columnNumber + "; CSV file has only " + numberColumnsInTable + " columns in file " + file);
+				if (!isNumeric)
+				{
+					return false;
+				}
 			}
+			return true;
 		}
 
-		final ImmutableList<String> names = getRowSliceAsStrings(values, columnNumbers);
-
-		try
+		boolean isNumeric(int[] columns)
 		{
-			// Also try to interpret the first row as numbers, since files
-			// may actually not have titles.
-			builder.add(getRowSliceAsDoubles(values, columnNumbers));
-		}
-		catch (@SuppressWarnings("unused") NumberFormatException e)
-		{
-			// Must be just column titles -- just skip this one.
+			for (int columnNumber : columns)
+			{
+				if (!numeric[columnNumber])
+				{
+					return false;
+				}
+			}
+			return true;
 		}
 
-		while ((line = in.readLine()) != null)
+		double[] getValues(int[] columns)
 		{
-			values = parseCSV(line);
-			if (values.size() != numberColumnsInTable)
-			{
-				throw new IOException("Line in CSV file: " + line + " does not have " + numberColumnsInTable + " values in file " + file);
-			}
-			try
+			double[] result = new double[columns.length];
+			for (int index = 0; index < columns.length; ++index)
 			{
-				builder.add(getRowSliceAsDoubles(values, columnNumbers));
-			}
-			catch (NumberFormatException e)
-			{
-				throw new IOException(e);
+				result[index] = values[columns[index]];
 			}
+			return result;
 		}
+	}
 
-		final ImmutableList<ImmutableList<Double>> valuesList = builder.build();
-		final int numberRecords = valuesList.size();
+	/**
+	 * Values of some columns of a table, held only softly by the cache.
+	 */
+	private static final class KeptValues
+	{
+		private final int[] columns;
+		private final double[][] values;
 
-		return new IndexableTuple() {
+		KeptValues(int[] columns, double[][] values)
+		{
+			this.columns = columns;
+			this.values = values;
+		}
+	}
 
-			@Override
-			public int getNumberFields()
+	/**
+	 * Result of one scan of a file: the file info plus whatever column values were
+	 * read. The first two lines are held separately because whether they are data
+	 * depends on which columns are requested.
+	 */
+	private static final class Ingestion
+	{
+		private final long fileLength;
+		private final long fileTime;
+		private final DataFileInfo fileInfo;
+		private final ImmutableList<String> firstRow;
+		private final Row firstRowValues;
+		private final Row secondRowValues;
+		private final SoftReference<KeptValues> keptValues;
+
+		Ingestion(File file, long fileLength, long fileTime, int numberRows, ImmutableList<String> firstRow, ImmutableList<String> columnNames, ImmutableList<String> columnUnits, int numberColumns, Row firstRowValues, Row secondRowValues, KeptValues keptValues)
+		{
+			// Create column information.
+			ImmutableList.Builder<ColumnInfo> builder = ImmutableList.builder();
+
+			for (int index = 0; index < numberColumns; ++index)
 			{
-				return numberFields;
+				String name = columnNames != null ? columnNames.get(index) : "";
+				String units = columnUnits != null ? columnUnits.get(index) : "";
+				builder.add(ColumnInfo.of(name, units));
 			}
+			ImmutableList<ColumnInfo> columnInfo = builder.build();
+
+			this.fileLength = fileLength;
+			this.fileTime = fileTime;
+			this.fileInfo = DataFileInfo.of(file, CSV_FORMAT, ImmutableList.of(TableInfo.of(file.getName(), BLANK_DESCRIPTION, numberRows, columnInfo)));
+			this.firstRow = firstRow;
+			this.firstRowValues = firstRowValues;
+			this.secondRowValues = secondRowValues;
+			this.keptValues = new SoftReference<>(keptValues);
+		}
 
-			@Override
-			public String getName(int fieldIndex)
+		/**
+		 * Return the values (excluding the first two lines) of the specified columns, or
+		 * null if they were not kept or have since been garbage collected.
+		 */
+		double[][] getValues(File file, int[] columns) throws FieldNotFoundException
+		{
+			if (firstRow.isEmpty())
 			{
-				return names.get(fieldIndex);
+				throw new FieldNotFoundException("CSV file has no content: " + file);
 			}
 
-			@Override
-			public String getUnits(@SuppressWarnings("unused") int fieldIndex)
+			for (int columnNumber : columns)
 			{
-				return "";
+				if (firstRow.size() <= columnNumber)
+				{
+					throw new FieldNotFoundException("Cannot get column #" + columnNumber + "; CSV file has only " + firstRow.size() + " columns in file " + file);
+				}
 			}
 
-			@Override
-			public int size()
+			KeptValues kept = keptValues.get();
+			if (kept == null)
 			{
-				return numberRecords;
+				return null;
 			}
 
-			@Override
-			public Tuple get(int tupleIndex)
+			double[][] result = new double[columns.length][];
+			for (int index = 0; index < columns.length; ++index)
 			{
-				return new Tuple() {
-
-					@Override
-					public int size()
-					{
-						return numberFields;
-					}
-					
-					@Override
-					public double[] get()
+				for (int keptIndex = 0; keptIndex < kept.columns.length; ++keptIndex)
+				{
+					if (kept.columns[keptIndex] == columns[index])
 					{
-					    return Doubles.toArray(valuesList.get(tupleIndex));
+						result[index] = kept.values[keptIndex];
+						break;
 					}
+				}
+				if (result[index] == null)
+				{
+					return null;
+				}
+			}
+
+			return result;
+		}
 
-					@Override
-					public double get(int fieldIndex)
+		/**
+		 * Create the tuples for the specified columns. The first line supplies the
+		 * names, and the first two lines supply the first tuples if the requested
+		 * fields are numbers.
+		 */
+		IndexableTuple createTuples(File file, int[] columns, double[][] values) throws IOException
+		{
+			ImmutableList.Builder<String> names = ImmutableList.builder();
+			for (int columnNumber : columns)
+			{
+				names.add(firstRow.get(columnNumber));
+			}
+			List<double[]> leadingTuples = getLeadingTuples(file, columns);
+
+			double[][] fieldValues = values;
+			if (!leadingTuples.isEmpty())
+			{
+				int numberLeading = leadingTuples.size();
+				fieldValues = new double[columns.length][];
+				for (int index = 0; index < columns.length; ++index)
+				{
+					fieldValues[index] = new double[values[index].length + numberLeading];
+					for (int row = 0; row < numberLeading; ++row)
 					{
-						return valuesList.get(tupleIndex).get(fieldIndex);
+						fieldValues[index][row] = leadingTuples.get(row)[index];
 					}
-				};
+					System.arraycopy(values[index], 0, fieldValues[index], numberLeading, values[index].length);
+				}
 			}
 
-		};
+			return ColumnarIndexableTuple.ofColumns(ColumnarIndexableTuple.indexableOf(names.build()), ColumnarIndexableTuple.indexableOf(Collections.nCopies(columns.length, "")), fieldValues);
+		}
 
+		/**
+		 * Return the tuples of the specified columns from the first two lines. The
+		 * first line is a title line unless all requested fields are numbers. After a
+		 * title line, the second line is a units line unless all requested fields are
+		 * numbers; otherwise it must be data.
+		 */
+		private List<double[]> getLeadingTuples(File file, int[] columns) throws IOException
+		{
+			List<double[]> result = new ArrayList<>(2);
+			boolean firstRowIsData = firstRowValues.isNumeric(columns);
+			if (firstRowIsData)
+			{
+				result.add(firstRowValues.getValues(columns));
+			}
+
+			if (secondRowValues != null)
+			{
+				if (secondRowValues.isNumeric(columns))
+				{
+					result.add(secondRowValues.getValues(columns));
+				}
+				else if (firstRowIsData)
+				{
+					throw new IOException(SECOND_LINE_NOT_NUMERIC + file);
+				}
+			}
+
+			return result;
+		}
 	}
 
-	private int getRowSize(ImmutableList<?> row, int rowSize) throws InvalidFileFormatException
+	/**
+	 * Splits a line into fields, recording only where each field starts and ends,
+	 * so that only the fields actually needed are turned into strings or numbers.
+	 * A field that starts with a double quote extends to the next double quote and
+	 * may contain commas; anything between the closing quote and the next comma is
+	 * ignored.
+	 */
+	private static final class FieldScanner
 	{
-		if (rowSize == 0)
-		{
-			rowSize = row.size();
-		}
-		else
+		private String line;
+		private int[] bounds = new int[64];
+		private int size;
+
+		void scan(String line)
 		{
-			if (row.size() != rowSize)
+			this.line = line;
+			this.size = 0;
+
+			int length = line.length();
+			int position = 0;
+			while (true)
 			{
-				throw new InvalidFileFormatException("Inconsistent number of columns in row of CSV file");
+				if (position < length && line.charAt(position) == '"')
+				{
+					int close = line.indexOf('"', position + 1);
+					if (close >= 0)
+					{
+						add(position + 1, close);
+						int comma = line.indexOf(',', close + 1);
+						if (comma < 0)
+						{
+							break;
+						}
+						position = comma + 1;
+						continue;
+					}
+				}
+
+				int comma = line.indexOf(',', position);
+				if (comma < 0)
+				{
+					add(position, length);
+					break;
+				}
+				add(position, comma);
+				position = comma + 1;
 			}
 		}
-		return rowSize;
-	}
 
-	private ImmutableList<Double> getRowAsDoubles(ImmutableList<String> line) throws NumberFormatException
-	{
-		ImmutableList.Builder<Double> builder = ImmutableList.builder();
-		for (String field : line)
+		int size()
 		{
-			builder.add(Double.parseDouble(field));
+			return size;
 		}
-		return builder.build();
-	}
 
-	private ImmutableList<String> getRowSliceAsStrings(ImmutableList<String> line, Iterable<Integer> columnNumbers)
-	{
-		ImmutableList.Builder<String> builder = ImmutableList.builder();
-		for (Integer column : columnNumbers)
+		String getString(int field)
 		{
-			builder.add(line.get(column));
+			return line.substring(bounds[2 * field], bounds[2 * field + 1]);
 		}
-		return builder.build();
-	}
 
-	private ImmutableList<Double> getRowSliceAsDoubles(ImmutableList<String> line, Iterable<Integer> columnNumbers) throws NumberFormatException
-	{
-		ImmutableList.Builder<Double> builder = ImmutableList.builder();
-		for (Integer column : columnNumbers)
+		double getDouble(int field) throws NumberFormatException
 		{
-			builder.add(Double.parseDouble(line.get(column)));
+			return Double.parseDouble(getString(field));
 		}
-		return builder.build();
-	}
 
-	private static ImmutableList<String> parseCSV(String line)
-	{
-		Matcher matcher = CSV_PATTERN.matcher(line);
-		ImmutableList.Builder<String> builder = ImmutableList.builder();
-		while (matcher.find())
+		ImmutableList<String> getStrings()
 		{
-			String match = matcher.group(1);
-			if (match != null)
+			ImmutableList.Builder<String> builder = ImmutableList.builder();
+			for (int field = 0; field < size; ++field)
 			{
-				builder.add(match);
+				builder.add(getString(field));
 			}
-			else
+			return builder.build();
+		}
+
+		boolean isNumeric(int[] fields)
+		{
+			try
 			{
-				builder.add(matcher.group(2));
+				for (int field : fields)
+				{
+					getDouble(field);
+				}
+				return true;
+			}
+			catch (@SuppressWarnings("unused") NumberFormatException e)
+			{
+				return false;
 			}
 		}
 
-		return builder.build();
+		private void add(int start, int end)
+		{
+			if (2 * size + 2 > bounds.length)
+			{
+				bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+			}
+			bounds[2 * size] = start;
+			bounds[2 * size + 1] = end;
+			++size;
+		}
 	}
 
 }
@@ -3,7 +3,10 @@ package edu.jhuapl.saavtk.util.file;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import com.google.common.base.Preconditions;
@@ -146,6 +149,78 @@ public final class FitsFileReader extends DataFileReader
 		}
 	}
 
+	/**
+	 * Read the values of a set of columns in one row of a table from a FITS file.
+	 * For an uncompressed file only the headers and the requested row are read;
+	 * the table is not loaded into memory.
+	 * 
+	 * @param file the file containing the table
+	 * @param tableHduNumber the HDU number of the table extension
+	 * @param columnNumbers the column numbers to read
+	 * @param rowIndex the index of the row to read
+	 * @return the values of the requested columns in the row
+	 * @throws IncorrectFileFormatException if the file appears not to be a FITS
+	 *             file
+	 * @throws IOException if any other error occurs in reading the row
+	 */
+	public double[] readTuple(File file, int tableHduNumber, Iterable<Integer> columnNumbers, int rowIndex) throws IncorrectFileFormatException, FieldNotFoundException, IOException
+	{
+		Preconditions.checkNotNull(file);
+		Preconditions.checkArgument(file.exists());
+		Preconditions.checkArgument(tableHduNumber >= 0);
+		Preconditions.checkArgument(rowIndex >= 0);
+		int numberColumns = checkColumnNumbers(columnNumbers);
+
+		try (Fits fits = new Fits(file))
+		{
+			BasicHDU<?> hdu = fits.getHDU(tableHduNumber);
+			if (hdu == null)
+			{
+				throw new IOException("Cannot get table #" + tableHduNumber + " from FITS file " + file);
+			}
+			if (!(hdu instanceof TableHDU))
+			{
+				throw new IOException("HDU #" + tableHduNumber + " is not a table in FITS file " + file);
+			}
+
+			TableHDU<?> table = (TableHDU<?>) hdu;
+			int numberColumnsInTable = table.getNCols();
+			if (rowIndex >= table.getNRows())
+			{
+				throw new IOException("Cannot get row #" + rowIndex + " from FITS table/HDU #" + tableHduNumber + ", which has only " + table.getNRows() + " rows");
+			}
+
+			try
+			{
+				// For a table whose data have not been read, this reads just the one row.
+				Object[] row = table.getRow(rowIndex);
+
+				double[] result = new double[numberColumns];
+				int fieldIndex = 0;
+				for (Integer columnNumber : columnNumbers)
+				{
+					if (Integer.compare(numberColumnsInTable, columnNumber) <= 0)
+					{
+						throw new FieldNotFoundException("Cannot get column #" + columnNumber + " from FITS table/HDU #" + tableHduNumber + ", which has only " + numberColumnsInTable + " columns");
+					}
+
+					// Each element of the row is an array, with one element for a scalar column.
+					result[fieldIndex++] = Array.getDouble(row[columnNumber], 0);
+				}
+
+				return result;
+			}
+			catch (FitsException | IllegalArgumentException e)
+			{
+				throw new IOException("Exception loading row " + rowIndex + " from file " + file, e);
+			}
+		}
+		catch (FitsException e)
+		{
+			throw new IncorrectFileFormatException(e);
+		}
+	}
+
 	private DataFileInfo readFileInfoGzipped(File file) throws IncorrectFileFormatException, IOException
 	{
 		try (Fits fits = new Fits(new GZIPInputStream(new FileInputStream(file))))
@@ -184,20 +259,17 @@ public final class FitsFileReader extends DataFileReader
 		return DataFileInfo.of(file, FITS_FORMAT, builder.build());
 	}
 
-	private interface GettableAsDouble
-	{
-		double get(int fieldIndex);
-	}
-
 	private IndexableTuple readTuples(TableHDU<?> table, int tableHduNumber, Iterable<Integer> columnNumbers) throws FitsException, FieldNotFoundException, IOException
 	{
 		// Read file info first so we process the table in the natural FITS order: header then data.
 		TableInfo dataObjectInfo = (TableInfo) readInfo(table, tableHduNumber);
 
-		final int numberRecords = table.getNRows();
 		final int numberColumnsInTable = table.getNCols();
 
-		ImmutableList.Builder<GettableAsDouble> columnBuilder = ImmutableList.builder();
+		// Columns are used as-is when they are all double or all float; otherwise
+		// they are widened to double.
+		List<Object> columns = new ArrayList<>();
+		boolean allFloat = true;
 		for (Integer columnNumber : columnNumbers)
 		{
 			if (Integer.compare(numberColumnsInTable, columnNumber) <= 0)
@@ -206,85 +278,62 @@ public final class FitsFileReader extends DataFileReader
 			}
 
 			Object column = table.getColumn(columnNumber);
-			if (column instanceof double[])
-			{
-				columnBuilder.add((fieldIndex) -> {
-					return ((double[]) column)[fieldIndex];
-				});
-			}
-			else if (column instanceof float[])
-			{
-				columnBuilder.add((fieldIndex) -> {
-					return ((float[]) column)[fieldIndex];
-				});
-			}
-			else if (column instanceof int[])
-			{
-				columnBuilder.add((fieldIndex) -> {
-					return ((int[]) column)[fieldIndex];
-				});
-			}
-			else if (column instanceof long[])
-			{
-				columnBuilder.add((fieldIndex) -> {
-					return ((long[]) column)[fieldIndex];
-				});
-			}
-			else
+			if (!(column instanceof double[] || column instanceof float[] || column instanceof int[] || column instanceof long[]))
 			{
 				throw new IOException("Column #" + columnNumber + " from FITS table/HDU #" + tableHduNumber + " is not a supported numeric array type");
 			}
+			allFloat &= column instanceof float[];
+			columns.add(column);
 		}
-		final ImmutableList<GettableAsDouble> columns = columnBuilder.build();
 
 		final int numberFields = columns.size();
 
-		return new IndexableTuple() {
-
-			@Override
-			public int getNumberFields()
-			{
-				return numberFields;
-			}
+		ImmutableList.Builder<String> namesBuilder = ImmutableList.builder();
+		ImmutableList.Builder<String> unitsBuilder = ImmutableList.builder();
+		for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+		{
+			namesBuilder.add(dataObjectInfo.getColumnInfo(fieldIndex).getName());
+			unitsBuilder.add(dataObjectInfo.getColumnInfo(fieldIndex).getUnits());
+		}
+		Indexable<String> names = ColumnarIndexableTuple.indexableOf(namesBuilder.build());
+		Indexable<String> units = ColumnarIndexableTuple.indexableOf(unitsBuilder.build());
 
-			@Override
-			public String getName(int fieldIndex)
-			{
-				return dataObjectInfo.getColumnInfo(fieldIndex).getName();
-			}
+		if (allFloat && numberFields > 0)
+		{
+			return ColumnarIndexableTuple.ofFloatColumns(names, units, columns.toArray(new float[0][]));
+		}
 
-			@Override
-			public String getUnits(int fieldIndex)
-			{
-				return dataObjectInfo.getColumnInfo(fieldIndex).getUnits();
-			}
+		double[][] doubleColumns = new double[numberFields][];
+		for (int fieldIndex = 0; fieldIndex < numberFields; ++fieldIndex)
+		{
+			doubleColumns[fieldIndex] = toDoubleArray(columns.get(fieldIndex));
+		}
 
-			@Override
-			public int size()
-			{
-				return numberRecords;
-			}
+		return ColumnarIndexableTuple.ofColumns(names, units, doubleColumns);
+	}
 
-			@Override
-			public Tuple get(int tupleIndex)
+	private static double[] toDoubleArray(Object column)
+	{
+		if (column instanceof double[])
+		{
+			return (double[]) column;
+		}
+		else if (column instanceof float[])
+		{
+			float[] floatColumn = (float[]) column;
+			double[] result = new double[floatColumn.length];
+			for (int index = 0; index < floatColumn.length; ++index)
 			{
-				return new Tuple() {
-
-					@Override
-					public int size()
-					{
-						return numberFields;
-					}
-
-					@Override
-					public double get(int fieldIndex)
-					{
-						return columns.get(fieldIndex).get(tupleIndex);
-					}
-				};
+				result[index] = floatColumn[index];
 			}
+			return result;
+		}
+		else if (column instanceof int[])
+		{
+			return Arrays.stream((int[]) column).asDoubleStream().toArray();
+		}
 
-		};
+		return Arrays.stream((long[]) column).asDoubleStream().toArray();
 	}
 
 	private DataObjectInfo readInfo(BasicHDU<?> hdu, int hduNumber) throws IOException
@@ -35,7 +35,16 @@ public class IndexableTupleFactory
 
         return new IndexableTupleFactory(numberTuples, numberFields, (tupleIndex, fieldIndex) -> {
             return rowOfColumns[fieldIndex][tupleIndex];
-        });
+        }) {
+            @Override
+            public IndexableTuple create(Indexable<String> names, Indexable<String> units)
+            {
+                check(names, units);
+
+                // The columns are already primitive arrays, so use them directly.
+                return ColumnarIndexableTuple.ofColumns(names, units, rowOfColumns);
+            }
+        };
     }
 
     /**
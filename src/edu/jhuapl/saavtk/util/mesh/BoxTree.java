@@ -0,0 +1,437 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Dynamic bounding volume hierarchy over the axis aligned bounding boxes of a
+ * changing set of items, such as the structures drawn on a shape model.
+ * <p>
+ * Unlike {@link TriangleBvh}, which is built once over a fixed set of cells,
+ * the tree is updated one item at a time: an item is inserted next to the
+ * subtree whose box grows the least, removed by promoting its sibling, and the
+ * tree is kept balanced by rotations on the way back to the root. Each leaf
+ * holds a slightly enlarged box so that small edits of an item do not change
+ * the tree at all.
+ * <p>
+ * Boxes are specified as VTK bounds: (xmin, xmax, ymin, ymax, zmin, zmax).
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @param <T> the type of the items
+ */
+public class BoxTree<T>
+{
+	// Fraction of the largest extent of a box that its leaf is enlarged by, on each side.
+	private static final double Margin = 0.05;
+
+	private final Map<T, Node<T>> leafMap;
+	private Node<T> root;
+
+	/**
+	 * Create an empty tree.
+	 */
+	public BoxTree()
+	{
+		this.leafMap = new HashMap<>();
+		this.root = null;
+	}
+
+	/**
+	 * Return the number of items in the tree.
+	 */
+	public int size()
+	{
+		return leafMap.size();
+	}
+
+	/**
+	 * Return whether the specified item is in the tree.
+	 */
+	public boolean contains(T item)
+	{
+		return leafMap.containsKey(item);
+	}
+
+	/**
+	 * Insert an item, or update the box of an item already in the tree. The array
+	 * is not retained.
+	 *
+	 * @param item   the item
+	 * @param bounds the bounds of the item. If empty (a minimum exceeds the
+	 *               maximum) the item is removed.
+	 */
+	public void put(T item, double[] bounds)
+	{
+		Preconditions.checkNotNull(item);
+		Preconditions.checkArgument(bounds.length == 6, "Bounds must have 6 values");
+
+		if (isEmpty(bounds))
+		{
+			remove(item);
+			return;
+		}
+
+		Node<T> leaf = leafMap.get(item);
+		if (leaf != null)
+		{
+			// Nothing else to do while the item stays within its enlarged box.
+			if (contains(leaf.box, bounds))
+			{
+				System.arraycopy(bounds, 0, leaf.tight, 0, 6);
+				return;
+			}
+
+			removeLeaf(leaf);
+		}
+		else
+		{
+			leaf = new Node<>(item);
+			leafMap.put(item, leaf);
+		}
+
+		System.arraycopy(bounds, 0, leaf.tight, 0, 6);
+		double margin = Margin * Math.max(bounds[1] - bounds[0], Math.max(bounds[3] - bounds[2], bounds[5] - bounds[4]));
+		for (int k = 0; k < 3; ++k)
+		{
+			leaf.box[2 * k] = bounds[2 * k] - margin;
+			leaf.box[2 * k + 1] = bounds[2 * k + 1] + margin;
+		}
+		insertLeaf(leaf);
+	}
+
+	/**
+	 * Remove an item.
+	 *
+	 * @return whether the item was in the tree
+	 */
+	public boolean remove(T item)
+	{
+		Node<T> leaf = leafMap.remove(item);
+		if (leaf == null)
+			return false;
+
+		removeLeaf(leaf);
+		return true;
+	}
+
+	/**
+	 * Remove all the items.
+	 */
+	public void clear()
+	{
+		leafMap.clear();
+		root = null;
+	}
+
+	/**
+	 * Return the items whose boxes overlap (or touch) the specified box.
+	 *
+	 * @param bounds the box
+	 * @return the items, in no particular order
+	 */
+	public List<T> findOverlapping(double[] bounds)
+	{
+		List<T> result = new ArrayList<>();
+		findOverlapping(bounds, result);
+
+		return result;
+	}
+
+	/**
+	 * Add the items whose boxes overlap (or touch) the specified box to a
+	 * collection.
+	 */
+	public void findOverlapping(double[] bounds, Collection<? super T> result)
+	{
+		Preconditions.checkArgument(bounds.length == 6, "Bounds must have 6 values");
+		if (root == null || isEmpty(bounds))
+			return;
+
+		Deque<Node<T>> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (stack.isEmpty() == false)
+		{
+			Node<T> node = stack.pop();
+			if (overlaps(node.box, bounds) == false)
+				continue;
+
+			if (node.isLeaf())
+			{
+				if (overlaps(node.tight, bounds))
+					result.add(node.item);
+			}
+			else
+			{
+				stack.push(node.left);
+				stack.push(node.right);
+			}
+		}
+	}
+
+	/**
+	 * Return the height of the tree: 0 if it holds at most one item.
+	 */
+	public int getHeight()
+	{
+		return root != null ? root.height : 0;
+	}
+
+	private void insertLeaf(Node<T> leaf)
+	{
+		if (root == null)
+		{
+			root = leaf;
+			leaf.parent = null;
+			return;
+		}
+
+		// Descend towards the sibling that gives the smallest total area.
+		double[] box = leaf.box;
+		double[] combined = new double[6];
+		Node<T> sibling = root;
+		while (sibling.isLeaf() == false)
+		{
+			union(sibling.box, box, combined);
+			double area = area(sibling.box);
+			double combinedArea = area(combined);
+
+			// Cost of making a new parent of this node and the leaf, and the cost that
+			// pushing the leaf further down adds to this node.
+			double cost = 2. * combinedArea;
+			double inheritanceCost = 2. * (combinedArea - area);
+
+			double costLeft = descendCost(sibling.left, box, combined) + inheritanceCost;
+			double costRight = descendCost(sibling.right, box, combined) + inheritanceCost;
+			if (cost < costLeft && cost < costRight)
+				break;
+
+			sibling = costLeft < costRight ? sibling.left : sibling.right;
+		}
+
+		Node<T> oldParent = sibling.parent;
+		Node<T> newParent = new Node<>(null);
+		newParent.parent = oldParent;
+		union(sibling.box, box, newParent.box);
+		newParent.height = sibling.height + 1;
+		if (oldParent == null)
+			root = newParent;
+		else if (oldParent.left == sibling)
+			oldParent.left = newParent;
+		else
+			oldParent.right = newParent;
+
+		newParent.left = sibling;
+		newParent.right = leaf;
+		sibling.parent = newParent;
+		leaf.parent = newParent;
+
+		refit(newParent);
+	}
+
+	private void removeLeaf(Node<T> leaf)
+	{
+		if (leaf == root)
+		{
+			root = null;
+			return;
+		}
+
+		Node<T> parent = leaf.parent;
+		Node<T> grandParent = parent.parent;
+		Node<T> sibling = parent.left == leaf ? parent.right : parent.left;
+		leaf.parent = null;
+
+		sibling.parent = grandParent;
+		if (grandParent == null)
+		{
+			root = sibling;
+			return;
+		}
+
+		if (grandParent.left == parent)
+			grandParent.left = sibling;
+		else
+			grandParent.right = sibling;
+		refit(grandParent);
+	}
+
+	/**
+	 * Rebalance and update the boxes and heights of a node and all its ancestors.
+	 */
+	private void refit(Node<T> node)
+	{
+		while (node != null)
+		{
+			node = balance(node);
+
+			node.height = 1 + Math.max(node.left.height, node.right.height);
+			union(node.left.box, node.right.box, node.box);
+
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * Rotate the taller child of a node up if the heights of its children differ
+	 * by more than one.
+	 *
+	 * @return the node now at the position of the specified node
+	 */
+	private Node<T> balance(Node<T> a)
+	{
+		if (a.isLeaf() || a.height < 2)
+			return a;
+
+		Node<T> b = a.left;
+		Node<T> c = a.right;
+		int balance = c.height - b.height;
+		if (balance > 1)
+		{
+			rotateUp(a, c, b);
+			return c;
+		}
+		if (balance < -1)
+		{
+			rotateUp(a, b, c);
+			return b;
+		}
+
+		return a;
+	}
+
+	/**
+	 * Make the child c of a the parent of a. The taller child of c replaces c
+	 * under a, and the other one stays under c.
+	 */
+	private void rotateUp(Node<T> a, Node<T> c, Node<T> b)
+	{
+		boolean cIsRight = a.right == c;
+		Node<T> f = c.left;
+		Node<T> g = c.right;
+
+		c.parent = a.parent;
+		if (c.parent == null)
+			root = c;
+		else if (c.parent.left == a)
+			c.parent.left = c;
+		else
+			c.parent.right = c;
+		a.parent = c;
+
+		// The taller grandchild stays under c and the other one moves to a.
+		Node<T> keep = f.height > g.height ? f : g;
+		Node<T> move = keep == f ? g : f;
+		if (cIsRight)
+		{
+			c.left = a;
+			c.right = keep;
+			a.right = move;
+		}
+		else
+		{
+			c.left = keep;
+			c.right = a;
+			a.left = move;
+		}
+		move.parent = a;
+
+		union(b.box, move.box, a.box);
+		a.height = 1 + Math.max(b.height, move.height);
+		union(a.box, keep.box, c.box);
+		c.height = 1 + Math.max(a.height, keep.height);
+	}
+
+	/**
+	 * Return the cost of descending into a child of the sibling being searched
+	 * for, excluding the inherited cost. combined is scratch space.
+	 */
+	private static double descendCost(Node<?> child, double[] box, double[] combined)
+	{
+		union(child.box, box, combined);
+		if (child.isLeaf())
+			return area(combined);
+
+		return area(combined) - area(child.box);
+	}
+
+	private static boolean isEmpty(double[] bounds)
+	{
+		return bounds[0] > bounds[1] || bounds[2] > bounds[3] || bounds[4] > bounds[5];
+	}
+
+	private static boolean contains(double[] outer, double[] inner)
+	{
+		for (int k = 0; k < 3; ++k)
+		{
+			if (inner[2 * k] < outer[2 * k] || inner[2 * k + 1] > outer[2 * k + 1])
+				return false;
+		}
+
+		return true;
+	}
+
+	private static boolean overlaps(double[] a, double[] b)
+	{
+		for (int k = 0; k < 3; ++k)
+		{
+			if (a[2 * k] > b[2 * k + 1] || b[2 * k] > a[2 * k + 1])
+				return false;
+		}
+
+		return true;
+	}
+
+	private static void union(double[] a, double[] b, double[] result)
+	{
+		for (int k = 0; k < 3; ++k)
+		{
+			result[2 * k] = Math.min(a[2 * k], b[2 * k]);
+			result[2 * k + 1] = Math.max(a[2 * k + 1], b[2 * k + 1]);
+		}
+	}
+
+	/**
+	 * Return half the surface area of a box, the cost of visiting it.
+	 */
+	private static double area(double[] box)
+	{
+		double dx = box[1] - box[0];
+		double dy = box[3] - box[2];
+		double dz = box[5] - box[4];
+
+		return dx * dy + dy * dz + dz * dx;
+	}
+
+	private static final class Node<T>
+	{
+		// Enlarged box of a leaf, union of the boxes of the children otherwise.
+		private final double[] box;
+		// Exact box of the item of a leaf.
+		private final double[] tight;
+		private final T item;
+		private Node<T> parent;
+		private Node<T> left;
+		private Node<T> right;
+		private int height;
+
+		private Node(T item)
+		{
+			this.box = new double[6];
+			this.tight = item != null ? new double[6] : null;
+			this.item = item;
+		}
+
+		private boolean isLeaf()
+		{
+			return left == null;
+		}
+	}
+}
@@ -0,0 +1,1032 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.saavtk.util.Frustum;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
+import vtk.vtkDataArray;
+import vtk.vtkDoubleArray;
+import vtk.vtkFloatArray;
+import vtk.vtkPointData;
+import vtk.vtkPolyData;
+
+/**
+ * Computes the footprint of a camera frustum on a shape model, that is the part
+ * of the surface inside the frustum, facing the camera and not hidden behind
+ * other parts of the surface.
+ * <p>
+ * This does the same job as
+ * {@link edu.jhuapl.saavtk.util.PolyDataUtil#computeFrustumIntersection}, which
+ * chains four vtkClipPolyData filters, a vtkPolyDataNormals filter and several
+ * vtkCleanPolyData passes, and then queries a cell locator once per point. Here
+ * the work is done in one pass over the candidate cells:
+ * <ul>
+ * <li>the candidate cells are found with a {@link TriangleBvh} query against
+ * the side planes of the frustum;
+ * <li>cells facing away from the camera or entirely outside one of the planes
+ * are dropped, cells entirely inside all the planes are kept as they are, and
+ * only the cells crossing the boundary of the frustum are clipped;
+ * <li>a ray is cast from the camera to each point of the result, and cells all
+ * of whose points are hidden are dropped. The rays are cast in parallel against
+ * the same read-only {@link TriangleBvh}.
+ * </ul>
+ * As in the VTK pipeline, a point is hidden if the ray hits a cell that does not
+ * share a vertex with the cell(s) the point lies on. Clipped cells are split
+ * into a fan of triangles, so they are not triangulated the way vtkClipPolyData
+ * does it, but cover the same area. Points created by clipping are computed
+ * from the original edge they lie on, so cells that share that edge share the
+ * point, and the result has no duplicate points. Point data, such as the
+ * normals of the model, are interpolated linearly at the points created by
+ * clipping, as vtkClipPolyData does; cell data are not carried over.
+ * <p>
+ * The mesh is copied out of the polydata by the constructor, so instances are
+ * not affected by later changes to it. Instances are immutable and may be used
+ * from several threads at once.
+ */
+public class FrustumIntersector
+{
+	// Number of points processed by one task when testing for occlusion.
+	private static final int ChunkSize = 4096;
+
+	// Classification of candidate cells.
+	private static final byte Outside = 0;
+	private static final byte BackFacing = 1;
+	private static final byte Inside = 2;
+	private static final byte Boundary = 3;
+
+	private final TriangleBvh searchTree;
+	private final double[] vertices;
+	private final boolean singlePrecision;
+	// Points of poly i are cellPoints[cellOffsets[i]] to cellPoints[cellOffsets[i + 1] - 1].
+	private final int[] cellOffsets;
+	private final int[] cellPoints;
+	private final int cellIdOffset;
+	private final PointArray[] pointArrays;
+
+	/**
+	 * Create an intersector for the polygons of the specified polydata, building
+	 * a new {@link TriangleBvh} for it.
+	 *
+	 * @param polyData the shape model
+	 * @return the intersector
+	 */
+	public static FrustumIntersector of(vtkPolyData polyData)
+	{
+		return new FrustumIntersector(polyData, TriangleBvh.of(polyData));
+	}
+
+	/**
+	 * Create an intersector for the polygons of the specified polydata, using an
+	 * existing {@link TriangleBvh} built from the same polydata.
+	 *
+	 * @param polyData   the shape model
+	 * @param searchTree the hierarchy over the polygons of polyData
+	 */
+	public FrustumIntersector(vtkPolyData polyData, TriangleBvh searchTree)
+	{
+		this.searchTree = Preconditions.checkNotNull(searchTree);
+		this.vertices = VtkArrayUtil.getPoints(polyData.GetPoints());
+		this.singlePrecision = polyData.GetPoints().GetData() instanceof vtkFloatArray;
+
+		// Cell ids of polys come after those of verts and lines.
+		this.cellIdOffset = (int) (polyData.GetNumberOfVerts() + polyData.GetNumberOfLines());
+
+		vtkCellArray polys = polyData.GetPolys();
+		long[] cells = VtkArrayUtil.getLegacyCells(polys);
+		int numberPolys = (int) polys.GetNumberOfCells();
+
+		this.cellOffsets = new int[numberPolys + 1];
+		this.cellPoints = new int[cells.length - numberPolys];
+		for (int index = 0, poly = 0, point = 0; poly < numberPolys; ++poly)
+		{
+			int numberIds = (int) cells[index];
+			for (int id = 1; id <= numberIds; ++id)
+			{
+				cellPoints[point++] = (int) cells[index + id];
+			}
+			cellOffsets[poly + 1] = point;
+			index += numberIds + 1;
+		}
+
+		// Numeric point data arrays; GetArray returns null for the others.
+		vtkPointData pointData = polyData.GetPointData();
+		List<PointArray> arrays = new ArrayList<>();
+		for (int index = 0; index < pointData.GetNumberOfArrays(); ++index)
+		{
+			vtkDataArray array = pointData.GetArray(index);
+			if (array != null)
+				arrays.add(new PointArray(array, pointData.IsArrayAnAttribute(index)));
+		}
+		this.pointArrays = arrays.toArray(new PointArray[0]);
+	}
+
+	/**
+	 * Return the side planes of a frustum in the form used by
+	 * {@link TriangleBvh#findCellsInsidePlanes(double[])}, in the order top,
+	 * right, bottom, left. The planes are the same as those used by
+	 * {@link edu.jhuapl.saavtk.util.PolyDataUtil#computeFrustumIntersection}.
+	 *
+	 * @param origin the position of the camera
+	 * @param ul     the direction of the upper left corner of the frustum
+	 * @param ur     the direction of the upper right corner of the frustum
+	 * @param lr     the direction of the lower right corner of the frustum
+	 * @param ll     the direction of the lower left corner of the frustum
+	 * @return the planes, packed (nx, ny, nz, d)
+	 */
+	public static double[] computeFrustumPlanes(double[] origin, double[] ul, double[] ur, double[] lr, double[] ll)
+	{
+		double[] planes = new double[16];
+		setPlane(planes, 0, ur, ul, origin, ul);
+		setPlane(planes, 1, lr, ur, origin, ur);
+		setPlane(planes, 2, ll, lr, origin, lr);
+		setPlane(planes, 3, ul, ll, origin, ll);
+
+		return planes;
+	}
+
+	/**
+	 * Set plane index to the plane with normal u x v through the point
+	 * origin + |origin| corner.
+	 */
+	private static void setPlane(double[] planes, int index, double[] u, double[] v, double[] origin, double[] corner)
+	{
+		double nx = u[1] * v[2] - u[2] * v[1];
+		double ny = u[2] * v[0] - u[0] * v[2];
+		double nz = u[0] * v[1] - u[1] * v[0];
+
+		double scale = Math.sqrt(origin[0] * origin[0] + origin[1] * origin[1] + origin[2] * origin[2]);
+		double px = origin[0] + corner[0] * scale;
+		double py = origin[1] + corner[1] * scale;
+		double pz = origin[2] + corner[2] * scale;
+
+		int p = 4 * index;
+		planes[p] = nx;
+		planes[p + 1] = ny;
+		planes[p + 2] = nz;
+		planes[p + 3] = -(nx * px + ny * py + nz * pz);
+	}
+
+	/**
+	 * Compute the footprint of a frustum. The arguments are the same as those of
+	 * {@link edu.jhuapl.saavtk.util.PolyDataUtil#computeFrustumIntersection}.
+	 *
+	 * @param origin the position of the camera
+	 * @param ul     the direction of the upper left corner of the frustum
+	 * @param ur     the direction of the upper right corner of the frustum
+	 * @param lr     the direction of the lower right corner of the frustum
+	 * @param ll     the direction of the lower left corner of the frustum
+	 * @return the footprint, or null if no cell is even partly inside the frustum
+	 */
+	public vtkPolyData computeFrustumIntersection(double[] origin, double[] ul, double[] ur, double[] lr, double[] ll)
+	{
+		double[] planes = computeFrustumPlanes(origin, ul, ur, lr, ll);
+
+		return computeIntersection(planes, origin.clone(), searchTree.findCellsInsidePlanes(planes));
+	}
+
+	/**
+	 * Classify the model against several frusta at once, so that the footprints
+	 * of any combination of them may then be obtained from the returned
+	 * {@link FrustumOverlap} without searching the whole model again.
+	 * <p>
+	 * The corners of each frustum are passed on in the same order as
+	 * {@link edu.jhuapl.saavtk.util.PolyDataUtil#computeMultipleFrustumIntersection}
+	 * does.
+	 *
+	 * @param frustums the frusta, at least one
+	 * @return the classification
+	 */
+	public FrustumOverlap computeOverlap(List<Frustum> frustums)
+	{
+		Preconditions.checkArgument(!frustums.isEmpty(), "No frustums");
+
+		int numberFrustums = frustums.size();
+		double[][] planes = new double[numberFrustums][];
+		double[][] origins = new double[numberFrustums][];
+		BitSet candidateIds = new BitSet();
+		for (int index = 0; index < numberFrustums; ++index)
+		{
+			Frustum f = frustums.get(index);
+			planes[index] = computeFrustumPlanes(f.origin, f.ul, f.ur, f.ll, f.lr);
+			origins[index] = f.origin.clone();
+			for (int cellId : searchTree.findCellsInsidePlanes(planes[index]))
+			{
+				candidateIds.set(cellId);
+			}
+		}
+
+		// Test every candidate against every frustum in one pass.
+		int[] candidates = candidateIds.stream().toArray();
+		BitSet[] cellIds = new BitSet[numberFrustums];
+		for (int index = 0; index < numberFrustums; ++index)
+		{
+			cellIds[index] = new BitSet();
+		}
+		int numberChunks = (candidates.length + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			BitSet[] chunkCellIds = new BitSet[numberFrustums];
+			for (int index = 0; index < numberFrustums; ++index)
+			{
+				chunkCellIds[index] = new BitSet();
+			}
+
+			int end = Math.min(candidates.length, (chunk + 1) * ChunkSize);
+			for (int candidate = chunk * ChunkSize; candidate < end; ++candidate)
+			{
+				int cellId = candidates[candidate];
+				for (int index = 0; index < numberFrustums; ++index)
+				{
+					byte status = classify(cellId - cellIdOffset, planes[index], origins[index]);
+					if (status == Inside || status == Boundary)
+						chunkCellIds[index].set(cellId);
+				}
+			}
+
+			for (int index = 0; index < numberFrustums; ++index)
+			{
+				synchronized (cellIds[index])
+				{
+					cellIds[index].or(chunkCellIds[index]);
+				}
+			}
+		});
+
+		return new FrustumOverlap(this, planes, origins, cellIds);
+	}
+
+	/**
+	 * Compute the part of the specified candidate cells inside all the specified
+	 * planes, facing all the specified viewpoints and visible from all of them.
+	 *
+	 * @param planes     packed planes (nx, ny, nz, d); a point p is inside plane k
+	 *                   if nk . p + dk <= 0
+	 * @param origins    packed viewpoints
+	 * @param candidates ids of the cells to consider, in increasing order
+	 * @return the result, or null if no cell is even partly inside the planes
+	 */
+	vtkPolyData computeIntersection(double[] planes, double[] origins, int[] candidates)
+	{
+		Mesh mesh = intersect(planes, origins, candidates);
+
+		return mesh != null ? mesh.toPolyData(singlePrecision) : null;
+	}
+
+	/**
+	 * See {@link #computeIntersection(double[], double[], int[])}.
+	 */
+	private Mesh intersect(double[] planes, double[] origins, int[] candidates)
+	{
+		byte[] status = new byte[candidates.length];
+		int numberChunks = (candidates.length + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			int end = Math.min(candidates.length, (chunk + 1) * ChunkSize);
+			for (int index = chunk * ChunkSize; index < end; ++index)
+			{
+				status[index] = classify(candidates[index] - cellIdOffset, planes, origins);
+			}
+		});
+
+		boolean anyInside = false;
+		for (byte cellStatus : status)
+		{
+			anyInside |= cellStatus != Outside;
+		}
+		if (!anyInside)
+		{
+			return null;
+		}
+
+		Mesh mesh = assemble(candidates, status, planes);
+		mesh.removeHiddenCells(origins);
+
+		return mesh;
+	}
+
+	/**
+	 * Classify one poly against the planes and viewpoints. Polys outside the
+	 * planes are reported as such even if they also face away from a viewpoint,
+	 * so that the caller can tell whether anything was inside the planes.
+	 */
+	private byte classify(int poly, double[] planes, double[] origins)
+	{
+		if (poly < 0 || poly >= cellOffsets.length - 1)
+			return Outside;
+
+		int begin = cellOffsets[poly];
+		int end = cellOffsets[poly + 1];
+		if (end - begin < 3)
+			return Outside;
+
+		boolean boundary = false;
+		for (int p = 0; p < planes.length; p += 4)
+		{
+			int numberOutside = 0;
+			for (int index = begin; index < end; ++index)
+			{
+				int v = 3 * cellPoints[index];
+				if (planes[p] * vertices[v] + planes[p + 1] * vertices[v + 1] + planes[p + 2] * vertices[v + 2] + planes[p + 3] > 0.)
+					++numberOutside;
+			}
+			if (numberOutside == end - begin)
+				return Outside;
+			boundary |= numberOutside > 0;
+		}
+
+		// Newell's method, which for a triangle gives the usual cross product.
+		double nx = 0., ny = 0., nz = 0.;
+		for (int index = begin; index < end; ++index)
+		{
+			int v = 3 * cellPoints[index];
+			int w = 3 * cellPoints[index + 1 < end ? index + 1 : begin];
+			nx += (vertices[v + 1] - vertices[w + 1]) * (vertices[v + 2] + vertices[w + 2]);
+			ny += (vertices[v + 2] - vertices[w + 2]) * (vertices[v] + vertices[w]);
+			nz += (vertices[v] - vertices[w]) * (vertices[v + 1] + vertices[w + 1]);
+		}
+
+		// All points of a planar poly give the same answer, so use the first.
+		int first = 3 * cellPoints[begin];
+		for (int o = 0; o < origins.length; o += 3)
+		{
+			double dot = nx * (origins[o] - vertices[first]) + ny * (origins[o + 1] - vertices[first + 1]) + nz * (origins[o + 2] - vertices[first + 2]);
+			if (!(dot > 0.))
+				return BackFacing;
+		}
+
+		return boundary ? Boundary : Inside;
+	}
+
+	/**
+	 * Collect the cells classified as inside, and the clipped pieces of those
+	 * classified as boundary, into a new mesh.
+	 */
+	private Mesh assemble(int[] candidates, byte[] status, double[] planes)
+	{
+		Mesh mesh = new Mesh();
+		Clipper clipper = new Clipper(planes);
+
+		// Points are first numbered v >= 0 for vertex v of the model and -1 - g for
+		// the point g created by clipping, then renumbered once all are known.
+		for (int index = 0; index < candidates.length; ++index)
+		{
+			int poly = candidates[index] - cellIdOffset;
+			if (status[index] == Inside)
+			{
+				int begin = cellOffsets[poly];
+				int end = cellOffsets[poly + 1];
+				mesh.addCell(cellPoints, begin, end - begin);
+			}
+			else if (status[index] == Boundary)
+			{
+				clipper.clip(poly);
+				int numberIds = clipper.getPoints(mesh);
+
+				// Split the clipped poly into a fan of triangles, skipping degenerate ones.
+				int[] ids = clipper.ids;
+				for (int id = 2; id < numberIds; ++id)
+				{
+					if (ids[0] != ids[id - 1] && ids[0] != ids[id] && ids[id - 1] != ids[id])
+						mesh.addTriangle(ids[0], ids[id - 1], ids[id]);
+				}
+			}
+		}
+
+		mesh.renumberPoints();
+
+		return mesh;
+	}
+
+	/**
+	 * Clips one poly at a time against a set of planes, using the Sutherland-Hodgman
+	 * algorithm.
+	 */
+	private final class Clipper
+	{
+		private final double[] planes;
+		// The working polygon and the one being built: coordinates, and for each
+		// point either (v, v) for vertex v of the model, (a, b) with a < b for a
+		// point on the edge between vertices a and b, or (-1, poly) for a point
+		// inside poly.
+		private double[] xyz = new double[48];
+		private int[] a = new int[16];
+		private int[] b = new int[16];
+		private double[] nextXyz = new double[48];
+		private int[] nextA = new int[16];
+		private int[] nextB = new int[16];
+		private double[] values = new double[16];
+		private int size;
+		private int nextSize;
+		// Ids of the points of the last clipped poly, as returned by getPoints.
+		private int[] ids = new int[16];
+
+		Clipper(double[] planes)
+		{
+			this.planes = planes;
+		}
+
+		void clip(int poly)
+		{
+			int begin = cellOffsets[poly];
+			int end = cellOffsets[poly + 1];
+
+			size = 0;
+			for (int index = begin; index < end; ++index)
+			{
+				int v = cellPoints[index];
+				ensureCapacity(size + 1);
+				System.arraycopy(vertices, 3 * v, xyz, 3 * size, 3);
+				a[size] = v;
+				b[size] = v;
+				++size;
+			}
+
+			for (int p = 0; p < planes.length && size > 0; p += 4)
+			{
+				boolean anyOutside = false;
+				for (int i = 0; i < size; ++i)
+				{
+					values[i] = planes[p] * xyz[3 * i] + planes[p + 1] * xyz[3 * i + 1] + planes[p + 2] * xyz[3 * i + 2] + planes[p + 3];
+					anyOutside |= values[i] > 0.;
+				}
+				if (!anyOutside)
+					continue;
+
+				nextSize = 0;
+				for (int i = 0; i < size; ++i)
+				{
+					int j = i + 1 < size ? i + 1 : 0;
+					double vi = values[i];
+					double vj = values[j];
+					if (vi <= 0.)
+						emit(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2], a[i], b[i]);
+					if ((vi < 0. && vj > 0.) || (vi > 0. && vj < 0.))
+						emitIntersection(i, j, vi, vj, p, poly);
+				}
+
+				double[] tmpXyz = xyz;
+				xyz = nextXyz;
+				nextXyz = tmpXyz;
+				int[] tmp = a;
+				a = nextA;
+				nextA = tmp;
+				tmp = b;
+				b = nextB;
+				nextB = tmp;
+				size = nextSize;
+			}
+		}
+
+		/**
+		 * Add the point where the edge from point i to point j crosses the plane.
+		 * If both points lie on the same edge of the model, the point is computed
+		 * from the end points of that edge, so that the cell on the other side of
+		 * the edge gets exactly the same point.
+		 */
+		private void emitIntersection(int i, int j, double vi, double vj, int p, int poly)
+		{
+			if (a[i] >= 0 && a[j] >= 0)
+			{
+				int low = Math.min(a[i], a[j]);
+				int high = Math.max(b[i], b[j]);
+				if (low != high && (a[i] == low || a[i] == high) && (b[i] == low || b[i] == high) && (a[j] == low || a[j] == high) && (b[j] == low || b[j] == high))
+				{
+					int l = 3 * low;
+					int h = 3 * high;
+					double vLow = planes[p] * vertices[l] + planes[p + 1] * vertices[l + 1] + planes[p + 2] * vertices[l + 2] + planes[p + 3];
+					double vHigh = planes[p] * vertices[h] + planes[p + 1] * vertices[h + 1] + planes[p + 2] * vertices[h + 2] + planes[p + 3];
+					double t = vLow / (vLow - vHigh);
+					emit(vertices[l] + t * (vertices[h] - vertices[l]), vertices[l + 1] + t * (vertices[h + 1] - vertices[l + 1]), vertices[l + 2] + t * (vertices[h + 2] - vertices[l + 2]), low, high);
+					return;
+				}
+			}
+
+			double t = vi / (vi - vj);
+			emit(xyz[3 * i] + t * (xyz[3 * j] - xyz[3 * i]), xyz[3 * i + 1] + t * (xyz[3 * j + 1] - xyz[3 * i + 1]), xyz[3 * i + 2] + t * (xyz[3 * j + 2] - xyz[3 * i + 2]), -1, poly);
+		}
+
+		private void emit(double x, double y, double z, int pointA, int pointB)
+		{
+			ensureCapacity(nextSize + 1);
+			nextXyz[3 * nextSize] = x;
+			nextXyz[3 * nextSize + 1] = y;
+			nextXyz[3 * nextSize + 2] = z;
+			nextA[nextSize] = pointA;
+			nextB[nextSize] = pointB;
+			++nextSize;
+		}
+
+		private void ensureCapacity(int capacity)
+		{
+			if (capacity <= a.length)
+				return;
+
+			int length = 2 * capacity;
+			xyz = Arrays.copyOf(xyz, 3 * length);
+			a = Arrays.copyOf(a, length);
+			b = Arrays.copyOf(b, length);
+			nextXyz = Arrays.copyOf(nextXyz, 3 * length);
+			nextA = Arrays.copyOf(nextA, length);
+			nextB = Arrays.copyOf(nextB, length);
+			values = Arrays.copyOf(values, length);
+			ids = Arrays.copyOf(ids, length);
+		}
+
+		/**
+		 * Look up or add the points of the clipped poly in the mesh, leaving their
+		 * ids in {@link #ids} without consecutive duplicates, and return their
+		 * number.
+		 */
+		int getPoints(Mesh mesh)
+		{
+			int numberIds = 0;
+			for (int i = 0; i < size; ++i)
+			{
+				int id = a[i] >= 0 && a[i] == b[i] ? a[i] : mesh.addPoint(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2], a[i], b[i]);
+				if (numberIds == 0 || ids[numberIds - 1] != id)
+					ids[numberIds++] = id;
+			}
+			if (numberIds > 1 && ids[0] == ids[numberIds - 1])
+				--numberIds;
+
+			return numberIds;
+		}
+	}
+
+	/**
+	 * The result being built, in primitive arrays.
+	 */
+	private final class Mesh
+	{
+		// Points created by clipping, with their origin as in Clipper.
+		private double[] newPoints = new double[48];
+		private int[] newA = new int[16];
+		private int[] newB = new int[16];
+		private int numberNewPoints;
+		private final Map<PointKey, Integer> newPointIds = new HashMap<>();
+
+		// Cells in the legacy VTK layout, with point ids as described in assemble.
+		private int[] cells = new int[64];
+		private int cellsLength;
+		private int numberCells;
+
+		// After renumbering: all points, and for each the origin as in Clipper.
+		private double[] points;
+		private int[] pointA;
+		private int[] pointB;
+		private int numberPoints;
+
+		int addPoint(double x, double y, double z, int pointA, int pointB)
+		{
+			PointKey key = new PointKey(x, y, z);
+			Integer id = newPointIds.get(key);
+			if (id != null)
+				return -1 - id;
+
+			if (numberNewPoints == newA.length)
+			{
+				newPoints = Arrays.copyOf(newPoints, 6 * numberNewPoints);
+				newA = Arrays.copyOf(newA, 2 * numberNewPoints);
+				newB = Arrays.copyOf(newB, 2 * numberNewPoints);
+			}
+			newPoints[3 * numberNewPoints] = x;
+			newPoints[3 * numberNewPoints + 1] = y;
+			newPoints[3 * numberNewPoints + 2] = z;
+			newA[numberNewPoints] = pointA;
+			newB[numberNewPoints] = pointB;
+			newPointIds.put(key, numberNewPoints);
+
+			return -1 - numberNewPoints++;
+		}
+
+		void addCell(int[] ids, int offset, int numberIds)
+		{
+			ensureCellCapacity(numberIds + 1);
+			cells[cellsLength++] = numberIds;
+			System.arraycopy(ids, offset, cells, cellsLength, numberIds);
+			cellsLength += numberIds;
+			++numberCells;
+		}
+
+		void addTriangle(int id0, int id1, int id2)
+		{
+			ensureCellCapacity(4);
+			cells[cellsLength++] = 3;
+			cells[cellsLength++] = id0;
+			cells[cellsLength++] = id1;
+			cells[cellsLength++] = id2;
+			++numberCells;
+		}
+
+		private void ensureCellCapacity(int extra)
+		{
+			if (cellsLength + extra > cells.length)
+				cells = Arrays.copyOf(cells, Math.max(2 * cells.length, cellsLength + extra));
+		}
+
+		/**
+		 * Number the vertices of the model used by the cells from 0 in increasing
+		 * order, followed by the points created by clipping, and gather all the
+		 * points.
+		 */
+		void renumberPoints()
+		{
+			int[] used = new int[cellsLength - numberCells];
+			int numberUsed = 0;
+			for (int index = 0; index < cellsLength; index += cells[index] + 1)
+			{
+				for (int id = 1; id <= cells[index]; ++id)
+				{
+					if (cells[index + id] >= 0)
+						used[numberUsed++] = cells[index + id];
+				}
+			}
+			int[] modelVertices = Arrays.stream(used, 0, numberUsed).sorted().distinct().toArray();
+
+			numberPoints = modelVertices.length + numberNewPoints;
+			points = new double[3 * numberPoints];
+			pointA = new int[numberPoints];
+			pointB = new int[numberPoints];
+			for (int index = 0; index < modelVertices.length; ++index)
+			{
+				System.arraycopy(vertices, 3 * modelVertices[index], points, 3 * index, 3);
+				pointA[index] = modelVertices[index];
+				pointB[index] = modelVertices[index];
+			}
+			System.arraycopy(newPoints, 0, points, 3 * modelVertices.length, 3 * numberNewPoints);
+			System.arraycopy(newA, 0, pointA, modelVertices.length, numberNewPoints);
+			System.arraycopy(newB, 0, pointB, modelVertices.length, numberNewPoints);
+
+			for (int index = 0; index < cellsLength; index += cells[index] + 1)
+			{
+				for (int id = 1; id <= cells[index]; ++id)
+				{
+					int pointId = cells[index + id];
+					cells[index + id] = pointId >= 0 ? Arrays.binarySearch(modelVertices, pointId) : modelVertices.length - 1 - pointId;
+				}
+			}
+		}
+
+		/**
+		 * Cast a ray from each viewpoint to each point, and remove the cells all of
+		 * whose points are hidden from at least one viewpoint, then the points no
+		 * longer used.
+		 */
+		void removeHiddenCells(double[] origins)
+		{
+			boolean[] hidden = new boolean[numberPoints];
+			int numberChunks = (numberPoints + ChunkSize - 1) / ChunkSize;
+			IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+				int[] stack = searchTree.createStack();
+				SupportCells supportCells = new SupportCells();
+
+				int end = Math.min(numberPoints, (chunk + 1) * ChunkSize);
+				for (int point = chunk * ChunkSize; point < end; ++point)
+				{
+					supportCells.set(pointA[point], pointB[point]);
+					double px = points[3 * point], py = points[3 * point + 1], pz = points[3 * point + 2];
+					for (int o = 0; o < origins.length && !hidden[point]; o += 3)
+					{
+						hidden[point] = searchTree.isOccluded(origins[o], origins[o + 1], origins[o + 2], px - origins[o], py - origins[o + 1], pz - origins[o + 2], 1., supportCells, stack);
+					}
+				}
+			});
+
+			// Keep the cells with at least one visible point.
+			int[] keptCells = new int[cellsLength];
+			int keptLength = 0;
+			int numberKept = 0;
+			int[] newIds = new int[numberPoints];
+			Arrays.fill(newIds, -1);
+			int numberKeptPoints = 0;
+			for (int index = 0; index < cellsLength; index += cells[index] + 1)
+			{
+				int numberIds = cells[index];
+				boolean visible = false;
+				for (int id = 1; id <= numberIds && !visible; ++id)
+				{
+					visible = !hidden[cells[index + id]];
+				}
+				if (!visible)
+					continue;
+
+				keptCells[keptLength++] = numberIds;
+				for (int id = 1; id <= numberIds; ++id)
+				{
+					int pointId = cells[index + id];
+					if (newIds[pointId] < 0)
+						newIds[pointId] = numberKeptPoints++;
+					keptCells[keptLength++] = newIds[pointId];
+				}
+				++numberKept;
+			}
+
+			double[] keptPoints = new double[3 * numberKeptPoints];
+			int[] keptA = new int[numberKeptPoints];
+			int[] keptB = new int[numberKeptPoints];
+			for (int point = 0; point < numberPoints; ++point)
+			{
+				int newId = newIds[point];
+				if (newId >= 0)
+				{
+					System.arraycopy(points, 3 * point, keptPoints, 3 * newId, 3);
+					keptA[newId] = pointA[point];
+					keptB[newId] = pointB[point];
+				}
+			}
+
+			cells = keptCells;
+			cellsLength = keptLength;
+			numberCells = numberKept;
+			points = keptPoints;
+			pointA = keptA;
+			pointB = keptB;
+			numberPoints = numberKeptPoints;
+		}
+
+		vtkPolyData toPolyData(boolean singlePrecision)
+		{
+			long[] legacyCells = new long[cellsLength];
+			for (int index = 0; index < cellsLength; ++index)
+			{
+				legacyCells[index] = cells[index];
+			}
+
+			vtkPolyData result = new vtkPolyData();
+			if (singlePrecision)
+			{
+				float[] floatPoints = new float[3 * numberPoints];
+				for (int index = 0; index < floatPoints.length; ++index)
+				{
+					floatPoints[index] = (float) points[index];
+				}
+				result.SetPoints(VtkArrayUtil.createPoints(floatPoints));
+			}
+			else
+			{
+				result.SetPoints(VtkArrayUtil.createPoints(Arrays.copyOf(points, 3 * numberPoints)));
+			}
+			result.SetPolys(VtkArrayUtil.createCellArray(numberCells, legacyCells, cellsLength));
+
+			if (pointArrays.length > 0)
+			{
+				int[] weightIds = new int[3 * numberPoints];
+				double[] weights = new double[3 * numberPoints];
+				for (int point = 0; point < numberPoints; ++point)
+				{
+					computeWeights(point, weightIds, weights);
+				}
+
+				vtkPointData pointData = result.GetPointData();
+				for (PointArray pointArray : pointArrays)
+				{
+					int index = pointData.AddArray(pointArray.interpolate(numberPoints, weightIds, weights));
+					if (pointArray.attribute >= 0)
+						pointData.SetActiveAttribute(index, pointArray.attribute);
+				}
+			}
+
+			return result;
+		}
+
+		/**
+		 * Set the vertices of the model from which the data of a point are
+		 * interpolated, and their weights: the vertex itself, the two ends of the
+		 * edge the point lies on, or the corners of the triangle of the poly that
+		 * contains the point.
+		 */
+		private void computeWeights(int point, int[] weightIds, double[] weights)
+		{
+			int w = 3 * point;
+			int a = pointA[point];
+			int b = pointB[point];
+			if (a >= 0 && a == b)
+			{
+				weightIds[w] = weightIds[w + 1] = weightIds[w + 2] = a;
+				weights[w] = 1.;
+			}
+			else if (a >= 0)
+			{
+				double ex = vertices[3 * b] - vertices[3 * a];
+				double ey = vertices[3 * b + 1] - vertices[3 * a + 1];
+				double ez = vertices[3 * b + 2] - vertices[3 * a + 2];
+				double px = points[3 * point] - vertices[3 * a];
+				double py = points[3 * point + 1] - vertices[3 * a + 1];
+				double pz = points[3 * point + 2] - vertices[3 * a + 2];
+				double t = (px * ex + py * ey + pz * ez) / (ex * ex + ey * ey + ez * ez);
+				weightIds[w] = a;
+				weightIds[w + 1] = weightIds[w + 2] = b;
+				weights[w] = 1. - t;
+				weights[w + 1] = t;
+			}
+			else
+			{
+				// Barycentric coordinates in the triangle of the fan of poly b that
+				// contains the point, or comes closest to containing it.
+				int begin = cellOffsets[b];
+				int end = cellOffsets[b + 1];
+				double[] barycentric = new double[3];
+				double bestScore = Double.NEGATIVE_INFINITY;
+				for (int index = begin + 1; index + 1 < end; ++index)
+				{
+					int v0 = cellPoints[begin];
+					int v1 = cellPoints[index];
+					int v2 = cellPoints[index + 1];
+					if (!computeBarycentric(point, v0, v1, v2, barycentric))
+						continue;
+
+					double score = Math.min(barycentric[0], Math.min(barycentric[1], barycentric[2]));
+					if (score > bestScore)
+					{
+						bestScore = score;
+						weightIds[w] = v0;
+						weightIds[w + 1] = v1;
+						weightIds[w + 2] = v2;
+						System.arraycopy(barycentric, 0, weights, w, 3);
+					}
+				}
+
+				if (bestScore == Double.NEGATIVE_INFINITY)
+				{
+					// Degenerate poly: take the data of its first vertex.
+					weightIds[w] = weightIds[w + 1] = weightIds[w + 2] = cellPoints[begin];
+					weights[w] = 1.;
+				}
+			}
+		}
+
+		/**
+		 * Compute the barycentric coordinates of the projection of a point onto the
+		 * plane of a triangle of the model. Return false if the triangle is
+		 * degenerate.
+		 */
+		private boolean computeBarycentric(int point, int v0, int v1, int v2, double[] barycentric)
+		{
+			double e0x = vertices[3 * v1] - vertices[3 * v0];
+			double e0y = vertices[3 * v1 + 1] - vertices[3 * v0 + 1];
+			double e0z = vertices[3 * v1 + 2] - vertices[3 * v0 + 2];
+			double e1x = vertices[3 * v2] - vertices[3 * v0];
+			double e1y = vertices[3 * v2 + 1] - vertices[3 * v0 + 1];
+			double e1z = vertices[3 * v2 + 2] - vertices[3 * v0 + 2];
+			double px = points[3 * point] - vertices[3 * v0];
+			double py = points[3 * point + 1] - vertices[3 * v0 + 1];
+			double pz = points[3 * point + 2] - vertices[3 * v0 + 2];
+
+			double d00 = e0x * e0x + e0y * e0y + e0z * e0z;
+			double d01 = e0x * e1x + e0y * e1y + e0z * e1z;
+			double d11 = e1x * e1x + e1y * e1y + e1z * e1z;
+			double d20 = px * e0x + py * e0y + pz * e0z;
+			double d21 = px * e1x + py * e1y + pz * e1z;
+			double denominator = d00 * d11 - d01 * d01;
+			if (!(denominator > 0.))
+				return false;
+
+			barycentric[1] = (d11 * d20 - d01 * d21) / denominator;
+			barycentric[2] = (d00 * d21 - d01 * d20) / denominator;
+			barycentric[0] = 1. - barycentric[1] - barycentric[2];
+
+			return true;
+		}
+	}
+
+	/**
+	 * The values of one numeric point data array of the model.
+	 */
+	private static final class PointArray
+	{
+		private final String name;
+		// Attribute type (normals, scalars...) of the array, or -1 if none.
+		private final int attribute;
+		private final int numberComponents;
+		private final boolean singlePrecision;
+		private final double[] values;
+
+		PointArray(vtkDataArray array, int attribute)
+		{
+			this.name = array.GetName();
+			this.attribute = attribute;
+			this.numberComponents = array.GetNumberOfComponents();
+			this.singlePrecision = !(array instanceof vtkDoubleArray);
+			this.values = VtkArrayUtil.getValues(array);
+		}
+
+		/**
+		 * Return a new array with the values at the specified points, each a
+		 * weighted sum of the values at three vertices of the model. Arrays of
+		 * types other than double are returned as float arrays.
+		 */
+		vtkDataArray interpolate(int numberPoints, int[] weightIds, double[] weights)
+		{
+			double[] result = new double[numberComponents * numberPoints];
+			for (int point = 0; point < numberPoints; ++point)
+			{
+				for (int w = 3 * point; w < 3 * point + 3; ++w)
+				{
+					if (weights[w] == 0.)
+						continue;
+
+					int source = numberComponents * weightIds[w];
+					int target = numberComponents * point;
+					for (int component = 0; component < numberComponents; ++component)
+					{
+						result[target + component] += weights[w] * values[source + component];
+					}
+				}
+			}
+
+			vtkDataArray array = singlePrecision ? new vtkFloatArray() : new vtkDoubleArray();
+			if (name != null)
+				array.SetName(name);
+			array.SetNumberOfComponents(numberComponents);
+			VtkArrayUtil.setValues(array, result);
+
+			return array;
+		}
+	}
+
+	/**
+	 * Accepts the cells that share a vertex with the cell(s) a point lies on,
+	 * which are ignored when testing whether the point is hidden.
+	 */
+	private final class SupportCells implements IntPredicate
+	{
+		private int pointA;
+		private int pointB;
+
+		void set(int pointA, int pointB)
+		{
+			this.pointA = pointA;
+			this.pointB = pointB;
+		}
+
+		@Override
+		public boolean test(int cellId)
+		{
+			int poly = cellId - cellIdOffset;
+			if (poly < 0 || poly >= cellOffsets.length - 1)
+				return false;
+
+			for (int index = cellOffsets[poly]; index < cellOffsets[poly + 1]; ++index)
+			{
+				int v = cellPoints[index];
+				if (pointA >= 0)
+				{
+					if (v == pointA || v == pointB)
+						return true;
+				}
+				else
+				{
+					// A point inside poly pointB.
+					for (int other = cellOffsets[pointB]; other < cellOffsets[pointB + 1]; ++other)
+					{
+						if (v == cellPoints[other])
+							return true;
+					}
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * Coordinates of a point created by clipping, compared exactly.
+	 */
+	private static final class PointKey
+	{
+		private final double x;
+		private final double y;
+		private final double z;
+
+		PointKey(double x, double y, double z)
+		{
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * (31 * Double.hashCode(x) + Double.hashCode(y)) + Double.hashCode(z);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof PointKey))
+				return false;
+
+			PointKey other = (PointKey) obj;
+			return Double.compare(x, other.x) == 0 && Double.compare(y, other.y) == 0 && Double.compare(z, other.z) == 0;
+		}
+	}
+}
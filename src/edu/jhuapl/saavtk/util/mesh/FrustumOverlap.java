@@ -0,0 +1,144 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.util.BitSet;
+
+import com.google.common.base.Preconditions;
+
+import vtk.vtkPolyData;
+
+/**
+ * The cells of a shape model that lie at least partly inside each of a list of
+ * frusta and face its camera, as computed by
+ * {@link FrustumIntersector#computeOverlap(java.util.List)}.
+ * <p>
+ * The cells are kept as one bit set of cell ids per frustum, so the cells
+ * shared by any combination of frusta are found by intersecting bit sets,
+ * without going back to the model. Only when the footprint of a combination is
+ * requested as polydata are its cells clipped against the side planes of all
+ * the frusta in it and tested for occlusion from all their cameras. The
+ * occlusion tests are made against the whole model.
+ * <p>
+ * Instances are immutable and may be used from several threads at once.
+ */
+public class FrustumOverlap
+{
+	private final FrustumIntersector intersector;
+	private final double[][] planes;
+	private final double[][] origins;
+	private final BitSet[] cellIds;
+
+	FrustumOverlap(FrustumIntersector intersector, double[][] planes, double[][] origins, BitSet[] cellIds)
+	{
+		this.intersector = intersector;
+		this.planes = planes;
+		this.origins = origins;
+		this.cellIds = cellIds;
+	}
+
+	public int getNumberOfFrustums()
+	{
+		return cellIds.length;
+	}
+
+	/**
+	 * Return the ids of the cells of the model at least partly inside the
+	 * specified frustum and facing its camera. Cells hidden from the camera are
+	 * included.
+	 *
+	 * @param frustum the index of the frustum in the list it was created from
+	 * @return a copy of the cell ids
+	 */
+	public BitSet getCellIds(int frustum)
+	{
+		return (BitSet) cellIds[frustum].clone();
+	}
+
+	/**
+	 * Return the ids of the cells shared by all the specified frusta, as
+	 * described in {@link #getCellIds(int)}.
+	 *
+	 * @param frustums the indices of the frusta, at least one
+	 * @return the cell ids
+	 */
+	public BitSet getOverlapCellIds(int... frustums)
+	{
+		Preconditions.checkArgument(frustums.length > 0, "No frustums");
+
+		BitSet result = getCellIds(frustums[0]);
+		for (int index = 1; index < frustums.length; ++index)
+		{
+			result.and(cellIds[frustums[index]]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Return the number of cells shared by each pair of frusta, as described in
+	 * {@link #getCellIds(int)}. Element [i][i] is the number of cells of frustum
+	 * i.
+	 *
+	 * @return the counts, a symmetric matrix
+	 */
+	public int[][] getPairwiseOverlapCounts()
+	{
+		int numberFrustums = cellIds.length;
+		int[][] result = new int[numberFrustums][numberFrustums];
+		for (int i = 0; i < numberFrustums; ++i)
+		{
+			result[i][i] = cellIds[i].cardinality();
+			for (int j = i + 1; j < numberFrustums; ++j)
+			{
+				BitSet overlap = (BitSet) cellIds[i].clone();
+				overlap.and(cellIds[j]);
+				result[i][j] = overlap.cardinality();
+				result[j][i] = result[i][j];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compute the part of the surface inside all the specified frusta, facing
+	 * their cameras and visible from all of them.
+	 *
+	 * @param frustums the indices of the frusta, at least one
+	 * @return the footprint, or null if the frusta share no cell
+	 */
+	public vtkPolyData computeOverlap(int... frustums)
+	{
+		BitSet overlapCellIds = getOverlapCellIds(frustums);
+		if (overlapCellIds.isEmpty())
+		{
+			return null;
+		}
+
+		double[] overlapPlanes = new double[16 * frustums.length];
+		double[] overlapOrigins = new double[3 * frustums.length];
+		for (int index = 0; index < frustums.length; ++index)
+		{
+			System.arraycopy(planes[frustums[index]], 0, overlapPlanes, 16 * index, 16);
+			System.arraycopy(origins[frustums[index]], 0, overlapOrigins, 3 * index, 3);
+		}
+
+		return intersector.computeIntersection(overlapPlanes, overlapOrigins, overlapCellIds.stream().toArray());
+	}
+
+	/**
+	 * Compute the part of the surface inside all the frusta, facing their cameras
+	 * and visible from all of them.
+	 *
+	 * @return the footprint, or null if the frusta share no cell
+	 */
+	public vtkPolyData computeIntersection()
+	{
+		int[] frustums = new int[cellIds.length];
+		for (int index = 0; index < frustums.length; ++index)
+		{
+			frustums[index] = index;
+		}
+
+		return computeOverlap(frustums);
+	}
+}
@@ -0,0 +1,680 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
+import vtk.vtkPolyData;
+
+/**
+ * Immutable snapshot of a triangle mesh in primitive arrays, for geometry
+ * computations that do not need VTK.
+ * <p>
+ * The vertices and triangles are copied from the polydata in bulk once; after
+ * that no method crosses JNI or creates VTK objects. Face normals, face areas
+ * and adjacency are computed the first time they are needed and kept. The
+ * statistics split the triangles into chunks and process the chunks on all
+ * available cores, then combine the chunk results in a fixed order, so the
+ * results do not depend on the number of cores.
+ * <p>
+ * Instances may be used from several threads at once.
+ * <p>
+ * Triangles are identified by their index in the mesh. As in
+ * {@link TriangleBvh}, polygons with more than three points are split into a
+ * fan of triangles, each of which remembers the id of the VTK cell it came
+ * from.
+ */
+public class JavaMesh
+{
+	// Number of triangles processed by one task in the parallel loops.
+	private static final int ChunkSize = 4096;
+
+	private final double[] vertices;
+	private final int[] triangles;
+	private final int[] cellIds;
+	private final int numberTriangles;
+
+	private volatile double[] faceNormals;
+	private volatile double[] faceAreas;
+	private volatile int[][] vertexTriangles;
+	private volatile int[] neighbors;
+
+	/**
+	 * Create a snapshot of the polygons of the specified polydata. The point and
+	 * connectivity arrays are copied in bulk, so the polydata may be modified or
+	 * deleted afterwards without affecting the snapshot.
+	 *
+	 * @param polyData the polydata
+	 * @return the snapshot
+	 */
+	public static JavaMesh of(vtkPolyData polyData)
+	{
+		Preconditions.checkNotNull(polyData);
+
+		double[] vertices = VtkArrayUtil.getPoints(polyData.GetPoints());
+
+		// Cell ids of polys come after those of verts and lines.
+		int cellIdOffset = (int) (polyData.GetNumberOfVerts() + polyData.GetNumberOfLines());
+
+		vtkCellArray polys = polyData.GetPolys();
+		long[] cells = VtkArrayUtil.getLegacyCells(polys);
+		int numberPolys = (int) polys.GetNumberOfCells();
+
+		int numberTriangles = 0;
+		for (int index = 0, poly = 0; poly < numberPolys; ++poly)
+		{
+			int numberIds = (int) cells[index];
+			numberTriangles += Math.max(numberIds - 2, 0);
+			index += numberIds + 1;
+		}
+
+		int[] triangles = new int[3 * numberTriangles];
+		int[] cellIds = new int[numberTriangles];
+		for (int index = 0, poly = 0, tri = 0; poly < numberPolys; ++poly)
+		{
+			int numberIds = (int) cells[index];
+			int first = index + 1;
+			for (int j = 2; j < numberIds; ++j)
+			{
+				triangles[3 * tri] = (int) cells[first];
+				triangles[3 * tri + 1] = (int) cells[first + j - 1];
+				triangles[3 * tri + 2] = (int) cells[first + j];
+				cellIds[tri] = cellIdOffset + poly;
+				++tri;
+			}
+			index += numberIds + 1;
+		}
+
+		return new JavaMesh(vertices, triangles, cellIds);
+	}
+
+	/**
+	 * Create a mesh from primitive arrays. The arrays are copied. The cell id of
+	 * each triangle is its index.
+	 *
+	 * @param vertices  packed vertex coordinates (x0, y0, z0, x1, ...)
+	 * @param triangles packed vertex indices, three per triangle
+	 * @return the mesh
+	 */
+	public static JavaMesh of(double[] vertices, int[] triangles)
+	{
+		Preconditions.checkArgument(vertices.length % 3 == 0, "Vertex array length must be a multiple of 3");
+		Preconditions.checkArgument(triangles.length % 3 == 0, "Triangle array length must be a multiple of 3");
+
+		int numberVertices = vertices.length / 3;
+		for (int id : triangles)
+		{
+			Preconditions.checkArgument(id >= 0 && id < numberVertices, "Vertex index out of range: %s", id);
+		}
+
+		return new JavaMesh(vertices.clone(), triangles.clone(), IntStream.range(0, triangles.length / 3).toArray());
+	}
+
+	private JavaMesh(double[] vertices, int[] triangles, int[] cellIds)
+	{
+		this.vertices = vertices;
+		this.triangles = triangles;
+		this.cellIds = cellIds;
+		this.numberTriangles = cellIds.length;
+		this.faceNormals = null;
+		this.faceAreas = null;
+		this.vertexTriangles = null;
+		this.neighbors = null;
+	}
+
+	public int getNumberOfVertices()
+	{
+		return vertices.length / 3;
+	}
+
+	public int getNumberOfTriangles()
+	{
+		return numberTriangles;
+	}
+
+	/**
+	 * Returns a read-only view of the packed vertex coordinates (x0, y0, z0, x1,
+	 * ...).
+	 */
+	public DoubleBuffer getVertices()
+	{
+		return DoubleBuffer.wrap(vertices).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns a read-only view of the packed vertex indices of the triangles,
+	 * three per triangle.
+	 */
+	public IntBuffer getTriangles()
+	{
+		return IntBuffer.wrap(triangles).asReadOnlyBuffer();
+	}
+
+	public void getVertex(int vertex, double[] result)
+	{
+		System.arraycopy(vertices, 3 * vertex, result, 0, 3);
+	}
+
+	/**
+	 * Copies the indices of the three vertices of the specified triangle into the
+	 * result.
+	 */
+	public void getTriangle(int triangle, int[] result)
+	{
+		System.arraycopy(triangles, 3 * triangle, result, 0, 3);
+	}
+
+	/**
+	 * Returns the id of the VTK cell the specified triangle came from.
+	 */
+	public int getCellId(int triangle)
+	{
+		return cellIds[triangle];
+	}
+
+	/**
+	 * Returns the first triangle that came from the specified VTK cell. For a
+	 * triangle this is the cell itself; for a larger polygon it is the triangle
+	 * formed by the first three points of the polygon.
+	 *
+	 * @return the index of the triangle, or -1 if no triangle came from the cell
+	 */
+	public int getFirstTriangle(int cellId)
+	{
+		// Triangles are stored in order of cell id, and the common case is that
+		// every cell is a triangle.
+		if (cellId >= 0 && cellId < numberTriangles && cellIds[cellId] == cellId && (cellId == 0 || cellIds[cellId - 1] != cellId))
+		{
+			return cellId;
+		}
+
+		int index = Arrays.binarySearch(cellIds, cellId);
+		if (index < 0)
+		{
+			return -1;
+		}
+		while (index > 0 && cellIds[index - 1] == cellId)
+		{
+			--index;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Returns a read-only view of the unit normals of the triangles, packed as
+	 * the vertices are. The normal follows the right-hand rule on the order of the
+	 * vertices. Degenerate triangles have a zero normal.
+	 */
+	public DoubleBuffer getFaceNormals()
+	{
+		return DoubleBuffer.wrap(faceNormals()).asReadOnlyBuffer();
+	}
+
+	public void getFaceNormal(int triangle, double[] result)
+	{
+		System.arraycopy(faceNormals(), 3 * triangle, result, 0, 3);
+	}
+
+	/**
+	 * Returns a read-only view of the areas of the triangles.
+	 */
+	public DoubleBuffer getFaceAreas()
+	{
+		return DoubleBuffer.wrap(faceAreas()).asReadOnlyBuffer();
+	}
+
+	public double getFaceArea(int triangle)
+	{
+		return faceAreas()[triangle];
+	}
+
+	/**
+	 * Returns a read-only view of the indices of the triangles that use the
+	 * specified vertex, in increasing order.
+	 */
+	public IntBuffer getVertexTriangles(int vertex)
+	{
+		int[][] adjacency = vertexTriangles();
+		int[] offsets = adjacency[0];
+
+		return IntBuffer.wrap(adjacency[1], offsets[vertex], offsets[vertex + 1] - offsets[vertex]).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns the triangle that shares the specified edge of the specified
+	 * triangle, where edge e runs from vertex e to vertex (e + 1) % 3 of the
+	 * triangle.
+	 *
+	 * @return the index of the neighbor, or -1 if the edge is on the boundary of
+	 *         the mesh or is shared by more than two triangles
+	 */
+	public int getNeighbor(int triangle, int edge)
+	{
+		Preconditions.checkElementIndex(edge, 3);
+
+		return neighbors()[3 * triangle + edge];
+	}
+
+	/**
+	 * Returns the total area of all triangles.
+	 */
+	public double getSurfaceArea()
+	{
+		return computeAreaStatistics()[2];
+	}
+
+	/**
+	 * Returns the smallest, largest and total areas of the triangles, in that
+	 * order.
+	 */
+	public double[] computeAreaStatistics()
+	{
+		double[] areas = faceAreas();
+
+		double[][] partials = reduce((first, last, partial) -> {
+			partial[0] = Double.MAX_VALUE;
+			partial[1] = 0.;
+			for (int tri = first; tri < last; ++tri)
+			{
+				partial[0] = Math.min(partial[0], areas[tri]);
+				partial[1] = Math.max(partial[1], areas[tri]);
+				partial[2] += areas[tri];
+			}
+		}, 3);
+
+		double[] result = new double[] { Double.MAX_VALUE, 0., 0. };
+		for (double[] partial : partials)
+		{
+			result[0] = Math.min(result[0], partial[0]);
+			result[1] = Math.max(result[1], partial[1]);
+			result[2] += partial[2];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the smallest, largest and mean lengths of the sides of the VTK
+	 * cells, in that order. Sides shared by two cells are counted twice. The
+	 * diagonals that split larger polygons into triangles are not sides, so for a
+	 * quad mesh these are the lengths of the sides of the quads.
+	 */
+	public double[] computeEdgeLengthStatistics()
+	{
+		double[][] partials = reduce((first, last, partial) -> {
+			partial[0] = Double.MAX_VALUE;
+			partial[1] = 0.;
+			for (int tri = first; tri < last; ++tri)
+			{
+				// In the fan of a polygon, edge 1 is always a side, edge 0 only in the first
+				// triangle and edge 2 only in the last.
+				boolean firstOfCell = tri == 0 || cellIds[tri - 1] != cellIds[tri];
+				boolean lastOfCell = tri == numberTriangles - 1 || cellIds[tri + 1] != cellIds[tri];
+				for (int edge = 0; edge < 3; ++edge)
+				{
+					if ((edge == 0 && !firstOfCell) || (edge == 2 && !lastOfCell))
+						continue;
+
+					double length = distance(triangles[3 * tri + edge], triangles[3 * tri + (edge + 1) % 3]);
+					partial[0] = Math.min(partial[0], length);
+					partial[1] = Math.max(partial[1], length);
+					partial[2] += length;
+					partial[3] += 1.;
+				}
+			}
+		}, 4);
+
+		double[] result = new double[] { Double.MAX_VALUE, 0., 0. };
+		double numberSides = 0.;
+		for (double[] partial : partials)
+		{
+			result[0] = Math.min(result[0], partial[0]);
+			result[1] = Math.max(result[1], partial[1]);
+			result[2] += partial[2];
+			numberSides += partial[3];
+		}
+		result[2] /= numberSides;
+
+		return result;
+	}
+
+	/**
+	 * Returns the volume of the mesh as vtkMassProperties computes it. Each
+	 * coordinate gives a volume from the divergence theorem, and the three are
+	 * weighted by the fraction of triangles whose normal is mostly along that
+	 * coordinate. For a closed mesh this is the enclosed volume; for an open mesh,
+	 * such as a DTM patch, it is the same approximation VTK gives. The sign is
+	 * dropped so either orientation gives a positive volume.
+	 */
+	public double computeVolume()
+	{
+		// Volumes along x, y and z, then the counts of triangles whose normal is
+		// mostly along x, y or z, or equally along xyz, xy, xz or yz.
+		double[][] partials = reduce((first, last, partial) -> {
+			for (int tri = first; tri < last; ++tri)
+			{
+				int p0 = 3 * triangles[3 * tri];
+				int p1 = 3 * triangles[3 * tri + 1];
+				int p2 = 3 * triangles[3 * tri + 2];
+
+				double[] i = { vertices[p1] - vertices[p0], vertices[p2] - vertices[p0], vertices[p2] - vertices[p1] };
+				double[] j = { vertices[p1 + 1] - vertices[p0 + 1], vertices[p2 + 1] - vertices[p0 + 1], vertices[p2 + 1] - vertices[p1 + 1] };
+				double[] k = { vertices[p1 + 2] - vertices[p0 + 2], vertices[p2 + 2] - vertices[p0 + 2], vertices[p2 + 2] - vertices[p1 + 2] };
+
+				double[] u = { j[0] * k[1] - k[0] * j[1], k[0] * i[1] - i[0] * k[1], i[0] * j[1] - j[0] * i[1] };
+				double length = Math.sqrt(u[0] * u[0] + u[1] * u[1] + u[2] * u[2]);
+				for (int c = 0; c < 3; ++c)
+				{
+					u[c] = length != 0. ? u[c] / length : 0.;
+				}
+
+				double absX = Math.abs(u[0]);
+				double absY = Math.abs(u[1]);
+				double absZ = Math.abs(u[2]);
+				if (absX > absY && absX > absZ)
+					partial[3] += 1.;
+				else if (absY > absX && absY > absZ)
+					partial[4] += 1.;
+				else if (absZ > absX && absZ > absY)
+					partial[5] += 1.;
+				else if (absX == absY && absX == absZ)
+					partial[6] += 1.;
+				else if (absX == absY && absX > absZ)
+					partial[7] += 1.;
+				else if (absX == absZ && absX > absY)
+					partial[8] += 1.;
+				else
+					partial[9] += 1.;
+
+				// Heron's formula, as in VTK.
+				double a = Math.sqrt(i[1] * i[1] + j[1] * j[1] + k[1] * k[1]);
+				double b = Math.sqrt(i[0] * i[0] + j[0] * j[0] + k[0] * k[0]);
+				double c = Math.sqrt(i[2] * i[2] + j[2] * j[2] + k[2] * k[2]);
+				double s = 0.5 * (a + b + c);
+				double area = Math.sqrt(Math.abs(s * (s - a) * (s - b) * (s - c)));
+
+				partial[0] += area * u[0] * (vertices[p0] + vertices[p1] + vertices[p2]) / 3.;
+				partial[1] += area * u[1] * (vertices[p0 + 1] + vertices[p1 + 1] + vertices[p2 + 1]) / 3.;
+				partial[2] += area * u[2] * (vertices[p0 + 2] + vertices[p1 + 2] + vertices[p2 + 2]) / 3.;
+			}
+		}, 10);
+
+		double[] sums = new double[10];
+		for (double[] partial : partials)
+		{
+			for (int index = 0; index < sums.length; ++index)
+			{
+				sums[index] += partial[index];
+			}
+		}
+		if (numberTriangles == 0)
+			return 0.;
+
+		double weightX = (sums[3] + sums[6] / 3. + (sums[7] + sums[8]) / 2.) / numberTriangles;
+		double weightY = (sums[4] + sums[6] / 3. + (sums[7] + sums[9]) / 2.) / numberTriangles;
+		double weightZ = (sums[5] + sums[6] / 3. + (sums[8] + sums[9]) / 2.) / numberTriangles;
+
+		return Math.abs(weightX * sums[0] + weightY * sums[1] + weightZ * sums[2]);
+	}
+
+	/**
+	 * Returns the mean of the coordinates of all vertices.
+	 */
+	public double[] computeVertexBarycenter()
+	{
+		int numberVertices = getNumberOfVertices();
+		double[] result = new double[3];
+		for (int vertex = 0; vertex < numberVertices; ++vertex)
+		{
+			result[0] += vertices[3 * vertex];
+			result[1] += vertices[3 * vertex + 1];
+			result[2] += vertices[3 * vertex + 2];
+		}
+		for (int k = 0; k < 3; ++k)
+		{
+			result[k] /= numberVertices;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the unit normals at the vertices, each the area-weighted mean of
+	 * the normals of the triangles that use the vertex, packed as the vertices
+	 * are. Vertices not used by any triangle have a zero normal.
+	 */
+	public double[] computeVertexNormals()
+	{
+		double[] normals = faceNormals();
+		double[] areas = faceAreas();
+		int[][] adjacency = vertexTriangles();
+		int[] offsets = adjacency[0];
+		int[] ids = adjacency[1];
+
+		int numberVertices = getNumberOfVertices();
+		double[] result = new double[3 * numberVertices];
+		int numberChunks = (numberVertices + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			int last = Math.min(numberVertices, (chunk + 1) * ChunkSize);
+			for (int vertex = chunk * ChunkSize; vertex < last; ++vertex)
+			{
+				double x = 0., y = 0., z = 0.;
+				for (int index = offsets[vertex]; index < offsets[vertex + 1]; ++index)
+				{
+					int tri = ids[index];
+					x += areas[tri] * normals[3 * tri];
+					y += areas[tri] * normals[3 * tri + 1];
+					z += areas[tri] * normals[3 * tri + 2];
+				}
+				double length = Math.sqrt(x * x + y * y + z * z);
+				if (length > 0.)
+				{
+					result[3 * vertex] = x / length;
+					result[3 * vertex + 1] = y / length;
+					result[3 * vertex + 2] = z / length;
+				}
+			}
+		});
+
+		return result;
+	}
+
+	private double distance(int vertex0, int vertex1)
+	{
+		double dx = vertices[3 * vertex1] - vertices[3 * vertex0];
+		double dy = vertices[3 * vertex1 + 1] - vertices[3 * vertex0 + 1];
+		double dz = vertices[3 * vertex1 + 2] - vertices[3 * vertex0 + 2];
+
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	private double[] faceNormals()
+	{
+		if (faceNormals == null)
+		{
+			computeFaceGeometry();
+		}
+
+		return faceNormals;
+	}
+
+	private double[] faceAreas()
+	{
+		if (faceAreas == null)
+		{
+			computeFaceGeometry();
+		}
+
+		return faceAreas;
+	}
+
+	private synchronized void computeFaceGeometry()
+	{
+		if (faceAreas != null)
+		{
+			return;
+		}
+
+		double[] normals = new double[3 * numberTriangles];
+		double[] areas = new double[numberTriangles];
+		forEachChunk((first, last) -> {
+			for (int tri = first; tri < last; ++tri)
+			{
+				int a = 3 * triangles[3 * tri];
+				int b = 3 * triangles[3 * tri + 1];
+				int c = 3 * triangles[3 * tri + 2];
+
+				double e1x = vertices[b] - vertices[a];
+				double e1y = vertices[b + 1] - vertices[a + 1];
+				double e1z = vertices[b + 2] - vertices[a + 2];
+				double e2x = vertices[c] - vertices[a];
+				double e2y = vertices[c + 1] - vertices[a + 1];
+				double e2z = vertices[c + 2] - vertices[a + 2];
+
+				double nx = e1y * e2z - e1z * e2y;
+				double ny = e1z * e2x - e1x * e2z;
+				double nz = e1x * e2y - e1y * e2x;
+				double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+				areas[tri] = 0.5 * length;
+				if (length > 0.)
+				{
+					normals[3 * tri] = nx / length;
+					normals[3 * tri + 1] = ny / length;
+					normals[3 * tri + 2] = nz / length;
+				}
+			}
+		});
+
+		faceNormals = normals;
+		faceAreas = areas;
+	}
+
+	// Element 0 holds the offsets (one per vertex, plus one), element 1 the ids.
+	private int[][] vertexTriangles()
+	{
+		int[][] result = vertexTriangles;
+		if (result == null)
+		{
+			synchronized (this)
+			{
+				result = vertexTriangles;
+				if (result == null)
+				{
+					int numberVertices = getNumberOfVertices();
+					int[] offsets = new int[numberVertices + 1];
+					for (int id : triangles)
+					{
+						++offsets[id + 1];
+					}
+					for (int vertex = 0; vertex < numberVertices; ++vertex)
+					{
+						offsets[vertex + 1] += offsets[vertex];
+					}
+
+					int[] next = offsets.clone();
+					int[] ids = new int[triangles.length];
+					for (int index = 0; index < triangles.length; ++index)
+					{
+						ids[next[triangles[index]]++] = index / 3;
+					}
+
+					result = new int[][] { offsets, ids };
+					vertexTriangles = result;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private int[] neighbors()
+	{
+		int[] result = neighbors;
+		if (result == null)
+		{
+			synchronized (this)
+			{
+				result = neighbors;
+				if (result == null)
+				{
+					int[][] adjacency = vertexTriangles();
+					int[] offsets = adjacency[0];
+					int[] ids = adjacency[1];
+
+					int[] edgeNeighbors = new int[3 * numberTriangles];
+					forEachChunk((first, last) -> {
+						for (int tri = first; tri < last; ++tri)
+						{
+							for (int edge = 0; edge < 3; ++edge)
+							{
+								int v0 = triangles[3 * tri + edge];
+								int v1 = triangles[3 * tri + (edge + 1) % 3];
+
+								// Look for the other triangles around v0 that also use v1.
+								int neighbor = -1;
+								for (int index = offsets[v0]; index < offsets[v0 + 1]; ++index)
+								{
+									int other = ids[index];
+									if (other != tri && usesVertex(other, v1))
+									{
+										// More than one other triangle: not a manifold edge.
+										neighbor = neighbor == -1 ? other : -2;
+									}
+								}
+								edgeNeighbors[3 * tri + edge] = Math.max(neighbor, -1);
+							}
+						}
+					});
+
+					result = edgeNeighbors;
+					neighbors = result;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private boolean usesVertex(int triangle, int vertex)
+	{
+		return triangles[3 * triangle] == vertex || triangles[3 * triangle + 1] == vertex || triangles[3 * triangle + 2] == vertex;
+	}
+
+	@FunctionalInterface
+	private interface ChunkTask
+	{
+		void run(int first, int last);
+	}
+
+	@FunctionalInterface
+	private interface ChunkReduction
+	{
+		void run(int first, int last, double[] partial);
+	}
+
+	private void forEachChunk(ChunkTask task)
+	{
+		int numberChunks = (numberTriangles + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			task.run(chunk * ChunkSize, Math.min(numberTriangles, (chunk + 1) * ChunkSize));
+		});
+	}
+
+	private double[][] reduce(ChunkReduction reduction, int size)
+	{
+		int numberChunks = (numberTriangles + ChunkSize - 1) / ChunkSize;
+		double[][] partials = new double[numberChunks][size];
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			reduction.run(chunk * ChunkSize, Math.min(numberTriangles, (chunk + 1) * ChunkSize), partials[chunk]);
+		});
+
+		return partials;
+	}
+}
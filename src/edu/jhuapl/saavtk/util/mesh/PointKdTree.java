@@ -0,0 +1,389 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Balanced k-d tree over a set of points, stored implicitly in primitive
+ * arrays: the median of every range of the point array is the node that splits
+ * that range.
+ * <p>
+ * Instances are immutable, so they may be queried from any number of threads
+ * at the same time. Queries do not allocate.
+ */
+public class PointKdTree
+{
+	// Number of queries processed by one task in the batch methods.
+	private static final int ChunkSize = 4096;
+
+	private final double[] points;
+	private final int[] ids;
+	private final byte[] axes;
+
+	/**
+	 * Build a tree over the specified points. The array is not modified and is not
+	 * retained.
+	 *
+	 * @param points packed point coordinates (x0, y0, z0, x1, ...)
+	 * @return the tree
+	 */
+	public static PointKdTree of(double[] points)
+	{
+		Preconditions.checkArgument(points.length % 3 == 0, "Point array length must be a multiple of 3");
+
+		return new PointKdTree(points);
+	}
+
+	private PointKdTree(double[] points)
+	{
+		int numberPoints = points.length / 3;
+
+		int[] order = new int[numberPoints];
+		for (int i = 0; i < numberPoints; ++i)
+		{
+			order[i] = i;
+		}
+
+		this.axes = new byte[numberPoints];
+		build(points, order, 0, numberPoints);
+
+		this.points = new double[points.length];
+		this.ids = order;
+		for (int i = 0; i < numberPoints; ++i)
+		{
+			System.arraycopy(points, 3 * order[i], this.points, 3 * i, 3);
+		}
+	}
+
+	/**
+	 * Return the number of points in the tree.
+	 */
+	public int getNumberOfPoints()
+	{
+		return ids.length;
+	}
+
+	/**
+	 * Return the id (index in the array used to build the tree) of the point
+	 * closest to the specified location, or -1 if the tree is empty.
+	 */
+	public int findClosestPoint(double x, double y, double z)
+	{
+		int best = nearest(0, ids.length, x, y, z, -1);
+
+		return best >= 0 ? ids[best] : -1;
+	}
+
+	/**
+	 * Find the points closest to the specified location.
+	 *
+	 * @param count  the number of points to find
+	 * @param result (returned) the ids of the points, nearest first; must hold at
+	 *               least count values
+	 * @return the number of points found, which is less than count only if the
+	 *         tree has fewer points
+	 */
+	public int findClosestPoints(double x, double y, double z, int count, int[] result)
+	{
+		Preconditions.checkArgument(count >= 0 && result.length >= count, "Result array is too small");
+
+		Neighbors neighbors = new Neighbors(Math.min(count, ids.length));
+		if (neighbors.capacity > 0)
+		{
+			nearest(0, ids.length, x, y, z, neighbors);
+		}
+
+		// Empty the heap from the back so the nearest point ends up first.
+		int numberFound = neighbors.size;
+		for (int i = numberFound - 1; i >= 0; --i)
+		{
+			result[i] = ids[neighbors.poll()];
+		}
+
+		return numberFound;
+	}
+
+	/**
+	 * Find the closest point to each of a batch of locations in parallel.
+	 *
+	 * @param locations packed query locations
+	 * @return the id of the closest point to each location
+	 */
+	public int[] findClosestPoints(double[] locations)
+	{
+		Preconditions.checkArgument(locations.length % 3 == 0, "Location array length must be a multiple of 3");
+
+		int numberLocations = locations.length / 3;
+		int[] result = new int[numberLocations];
+
+		int numberChunks = (numberLocations + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			int end = Math.min(numberLocations, (chunk + 1) * ChunkSize);
+			for (int index = chunk * ChunkSize; index < end; ++index)
+			{
+				result[index] = findClosestPoint(locations[3 * index], locations[3 * index + 1], locations[3 * index + 2]);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Search the range [lo, hi) for a point closer than the current best, and
+	 * return the (possibly updated) best position. The near side of each split is
+	 * searched recursively; the far side only if the splitting plane is closer
+	 * than the best point found so far.
+	 */
+	private int nearest(int lo, int hi, double x, double y, double z, int best)
+	{
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (best < 0 || distance2(mid, x, y, z) < distance2(best, x, y, z))
+			{
+				best = mid;
+			}
+
+			int axis = axes[mid];
+			double diff = (axis == 0 ? x : axis == 1 ? y : z) - points[3 * mid + axis];
+			if (diff < 0.)
+			{
+				best = nearest(lo, mid, x, y, z, best);
+				if (diff * diff >= distance2(best, x, y, z))
+					break;
+				lo = mid + 1;
+			}
+			else
+			{
+				best = nearest(mid + 1, hi, x, y, z, best);
+				if (diff * diff >= distance2(best, x, y, z))
+					break;
+				hi = mid;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Same as {@link #nearest(int, int, double, double, double, int)}, but keeps
+	 * the best few points. The far side of a split is searched unless the
+	 * neighbors are complete and all closer than the splitting plane.
+	 */
+	private void nearest(int lo, int hi, double x, double y, double z, Neighbors neighbors)
+	{
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			neighbors.offer(mid, distance2(mid, x, y, z));
+
+			int axis = axes[mid];
+			double diff = (axis == 0 ? x : axis == 1 ? y : z) - points[3 * mid + axis];
+			if (diff < 0.)
+			{
+				nearest(lo, mid, x, y, z, neighbors);
+				if (diff * diff >= neighbors.bound())
+					break;
+				lo = mid + 1;
+			}
+			else
+			{
+				nearest(mid + 1, hi, x, y, z, neighbors);
+				if (diff * diff >= neighbors.bound())
+					break;
+				hi = mid;
+			}
+		}
+	}
+
+	private double distance2(int position, double x, double y, double z)
+	{
+		double dx = points[3 * position] - x;
+		double dy = points[3 * position + 1] - y;
+		double dz = points[3 * position + 2] - z;
+
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Arrange order[lo, hi) so that the median along the axis of largest extent is
+	 * in the middle, with smaller values before it and larger after, then recurse
+	 * on both halves.
+	 */
+	private void build(double[] coords, int[] order, int lo, int hi)
+	{
+		if (hi - lo <= 1)
+			return;
+
+		double[] min = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+		double[] max = { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+		for (int i = lo; i < hi; ++i)
+		{
+			for (int k = 0; k < 3; ++k)
+			{
+				double value = coords[3 * order[i] + k];
+				min[k] = Math.min(min[k], value);
+				max[k] = Math.max(max[k], value);
+			}
+		}
+
+		int axis = 0;
+		for (int k = 1; k < 3; ++k)
+		{
+			if (max[k] - min[k] > max[axis] - min[axis])
+				axis = k;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		select(coords, order, lo, hi - 1, mid, axis);
+		axes[mid] = (byte) axis;
+
+		build(coords, order, lo, mid);
+		build(coords, order, mid + 1, hi);
+	}
+
+	/**
+	 * Quickselect: partially sort order[left, right] so that position k holds the
+	 * element that would be there if the range were fully sorted along the axis.
+	 */
+	private static void select(double[] coords, int[] order, int left, int right, int k, int axis)
+	{
+		while (right > left)
+		{
+			// Median of three pivot keeps sorted or nearly sorted input fast.
+			int middle = (left + right) >>> 1;
+			if (key(coords, order, middle, axis) < key(coords, order, left, axis))
+				swap(order, middle, left);
+			if (key(coords, order, right, axis) < key(coords, order, left, axis))
+				swap(order, right, left);
+			if (key(coords, order, right, axis) < key(coords, order, middle, axis))
+				swap(order, right, middle);
+			double pivot = key(coords, order, middle, axis);
+
+			int i = left;
+			int j = right;
+			while (i <= j)
+			{
+				while (key(coords, order, i, axis) < pivot)
+					++i;
+				while (key(coords, order, j, axis) > pivot)
+					--j;
+				if (i <= j)
+				{
+					swap(order, i, j);
+					++i;
+					--j;
+				}
+			}
+
+			if (k <= j)
+				right = j;
+			else if (k >= i)
+				left = i;
+			else
+				break;
+		}
+	}
+
+	private static double key(double[] coords, int[] order, int position, int axis)
+	{
+		return coords[3 * order[position] + axis];
+	}
+
+	private static void swap(int[] order, int i, int j)
+	{
+		int tmp = order[i];
+		order[i] = order[j];
+		order[j] = tmp;
+	}
+
+	/**
+	 * Bounded max-heap of the positions of the closest points found so far, keyed
+	 * on their squared distance, so the farthest of them is at the root.
+	 */
+	private static class Neighbors
+	{
+		private final int capacity;
+		private final int[] positions;
+		private final double[] distances2;
+		private int size;
+
+		private Neighbors(int capacity)
+		{
+			this.capacity = capacity;
+			this.positions = new int[capacity];
+			this.distances2 = new double[capacity];
+		}
+
+		/**
+		 * Return the squared distance a point must beat to be kept.
+		 */
+		private double bound()
+		{
+			return size < capacity ? Double.POSITIVE_INFINITY : distances2[0];
+		}
+
+		private void offer(int position, double distance2)
+		{
+			if (size < capacity)
+			{
+				// Sift the new point up from the bottom.
+				int child = size++;
+				while (child > 0)
+				{
+					int parent = (child - 1) >>> 1;
+					if (distances2[parent] >= distance2)
+						break;
+					positions[child] = positions[parent];
+					distances2[child] = distances2[parent];
+					child = parent;
+				}
+				positions[child] = position;
+				distances2[child] = distance2;
+			}
+			else if (distance2 < distances2[0])
+			{
+				siftDown(position, distance2);
+			}
+		}
+
+		/**
+		 * Remove and return the position of the farthest point.
+		 */
+		private int poll()
+		{
+			int result = positions[0];
+			--size;
+			if (size > 0)
+			{
+				siftDown(positions[size], distances2[size]);
+			}
+
+			return result;
+		}
+
+		/**
+		 * Put the specified point at the root and sift it down to its place.
+		 */
+		private void siftDown(int position, double distance2)
+		{
+			int parent = 0;
+			while (true)
+			{
+				int child = 2 * parent + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && distances2[child + 1] > distances2[child])
+					++child;
+				if (distances2[child] <= distance2)
+					break;
+				positions[parent] = positions[child];
+				distances2[parent] = distances2[child];
+				parent = child;
+			}
+			positions[parent] = position;
+			distances2[parent] = distance2;
+		}
+	}
+}
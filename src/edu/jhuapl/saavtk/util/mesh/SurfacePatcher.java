@@ -0,0 +1,238 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
+import vtk.vtkFloatArray;
+import vtk.vtkPoints;
+import vtk.vtkPolyData;
+
+/**
+ * Cuts small patches out of the surface of a {@link JavaMesh}, for structures
+ * such as ellipses that only cover a small part of a shape model.
+ * <p>
+ * VtkDrawUtil.drawEllipseOn used to look up the surface normal with the VTK
+ * point locator of the shape model and extract the cells around the ellipse
+ * with vtkExtractPolyDataGeometry, which visits every cell of the model. Both
+ * share VTK state with the model, so structures could only be drawn one at a
+ * time. A patcher answers the same queries from primitive arrays: the cells
+ * near a point are found through a {@link TriangleBvh} and the nearest vertices
+ * through a {@link PointKdTree}, and each patch is a new vtkPolyData that holds
+ * only the points, point normals and triangles of those cells.
+ * <p>
+ * Instances are immutable, so they may be used from any number of threads at
+ * the same time. The returned patches are owned by the caller.
+ */
+public class SurfacePatcher
+{
+	private final JavaMesh mesh;
+	private final TriangleBvh searchTree;
+	private final PointKdTree vertexTree;
+	private final double[] vertexNormals;
+	private final double diagonalLength;
+
+	/**
+	 * Create a patcher over the specified mesh. The search trees must have been
+	 * built from the same polydata as the mesh.
+	 *
+	 * @param mesh          the mesh
+	 * @param searchTree    search tree over the triangles of the mesh
+	 * @param vertexTree    search tree over the vertices of the mesh
+	 * @param vertexNormals packed normals at the vertices, such as the point
+	 *                      normals of the polydata. If null, the area-weighted
+	 *                      normals of the mesh are used.
+	 * @return the patcher
+	 */
+	public static SurfacePatcher of(JavaMesh mesh, TriangleBvh searchTree, PointKdTree vertexTree, double[] vertexNormals)
+	{
+		Preconditions.checkNotNull(mesh);
+		Preconditions.checkNotNull(searchTree);
+		Preconditions.checkNotNull(vertexTree);
+		Preconditions.checkArgument(vertexTree.getNumberOfPoints() == mesh.getNumberOfVertices(), "Vertex tree does not match the mesh");
+		Preconditions.checkArgument(vertexNormals == null || vertexNormals.length == 3 * mesh.getNumberOfVertices(), "Need exactly one normal per vertex");
+
+		return new SurfacePatcher(mesh, searchTree, vertexTree, vertexNormals != null ? vertexNormals.clone() : mesh.computeVertexNormals());
+	}
+
+	private SurfacePatcher(JavaMesh mesh, TriangleBvh searchTree, PointKdTree vertexTree, double[] vertexNormals)
+	{
+		this.mesh = mesh;
+		this.searchTree = searchTree;
+		this.vertexTree = vertexTree;
+		this.vertexNormals = vertexNormals;
+
+		double[] min = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+		double[] max = { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+		DoubleBuffer vertices = mesh.getVertices();
+		for (int i = 0; i < vertices.limit(); ++i)
+		{
+			min[i % 3] = Math.min(min[i % 3], vertices.get(i));
+			max[i % 3] = Math.max(max[i % 3], vertices.get(i));
+		}
+
+		double length2 = 0.;
+		for (int k = 0; k < 3 && vertices.limit() > 0; ++k)
+		{
+			length2 += (max[k] - min[k]) * (max[k] - min[k]);
+		}
+		this.diagonalLength = Math.sqrt(length2);
+	}
+
+	/**
+	 * Return the number of vertices of the surface.
+	 */
+	public int getNumberOfVertices()
+	{
+		return mesh.getNumberOfVertices();
+	}
+
+	/**
+	 * Return the length of the diagonal of the bounding box of the surface.
+	 */
+	public double getDiagonalLength()
+	{
+		return diagonalLength;
+	}
+
+	/**
+	 * Compute the surface normal at a point as the mean of the normals at the
+	 * closest vertices, as PolyDataUtil.getPolyDataNormalAtPoint does. As there,
+	 * the mean is not normalized.
+	 *
+	 * @param point          the point
+	 * @param numberVertices the number of vertices to average over
+	 * @return the normal, or null if the surface has no vertices
+	 */
+	public double[] getNormalAtPoint(double[] point, int numberVertices)
+	{
+		int[] nearest = new int[numberVertices];
+		int numberFound = vertexTree.findClosestPoints(point[0], point[1], point[2], numberVertices, nearest);
+		if (numberFound < 1)
+			return null;
+
+		double[] result = new double[3];
+		for (int i = 0; i < numberFound; ++i)
+		{
+			int n = 3 * nearest[i];
+			result[0] += vertexNormals[n];
+			result[1] += vertexNormals[n + 1];
+			result[2] += vertexNormals[n + 2];
+		}
+		result[0] /= numberFound;
+		result[1] /= numberFound;
+		result[2] /= numberFound;
+
+		return result;
+	}
+
+	/**
+	 * Move each of the specified points along the normal at the vertex closest to
+	 * it, as PolyDataUtil.shiftPolyLineInNormalDirectionOfPolyData does.
+	 *
+	 * @param points packed points, moved in place
+	 * @param amount the distance to move the points
+	 */
+	public void shiftAlongNormals(double[] points, double amount)
+	{
+		for (int i = 0; i + 2 < points.length; i += 3)
+		{
+			int vertex = vertexTree.findClosestPoint(points[i], points[i + 1], points[i + 2]);
+			if (vertex < 0)
+				continue;
+
+			points[i] += amount * vertexNormals[3 * vertex];
+			points[i + 1] += amount * vertexNormals[3 * vertex + 1];
+			points[i + 2] += amount * vertexNormals[3 * vertex + 2];
+		}
+	}
+
+	/**
+	 * Find the cells that come within the specified distance of a point. An
+	 * infinite radius returns all cells.
+	 *
+	 * @return the distinct cell ids, in increasing order
+	 */
+	public int[] findCellsNear(double[] point, double radius)
+	{
+		return searchTree.findCellsNearPoint(point, radius);
+	}
+
+	/**
+	 * Create a polydata holding the triangles of the specified cells, the points
+	 * they use and the normals at those points. Points are numbered in the order
+	 * of their index in the mesh, and polygons with more than three points are
+	 * split into triangles.
+	 *
+	 * @param cellIds the distinct ids of the cells
+	 * @return the patch
+	 */
+	public vtkPolyData createPatch(int[] cellIds)
+	{
+		int numberTriangles = mesh.getNumberOfTriangles();
+
+		// Gather the triangles of the cells.
+		int[] triangleVertices = new int[3 * cellIds.length];
+		int numberValues = 0;
+		int[] triangle = new int[3];
+		for (int cellId : cellIds)
+		{
+			for (int tri = mesh.getFirstTriangle(cellId); tri >= 0 && tri < numberTriangles && mesh.getCellId(tri) == cellId; ++tri)
+			{
+				if (numberValues == triangleVertices.length)
+					triangleVertices = Arrays.copyOf(triangleVertices, 2 * numberValues);
+				mesh.getTriangle(tri, triangle);
+				System.arraycopy(triangle, 0, triangleVertices, numberValues, 3);
+				numberValues += 3;
+			}
+		}
+
+		// Number the vertices used, without allocating anything the size of the mesh.
+		int[] patchVertices = Arrays.stream(triangleVertices, 0, numberValues).sorted().distinct().toArray();
+		int numberPatchVertices = patchVertices.length;
+
+		double[] coords = new double[3 * numberPatchVertices];
+		float[] normals = new float[3 * numberPatchVertices];
+		double[] vertex = new double[3];
+		for (int i = 0; i < numberPatchVertices; ++i)
+		{
+			int v = patchVertices[i];
+			mesh.getVertex(v, vertex);
+			System.arraycopy(vertex, 0, coords, 3 * i, 3);
+			normals[3 * i] = (float) vertexNormals[3 * v];
+			normals[3 * i + 1] = (float) vertexNormals[3 * v + 1];
+			normals[3 * i + 2] = (float) vertexNormals[3 * v + 2];
+		}
+
+		int numberPatchTriangles = numberValues / 3;
+		long[] offsets = new long[numberPatchTriangles + 1];
+		long[] connectivity = new long[numberValues];
+		for (int i = 0; i < numberValues; ++i)
+		{
+			connectivity[i] = Arrays.binarySearch(patchVertices, triangleVertices[i]);
+		}
+		for (int i = 0; i <= numberPatchTriangles; ++i)
+		{
+			offsets[i] = 3L * i;
+		}
+
+		vtkPoints points = VtkArrayUtil.createPoints(coords);
+		vtkCellArray polys = VtkArrayUtil.createCellArray(offsets, connectivity);
+		vtkFloatArray pointNormals = VtkArrayUtil.createFloatArray(3, normals);
+		pointNormals.SetName("Normals");
+
+		vtkPolyData result = new vtkPolyData();
+		result.SetPoints(points);
+		result.SetPolys(polys);
+		result.GetPointData().SetNormals(pointNormals);
+
+		points.Delete();
+		polys.Delete();
+		pointNormals.Delete();
+
+		return result;
+	}
+}
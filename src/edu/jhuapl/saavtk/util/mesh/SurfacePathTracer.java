@@ -0,0 +1,477 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Traces paths between pairs of points on the surface of a {@link JavaMesh}.
+ * <p>
+ * As in VtkDrawUtil.drawPathPolyOn, a path follows the curve where the surface
+ * is cut by the plane that contains both end points and the mean of the surface
+ * normals at them. Rather than cutting the whole surface, the tracer starts at
+ * the triangle closest to the first point and walks across the edges the plane
+ * crosses, in both directions at once, until one of the walks reaches the
+ * triangle closest to the second point. The shorter of the two ways around is
+ * returned, so the cost is proportional to the length of the path and not to
+ * the size of the mesh.
+ * <p>
+ * The surface normal at a point is the mean of the vertex normals of the
+ * closest triangle. This approximates, but is not identical to, the mean over
+ * the 20 closest points used by VtkDrawUtil.
+ * <p>
+ * A path cannot be traced if the walk reaches the boundary of the mesh or a
+ * non-manifold edge before reaching the second point, or if the plane cuts the
+ * surface in several separate curves and the points are on different ones. The
+ * trace methods then return null, and callers should fall back to cutting the
+ * whole surface.
+ * <p>
+ * Instances may be used from several threads at once.
+ */
+public class SurfacePathTracer
+{
+	private final JavaMesh mesh;
+	private final TriangleBvh searchTree;
+	private final double[] vertexNormals;
+
+	/**
+	 * Create a tracer over the specified mesh. The search tree must have been
+	 * built from the same polydata as the mesh.
+	 *
+	 * @param mesh       the mesh
+	 * @param searchTree search tree used to find the triangles closest to the end
+	 *                   points
+	 * @return the tracer
+	 */
+	public static SurfacePathTracer of(JavaMesh mesh, TriangleBvh searchTree)
+	{
+		Preconditions.checkNotNull(mesh);
+		Preconditions.checkNotNull(searchTree);
+
+		return new SurfacePathTracer(mesh, searchTree);
+	}
+
+	private SurfacePathTracer(JavaMesh mesh, TriangleBvh searchTree)
+	{
+		this.mesh = mesh;
+		this.searchTree = searchTree;
+		this.vertexNormals = mesh.computeVertexNormals();
+	}
+
+	/**
+	 * Trace the path between the specified points.
+	 *
+	 * @param begin the first end point
+	 * @param end   the second end point
+	 * @return the points of the path, packed (x0, y0, z0, x1, ...), from the
+	 *         point of the path closest to begin to the point closest to end, or
+	 *         null if the path could not be traced
+	 */
+	public double[] trace(double[] begin, double[] end)
+	{
+		Preconditions.checkArgument(begin.length == 3 && end.length == 3);
+
+		return new Trace(begin, end).run();
+	}
+
+	/**
+	 * Trace the paths between many pairs of points in parallel. The end points
+	 * are packed three values per point.
+	 *
+	 * @param begins the first end point of each path
+	 * @param ends   the second end point of each path
+	 * @return the points of each path as returned by
+	 *         {@link #trace(double[], double[])}; null where a path could not be
+	 *         traced
+	 */
+	public double[][] traceAll(double[] begins, double[] ends)
+	{
+		Preconditions.checkArgument(begins.length % 3 == 0 && begins.length == ends.length);
+
+		double[][] result = new double[begins.length / 3][];
+		IntStream.range(0, result.length).parallel().forEach(path -> {
+			double[] begin = Arrays.copyOfRange(begins, 3 * path, 3 * path + 3);
+			double[] end = Arrays.copyOfRange(ends, 3 * path, 3 * path + 3);
+			result[path] = new Trace(begin, end).run();
+		});
+
+		return result;
+	}
+
+	/**
+	 * One direction of the walk around the cut.
+	 */
+	private static class Walk
+	{
+		private double[] points;
+		private int size;
+		private double length;
+		private int triangle;
+		private int edge;
+		private int steps;
+		private boolean done;
+		private boolean failed;
+
+		private Walk(double[] start)
+		{
+			points = new double[48];
+			size = 0;
+			length = 0.;
+			steps = 0;
+			done = false;
+			failed = false;
+			add(start, 0);
+		}
+
+		private void add(double[] point, int offset)
+		{
+			if (size + 3 > points.length)
+			{
+				points = Arrays.copyOf(points, 2 * points.length);
+			}
+			if (size > 0)
+			{
+				double dx = point[offset] - points[size - 3];
+				double dy = point[offset + 1] - points[size - 2];
+				double dz = point[offset + 2] - points[size - 1];
+				length += Math.sqrt(dx * dx + dy * dy + dz * dz);
+			}
+			System.arraycopy(point, offset, points, size, 3);
+			size += 3;
+		}
+
+		private boolean isActive()
+		{
+			return !done && !failed;
+		}
+	}
+
+	/**
+	 * State of a single trace. Holds the cutting plane and scratch space, so
+	 * traces on different threads do not share anything mutable.
+	 */
+	private class Trace
+	{
+		private final double[] begin;
+		private final double[] end;
+		private final int[] stack;
+		private final int[] corners;
+		private final int[] edges;
+		private final int[] crossed;
+		private final double[] vertex;
+		private final double[] otherVertex;
+		private final double[] segment;
+		private double nx, ny, nz, w;
+
+		private Trace(double[] begin, double[] end)
+		{
+			this.begin = begin;
+			this.end = end;
+			this.stack = searchTree.createStack();
+			this.corners = new int[3];
+			this.edges = new int[2];
+			this.crossed = new int[2];
+			this.vertex = new double[3];
+			this.otherVertex = new double[3];
+			this.segment = new double[6];
+		}
+
+		private double[] run()
+		{
+			int beginCell = searchTree.findClosestCell(begin[0], begin[1], begin[2], null, 0, stack);
+			int endCell = searchTree.findClosestCell(end[0], end[1], end[2], null, 0, stack);
+			if (beginCell < 0 || endCell < 0)
+			{
+				return null;
+			}
+
+			// The plane contains both end points and the mean normal at them.
+			double[] normal = new double[3];
+			addCellNormal(beginCell, normal);
+			addCellNormal(endCell, normal);
+			double dx = begin[0] - end[0];
+			double dy = begin[1] - end[1];
+			double dz = begin[2] - end[2];
+			nx = dy * normal[2] - dz * normal[1];
+			ny = dz * normal[0] - dx * normal[2];
+			nz = dx * normal[1] - dy * normal[0];
+			double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if (!(length > 0.))
+			{
+				return null;
+			}
+			nx /= length;
+			ny /= length;
+			nz /= length;
+			w = -(nx * begin[0] + ny * begin[1] + nz * begin[2]);
+
+			int beginTri = locate(beginCell, begin);
+			int endTri = locate(endCell, end);
+			if (beginTri < 0 || endTri < 0)
+			{
+				return null;
+			}
+
+			findCrossingEdges(beginTri, edges);
+			int edge0 = edges[0];
+			int edge1 = edges[1];
+			double[] start = new double[3];
+			closestOnCut(beginTri, begin, start);
+			if (beginTri == endTri)
+			{
+				double[] stop = new double[3];
+				closestOnCut(endTri, end, stop);
+				return new double[] { start[0], start[1], start[2], stop[0], stop[1], stop[2] };
+			}
+
+			Walk[] walks = { new Walk(start), new Walk(start) };
+			begin(walks[0], beginTri, edge0);
+			begin(walks[1], beginTri, edge1);
+
+			// Always advance the shorter walk, and stop once no walk that is still
+			// going is shorter than the best complete one.
+			Walk best = null;
+			while (true)
+			{
+				Walk next = null;
+				for (Walk walk : walks)
+				{
+					if (walk.isActive() && (best == null || walk.length < best.length) && (next == null || walk.length < next.length))
+					{
+						next = walk;
+					}
+				}
+				if (next == null)
+				{
+					break;
+				}
+
+				step(next, beginTri, endTri);
+				if (next.done && (best == null || next.length < best.length))
+				{
+					best = next;
+				}
+			}
+
+			return best != null ? Arrays.copyOf(best.points, best.size) : null;
+		}
+
+		private void begin(Walk walk, int triangle, int edge)
+		{
+			edgePoint(triangle, edge, segment, 0);
+			walk.add(segment, 0);
+			walk.triangle = triangle;
+			walk.edge = edge;
+		}
+
+		/**
+		 * Cross the exit edge of the current triangle of the walk and add the point
+		 * where the plane leaves the next triangle.
+		 */
+		private void step(Walk walk, int beginTri, int endTri)
+		{
+			int next = mesh.getNeighbor(walk.triangle, walk.edge);
+			if (next < 0 || next == beginTri || ++walk.steps > mesh.getNumberOfTriangles())
+			{
+				walk.failed = true;
+				return;
+			}
+
+			mesh.getTriangle(walk.triangle, corners);
+			int a = corners[walk.edge];
+			int b = corners[(walk.edge + 1) % 3];
+
+			mesh.getTriangle(next, corners);
+			int entry = -1;
+			for (int e = 0; e < 3; ++e)
+			{
+				int c = corners[e];
+				int d = corners[(e + 1) % 3];
+				if (c == a && d == b || c == b && d == a)
+				{
+					entry = e;
+				}
+			}
+			if (entry < 0 || findCrossingEdges(next, edges) != 2 || edges[0] != entry && edges[1] != entry)
+			{
+				walk.failed = true;
+				return;
+			}
+			int exit = edges[0] != entry ? edges[0] : edges[1];
+
+			if (next == endTri)
+			{
+				double[] stop = new double[3];
+				closestOnCut(next, end, stop);
+				walk.add(stop, 0);
+				walk.done = true;
+				return;
+			}
+
+			edgePoint(next, exit, segment, 0);
+			walk.add(segment, 0);
+			walk.triangle = next;
+			walk.edge = exit;
+		}
+
+		/**
+		 * Find the triangle that the path through the specified point starts or
+		 * ends in. This is the closest triangle if the plane crosses it. Otherwise,
+		 * as when the point is not quite on the surface or is on a vertex, it is the
+		 * crossed triangle among the closest one (or, for a polygon, its fan) and
+		 * their neighbors whose cut passes closest to the point.
+		 *
+		 * @return the triangle, or -1 if the plane crosses none of them
+		 */
+		private int locate(int cellId, double[] point)
+		{
+			int first = mesh.getFirstTriangle(cellId);
+			if (first < 0)
+			{
+				return -1;
+			}
+
+			int last = first;
+			while (last + 1 < mesh.getNumberOfTriangles() && mesh.getCellId(last + 1) == cellId)
+			{
+				++last;
+			}
+			if (first == last && findCrossingEdges(first, edges) == 2)
+			{
+				return first;
+			}
+
+			int result = -1;
+			double bestDist2 = Double.POSITIVE_INFINITY;
+			double[] closest = new double[3];
+			for (int tri = first; tri <= last; ++tri)
+			{
+				for (int e = -1; e < 3; ++e)
+				{
+					int candidate = e < 0 ? tri : mesh.getNeighbor(tri, e);
+					if (candidate < 0 || findCrossingEdges(candidate, edges) != 2)
+					{
+						continue;
+					}
+
+					closestOnCut(candidate, point, closest);
+					double dx = closest[0] - point[0];
+					double dy = closest[1] - point[1];
+					double dz = closest[2] - point[2];
+					double dist2 = dx * dx + dy * dy + dz * dz;
+					if (dist2 < bestDist2)
+					{
+						bestDist2 = dist2;
+						result = candidate;
+					}
+				}
+			}
+
+			return result;
+		}
+
+		private void addCellNormal(int cellId, double[] result)
+		{
+			int tri = mesh.getFirstTriangle(cellId);
+			if (tri < 0)
+			{
+				return;
+			}
+
+			mesh.getTriangle(tri, corners);
+			for (int corner : corners)
+			{
+				result[0] += vertexNormals[3 * corner] / 3.;
+				result[1] += vertexNormals[3 * corner + 1] / 3.;
+				result[2] += vertexNormals[3 * corner + 2] / 3.;
+			}
+		}
+
+		private double distance(int vertexId)
+		{
+			mesh.getVertex(vertexId, vertex);
+
+			return nx * vertex[0] + ny * vertex[1] + nz * vertex[2] + w;
+		}
+
+		/**
+		 * Find the edges of the specified triangle that the plane crosses. A vertex
+		 * exactly on the plane counts as being on its positive side, so that a
+		 * triangle is crossed on either none or two of its edges.
+		 *
+		 * @return the number of edges crossed
+		 */
+		private int findCrossingEdges(int triangle, int[] result)
+		{
+			mesh.getTriangle(triangle, corners);
+			boolean side0 = distance(corners[0]) >= 0.;
+			boolean side1 = distance(corners[1]) >= 0.;
+			boolean side2 = distance(corners[2]) >= 0.;
+
+			int count = 0;
+			if (side0 != side1)
+			{
+				result[count++] = 0;
+			}
+			if (side1 != side2)
+			{
+				result[count++] = 1;
+			}
+			if (side2 != side0)
+			{
+				result[count++] = 2;
+			}
+
+			return count;
+		}
+
+		/**
+		 * Compute the point where the plane crosses the specified edge of the
+		 * specified triangle. The vertices are taken in order of index, so both
+		 * triangles that share the edge yield exactly the same point.
+		 */
+		private void edgePoint(int triangle, int edge, double[] result, int offset)
+		{
+			mesh.getTriangle(triangle, corners);
+			int a = Math.min(corners[edge], corners[(edge + 1) % 3]);
+			int b = Math.max(corners[edge], corners[(edge + 1) % 3]);
+
+			double da = distance(a);
+			double db = distance(b);
+			double t = da / (da - db);
+
+			mesh.getVertex(a, otherVertex);
+			mesh.getVertex(b, vertex);
+			result[offset] = otherVertex[0] + t * (vertex[0] - otherVertex[0]);
+			result[offset + 1] = otherVertex[1] + t * (vertex[1] - otherVertex[1]);
+			result[offset + 2] = otherVertex[2] + t * (vertex[2] - otherVertex[2]);
+		}
+
+		/**
+		 * Compute the point of the cut across the specified triangle, which must be
+		 * crossed by the plane, that is closest to the specified point.
+		 */
+		private void closestOnCut(int triangle, double[] point, double[] result)
+		{
+			findCrossingEdges(triangle, crossed);
+			edgePoint(triangle, crossed[0], segment, 0);
+			edgePoint(triangle, crossed[1], segment, 3);
+
+			double ex = segment[3] - segment[0];
+			double ey = segment[4] - segment[1];
+			double ez = segment[5] - segment[2];
+			double length2 = ex * ex + ey * ey + ez * ez;
+			double t = 0.;
+			if (length2 > 0.)
+			{
+				t = ((point[0] - segment[0]) * ex + (point[1] - segment[1]) * ey + (point[2] - segment[2]) * ez) / length2;
+				t = Math.max(0., Math.min(1., t));
+			}
+			result[0] = segment[0] + t * ex;
+			result[1] = segment[1] + t * ey;
+			result[2] = segment[2] + t * ez;
+		}
+	}
+
+}
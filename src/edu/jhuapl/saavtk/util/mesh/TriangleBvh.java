@@ -0,0 +1,1204 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkCellArray;
+import vtk.vtkPolyData;
+
+/**
+ * Bounding volume hierarchy (BVH) over the triangles of a shape model, stored
+ * entirely in primitive arrays.
+ * <p>
+ * The hierarchy is built once with a binned surface area heuristic and is
+ * immutable afterwards, so a single instance may be queried from any number of
+ * threads at the same time. Unlike the VTK locators, queries do not cross JNI
+ * and do not allocate anything per query: callers that issue many ray or
+ * closest-point queries should use the batch methods, which split the queries
+ * into chunks and process the chunks on all available cores.
+ * <p>
+ * Triangles are identified by the id of the VTK cell they came from. Polygons
+ * with more than three points are split into a fan of triangles that all map
+ * back to the same cell id.
+ */
+public class TriangleBvh
+{
+	// Maximum number of triangles in a leaf node that is never split further.
+	private static final int MaxLeafSize = 4;
+	// Leaves larger than this are always split, even if the heuristic says otherwise.
+	private static final int MaxForcedLeafSize = 64;
+	// Number of bins used to evaluate the surface area heuristic.
+	private static final int NumBins = 16;
+	// Number of queries processed by one task in the batch methods.
+	private static final int ChunkSize = 4096;
+	// Slack on the barycentric coordinates so rays through shared edges are not lost.
+	private static final double BarycentricTolerance = 1.e-9;
+
+	private final double[] vertices;
+	private final int[] triangles;
+	private final int[] cellIds;
+	private final double[] nodeBounds;
+	private final int[] nodeFirst;
+	private final int[] nodeCount;
+	private final int stackSize;
+
+	/**
+	 * Build a hierarchy over all polygons of the specified polydata. The point and
+	 * connectivity arrays are copied in bulk, so the polydata may be modified or
+	 * deleted afterwards without affecting the hierarchy.
+	 *
+	 * @param polyData the polydata
+	 * @return the hierarchy
+	 */
+	public static TriangleBvh of(vtkPolyData polyData)
+	{
+		Preconditions.checkNotNull(polyData);
+
+		double[] vertices = VtkArrayUtil.getPoints(polyData.GetPoints());
+
+		// Cell ids of polys come after those of verts and lines.
+		int cellIdOffset = (int) (polyData.GetNumberOfVerts() + polyData.GetNumberOfLines());
+
+		vtkCellArray polys = polyData.GetPolys();
+		long[] cells = VtkArrayUtil.getLegacyCells(polys);
+		int numberPolys = (int) polys.GetNumberOfCells();
+
+		// Count the triangles first so the arrays can be sized exactly.
+		int numberTriangles = 0;
+		for (int index = 0, poly = 0; poly < numberPolys; ++poly)
+		{
+			int numberIds = (int) cells[index];
+			numberTriangles += Math.max(numberIds - 2, 0);
+			index += numberIds + 1;
+		}
+
+		int[] triangles = new int[3 * numberTriangles];
+		int[] cellIds = new int[numberTriangles];
+		for (int index = 0, poly = 0, tri = 0; poly < numberPolys; ++poly)
+		{
+			int numberIds = (int) cells[index];
+			int first = index + 1;
+			for (int j = 2; j < numberIds; ++j)
+			{
+				triangles[3 * tri] = (int) cells[first];
+				triangles[3 * tri + 1] = (int) cells[first + j - 1];
+				triangles[3 * tri + 2] = (int) cells[first + j];
+				cellIds[tri] = cellIdOffset + poly;
+				++tri;
+			}
+			index += numberIds + 1;
+		}
+
+		return of(vertices, triangles, cellIds);
+	}
+
+	/**
+	 * Build a hierarchy from primitive arrays. The arrays are not modified and are
+	 * not retained.
+	 *
+	 * @param vertices  packed vertex coordinates (x0, y0, z0, x1, ...)
+	 * @param triangles packed vertex indices, three per triangle
+	 * @param cellIds   the cell id to report for each triangle
+	 * @return the hierarchy
+	 */
+	public static TriangleBvh of(double[] vertices, int[] triangles, int[] cellIds)
+	{
+		Preconditions.checkArgument(vertices.length % 3 == 0, "Vertex array length must be a multiple of 3");
+		Preconditions.checkArgument(triangles.length == 3 * cellIds.length, "Need exactly one cell id per triangle");
+
+		return new TriangleBvh(vertices.clone(), triangles, cellIds);
+	}
+
+	private TriangleBvh(double[] vertices, int[] triangles, int[] cellIds)
+	{
+		int numberTriangles = cellIds.length;
+
+		this.vertices = vertices;
+
+		Builder builder = new Builder(vertices, triangles, numberTriangles);
+		builder.build();
+
+		// Store the triangles in leaf order so that a leaf reads a contiguous range.
+		int[] order = builder.order;
+		this.triangles = new int[3 * numberTriangles];
+		this.cellIds = new int[numberTriangles];
+		for (int i = 0; i < numberTriangles; ++i)
+		{
+			int tri = order[i];
+			this.triangles[3 * i] = triangles[3 * tri];
+			this.triangles[3 * i + 1] = triangles[3 * tri + 1];
+			this.triangles[3 * i + 2] = triangles[3 * tri + 2];
+			this.cellIds[i] = cellIds[tri];
+		}
+
+		this.nodeBounds = Arrays.copyOf(builder.nodeBounds, 6 * builder.numberNodes);
+		this.nodeFirst = Arrays.copyOf(builder.nodeFirst, builder.numberNodes);
+		this.nodeCount = Arrays.copyOf(builder.nodeCount, builder.numberNodes);
+		this.stackSize = builder.maxDepth + 2;
+	}
+
+	/**
+	 * Return the number of triangles in the hierarchy.
+	 */
+	public int getNumberOfTriangles()
+	{
+		return cellIds.length;
+	}
+
+	/**
+	 * Return a new traversal stack of sufficient size for this hierarchy. Threads
+	 * that issue many single queries should allocate one stack and reuse it.
+	 */
+	public int[] createStack()
+	{
+		return new int[stackSize];
+	}
+
+	/**
+	 * Find the closest intersection of a ray with the triangles, considering only
+	 * the segment of the ray between the origin and tMax (in units of the length
+	 * of the direction vector).
+	 *
+	 * @param origin    the ray origin
+	 * @param direction the ray direction
+	 * @param tMax      the maximum ray parameter to consider
+	 * @param hitPoint  (returned) the intersection point, if any
+	 * @return the cell id of the closest triangle hit, or -1 if there is none
+	 */
+	public int intersectRay(double[] origin, double[] direction, double tMax, double[] hitPoint)
+	{
+		return intersectRay(origin[0], origin[1], origin[2], direction[0], direction[1], direction[2], tMax, hitPoint, 0, createStack());
+	}
+
+	/**
+	 * Allocation-free form of {@link #intersectRay(double[], double[], double, double[])}.
+	 * The intersection point is written to hitPoint starting at hitOffset, and is
+	 * left untouched if the ray does not hit anything.
+	 *
+	 * @param stack a traversal stack obtained from {@link #createStack()}
+	 * @return the cell id of the closest triangle hit, or -1 if there is none
+	 */
+	public int intersectRay(double ox, double oy, double oz, double dx, double dy, double dz, double tMax, double[] hitPoint, int hitOffset, int[] stack)
+	{
+		double invDx = 1. / dx;
+		double invDy = 1. / dy;
+		double invDz = 1. / dz;
+
+		double bestT = tMax;
+		int bestTri = -1;
+
+		int sp = 0;
+		if (nodeCount.length > 0 && slabEntry(0, ox, oy, oz, invDx, invDy, invDz, bestT) >= 0.)
+		{
+			stack[sp++] = 0;
+		}
+
+		while (sp > 0)
+		{
+			int node = stack[--sp];
+			int count = nodeCount[node];
+			if (count > 0)
+			{
+				int first = nodeFirst[node];
+				for (int tri = first; tri < first + count; ++tri)
+				{
+					double t = intersectTriangle(tri, ox, oy, oz, dx, dy, dz);
+					if (t >= 0. && t <= bestT)
+					{
+						bestT = t;
+						bestTri = tri;
+					}
+				}
+			}
+			else
+			{
+				int left = nodeFirst[node];
+				int right = left + 1;
+				double tLeft = slabEntry(left, ox, oy, oz, invDx, invDy, invDz, bestT);
+				double tRight = slabEntry(right, ox, oy, oz, invDx, invDy, invDz, bestT);
+
+				// Push the farther child first so the nearer one is visited first, which
+				// shrinks bestT early and prunes more of the tree.
+				if (tLeft >= 0. && tRight >= 0.)
+				{
+					if (tLeft <= tRight)
+					{
+						stack[sp++] = right;
+						stack[sp++] = left;
+					}
+					else
+					{
+						stack[sp++] = left;
+						stack[sp++] = right;
+					}
+				}
+				else if (tLeft >= 0.)
+				{
+					stack[sp++] = left;
+				}
+				else if (tRight >= 0.)
+				{
+					stack[sp++] = right;
+				}
+			}
+		}
+
+		if (bestTri < 0)
+		{
+			return -1;
+		}
+
+		hitPoint[hitOffset] = ox + bestT * dx;
+		hitPoint[hitOffset + 1] = oy + bestT * dy;
+		hitPoint[hitOffset + 2] = oz + bestT * dz;
+
+		return cellIds[bestTri];
+	}
+
+	/**
+	 * Return true if the segment of the ray between the origin and tMax hits any
+	 * triangle of a cell other than the one specified. The search stops at the
+	 * first such hit, so this is cheaper than
+	 * {@link #intersectRay(double, double, double, double, double, double, double, double[], int, int[])}
+	 * for shadow and visibility tests.
+	 *
+	 * @param ignoreCellId the id of a cell to ignore, usually the one the ray
+	 *                     starts on, or -1 to consider every cell
+	 * @param stack        a traversal stack obtained from {@link #createStack()}
+	 * @return true if the ray is blocked
+	 */
+	public boolean isOccluded(double ox, double oy, double oz, double dx, double dy, double dz, double tMax, int ignoreCellId, int[] stack)
+	{
+		double invDx = 1. / dx;
+		double invDy = 1. / dy;
+		double invDz = 1. / dz;
+
+		int sp = 0;
+		if (nodeCount.length > 0 && slabEntry(0, ox, oy, oz, invDx, invDy, invDz, tMax) >= 0.)
+		{
+			stack[sp++] = 0;
+		}
+
+		while (sp > 0)
+		{
+			int node = stack[--sp];
+			int count = nodeCount[node];
+			if (count > 0)
+			{
+				int first = nodeFirst[node];
+				for (int tri = first; tri < first + count; ++tri)
+				{
+					if (cellIds[tri] == ignoreCellId)
+						continue;
+
+					double t = intersectTriangle(tri, ox, oy, oz, dx, dy, dz);
+					if (t >= 0. && t <= tMax)
+						return true;
+				}
+			}
+			else
+			{
+				int left = nodeFirst[node];
+				if (slabEntry(left, ox, oy, oz, invDx, invDy, invDz, tMax) >= 0.)
+					stack[sp++] = left;
+				if (slabEntry(left + 1, ox, oy, oz, invDx, invDy, invDz, tMax) >= 0.)
+					stack[sp++] = left + 1;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Same as
+	 * {@link #isOccluded(double, double, double, double, double, double, double, int, int[])},
+	 * but ignoring every cell accepted by the specified predicate, for example all
+	 * the cells that share a vertex with the point the ray starts or ends on.
+	 */
+	public boolean isOccluded(double ox, double oy, double oz, double dx, double dy, double dz, double tMax, IntPredicate ignoreCell, int[] stack)
+	{
+		double invDx = 1. / dx;
+		double invDy = 1. / dy;
+		double invDz = 1. / dz;
+
+		int sp = 0;
+		if (nodeCount.length > 0 && slabEntry(0, ox, oy, oz, invDx, invDy, invDz, tMax) >= 0.)
+		{
+			stack[sp++] = 0;
+		}
+
+		while (sp > 0)
+		{
+			int node = stack[--sp];
+			int count = nodeCount[node];
+			if (count > 0)
+			{
+				int first = nodeFirst[node];
+				for (int tri = first; tri < first + count; ++tri)
+				{
+					double t = intersectTriangle(tri, ox, oy, oz, dx, dy, dz);
+					if (t >= 0. && t <= tMax && !ignoreCell.test(cellIds[tri]))
+						return true;
+				}
+			}
+			else
+			{
+				int left = nodeFirst[node];
+				if (slabEntry(left, ox, oy, oz, invDx, invDy, invDz, tMax) >= 0.)
+					stack[sp++] = left;
+				if (slabEntry(left + 1, ox, oy, oz, invDx, invDy, invDz, tMax) >= 0.)
+					stack[sp++] = left + 1;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Intersect a batch of rays with the triangles in parallel. Arrays are packed
+	 * three values per ray. Rays that do not hit anything get a cell id of -1 and
+	 * a hit point of NaN.
+	 *
+	 * @param origins      packed ray origins
+	 * @param directions   packed ray directions
+	 * @param maxDistances per-ray maximum ray parameter, or null for unbounded rays
+	 * @param hitPoints    (returned) packed intersection points
+	 * @return the cell id hit by each ray
+	 */
+	public int[] intersectRays(double[] origins, double[] directions, double[] maxDistances, double[] hitPoints)
+	{
+		int[] cellIds = new int[origins.length / 3];
+		intersectRays(DoubleBuffer.wrap(origins), DoubleBuffer.wrap(directions), maxDistances != null ? DoubleBuffer.wrap(maxDistances) : null, DoubleBuffer.wrap(hitPoints), IntBuffer.wrap(cellIds));
+
+		return cellIds;
+	}
+
+	/**
+	 * Buffer form of {@link #intersectRays(double[], double[], double[], double[])}.
+	 * The number of rays is determined by the number of values remaining in the
+	 * origins buffer; all buffers are read and written starting at their current
+	 * positions, which are not changed. Direct buffers are supported.
+	 */
+	public void intersectRays(DoubleBuffer origins, DoubleBuffer directions, DoubleBuffer maxDistances, DoubleBuffer hitPoints, IntBuffer cellIds)
+	{
+		int numberRays = origins.remaining() / 3;
+		Preconditions.checkArgument(directions.remaining() >= 3 * numberRays, "Too few ray directions");
+		Preconditions.checkArgument(maxDistances == null || maxDistances.remaining() >= numberRays, "Too few maximum distances");
+		Preconditions.checkArgument(hitPoints.remaining() >= 3 * numberRays, "Hit point buffer is too small");
+		Preconditions.checkArgument(cellIds.remaining() >= numberRays, "Cell id buffer is too small");
+
+		DoubleBuffer o = origins.slice();
+		DoubleBuffer d = directions.slice();
+		DoubleBuffer m = maxDistances != null ? maxDistances.slice() : null;
+		DoubleBuffer h = hitPoints.slice();
+		IntBuffer c = cellIds.slice();
+
+		int numberChunks = (numberRays + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			int[] stack = createStack();
+			double[] hit = new double[3];
+
+			int end = Math.min(numberRays, (chunk + 1) * ChunkSize);
+			for (int ray = chunk * ChunkSize; ray < end; ++ray)
+			{
+				int i = 3 * ray;
+				double tMax = m != null ? m.get(ray) : Double.POSITIVE_INFINITY;
+				int cellId = intersectRay(o.get(i), o.get(i + 1), o.get(i + 2), d.get(i), d.get(i + 1), d.get(i + 2), tMax, hit, 0, stack);
+				if (cellId >= 0)
+				{
+					h.put(i, hit[0]);
+					h.put(i + 1, hit[1]);
+					h.put(i + 2, hit[2]);
+				}
+				else
+				{
+					h.put(i, Double.NaN);
+					h.put(i + 1, Double.NaN);
+					h.put(i + 2, Double.NaN);
+				}
+				c.put(ray, cellId);
+			}
+		});
+	}
+
+	/**
+	 * Find the cell closest to the specified point.
+	 *
+	 * @param point        the query point
+	 * @param closestPoint (returned) the closest point on the surface, may be null
+	 * @return the cell id of the closest triangle, or -1 if there are no triangles
+	 */
+	public int findClosestCell(double[] point, double[] closestPoint)
+	{
+		return findClosestCell(point[0], point[1], point[2], closestPoint, 0, createStack());
+	}
+
+	/**
+	 * Find the cell closest to the specified point, along with the triangle of
+	 * that cell the closest point lies on. For a polygon split into a fan of
+	 * triangles, this is the triangle of the fan that was hit, which need not be
+	 * the first one.
+	 *
+	 * @param point        the query point
+	 * @param closestPoint (returned) the closest point on the surface, may be null
+	 * @param triangle     (returned) the three vertex indices of the closest
+	 *                     triangle
+	 * @return the cell id of the closest triangle, or -1 if there are no triangles
+	 */
+	public int findClosestCell(double[] point, double[] closestPoint, int[] triangle)
+	{
+		int tri = findClosestTriangle(point[0], point[1], point[2], createStack());
+		if (tri < 0)
+		{
+			return -1;
+		}
+
+		if (closestPoint != null)
+		{
+			closestPointOnTriangle(tri, point[0], point[1], point[2], closestPoint, 0);
+		}
+		System.arraycopy(triangles, 3 * tri, triangle, 0, 3);
+
+		return cellIds[tri];
+	}
+
+	/**
+	 * Allocation-free form of {@link #findClosestCell(double[], double[])}. The
+	 * closest point is written to closestPoint starting at offset, unless
+	 * closestPoint is null.
+	 *
+	 * @param stack a traversal stack obtained from {@link #createStack()}
+	 * @return the cell id of the closest triangle, or -1 if there are no triangles
+	 */
+	public int findClosestCell(double px, double py, double pz, double[] closestPoint, int offset, int[] stack)
+	{
+		int tri = findClosestTriangle(px, py, pz, stack);
+		if (tri < 0)
+		{
+			return -1;
+		}
+
+		if (closestPoint != null)
+		{
+			closestPointOnTriangle(tri, px, py, pz, closestPoint, offset);
+		}
+
+		return cellIds[tri];
+	}
+
+	/**
+	 * Find the closest cell to each of a batch of points in parallel. Arrays are
+	 * packed three values per point.
+	 *
+	 * @param points        packed query points
+	 * @param closestPoints (returned) packed closest points on the surface, may be
+	 *                      null if they are not needed
+	 * @return the cell id of the closest triangle to each point
+	 */
+	public int[] findClosestCells(double[] points, double[] closestPoints)
+	{
+		Preconditions.checkArgument(points.length % 3 == 0, "Point array length must be a multiple of 3");
+		Preconditions.checkArgument(closestPoints == null || closestPoints.length >= points.length, "Closest point array is too small");
+
+		int numberPoints = points.length / 3;
+		int[] result = new int[numberPoints];
+
+		int numberChunks = (numberPoints + ChunkSize - 1) / ChunkSize;
+		IntStream.range(0, numberChunks).parallel().forEach(chunk -> {
+			int[] stack = createStack();
+
+			int end = Math.min(numberPoints, (chunk + 1) * ChunkSize);
+			for (int index = chunk * ChunkSize; index < end; ++index)
+			{
+				int i = 3 * index;
+				result[index] = findClosestCell(points[i], points[i + 1], points[i + 2], closestPoints, i, stack);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Find the cells that may lie inside the convex region bounded by the
+	 * specified planes, for example the side planes of a camera frustum. A point
+	 * p is inside plane k if nk . p + dk <= 0. Subtrees whose bounds are entirely
+	 * outside one of the planes are skipped, and so are triangles whose vertices
+	 * are all outside one of the planes. The test is conservative: a triangle
+	 * that is outside the region without being entirely outside any one plane is
+	 * still returned.
+	 *
+	 * @param planes packed planes (nx, ny, nz, d), four values per plane
+	 * @return the distinct cell ids, in increasing order
+	 */
+	public int[] findCellsInsidePlanes(double[] planes)
+	{
+		Preconditions.checkArgument(planes.length % 4 == 0, "Plane array length must be a multiple of 4");
+
+		int numberPlanes = planes.length / 4;
+		int[] stack = createStack();
+		int[] result = new int[64];
+		int numberResults = 0;
+
+		int sp = 0;
+		if (nodeCount.length > 0)
+		{
+			stack[sp++] = 0;
+		}
+
+		while (sp > 0)
+		{
+			int node = stack[--sp];
+			if (isBoxOutside(node, planes, numberPlanes))
+				continue;
+
+			int count = nodeCount[node];
+			if (count > 0)
+			{
+				int first = nodeFirst[node];
+				for (int tri = first; tri < first + count; ++tri)
+				{
+					if (isTriangleOutside(tri, planes, numberPlanes))
+						continue;
+
+					if (numberResults == result.length)
+						result = Arrays.copyOf(result, 2 * numberResults);
+					result[numberResults++] = cellIds[tri];
+				}
+			}
+			else
+			{
+				int left = nodeFirst[node];
+				stack[sp++] = left;
+				stack[sp++] = left + 1;
+			}
+		}
+
+		// Polygons split into several triangles may have been found more than once.
+		return Arrays.stream(result, 0, numberResults).sorted().distinct().toArray();
+	}
+
+	/**
+	 * Find the cells that come within the specified distance of a point, that is
+	 * the cells that intersect the ball of that radius around the point.
+	 *
+	 * @param point  the center of the ball
+	 * @param radius the radius of the ball
+	 * @return the distinct cell ids, in increasing order
+	 */
+	public int[] findCellsNearPoint(double[] point, double radius)
+	{
+		double px = point[0], py = point[1], pz = point[2];
+		double radius2 = radius * radius;
+		int[] stack = createStack();
+		int[] result = new int[64];
+		int numberResults = 0;
+
+		int sp = 0;
+		if (nodeCount.length > 0)
+		{
+			stack[sp++] = 0;
+		}
+
+		while (sp > 0)
+		{
+			int node = stack[--sp];
+			if (boxDistance2(node, px, py, pz) > radius2)
+				continue;
+
+			int count = nodeCount[node];
+			if (count > 0)
+			{
+				int first = nodeFirst[node];
+				for (int tri = first; tri < first + count; ++tri)
+				{
+					if (closestPointOnTriangle(tri, px, py, pz, null, 0) > radius2)
+						continue;
+
+					if (numberResults == result.length)
+						result = Arrays.copyOf(result, 2 * numberResults);
+					result[numberResults++] = cellIds[tri];
+				}
+			}
+			else
+			{
+				int left = nodeFirst[node];
+				stack[sp++] = left;
+				stack[sp++] = left + 1;
+			}
+		}
+
+		// Polygons split into several triangles may have been found more than once.
+		return Arrays.stream(result, 0, numberResults).sorted().distinct().toArray();
+	}
+
+	/**
+	 * Return the index (in leaf order) of the triangle closest to the point, or
+	 * -1 if there are no triangles.
+	 */
+	private int findClosestTriangle(double px, double py, double pz, int[] stack)
+	{
+		double bestDist2 = Double.POSITIVE_INFINITY;
+		int bestTri = -1;
+
+		int sp = 0;
+		if (nodeCount.length > 0)
+		{
+			stack[sp++] = 0;
+		}
+
+		while (sp > 0)
+		{
+			int node = stack[--sp];
+			// The best distance may have shrunk since this node was pushed.
+			if (boxDistance2(node, px, py, pz) >= bestDist2)
+				continue;
+
+			int count = nodeCount[node];
+			if (count > 0)
+			{
+				int first = nodeFirst[node];
+				for (int tri = first; tri < first + count; ++tri)
+				{
+					double dist2 = closestPointOnTriangle(tri, px, py, pz, null, 0);
+					if (dist2 < bestDist2)
+					{
+						bestDist2 = dist2;
+						bestTri = tri;
+					}
+				}
+			}
+			else
+			{
+				int left = nodeFirst[node];
+				int right = left + 1;
+				double dLeft = boxDistance2(left, px, py, pz);
+				double dRight = boxDistance2(right, px, py, pz);
+
+				// As for rays, visit the nearer child first.
+				if (dLeft <= dRight)
+				{
+					if (dRight < bestDist2)
+						stack[sp++] = right;
+					if (dLeft < bestDist2)
+						stack[sp++] = left;
+				}
+				else
+				{
+					if (dLeft < bestDist2)
+						stack[sp++] = left;
+					if (dRight < bestDist2)
+						stack[sp++] = right;
+				}
+			}
+		}
+
+		return bestTri;
+	}
+
+	/**
+	 * Return true if the bounds of the node are entirely outside one of the
+	 * planes, that is if the corner of the bounds that is farthest inside the
+	 * plane is still outside it.
+	 */
+	private boolean isBoxOutside(int node, double[] planes, int numberPlanes)
+	{
+		int b = 6 * node;
+		for (int plane = 0; plane < numberPlanes; ++plane)
+		{
+			int p = 4 * plane;
+			double nx = planes[p], ny = planes[p + 1], nz = planes[p + 2];
+			double value = planes[p + 3];
+			value += nx * (nx > 0. ? nodeBounds[b] : nodeBounds[b + 3]);
+			value += ny * (ny > 0. ? nodeBounds[b + 1] : nodeBounds[b + 4]);
+			value += nz * (nz > 0. ? nodeBounds[b + 2] : nodeBounds[b + 5]);
+			if (value > 0.)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Return true if all three vertices of the triangle are outside one of the
+	 * planes.
+	 */
+	private boolean isTriangleOutside(int tri, double[] planes, int numberPlanes)
+	{
+		int a = 3 * triangles[3 * tri];
+		int b = 3 * triangles[3 * tri + 1];
+		int c = 3 * triangles[3 * tri + 2];
+		for (int plane = 0; plane < numberPlanes; ++plane)
+		{
+			int p = 4 * plane;
+			double nx = planes[p], ny = planes[p + 1], nz = planes[p + 2], d = planes[p + 3];
+			if (nx * vertices[a] + ny * vertices[a + 1] + nz * vertices[a + 2] + d > 0. && //
+					nx * vertices[b] + ny * vertices[b + 1] + nz * vertices[b + 2] + d > 0. && //
+					nx * vertices[c] + ny * vertices[c + 1] + nz * vertices[c + 2] + d > 0.)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Return the ray parameter at which the ray enters the bounds of the node, or
+	 * -1 if the ray misses the node or enters it only beyond tMax.
+	 */
+	private double slabEntry(int node, double ox, double oy, double oz, double invDx, double invDy, double invDz, double tMax)
+	{
+		int b = 6 * node;
+		double tNear = 0.;
+		double tFar = tMax;
+
+		double t0 = (nodeBounds[b] - ox) * invDx;
+		double t1 = (nodeBounds[b + 3] - ox) * invDx;
+		if (t0 > t1)
+		{
+			double tmp = t0;
+			t0 = t1;
+			t1 = tmp;
+		}
+		// Comparisons are written so that NaN (ray in the plane of a slab) is ignored.
+		if (t0 > tNear)
+			tNear = t0;
+		if (t1 < tFar)
+			tFar = t1;
+
+		t0 = (nodeBounds[b + 1] - oy) * invDy;
+		t1 = (nodeBounds[b + 4] - oy) * invDy;
+		if (t0 > t1)
+		{
+			double tmp = t0;
+			t0 = t1;
+			t1 = tmp;
+		}
+		if (t0 > tNear)
+			tNear = t0;
+		if (t1 < tFar)
+			tFar = t1;
+
+		t0 = (nodeBounds[b + 2] - oz) * invDz;
+		t1 = (nodeBounds[b + 5] - oz) * invDz;
+		if (t0 > t1)
+		{
+			double tmp = t0;
+			t0 = t1;
+			t1 = tmp;
+		}
+		if (t0 > tNear)
+			tNear = t0;
+		if (t1 < tFar)
+			tFar = t1;
+
+		return tNear <= tFar ? tNear : -1.;
+	}
+
+	/**
+	 * Return the squared distance from the point to the bounds of the node, 0 if
+	 * the point is inside.
+	 */
+	private double boxDistance2(int node, double px, double py, double pz)
+	{
+		int b = 6 * node;
+		double dx = Math.max(Math.max(nodeBounds[b] - px, px - nodeBounds[b + 3]), 0.);
+		double dy = Math.max(Math.max(nodeBounds[b + 1] - py, py - nodeBounds[b + 4]), 0.);
+		double dz = Math.max(Math.max(nodeBounds[b + 2] - pz, pz - nodeBounds[b + 5]), 0.);
+
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Compute the point on the triangle closest to p by finding the Voronoi region
+	 * of the triangle that contains p (Ericson, Real-Time Collision Detection,
+	 * 5.1.5). Returns the squared distance; the point itself is written to result
+	 * only if result is not null.
+	 */
+	private double closestPointOnTriangle(int tri, double px, double py, double pz, double[] result, int offset)
+	{
+		int a = 3 * triangles[3 * tri];
+		int b = 3 * triangles[3 * tri + 1];
+		int c = 3 * triangles[3 * tri + 2];
+
+		double ax = vertices[a], ay = vertices[a + 1], az = vertices[a + 2];
+		double abx = vertices[b] - ax, aby = vertices[b + 1] - ay, abz = vertices[b + 2] - az;
+		double acx = vertices[c] - ax, acy = vertices[c + 1] - ay, acz = vertices[c + 2] - az;
+
+		double cx, cy, cz;
+
+		double apx = px - ax, apy = py - ay, apz = pz - az;
+		double d1 = abx * apx + aby * apy + abz * apz;
+		double d2 = acx * apx + acy * apy + acz * apz;
+
+		double bpx = apx - abx, bpy = apy - aby, bpz = apz - abz;
+		double d3 = abx * bpx + aby * bpy + abz * bpz;
+		double d4 = acx * bpx + acy * bpy + acz * bpz;
+
+		double cpx = apx - acx, cpy = apy - acy, cpz = apz - acz;
+		double d5 = abx * cpx + aby * cpy + abz * cpz;
+		double d6 = acx * cpx + acy * cpy + acz * cpz;
+
+		double vc = d1 * d4 - d3 * d2;
+		double vb = d5 * d2 - d1 * d6;
+		double va = d3 * d6 - d5 * d4;
+
+		if (d1 <= 0. && d2 <= 0.)
+		{
+			// Vertex a
+			cx = ax;
+			cy = ay;
+			cz = az;
+		}
+		else if (d3 >= 0. && d4 <= d3)
+		{
+			// Vertex b
+			cx = ax + abx;
+			cy = ay + aby;
+			cz = az + abz;
+		}
+		else if (d6 >= 0. && d5 <= d6)
+		{
+			// Vertex c
+			cx = ax + acx;
+			cy = ay + acy;
+			cz = az + acz;
+		}
+		else if (vc <= 0. && d1 >= 0. && d3 <= 0.)
+		{
+			// Edge ab
+			double v = d1 / (d1 - d3);
+			cx = ax + v * abx;
+			cy = ay + v * aby;
+			cz = az + v * abz;
+		}
+		else if (vb <= 0. && d2 >= 0. && d6 <= 0.)
+		{
+			// Edge ac
+			double w = d2 / (d2 - d6);
+			cx = ax + w * acx;
+			cy = ay + w * acy;
+			cz = az + w * acz;
+		}
+		else if (va <= 0. && (d4 - d3) >= 0. && (d5 - d6) >= 0.)
+		{
+			// Edge bc
+			double w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+			cx = ax + abx + w * (acx - abx);
+			cy = ay + aby + w * (acy - aby);
+			cz = az + abz + w * (acz - abz);
+		}
+		else
+		{
+			// Interior
+			double denom = 1. / (va + vb + vc);
+			double v = vb * denom;
+			double w = vc * denom;
+			cx = ax + v * abx + w * acx;
+			cy = ay + v * aby + w * acy;
+			cz = az + v * abz + w * acz;
+		}
+
+		if (result != null)
+		{
+			result[offset] = cx;
+			result[offset + 1] = cy;
+			result[offset + 2] = cz;
+		}
+
+		double dx = px - cx, dy = py - cy, dz = pz - cz;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Moller-Trumbore ray/triangle test. Returns the ray parameter of the
+	 * intersection, or -1 if there is none.
+	 */
+	private double intersectTriangle(int tri, double ox, double oy, double oz, double dx, double dy, double dz)
+	{
+		int a = 3 * triangles[3 * tri];
+		int b = 3 * triangles[3 * tri + 1];
+		int c = 3 * triangles[3 * tri + 2];
+
+		double v0x = vertices[a], v0y = vertices[a + 1], v0z = vertices[a + 2];
+		double e1x = vertices[b] - v0x, e1y = vertices[b + 1] - v0y, e1z = vertices[b + 2] - v0z;
+		double e2x = vertices[c] - v0x, e2y = vertices[c + 1] - v0y, e2z = vertices[c + 2] - v0z;
+
+		double px = dy * e2z - dz * e2y;
+		double py = dz * e2x - dx * e2z;
+		double pz = dx * e2y - dy * e2x;
+
+		double det = e1x * px + e1y * py + e1z * pz;
+		if (det == 0.)
+			return -1.;
+		double invDet = 1. / det;
+
+		double sx = ox - v0x, sy = oy - v0y, sz = oz - v0z;
+		double u = (sx * px + sy * py + sz * pz) * invDet;
+		if (u < -BarycentricTolerance || u > 1. + BarycentricTolerance)
+			return -1.;
+
+		double qx = sy * e1z - sz * e1y;
+		double qy = sz * e1x - sx * e1z;
+		double qz = sx * e1y - sy * e1x;
+
+		double v = (dx * qx + dy * qy + dz * qz) * invDet;
+		if (v < -BarycentricTolerance || u + v > 1. + BarycentricTolerance)
+			return -1.;
+
+		double t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+
+		return t >= 0. ? t : -1.;
+	}
+
+	/**
+	 * Top-down binned SAH construction. Only used while building; the result is
+	 * copied into the final (trimmed) arrays by the constructor.
+	 */
+	private static class Builder
+	{
+		private final double[] vertices;
+		private final int[] triangles;
+		private final int[] order;
+		private final double[] centroids;
+		private final double[] nodeBounds;
+		private final int[] nodeFirst;
+		private final int[] nodeCount;
+		private int numberNodes;
+		private int maxDepth;
+
+		// Scratch space for binning, reused at every node.
+		private final int[] binCount = new int[NumBins];
+		private final double[] binBounds = new double[6 * NumBins];
+		private final double[] rightArea = new double[NumBins];
+		private final int[] rightCount = new int[NumBins];
+
+		Builder(double[] vertices, int[] triangles, int numberTriangles)
+		{
+			this.vertices = vertices;
+			this.triangles = triangles;
+			this.order = new int[numberTriangles];
+			this.centroids = new double[3 * numberTriangles];
+
+			for (int tri = 0; tri < numberTriangles; ++tri)
+			{
+				order[tri] = tri;
+				int a = 3 * triangles[3 * tri];
+				int b = 3 * triangles[3 * tri + 1];
+				int c = 3 * triangles[3 * tri + 2];
+				for (int k = 0; k < 3; ++k)
+				{
+					centroids[3 * tri + k] = (vertices[a + k] + vertices[b + k] + vertices[c + k]) / 3.;
+				}
+			}
+
+			int maxNodes = Math.max(2 * numberTriangles - 1, 1);
+			this.nodeBounds = new double[6 * maxNodes];
+			this.nodeFirst = new int[maxNodes];
+			this.nodeCount = new int[maxNodes];
+		}
+
+		void build()
+		{
+			if (order.length == 0)
+			{
+				numberNodes = 0;
+				return;
+			}
+			numberNodes = 1;
+			subdivide(0, 0, order.length, 0);
+		}
+
+		private void subdivide(int node, int first, int count, int depth)
+		{
+			maxDepth = Math.max(maxDepth, depth);
+
+			double[] bounds = nodeBounds;
+			int nb = 6 * node;
+			resetBounds(bounds, nb);
+			double cMinX = Double.MAX_VALUE, cMinY = Double.MAX_VALUE, cMinZ = Double.MAX_VALUE;
+			double cMaxX = -Double.MAX_VALUE, cMaxY = -Double.MAX_VALUE, cMaxZ = -Double.MAX_VALUE;
+			for (int i = first; i < first + count; ++i)
+			{
+				int tri = order[i];
+				growByTriangle(bounds, nb, tri);
+				double cx = centroids[3 * tri], cy = centroids[3 * tri + 1], cz = centroids[3 * tri + 2];
+				cMinX = Math.min(cMinX, cx);
+				cMinY = Math.min(cMinY, cy);
+				cMinZ = Math.min(cMinZ, cz);
+				cMaxX = Math.max(cMaxX, cx);
+				cMaxY = Math.max(cMaxY, cy);
+				cMaxZ = Math.max(cMaxZ, cz);
+			}
+
+			if (count <= MaxLeafSize)
+			{
+				makeLeaf(node, first, count);
+				return;
+			}
+
+			double[] cMin = { cMinX, cMinY, cMinZ };
+			double[] cMax = { cMaxX, cMaxY, cMaxZ };
+
+			double bestCost = Double.POSITIVE_INFINITY;
+			int bestAxis = -1;
+			int bestSplit = -1;
+			for (int axis = 0; axis < 3; ++axis)
+			{
+				double extent = cMax[axis] - cMin[axis];
+				if (!(extent > 0.))
+					continue;
+				double scale = NumBins / extent;
+
+				Arrays.fill(binCount, 0);
+				for (int bin = 0; bin < NumBins; ++bin)
+					resetBounds(binBounds, 6 * bin);
+
+				for (int i = first; i < first + count; ++i)
+				{
+					int tri = order[i];
+					int bin = binOf(centroids[3 * tri + axis], cMin[axis], scale);
+					++binCount[bin];
+					growByTriangle(binBounds, 6 * bin, tri);
+				}
+
+				// Sweep from the right to get the area and count of everything right of each split.
+				double[] acc = new double[6];
+				resetBounds(acc, 0);
+				int accCount = 0;
+				for (int bin = NumBins - 1; bin > 0; --bin)
+				{
+					accCount += binCount[bin];
+					if (binCount[bin] > 0)
+						union(acc, binBounds, 6 * bin);
+					rightCount[bin - 1] = accCount;
+					rightArea[bin - 1] = accCount > 0 ? halfArea(acc) : 0.;
+				}
+
+				// Then sweep from the left and evaluate the cost of each split.
+				resetBounds(acc, 0);
+				accCount = 0;
+				for (int bin = 0; bin < NumBins - 1; ++bin)
+				{
+					accCount += binCount[bin];
+					if (binCount[bin] > 0)
+						union(acc, binBounds, 6 * bin);
+					if (accCount == 0 || rightCount[bin] == 0)
+						continue;
+					double cost = accCount * halfArea(acc) + rightCount[bin] * rightArea[bin];
+					if (cost < bestCost)
+					{
+						bestCost = cost;
+						bestAxis = axis;
+						bestSplit = bin;
+					}
+				}
+			}
+
+			// All centroids coincide, so no split can separate the triangles.
+			if (bestAxis < 0)
+			{
+				makeLeaf(node, first, count);
+				return;
+			}
+
+			double leafCost = count * halfArea(bounds, nb);
+			if (bestCost >= leafCost && count <= MaxForcedLeafSize)
+			{
+				makeLeaf(node, first, count);
+				return;
+			}
+
+			// Partition the range in place so the left child's triangles come first.
+			double scale = NumBins / (cMax[bestAxis] - cMin[bestAxis]);
+			int i = first;
+			int j = first + count - 1;
+			while (i <= j)
+			{
+				if (binOf(centroids[3 * order[i] + bestAxis], cMin[bestAxis], scale) <= bestSplit)
+				{
+					++i;
+				}
+				else
+				{
+					int tmp = order[i];
+					order[i] = order[j];
+					order[j] = tmp;
+					--j;
+				}
+			}
+			int leftCount = i - first;
+
+			int left = numberNodes;
+			numberNodes += 2;
+			nodeFirst[node] = left;
+			nodeCount[node] = 0;
+
+			subdivide(left, first, leftCount, depth + 1);
+			subdivide(left + 1, i, count - leftCount, depth + 1);
+		}
+
+		private void makeLeaf(int node, int first, int count)
+		{
+			nodeFirst[node] = first;
+			nodeCount[node] = count;
+		}
+
+		private static int binOf(double value, double min, double scale)
+		{
+			int bin = (int) ((value - min) * scale);
+			return Math.min(Math.max(bin, 0), NumBins - 1);
+		}
+
+		private void growByTriangle(double[] bounds, int offset, int tri)
+		{
+			for (int v = 0; v < 3; ++v)
+			{
+				int p = 3 * triangles[3 * tri + v];
+				for (int k = 0; k < 3; ++k)
+				{
+					double value = vertices[p + k];
+					if (value < bounds[offset + k])
+						bounds[offset + k] = value;
+					if (value > bounds[offset + 3 + k])
+						bounds[offset + 3 + k] = value;
+				}
+			}
+		}
+
+		private static void resetBounds(double[] bounds, int offset)
+		{
+			for (int k = 0; k < 3; ++k)
+			{
+				bounds[offset + k] = Double.MAX_VALUE;
+				bounds[offset + 3 + k] = -Double.MAX_VALUE;
+			}
+		}
+
+		private static void union(double[] bounds, double[] other, int offset)
+		{
+			for (int k = 0; k < 3; ++k)
+			{
+				bounds[k] = Math.min(bounds[k], other[offset + k]);
+				bounds[3 + k] = Math.max(bounds[3 + k], other[offset + 3 + k]);
+			}
+		}
+
+		private static double halfArea(double[] bounds)
+		{
+			return halfArea(bounds, 0);
+		}
+
+		private static double halfArea(double[] bounds, int offset)
+		{
+			double ex = bounds[offset + 3] - bounds[offset];
+			double ey = bounds[offset + 4] - bounds[offset + 1];
+			double ez = bounds[offset + 5] - bounds[offset + 2];
+			return ex * ey + ey * ez + ez * ex;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package edu.jhuapl.saavtk.vtk;
+
+import java.util.Arrays;
+
+import vtk.vtkCellArray;
+import vtk.vtkDataArray;
+import vtk.vtkDoubleArray;
+import vtk.vtkFloatArray;
+import vtk.vtkIdTypeArray;
+import vtk.vtkIntArray;
+import vtk.vtkLongLongArray;
+import vtk.vtkPoints;
+import vtk.vtkUnsignedCharArray;
+
+/**
+ * Collection of utility methods that move the contents of VTK arrays into and
+ * out of Java primitive arrays in bulk.
+ * <p>
+ * Each method crosses JNI a constant number of times regardless of the size of
+ * the VTK array, which is much faster than calling accessors such as
+ * {@link vtkPoints#GetPoint(long)} or {@link vtkDataArray#GetTuple3(long)} once
+ * per element. Arrays whose storage type has no bulk accessor fall back to per
+ * element access, so every method works on any array.
+ * <p>
+ * The VTK Java wrappers copy the storage on each bulk transfer; they do not
+ * expose the native memory itself. Arrays returned by the getters are
+ * therefore copies, and changes to them must be written back with the
+ * corresponding setter.
+ */
+public class VtkArrayUtil
+{
+	/**
+	 * Returns the coordinates of all points as a packed array (x0, y0, z0, x1,
+	 * ...). The returned array is a copy and may be modified freely.
+	 */
+	public static double[] getPoints(vtkPoints aPoints)
+	{
+		vtkDataArray vData = aPoints.GetData();
+		if (vData instanceof vtkDoubleArray)
+			return ((vtkDoubleArray) vData).GetJavaArray();
+
+		if (vData instanceof vtkFloatArray)
+		{
+			float[] valueArr = ((vtkFloatArray) vData).GetJavaArray();
+			double[] retArr = new double[valueArr.length];
+			for (int i = 0; i < valueArr.length; i++)
+				retArr[i] = valueArr[i];
+			return retArr;
+		}
+
+		// Fall back to per point access for any other storage type
+		int numPoints = (int) aPoints.GetNumberOfPoints();
+		double[] retArr = new double[3 * numPoints];
+		double[] ptArr = new double[3];
+		for (int i = 0; i < numPoints; i++)
+		{
+			aPoints.GetPoint(i, ptArr);
+			System.arraycopy(ptArr, 0, retArr, 3 * i, 3);
+		}
+		return retArr;
+	}
+
+	/**
+	 * Returns the connectivity of all cells in the legacy VTK layout: for each
+	 * cell, the number of points followed by the point ids.
+	 */
+	public static long[] getLegacyCells(vtkCellArray aCells)
+	{
+		return aCells.GetData().GetJavaArray();
+	}
+
+	/**
+	 * Returns the values of all components of all tuples of the specified array,
+	 * packed tuple by tuple (t0c0, t0c1, ..., t1c0, ...).
+	 */
+	public static double[] getValues(vtkDataArray aData)
+	{
+		if (aData instanceof vtkDoubleArray)
+			return ((vtkDoubleArray) aData).GetJavaArray();
+
+		if (aData instanceof vtkFloatArray)
+		{
+			float[] valueArr = ((vtkFloatArray) aData).GetJavaArray();
+			double[] retArr = new double[valueArr.length];
+			for (int i = 0; i < valueArr.length; i++)
+				retArr[i] = valueArr[i];
+			return retArr;
+		}
+
+		if (aData instanceof vtkIntArray)
+		{
+			int[] valueArr = ((vtkIntArray) aData).GetJavaArray();
+			double[] retArr = new double[valueArr.length];
+			for (int i = 0; i < valueArr.length; i++)
+				retArr[i] = valueArr[i];
+			return retArr;
+		}
+
+		// Fall back to per component access for any other storage type
+		int numTuples = (int) aData.GetNumberOfTuples();
+		int numComps = aData.GetNumberOfComponents();
+		double[] retArr = new double[numTuples * numComps];
+		for (int i = 0; i < numTuples; i++)
+			for (int j = 0; j < numComps; j++)
+				retArr[i * numComps + j] = aData.GetComponent(i, j);
+		return retArr;
+	}
+
+	/**
+	 * Returns the values of all components of all tuples of the specified
+	 * integer array, packed as in {@link #getValues(vtkDataArray)}. Intended for
+	 * id arrays such as the offsets and connectivity of a vtkCellArray.
+	 */
+	public static long[] getIds(vtkDataArray aData)
+	{
+		if (aData instanceof vtkIdTypeArray)
+			return ((vtkIdTypeArray) aData).GetJavaArray();
+
+		if (aData instanceof vtkLongLongArray)
+			return ((vtkLongLongArray) aData).GetJavaArray();
+
+		if (aData instanceof vtkIntArray)
+		{
+			int[] valueArr = ((vtkIntArray) aData).GetJavaArray();
+			long[] retArr = new long[valueArr.length];
+			for (int i = 0; i < valueArr.length; i++)
+				retArr[i] = valueArr[i];
+			return retArr;
+		}
+
+		// Fall back to per component access for any other storage type
+		int numTuples = (int) aData.GetNumberOfTuples();
+		int numComps = aData.GetNumberOfComponents();
+		long[] retArr = new long[numTuples * numComps];
+		for (int i = 0; i < numTuples; i++)
+			for (int j = 0; j < numComps; j++)
+				retArr[i * numComps + j] = (long) aData.GetComponent(i, j);
+		return retArr;
+	}
+
+	/**
+	 * Returns the offsets of the cells: the index in the connectivity array of
+	 * the first point id of each cell, followed by the total number of point ids.
+	 */
+	public static long[] getOffsets(vtkCellArray aCells)
+	{
+		return getIds(aCells.GetOffsetsArray());
+	}
+
+	/**
+	 * Returns the point ids of all cells, one cell after another, without the
+	 * per cell counts of the legacy layout. See {@link #getOffsets(vtkCellArray)}
+	 * for where each cell starts.
+	 */
+	public static long[] getConnectivity(vtkCellArray aCells)
+	{
+		return getIds(aCells.GetConnectivityArray());
+	}
+
+	/**
+	 * Replaces the coordinates of all points with the specified packed
+	 * coordinates (x0, y0, z0, x1, ...). The storage type of the points is kept
+	 * and the number of points is set to a third of the length of the array.
+	 */
+	public static void setPoints(vtkPoints aPoints, double[] aCoordArr)
+	{
+		vtkDataArray vData = aPoints.GetData();
+		if (vData instanceof vtkFloatArray)
+		{
+			float[] valueArr = new float[aCoordArr.length];
+			for (int i = 0; i < aCoordArr.length; i++)
+				valueArr[i] = (float) aCoordArr[i];
+			((vtkFloatArray) vData).SetJavaArray(valueArr);
+		}
+		else if (vData instanceof vtkDoubleArray)
+		{
+			((vtkDoubleArray) vData).SetJavaArray(aCoordArr);
+		}
+		else
+		{
+			vtkDoubleArray vDoubleData = new vtkDoubleArray();
+			vDoubleData.SetNumberOfComponents(3);
+			vDoubleData.SetJavaArray(aCoordArr);
+			aPoints.SetData(vDoubleData);
+		}
+		aPoints.Modified();
+	}
+
+	/**
+	 * Replaces the values of the specified array with the specified values,
+	 * packed as in {@link #getValues(vtkDataArray)}. The number of components is
+	 * kept and the number of tuples follows from the length of the array.
+	 */
+	public static void setValues(vtkDataArray aData, double[] aValueArr)
+	{
+		if (aData instanceof vtkDoubleArray)
+		{
+			((vtkDoubleArray) aData).SetJavaArray(aValueArr);
+		}
+		else if (aData instanceof vtkFloatArray)
+		{
+			float[] valueArr = new float[aValueArr.length];
+			for (int i = 0; i < aValueArr.length; i++)
+				valueArr[i] = (float) aValueArr[i];
+			((vtkFloatArray) aData).SetJavaArray(valueArr);
+		}
+		else
+		{
+			// Fall back to per component access for any other storage type
+			int numComps = aData.GetNumberOfComponents();
+			int numTuples = aValueArr.length / numComps;
+			aData.SetNumberOfTuples(numTuples);
+			for (int i = 0; i < numTuples; i++)
+				for (int j = 0; j < numComps; j++)
+					aData.SetComponent(i, j, aValueArr[i * numComps + j]);
+		}
+		aData.Modified();
+	}
+
+	/**
+	 * Returns a vtkFloatArray with the specified number of components holding the
+	 * specified packed values.
+	 */
+	public static vtkFloatArray createFloatArray(int aNumComps, float[] aValueArr)
+	{
+		vtkFloatArray retData = new vtkFloatArray();
+		retData.SetNumberOfComponents(aNumComps);
+		retData.SetJavaArray(aValueArr);
+		return retData;
+	}
+
+	/**
+	 * Returns a vtkUnsignedCharArray with the specified number of components
+	 * holding the specified packed values, such as RGB colors.
+	 */
+	public static vtkUnsignedCharArray createUnsignedCharArray(int aNumComps, byte[] aValueArr)
+	{
+		vtkUnsignedCharArray retData = new vtkUnsignedCharArray();
+		retData.SetNumberOfComponents(aNumComps);
+		retData.SetJavaArray(aValueArr);
+		return retData;
+	}
+
+	/**
+	 * Returns a vtkCellArray holding the cells described by the specified offsets
+	 * and connectivity (see {@link #getOffsets(vtkCellArray)} and
+	 * {@link #getConnectivity(vtkCellArray)}).
+	 */
+	public static vtkCellArray createCellArray(long[] aOffsetArr, long[] aConnectivityArr)
+	{
+		vtkIdTypeArray vOffsets = new vtkIdTypeArray();
+		vOffsets.SetJavaArray(aOffsetArr);
+
+		vtkIdTypeArray vConnectivity = new vtkIdTypeArray();
+		vConnectivity.SetJavaArray(aConnectivityArr);
+
+		vtkCellArray retCells = new vtkCellArray();
+		retCells.SetData(vOffsets, vConnectivity);
+		return retCells;
+	}
+
+	/**
+	 * Returns a vtkPoints with single precision storage holding the specified
+	 * packed coordinates (x0, y0, z0, x1, ...).
+	 */
+	public static vtkPoints createPoints(float[] aCoordArr)
+	{
+		vtkFloatArray vData = new vtkFloatArray();
+		vData.SetNumberOfComponents(3);
+		vData.SetJavaArray(aCoordArr);
+
+		vtkPoints retPoints = new vtkPoints();
+		retPoints.SetData(vData);
+		return retPoints;
+	}
+
+	/**
+	 * Returns a vtkPoints with double precision storage holding the specified
+	 * packed coordinates (x0, y0, z0, x1, ...).
+	 */
+	public static vtkPoints createPoints(double[] aCoordArr)
+	{
+		vtkDoubleArray vData = new vtkDoubleArray();
+		vData.SetNumberOfComponents(3);
+		vData.SetJavaArray(aCoordArr);
+
+		vtkPoints retPoints = new vtkPoints();
+		retPoints.SetData(vData);
+		return retPoints;
+	}
+
+	/**
+	 * Returns a vtkCellArray holding the specified cells, which are in the legacy
+	 * VTK layout (see {@link #getLegacyCells(vtkCellArray)}). Only the first
+	 * aLength values of the array are used.
+	 */
+	public static vtkCellArray createCellArray(long aNumCells, long[] aLegacyCellArr, int aLength)
+	{
+		long[] cellArr = aLegacyCellArr;
+		if (aLength != cellArr.length)
+			cellArr = Arrays.copyOf(aLegacyCellArr, aLength);
+
+		vtkIdTypeArray vIds = new vtkIdTypeArray();
+		vIds.SetJavaArray(cellArr);
+
+		vtkCellArray retCells = new vtkCellArray();
+		retCells.SetCells(aNumCells, vIds);
+		return retCells;
+	}
+
+}
@@ -9,6 +9,8 @@ import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
 import edu.jhuapl.saavtk.util.BoundingBox;
 import edu.jhuapl.saavtk.util.PolyDataUtil;
+import edu.jhuapl.saavtk.util.mesh.SurfacePathTracer;
+import edu.jhuapl.saavtk.util.mesh.SurfacePatcher;
 import vtk.vtkAbstractPointLocator;
 import vtk.vtkAlgorithmOutput;
 import vtk.vtkCellArray;
@@ -40,6 +42,19 @@ import vtk.vtksbCellLocator;
  */
 public class VtkDrawUtil
 {
+	// Constants
+	/**
+	 * Surfaces with at least this many points are reduced to the cells near an ellipse before the ellipse is clipped
+	 * out of them. Smaller surfaces are used as a whole.
+	 */
+	private static final int SubSurfaceMinNumPoints = 20000;
+
+	/**
+	 * Divisor of the surface's bounding box diagonal that yields the minimum radius of the reduced surface. It is
+	 * chosen so the minimum radius is 0.2 for Eros.
+	 */
+	private static final double SubSurfaceDiagonalDivisor = 193.30280166816735;
+
 	/**
 	 * Utility method for drawing an ellipse onto a {@link vtkPolyData} surface.
 	 * <p>
@@ -79,26 +94,18 @@ public class VtkDrawUtil
 		// If the number of points are too small, then vtkExtractPolyDataGeometry
 		// as used here might fail, so skip this part (which is just an optimization
 		// not really needed when the points are few) in this case.
-		if (aSurfacePD.GetNumberOfPoints() >= 20000)
+		if (aSurfacePD.GetNumberOfPoints() >= SubSurfaceMinNumPoints)
 		{
 			// Reduce the size of the polydata we need to process by only considering cells
 			// within 1.2 times the radius. We make sure, however, that if the radius is
-			// below a threshold to not go below it. The threshold is chosen to be 0.2 for
-			// Eros, which is equal to the bounding box diagonal length divided by about
-			// 193. For other bodies it will be different, depending on the diagonal length.
+			// below a threshold to not go below it. The threshold depends on the
+			// bounding box diagonal length of the body.
 			BoundingBox boundingBox = new BoundingBox(aSurfacePD.GetBounds());
-			double minRadius = boundingBox.getDiagonalLength() / 193.30280166816735;
 
 			vtkSphere vSphereS = new vtkSphere();
 			deleteL.add(vSphereS);
 			vSphereS.SetCenter(aCenter.toArray());
-
-			double tmpRadius = aMajorRadius;
-			if (tmpRadius < minRadius)
-				tmpRadius = minRadius;
-			tmpRadius *= 1.2;
-
-			vSphereS.SetRadius(tmpRadius);
+			vSphereS.SetRadius(getSubSurfaceRadius(aMajorRadius, boundingBox.getDiagonalLength()));
 
 			// Define the "sub" surface - intersection between input surface and the sphere
 			vtkExtractPolyDataGeometry vExtractEPDG = new vtkExtractPolyDataGeometry();
@@ -115,11 +122,88 @@ public class VtkDrawUtil
 			aSurfacePD = vSubSurfacePD;
 		}
 
+		clipEllipseOn(aSurfacePD, aCenter, centerNormal, aMajorRadius, aFlattening, aAngle, aNumSides, aRetInteriorPD,
+				aRetExteriorPD, deleteL);
+
+		// Release temporary VTK objects
+		VtkUtil.deleteAll(deleteL);
+	}
+
+	/**
+	 * Utility method for drawing an ellipse onto the surface of a shape model via a {@link SurfacePatcher}.
+	 * <p>
+	 * This produces the same results as
+	 * {@link #drawEllipseOn(vtkPolyData, vtkAbstractPointLocator, Vector3D, double, double, double, int, vtkPolyData, vtkPolyData)}
+	 * but the ellipse is clipped out of a patch of the cells around its center rather than out of the shape model. The
+	 * shape model's VTK state is never touched so multiple ellipses may be drawn concurrently. Only the point normals of
+	 * the shape model are carried into the results.
+	 *
+	 * @param aPatcher
+	 *    The {@link SurfacePatcher} associated with the surface.
+	 * @param aCenter
+	 *    The ellipse's center.
+	 * @param aMajorRadius
+	 *    The ellipse's (semi-major axis) radius.
+	 * @param aFlattening
+	 *    The ellipse's flattening factor.
+	 * @param aAngle
+	 *    The angle between the semi-major axis and the line of longitude.
+	 * @param aNumSides
+	 *    The number of sides of the ellipse.
+	 * @param aRetInteriorPD
+	 *    {@link vtkPolyData} that is used to store the computed interior. May be null.
+	 * @param aRetExteriorPD
+	 *    {@link vtkPolyData} that is used to store the computed exterior. May be null.
+	 */
+	public static void drawEllipseOn(SurfacePatcher aPatcher, Vector3D aCenter, double aMajorRadius, double aFlattening,
+			double aAngle, int aNumSides, vtkPolyData aRetInteriorPD, vtkPolyData aRetExteriorPD)
+	{
+		// List holding vtk objects to delete at end of function
+		List<vtkObject> deleteL = new ArrayList<>();
+
+		// Retrieve the normal at the center of the ellipse
+		var centerArr = aCenter.toArray();
+		var centerNormal = new Vector3D(aPatcher.getNormalAtPoint(centerArr, 20));
+
+		// Only consider cells within 1.2 times the radius (but not below the threshold) as is done in the method above.
+		// Small surfaces are used as a whole.
+		var tmpRadius = Double.POSITIVE_INFINITY;
+		if (aPatcher.getNumberOfVertices() >= SubSurfaceMinNumPoints)
+			tmpRadius = getSubSurfaceRadius(aMajorRadius, aPatcher.getDiagonalLength());
+
+		var vPatchPD = aPatcher.createPatch(aPatcher.findCellsNear(centerArr, tmpRadius));
+		deleteL.add(vPatchPD);
+
+		clipEllipseOn(vPatchPD, aCenter, centerNormal, aMajorRadius, aFlattening, aAngle, aNumSides, aRetInteriorPD,
+				aRetExteriorPD, deleteL);
+
+		// Release temporary VTK objects
+		VtkUtil.deleteAll(deleteL);
+	}
+
+	/**
+	 * Helper method that returns the radius of the reduced surface around an ellipse with the specified radius, on a
+	 * body with the specified bounding box diagonal length.
+	 */
+	private static double getSubSurfaceRadius(double aMajorRadius, double aDiagonalLength)
+	{
+		double minRadius = aDiagonalLength / SubSurfaceDiagonalDivisor;
+		return Math.max(aMajorRadius, minRadius) * 1.2;
+	}
+
+	/**
+	 * Helper method that clips the ellipse (with the specified center normal) out of the specified surface. Temporary
+	 * VTK objects are added to aDeleteL.
+	 */
+	private static void clipEllipseOn(vtkPolyData aSurfacePD, Vector3D aCenter, Vector3D aCenterNormal,
+			double aMajorRadius, double aFlattening, double aAngle, int aNumSides, vtkPolyData aRetInteriorPD,
+			vtkPolyData aRetExteriorPD, List<vtkObject> aDeleteL)
+	{
 		vtkRegularPolygonSource vPolygonRPS = new vtkRegularPolygonSource();
-		deleteL.add(vPolygonRPS);
+		aDeleteL.add(vPolygonRPS);
 		// vPolygonRPS.SetCenter(centerArr);
 		vPolygonRPS.SetRadius(aMajorRadius);
-		// vPolygonRPS.SetNormal(centerNormal.toArray());
+		// vPolygonRPS.SetNormal(aCenterNormal.toArray());
 		vPolygonRPS.SetNumberOfSides(aNumSides);
 		vPolygonRPS.SetGeneratePolygon(0);
 		vPolygonRPS.SetGeneratePolyline(0);
@@ -133,14 +217,14 @@ public class VtkDrawUtil
 
 		// First compute cross product of normal and z-axis
 		Vector3D zAxis = Vector3D.PLUS_K;
-		Vector3D cross = zAxis.crossProduct(centerNormal);
+		Vector3D cross = zAxis.crossProduct(aCenterNormal);
 
 		// Compute angle between normal and z-axis
-		double sepAngle = Vector3D.angle(centerNormal, zAxis);
+		double sepAngle = Vector3D.angle(aCenterNormal, zAxis);
 		sepAngle = Math.toDegrees(sepAngle);
 
 		vtkTransform vTransformT = new vtkTransform();
-		deleteL.add(vTransformT);
+		aDeleteL.add(vTransformT);
 		vTransformT.Translate(aCenter.toArray());
 		vTransformT.RotateWXYZ(sepAngle, cross.toArray());
 		vTransformT.RotateZ(aAngle);
@@ -150,17 +234,17 @@ public class VtkDrawUtil
 		// origin match up
 
 		vtkTransformPolyDataFilter vTransformTPDF = new vtkTransformPolyDataFilter();
-		deleteL.add(vTransformTPDF);
+		aDeleteL.add(vTransformTPDF);
 		vtkAlgorithmOutput vPolygonAO = vPolygonRPS.GetOutputPort();
-		deleteL.add(vPolygonAO);
+		aDeleteL.add(vPolygonAO);
 		vTransformTPDF.SetInputConnection(vPolygonAO);
 		vTransformTPDF.SetTransform(vTransformT);
 		vTransformTPDF.Update();
 
 		vtkPolyData vTransformPD = vTransformTPDF.GetOutput();
-		deleteL.add(vTransformPD);
+		aDeleteL.add(vTransformPD);
 		vtkPoints vPointsP = vTransformPD.GetPoints();
-		deleteL.add(vPointsP);
+		aDeleteL.add(vPointsP);
 
 		// List<vtkPlane> clipPlanes = new ArrayList<vtkPlane>();
 		// List<vtkClipPolyData> clipFilters = new ArrayList<vtkClipPolyData>();
@@ -189,7 +273,7 @@ public class VtkDrawUtil
 
 			Vector3D vec = nextPt.subtract(currPt);
 
-			Vector3D tmpNormal = centerNormal;
+			Vector3D tmpNormal = aCenterNormal;
 			Vector3D planeNormal = tmpNormal.crossProduct(vec);
 			planeNormal = planeNormal.normalize();
 
@@ -197,7 +281,7 @@ public class VtkDrawUtil
 			// clipPlanes.add(new vtkPlane());
 			// vtkPlane vPlaneP = clipPlanes.get(i);
 			vtkPlane vPlaneP = new vtkPlane();
-			deleteL.add(vPlaneP);
+			aDeleteL.add(vPlaneP);
 			vPlaneP.SetOrigin(currPt.toArray());
 			vPlaneP.SetNormal(planeNormal.toArray());
 
@@ -205,7 +289,7 @@ public class VtkDrawUtil
 			// clipFilters.add(new vtkClipPolyData());
 			// vClipCPD = clipFilters.get(i);
 			vClipCPD = new vtkClipPolyData();
-			deleteL.add(vClipCPD);
+			aDeleteL.add(vClipCPD);
 			if (i == 0)
 				vClipCPD.SetInputData(aSurfacePD);
 			else
@@ -228,9 +312,9 @@ public class VtkDrawUtil
 		{
 			// Only do rest of processing if there is at least one point
 			vtkPolyDataConnectivityFilter vConnectivityFilterPDCF = new vtkPolyDataConnectivityFilter();
-			deleteL.add(vConnectivityFilterPDCF);
+			aDeleteL.add(vConnectivityFilterPDCF);
 			vtkAlgorithmOutput vClipOutAO = vClipCPD.GetOutputPort();
-			deleteL.add(vClipOutAO);
+			aDeleteL.add(vClipOutAO);
 
 			vConnectivityFilterPDCF.SetInputConnection(vClipOutAO);
 			vConnectivityFilterPDCF.SetExtractionModeToClosestPointRegion();
@@ -244,7 +328,7 @@ public class VtkDrawUtil
 			if (aRetInteriorPD != null)
 			{
 				vtkPolyData vConnectivityFilterPD = vConnectivityFilterPDCF.GetOutput();
-				deleteL.add(vConnectivityFilterPD);
+				aDeleteL.add(vConnectivityFilterPD);
 				aRetInteriorPD.DeepCopy(vConnectivityFilterPD);
 			}
 
@@ -252,9 +336,9 @@ public class VtkDrawUtil
 			{
 				// Compute the bounding edges of this surface
 				vtkFeatureEdges vEdgeExtracterFE = new vtkFeatureEdges();
-				deleteL.add(vEdgeExtracterFE);
+				aDeleteL.add(vEdgeExtracterFE);
 				vtkAlgorithmOutput vConnectivityFilterAO = vConnectivityFilterPDCF.GetOutputPort();
-				deleteL.add(vConnectivityFilterAO);
+				aDeleteL.add(vConnectivityFilterAO);
 				vEdgeExtracterFE.SetInputConnection(vConnectivityFilterAO);
 				vEdgeExtracterFE.BoundaryEdgesOn();
 				vEdgeExtracterFE.FeatureEdgesOff();
@@ -263,14 +347,43 @@ public class VtkDrawUtil
 				vEdgeExtracterFE.Update();
 
 				vtkPolyData vEdgeExtracterPD = vEdgeExtracterFE.GetOutput();
-				deleteL.add(vEdgeExtracterPD);
+				aDeleteL.add(vEdgeExtracterPD);
 				aRetExteriorPD.DeepCopy(vEdgeExtracterPD);
 			}
 
 		}
+	}
 
-		// Release temporary VTK objects
-		VtkUtil.deleteAll(deleteL);
+	/**
+	 * Utility method for drawing a (multi-point) poly path on a {@link vtkPolyData} surface.
+	 * <p>
+	 * The path is traced with the specified {@link SurfacePathTracer}, which only visits the cells along the path. If
+	 * the tracer is null or can not trace the path then this falls back to
+	 * {@link #drawPathPolyOn(vtkPolyData, vtkAbstractPointLocator, Vector3D, Vector3D)}, which cuts the entire surface.
+	 *
+	 * @param aTracer
+	 *    The {@link SurfacePathTracer} associated with the surface. May be null.
+	 * @param aSurfacePD
+	 *    The {@link vtkPolyData} corresponding to the surface.
+	 * @param aSurfacePL
+	 *    The {@link vtkPointLocator} associated with the surface.
+	 * @param aPointBeg
+	 *    The starting end point.
+	 * @param aPointEnd
+	 *    The ending end point.
+	 * @return Returns a {@link vtkPolyData} that contains the contents of the computed line.
+	 */
+	public static vtkPolyData drawPathPolyOn(SurfacePathTracer aTracer, vtkPolyData aSurfacePD,
+			vtkAbstractPointLocator aSurfacePL, Vector3D aPointBeg, Vector3D aPointEnd)
+	{
+		if (aTracer != null)
+		{
+			double[] pathArr = aTracer.trace(aPointBeg.toArray(), aPointEnd.toArray());
+			if (pathArr != null)
+				return formPolyLine(pathArr);
+		}
+
+		return drawPathPolyOn(aSurfacePD, aSurfacePL, aPointBeg, aPointEnd);
 	}
 
 	/**
@@ -375,6 +488,31 @@ public class VtkDrawUtil
 		return null;
 	}
 
+	/**
+	 * Utility method that returns a {@link vtkPolyData} with a single poly line through the specified packed points
+	 * (x0, y0, z0, x1, ...).
+	 */
+	public static vtkPolyData formPolyLine(double[] aPointArr)
+	{
+		int numPts = aPointArr.length / 3;
+
+		vtkPoints vPointP = VtkArrayUtil.createPoints(aPointArr);
+
+		vtkIdList vTmpIL = new vtkIdList();
+		vTmpIL.SetNumberOfIds(numPts);
+		for (int aIdx = 0; aIdx < numPts; aIdx++)
+			vTmpIL.SetId(aIdx, aIdx);
+
+		vtkCellArray vLineCA = new vtkCellArray();
+		vLineCA.InsertNextCell(vTmpIL);
+		vTmpIL.Delete();
+
+		vtkPolyData retLinePD = new vtkPolyData();
+		retLinePD.SetPoints(vPointP);
+		retLinePD.SetLines(vLineCA);
+		return retLinePD;
+	}
+
 	/**
 	 * Utility method that for drawing a simple path onto a {@link vtkPolyData}.
 	 * <p>
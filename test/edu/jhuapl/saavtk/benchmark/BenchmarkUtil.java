@@ -0,0 +1,71 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.util.Arrays;
+
+import vtk.vtkPolyData;
+import vtk.vtkSphereSource;
+
+/**
+ * Helpers shared by the stand-alone benchmark programs in this package. These
+ * are intentionally simple: each benchmark runs a few warm-up iterations so the
+ * JIT has compiled the code under test, then reports the median of the timed
+ * iterations.
+ */
+public class BenchmarkUtil
+{
+    /**
+     * Run the specified code warmUps + iterations times and print the median
+     * elapsed time of the last iterations runs.
+     *
+     * @param label printed with the result
+     * @param warmUps number of untimed runs
+     * @param iterations number of timed runs
+     * @param code the code to time
+     * @return the median elapsed time in milli-seconds
+     */
+    public static double time(String label, int warmUps, int iterations, Runnable code)
+    {
+        for (int index = 0; index < warmUps; ++index)
+        {
+            code.run();
+        }
+
+        double[] times = new double[iterations];
+        for (int index = 0; index < iterations; ++index)
+        {
+            long start = System.nanoTime();
+            code.run();
+            times[index] = 1.e-6 * (System.nanoTime() - start);
+        }
+        Arrays.sort(times);
+        double median = times[iterations / 2];
+
+        System.out.printf("%-50s %12.3f ms (median of %d)\n", label, median, iterations);
+
+        return median;
+    }
+
+    /**
+     * Create a triangulated unit sphere with approximately resolution^2
+     * facets, a convenient stand-in for a shape model.
+     *
+     * @param resolution the theta resolution of the sphere
+     * @return the sphere
+     */
+    public static vtkPolyData createSphere(int resolution)
+    {
+        vtkSphereSource sphereSource = new vtkSphereSource();
+        sphereSource.SetRadius(1.0);
+        sphereSource.SetCenter(0.0, 0.0, 0.0);
+        sphereSource.SetLatLongTessellation(0);
+        sphereSource.SetThetaResolution(resolution);
+        sphereSource.SetPhiResolution(Math.max(3, resolution / 2 + 1));
+        sphereSource.Update();
+
+        vtkPolyData result = new vtkPolyData();
+        result.DeepCopy(sphereSource.GetOutput());
+        sphereSource.Delete();
+
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.util.Collections;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.saavtk.util.file.ColumnarIndexableTuple;
+import edu.jhuapl.saavtk.util.file.Indexable;
+
+/**
+ * Measure the heap used to hold plate coloring data as the list of boxed
+ * values per plate formerly built by the CSV reader, and as a
+ * {@link ColumnarIndexableTuple} in double and single precision.
+ * <p>
+ * Usage: ColoringHeapBenchmark [numberPlates [numberFields]]
+ * <p>
+ * Run with a heap large enough for the boxed representation, e.g. -Xmx2g for
+ * the default of 3M plates with 4 fields.
+ */
+public class ColoringHeapBenchmark
+{
+    public static void main(String[] args)
+    {
+        int numberPlates = args.length > 0 ? Integer.parseInt(args[0]) : 3000000;
+        int numberFields = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        System.out.println("Plates: " + numberPlates + ", fields: " + numberFields);
+
+        Indexable<String> names = ColumnarIndexableTuple.indexableOf(Collections.nCopies(numberFields, "value"));
+        Indexable<String> units = ColumnarIndexableTuple.indexableOf(Collections.nCopies(numberFields, ""));
+
+        long baseline = usedHeap();
+        ImmutableList<ImmutableList<Double>> boxed = createBoxed(numberPlates, numberFields);
+        report("ImmutableList<ImmutableList<Double>>", usedHeap() - baseline, numberPlates, numberFields);
+        boxed = null;
+
+        baseline = usedHeap();
+        ColumnarIndexableTuple doubles = createColumnar(numberPlates, numberFields, false).build(names, units);
+        report("ColumnarIndexableTuple (double)", usedHeap() - baseline, numberPlates, numberFields);
+        doubles = null;
+
+        baseline = usedHeap();
+        ColumnarIndexableTuple floats = createColumnar(numberPlates, numberFields, true).build(names, units);
+        report("ColumnarIndexableTuple (float)", usedHeap() - baseline, numberPlates, numberFields);
+
+        // Keep the last table reachable until it has been measured.
+        System.out.println("(" + floats.size() + " tuples)");
+    }
+
+    private static ImmutableList<ImmutableList<Double>> createBoxed(int numberPlates, int numberFields)
+    {
+        Random random = new Random(1);
+        ImmutableList.Builder<ImmutableList<Double>> builder = ImmutableList.builder();
+        for (int plate = 0; plate < numberPlates; ++plate)
+        {
+            ImmutableList.Builder<Double> row = ImmutableList.builder();
+            for (int field = 0; field < numberFields; ++field)
+            {
+                row.add(random.nextDouble());
+            }
+            builder.add(row.build());
+        }
+
+        return builder.build();
+    }
+
+    private static ColumnarIndexableTuple.Builder createColumnar(int numberPlates, int numberFields, boolean singlePrecision)
+    {
+        Random random = new Random(1);
+        ColumnarIndexableTuple.Builder builder = ColumnarIndexableTuple.builder(numberFields, singlePrecision, numberPlates);
+        double[] values = new double[numberFields];
+        for (int plate = 0; plate < numberPlates; ++plate)
+        {
+            for (int field = 0; field < numberFields; ++field)
+            {
+                values[field] = random.nextDouble();
+            }
+            builder.add(values);
+        }
+
+        return builder;
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int index = 0; index < 3; ++index)
+        {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String label, long bytes, int numberPlates, int numberFields)
+    {
+        System.out.printf("%-40s %8.1f MB %6.1f bytes/value\n", label, bytes / (1024. * 1024.), (double) bytes / numberPlates / numberFields);
+    }
+}
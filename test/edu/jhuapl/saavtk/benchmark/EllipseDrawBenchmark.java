@@ -0,0 +1,105 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.util.mesh.JavaMesh;
+import edu.jhuapl.saavtk.util.mesh.PointKdTree;
+import edu.jhuapl.saavtk.util.mesh.SurfacePatcher;
+import edu.jhuapl.saavtk.util.mesh.TriangleBvh;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import edu.jhuapl.saavtk.vtk.VtkDrawUtil;
+import vtk.vtkPointLocator;
+import vtk.vtkPolyData;
+
+/**
+ * Compare drawing small ellipses on a shape model with the point locator and
+ * vtkExtractPolyDataGeometry, one at a time, with drawing them on patches cut
+ * by a {@link SurfacePatcher}, one at a time and concurrently.
+ * <p>
+ * Usage: EllipseDrawBenchmark [sphereResolution] [numberEllipses]
+ */
+public class EllipseDrawBenchmark
+{
+    // Keeps the JIT from discarding the loops.
+    private static volatile double sink;
+
+    public static void main(String[] args)
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int numberEllipses = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        vtkPolyData sphere = BenchmarkUtil.createSphere(resolution);
+        System.out.println("Points: " + sphere.GetNumberOfPoints() + ", facets: " + sphere.GetNumberOfCells());
+
+        vtkPointLocator pointLocator = new vtkPointLocator();
+        pointLocator.SetDataSet(sphere);
+        pointLocator.BuildLocator();
+
+        Random random = new Random(0);
+        Vector3D[] centers = new Vector3D[numberEllipses];
+        for (int ellipse = 0; ellipse < numberEllipses; ++ellipse)
+        {
+            double lat = Math.asin(2. * random.nextDouble() - 1.);
+            double lon = 2. * Math.PI * random.nextDouble();
+            centers[ellipse] = new Vector3D(lon, lat);
+        }
+        double radius = 0.02;
+
+        BenchmarkUtil.time("Ellipses: VtkDrawUtil, extracting from whole model", 1, 3, () -> {
+            double total = 0.;
+            for (Vector3D center : centers)
+            {
+                vtkPolyData interior = new vtkPolyData();
+                vtkPolyData exterior = new vtkPolyData();
+                VtkDrawUtil.drawEllipseOn(sphere, pointLocator, center, radius, 0.5, 30., 20, interior, exterior);
+                total += exterior.GetNumberOfPoints();
+                interior.Delete();
+                exterior.Delete();
+            }
+            sink = total;
+        });
+
+        BenchmarkUtil.time("Ellipses: building SurfacePatcher", 1, 3, () -> {
+            sink = createPatcher(sphere).hashCode();
+        });
+
+        SurfacePatcher patcher = createPatcher(sphere);
+        BenchmarkUtil.time("Ellipses: SurfacePatcher, one at a time", 1, 3, () -> {
+            double total = 0.;
+            for (Vector3D center : centers)
+            {
+                total += drawOn(patcher, center, radius);
+            }
+            sink = total;
+        });
+        BenchmarkUtil.time("Ellipses: SurfacePatcher, concurrently", 1, 3, () -> {
+            sink = IntStream.range(0, numberEllipses).parallel().mapToDouble(ellipse -> drawOn(patcher, centers[ellipse], radius)).sum();
+        });
+    }
+
+    private static SurfacePatcher createPatcher(vtkPolyData surface)
+    {
+        double[] normals = VtkArrayUtil.getValues(surface.GetPointData().GetNormals());
+        PointKdTree vertexTree = PointKdTree.of(VtkArrayUtil.getPoints(surface.GetPoints()));
+
+        return SurfacePatcher.of(JavaMesh.of(surface), TriangleBvh.of(surface), vertexTree, normals);
+    }
+
+    private static double drawOn(SurfacePatcher patcher, Vector3D center, double radius)
+    {
+        vtkPolyData interior = new vtkPolyData();
+        vtkPolyData exterior = new vtkPolyData();
+        VtkDrawUtil.drawEllipseOn(patcher, center, radius, 0.5, 30., 20, interior, exterior);
+        double result = exterior.GetNumberOfPoints();
+        interior.Delete();
+        exterior.Delete();
+
+        return result;
+    }
+}
@@ -0,0 +1,212 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.util.Random;
+
+import edu.jhuapl.saavtk.model.GenericPolyhedralModel;
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.util.PolyDataUtil;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkPolyData;
+
+/**
+ * Compare the footprints computed by
+ * {@link GenericPolyhedralModel#computeFrustumIntersection(double[], double[], double[], double[], double[])}
+ * with those of the VTK clipping pipeline in
+ * {@link PolyDataUtil#computeFrustumIntersection}, for a fixed set of frusta
+ * pointed at a bumpy sphere, or at a shape model loaded from a file.
+ * <p>
+ * Usage: FrustumIntersectionBenchmark [sphereResolution | shapeModelFile [numberFrusta]]
+ * <p>
+ * The two methods triangulate clipped facets differently, so the footprints are
+ * compared by area rather than facet by facet. Facets that are only partly
+ * hidden are kept or dropped whole by both methods, so on a body with
+ * concavities the areas may differ by a few such facets.
+ */
+public class FrustumIntersectionBenchmark
+{
+    // Relative area difference above which a footprint is reported.
+    private static final double AreaTolerance = 0.01;
+
+    public static void main(String[] args) throws Exception
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        vtkPolyData polyData;
+        if (args.length > 0 && !args[0].matches("\\d+"))
+        {
+            polyData = PolyDataUtil.loadShapeModel(args[0]);
+        }
+        else
+        {
+            int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+            polyData = createBumpySphere(resolution);
+        }
+        int numberFrusta = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        GenericPolyhedralModel model = new GenericPolyhedralModel("FrustumIntersectionBenchmark", polyData);
+        vtkPolyData modelPolyData = model.getSmallBodyPolyDataAtPosition();
+        double[] bounds = modelPolyData.GetBounds();
+        double radius = 0.;
+        for (int k = 0; k < 3; ++k)
+        {
+            radius = Math.max(radius, Math.max(Math.abs(bounds[2 * k]), Math.abs(bounds[2 * k + 1])));
+        }
+        System.out.println("Facets: " + modelPolyData.GetNumberOfCells() + ", frusta: " + numberFrusta);
+
+        double[][][] frusta = createFrusta(numberFrusta, radius);
+
+        BenchmarkUtil.time("Build VTK locators", 0, 1, () -> {
+            model.getCellLocator();
+            model.getPointLocator();
+        });
+        BenchmarkUtil.time("Build FrustumIntersector", 0, 1, () -> model.getFrustumIntersector());
+
+        vtkPolyData[] vtkFootprints = new vtkPolyData[numberFrusta];
+        double vtkTime = BenchmarkUtil.time("VTK clipping pipeline", 0, 1, () -> {
+            for (int index = 0; index < numberFrusta; ++index)
+            {
+                double[][] f = frusta[index];
+                vtkFootprints[index] = PolyDataUtil.computeFrustumIntersection(modelPolyData, model.getCellLocator(), model.getPointLocator(), f[0], f[1], f[2], f[3], f[4]);
+            }
+        });
+
+        vtkPolyData[] footprints = new vtkPolyData[numberFrusta];
+        double time = BenchmarkUtil.time("FrustumIntersector", 1, 3, () -> {
+            for (int index = 0; index < numberFrusta; ++index)
+            {
+                double[][] f = frusta[index];
+                footprints[index] = model.computeFrustumIntersection(f[0], f[1], f[2], f[3], f[4]);
+            }
+        });
+
+        int numberMismatches = 0;
+        double maxDifference = 0.;
+        for (int index = 0; index < numberFrusta; ++index)
+        {
+            double vtkArea = getArea(vtkFootprints[index]);
+            double area = getArea(footprints[index]);
+            double difference = Math.abs(area - vtkArea) / Math.max(vtkArea, Double.MIN_NORMAL);
+            if (vtkArea == 0. && area == 0.)
+            {
+                difference = 0.;
+            }
+            maxDifference = Math.max(maxDifference, difference);
+            if (difference > AreaTolerance)
+            {
+                ++numberMismatches;
+                System.out.printf("Frustum %d: VTK area %g (%d facets), FrustumIntersector area %g (%d facets)\n", index, vtkArea, getNumberOfCells(vtkFootprints[index]), area, getNumberOfCells(footprints[index]));
+            }
+        }
+
+        System.out.printf("Per frustum: VTK %.2f ms, FrustumIntersector %.2f ms\n", vtkTime / numberFrusta, time / numberFrusta);
+        System.out.printf("Largest relative area difference: %.2e, footprints above %.0e: %d\n", maxDifference, AreaTolerance, numberMismatches);
+    }
+
+    /**
+     * Return a sphere whose radius varies smoothly with longitude and latitude,
+     * so that some facets hide others from most points of view.
+     */
+    private static vtkPolyData createBumpySphere(int resolution)
+    {
+        vtkPolyData sphere = BenchmarkUtil.createSphere(resolution);
+
+        double[] coords = VtkArrayUtil.getPoints(sphere.GetPoints());
+        float[] bumpyCoords = new float[coords.length];
+        for (int index = 0; index < coords.length; index += 3)
+        {
+            double x = coords[index];
+            double y = coords[index + 1];
+            double z = coords[index + 2];
+            double lon = Math.atan2(y, x);
+            double lat = Math.atan2(z, Math.sqrt(x * x + y * y));
+            double scale = 1. + 0.3 * Math.sin(5. * lon) * Math.cos(3. * lat) * Math.cos(lat);
+            bumpyCoords[index] = (float) (scale * x);
+            bumpyCoords[index + 1] = (float) (scale * y);
+            bumpyCoords[index + 2] = (float) (scale * z);
+        }
+        sphere.SetPoints(VtkArrayUtil.createPoints(bumpyCoords));
+
+        return sphere;
+    }
+
+    /**
+     * Return frusta with random origins at 3 body radii, each aimed near the
+     * center of the body, with half-widths between 2 and 20 degrees. Each frustum
+     * is packed as origin, ul, ur, lr, ll.
+     */
+    private static double[][][] createFrusta(int numberFrusta, double radius)
+    {
+        Random random = new Random(1);
+        double[][][] result = new double[numberFrusta][][];
+        for (int index = 0; index < numberFrusta; ++index)
+        {
+            double[] origin = randomUnitVector(random);
+            double[] target = randomUnitVector(random);
+            double[] boresight = new double[3];
+            for (int k = 0; k < 3; ++k)
+            {
+                origin[k] *= 3. * radius;
+                boresight[k] = 0.3 * radius * target[k] - origin[k];
+            }
+            normalize(boresight);
+
+            // Two unit vectors perpendicular to the boresight and each other.
+            double[] up = cross(boresight, randomUnitVector(random));
+            normalize(up);
+            double[] side = cross(boresight, up);
+
+            double halfWidth = Math.tan(Math.toRadians(2. + 18. * random.nextDouble()));
+            double[] ul = new double[3];
+            double[] ur = new double[3];
+            double[] lr = new double[3];
+            double[] ll = new double[3];
+            for (int k = 0; k < 3; ++k)
+            {
+                ul[k] = boresight[k] + halfWidth * (up[k] - side[k]);
+                ur[k] = boresight[k] + halfWidth * (up[k] + side[k]);
+                lr[k] = boresight[k] + halfWidth * (-up[k] + side[k]);
+                ll[k] = boresight[k] + halfWidth * (-up[k] - side[k]);
+            }
+            normalize(ul);
+            normalize(ur);
+            normalize(lr);
+            normalize(ll);
+
+            result[index] = new double[][] { origin, ul, ur, lr, ll };
+        }
+
+        return result;
+    }
+
+    private static double getArea(vtkPolyData polyData)
+    {
+        return polyData != null ? PolyDataUtil.computeSurfaceArea(polyData) : 0.;
+    }
+
+    private static long getNumberOfCells(vtkPolyData polyData)
+    {
+        return polyData != null ? polyData.GetNumberOfCells() : 0;
+    }
+
+    private static double[] randomUnitVector(Random random)
+    {
+        double[] result = new double[] { random.nextGaussian(), random.nextGaussian(), random.nextGaussian() };
+        normalize(result);
+
+        return result;
+    }
+
+    private static double[] cross(double[] a, double[] b)
+    {
+        return new double[] { a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0] };
+    }
+
+    private static void normalize(double[] v)
+    {
+        double norm = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+        for (int k = 0; k < 3; ++k)
+        {
+            v[k] /= norm;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import edu.jhuapl.saavtk.util.MathUtil;
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.util.mesh.JavaMesh;
+import vtk.vtkCell;
+import vtk.vtkMassProperties;
+import vtk.vtkPoints;
+import vtk.vtkPolyData;
+
+/**
+ * Compare computing shape model statistics through VTK, cell by cell or with
+ * vtkMassProperties, with computing them from a {@link JavaMesh} snapshot. The
+ * snapshot is timed both including and excluding the copy out of VTK.
+ * <p>
+ * Usage: JavaMeshBenchmark [sphereResolution]
+ */
+public class JavaMeshBenchmark
+{
+    // Keeps the JIT from discarding the loops.
+    private static volatile double sink;
+
+    public static void main(String[] args)
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        vtkPolyData sphere = BenchmarkUtil.createSphere(resolution);
+        int numberCells = (int) sphere.GetNumberOfCells();
+        System.out.println("Points: " + sphere.GetNumberOfPoints() + ", facets: " + numberCells);
+
+        BenchmarkUtil.time("Area: GetCell per cell", 1, 5, () -> {
+            double area = 0.;
+            for (int index = 0; index < numberCells; ++index)
+            {
+                vtkCell cell = sphere.GetCell(index);
+                vtkPoints points = cell.GetPoints();
+                area += MathUtil.triangleArea(points.GetPoint(0), points.GetPoint(1), points.GetPoint(2));
+                points.Delete();
+                cell.Delete();
+            }
+            sink = area;
+        });
+        BenchmarkUtil.time("Area and volume: vtkMassProperties", 1, 5, () -> {
+            vtkMassProperties massProp = new vtkMassProperties();
+            massProp.SetInputData(sphere);
+            massProp.Update();
+            sink = massProp.GetSurfaceArea() + massProp.GetVolume() + massProp.GetMinCellArea();
+            massProp.Delete();
+        });
+        BenchmarkUtil.time("Area and volume: JavaMesh, including snapshot", 1, 5, () -> {
+            JavaMesh mesh = JavaMesh.of(sphere);
+            sink = mesh.computeAreaStatistics()[2] + mesh.computeVolume();
+        });
+
+        JavaMesh mesh = JavaMesh.of(sphere);
+        BenchmarkUtil.time("Area and volume: JavaMesh, snapshot reused", 1, 5, () -> {
+            sink = mesh.computeAreaStatistics()[2] + mesh.computeVolume();
+        });
+        BenchmarkUtil.time("Edge lengths: JavaMesh", 1, 5, () -> {
+            sink = mesh.computeEdgeLengthStatistics()[2];
+        });
+    }
+}
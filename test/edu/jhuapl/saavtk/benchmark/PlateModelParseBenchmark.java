@@ -0,0 +1,180 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.util.PolyDataUtil;
+import vtk.vtkCellArray;
+import vtk.vtkIdList;
+import vtk.vtkPoints;
+import vtk.vtkPolyData;
+
+/**
+ * Compare {@link PolyDataUtil#loadPDSShapeModel(String)} with the line
+ * splitting parser it replaced, on generated Gaskell style plate files.
+ * <p>
+ * Usage: PlateModelParseBenchmark [numberFacets ...]
+ * <p>
+ * The default sizes are 50k, 800k and 3M facets. The generated files are
+ * written to the temporary directory and deleted on exit.
+ */
+public class PlateModelParseBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        int[] facetCounts = { 50000, 800000, 3000000 };
+        if (args.length > 0)
+        {
+            facetCounts = new int[args.length];
+            for (int index = 0; index < args.length; ++index)
+            {
+                facetCounts[index] = Integer.parseInt(args[index]);
+            }
+        }
+
+        for (int numberFacets : facetCounts)
+        {
+            File file = File.createTempFile("plate-benchmark-", ".plt");
+            file.deleteOnExit();
+            writePlateFile(file, numberFacets);
+            System.out.println("Facets: " + numberFacets + ", file size: " + file.length() / (1 << 20) + " MB");
+
+            int iterations = numberFacets > 1000000 ? 3 : 5;
+            BenchmarkUtil.time("  readLine/split parser", 1, iterations, () -> {
+                try
+                {
+                    loadWithSplit(file.getAbsolutePath()).Delete();
+                }
+                catch (IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            });
+            BenchmarkUtil.time("  PolyDataUtil.loadPDSShapeModel", 1, iterations, () -> {
+                try
+                {
+                    PolyDataUtil.loadPDSShapeModel(file.getAbsolutePath()).Delete();
+                }
+                catch (Exception e)
+                {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            file.delete();
+        }
+    }
+
+    /**
+     * Write a closed latitude/longitude sphere with approximately the specified
+     * number of facets in the PDS vertex format (one based ids, counts on the
+     * first line).
+     */
+    private static void writePlateFile(File file, int numberFacets) throws IOException
+    {
+        int numberLons = Math.max(3, (int) Math.ceil(Math.sqrt(numberFacets / 2.)));
+        int numberRings = Math.max(2, numberFacets / (2 * numberLons));
+        int numberPoints = 2 + numberRings * numberLons;
+        int numberCells = 2 * numberLons * numberRings;
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file), 1 << 16)))
+        {
+            out.println(numberPoints + " " + numberCells);
+
+            int id = 1;
+            out.printf("%d %.10e %.10e %.10e\n", id++, 0., 0., -1.);
+            for (int ring = 0; ring < numberRings; ++ring)
+            {
+                double lat = Math.PI * ((ring + 1.) / (numberRings + 1.) - 0.5);
+                for (int lon = 0; lon < numberLons; ++lon)
+                {
+                    double theta = 2. * Math.PI * lon / numberLons;
+                    out.printf("%d %.10e %.10e %.10e\n", id++, Math.cos(lat) * Math.cos(theta), Math.cos(lat) * Math.sin(theta), Math.sin(lat));
+                }
+            }
+            out.printf("%d %.10e %.10e %.10e\n", id++, 0., 0., 1.);
+
+            int southPole = 1;
+            int northPole = numberPoints;
+            id = 1;
+            for (int ring = 0; ring <= numberRings; ++ring)
+            {
+                for (int lon = 0; lon < numberLons; ++lon)
+                {
+                    int next = (lon + 1) % numberLons;
+                    if (ring == 0)
+                    {
+                        out.println(id++ + " " + southPole + " " + pointId(0, next, numberLons) + " " + pointId(0, lon, numberLons));
+                    }
+                    else if (ring == numberRings)
+                    {
+                        out.println(id++ + " " + pointId(ring - 1, lon, numberLons) + " " + pointId(ring - 1, next, numberLons) + " " + northPole);
+                    }
+                    else
+                    {
+                        int p00 = pointId(ring - 1, lon, numberLons);
+                        int p01 = pointId(ring - 1, next, numberLons);
+                        int p10 = pointId(ring, lon, numberLons);
+                        int p11 = pointId(ring, next, numberLons);
+                        out.println(id++ + " " + p00 + " " + p01 + " " + p11);
+                        out.println(id++ + " " + p00 + " " + p11 + " " + p10);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int pointId(int ring, int lon, int numberLons)
+    {
+        return 2 + ring * numberLons + lon;
+    }
+
+    /**
+     * The parser formerly used by loadPDSShapeModel, kept here as the baseline.
+     */
+    private static vtkPolyData loadWithSplit(String filename) throws IOException
+    {
+        vtkPolyData polydata = new vtkPolyData();
+        vtkPoints points = new vtkPoints();
+        vtkCellArray cells = new vtkCellArray();
+        polydata.SetPoints(points);
+        polydata.SetPolys(cells);
+
+        try (BufferedReader in = new BufferedReader(new FileReader(filename)))
+        {
+            String[] vals = in.readLine().trim().split("\\s+");
+            int numPoints = Integer.parseInt(vals[0]);
+            int numCells = Integer.parseInt(vals[1]);
+
+            for (int j = 0; j < numPoints; ++j)
+            {
+                vals = in.readLine().trim().split("\\s+");
+                points.InsertNextPoint(Double.parseDouble(vals[1]), Double.parseDouble(vals[2]), Double.parseDouble(vals[3]));
+            }
+
+            vtkIdList idList = new vtkIdList();
+            idList.SetNumberOfIds(3);
+            for (int j = 0; j < numCells; ++j)
+            {
+                vals = in.readLine().trim().split("\\s+");
+                idList.SetId(0, Integer.parseInt(vals[1]) - 1);
+                idList.SetId(1, Integer.parseInt(vals[2]) - 1);
+                idList.SetId(2, Integer.parseInt(vals[3]) - 1);
+                cells.InsertNextCell(idList);
+            }
+            idList.Delete();
+        }
+
+        PolyDataUtil.addPointNormalsToShapeModel(polydata);
+
+        return polydata;
+    }
+}
@@ -0,0 +1,94 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.util.Random;
+
+import edu.jhuapl.saavtk.model.GenericPolyhedralModel;
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import vtk.vtkPolyData;
+
+/**
+ * Compare casting rays one at a time through
+ * {@link GenericPolyhedralModel#computeRayIntersection(double[], double[], double[])}
+ * with the batch method
+ * {@link GenericPolyhedralModel#computeRayIntersections(double[], double[], double[])}.
+ * <p>
+ * Usage: RayCastBenchmark [sphereResolution [numberRays]]
+ */
+public class RayCastBenchmark
+{
+    public static void main(String[] args)
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int numberRays = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        vtkPolyData sphere = BenchmarkUtil.createSphere(resolution);
+        GenericPolyhedralModel model = new GenericPolyhedralModel("RayCastBenchmark", sphere);
+        System.out.println("Facets: " + sphere.GetNumberOfCells() + ", rays: " + numberRays);
+
+        // Rays from a sphere of radius 3 aimed roughly at the body, so most hit it.
+        Random random = new Random(1);
+        double[] origins = new double[3 * numberRays];
+        double[] directions = new double[3 * numberRays];
+        for (int ray = 0; ray < numberRays; ++ray)
+        {
+            double[] origin = randomUnitVector(random);
+            double[] target = randomUnitVector(random);
+            double length = 0.;
+            for (int k = 0; k < 3; ++k)
+            {
+                origins[3 * ray + k] = 3. * origin[k];
+                directions[3 * ray + k] = 0.5 * target[k] - 3. * origin[k];
+                length += directions[3 * ray + k] * directions[3 * ray + k];
+            }
+            length = Math.sqrt(length);
+            for (int k = 0; k < 3; ++k)
+            {
+                directions[3 * ray + k] /= length;
+            }
+        }
+
+        BenchmarkUtil.time("Build TriangleBvh", 0, 1, () -> model.getTriangleBvh());
+
+        int[] loopCellIds = new int[numberRays];
+        BenchmarkUtil.time("Per-ray computeRayIntersection loop", 1, 3, () -> {
+            double[] origin = new double[3];
+            double[] direction = new double[3];
+            double[] intersectPoint = new double[3];
+            for (int ray = 0; ray < numberRays; ++ray)
+            {
+                System.arraycopy(origins, 3 * ray, origin, 0, 3);
+                System.arraycopy(directions, 3 * ray, direction, 0, 3);
+                loopCellIds[ray] = model.computeRayIntersection(origin, direction, intersectPoint);
+            }
+        });
+
+        double[] intersectPoints = new double[3 * numberRays];
+        int[][] batchCellIds = new int[1][];
+        BenchmarkUtil.time("Batch computeRayIntersections", 1, 3, () -> {
+            batchCellIds[0] = model.computeRayIntersections(origins, directions, intersectPoints);
+        });
+
+        int numberMismatches = 0;
+        for (int ray = 0; ray < numberRays; ++ray)
+        {
+            if (loopCellIds[ray] != batchCellIds[0][ray])
+            {
+                ++numberMismatches;
+            }
+        }
+        // Rays that graze a shared edge may legitimately report either neighbor.
+        System.out.println("Rays whose cell ids differ between methods: " + numberMismatches);
+    }
+
+    private static double[] randomUnitVector(Random random)
+    {
+        double x = random.nextGaussian();
+        double y = random.nextGaussian();
+        double z = random.nextGaussian();
+        double norm = Math.sqrt(x * x + y * y + z * z);
+
+        return new double[] { x / norm, y / norm, z / norm };
+    }
+}
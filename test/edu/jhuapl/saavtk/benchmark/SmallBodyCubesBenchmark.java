@@ -0,0 +1,134 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import edu.jhuapl.saavtk.util.BoundingBox;
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.util.SmallBodyCubes;
+import vtk.vtkPolyData;
+
+/**
+ * Compare the uniform grid lookup of
+ * {@link SmallBodyCubes#getIntersectingCubeIds(vtkPolyData)} with the
+ * cube-by-cube, cell-by-cell search it replaced, on spheres of increasing
+ * resolution.
+ * <p>
+ * Usage: SmallBodyCubesBenchmark [sphereResolution ...]
+ * <p>
+ * The cube size is scaled with the facet size, so the number of cubes crossed
+ * by the surface grows in proportion to the number of facets, as it does when a
+ * fine custom cube size is used for a high resolution model. The time per facet
+ * of the old search then grows with the model, while that of the grid lookup
+ * stays roughly constant. The old search is skipped where it would take too
+ * long.
+ */
+public class SmallBodyCubesBenchmark
+{
+    // Skip the old search beyond this many cube/cell tests.
+    private static final double MaxLegacyTests = 2.e10;
+
+    public static void main(String[] args)
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        int[] resolutions = { 50, 100, 200, 400, 800 };
+        if (args.length > 0)
+        {
+            resolutions = new int[args.length];
+            for (int index = 0; index < args.length; ++index)
+            {
+                resolutions[index] = Integer.parseInt(args[index]);
+            }
+        }
+
+        for (int resolution : resolutions)
+        {
+            vtkPolyData sphere = BenchmarkUtil.createSphere(resolution);
+            int numberFacets = (int) sphere.GetNumberOfCells();
+
+            // About 8 mean facet edges per cube side.
+            double cubeSize = 8. * Math.sqrt(4. * Math.PI / numberFacets);
+            SmallBodyCubes allCubes = new SmallBodyCubes(sphere, cubeSize, 0.01 * cubeSize, false, 0.);
+            System.out.println("Facets: " + numberFacets + ", cubes: " + allCubes.getNumberOfCubes());
+
+            int[][] gridIds = new int[1][];
+            double gridTime = BenchmarkUtil.time("Uniform grid getIntersectingCubeIds", 1, 5, () -> {
+                gridIds[0] = allCubes.getIntersectingCubeIds(sphere);
+            });
+            BenchmarkUtil.time("SmallBodyCubes constructor (remove empty cubes)", 1, 5, () -> {
+                new SmallBodyCubes(sphere, cubeSize, 0.01 * cubeSize, true, 0.);
+            });
+
+            double legacyTime = Double.NaN;
+            if ((double) allCubes.getNumberOfCubes() * numberFacets <= MaxLegacyTests)
+            {
+                List<BoundingBox> cubes = allCubes.getAllCubes();
+                List<TreeSet<Integer>> legacyIds = new ArrayList<>();
+                legacyTime = BenchmarkUtil.time("Cube by cube, cell by cell search", 0, 1, () -> {
+                    legacyIds.add(getIntersectingCubesLegacy(cubes, sphere, 0.));
+                });
+
+                // Cubes found by only one of the searches.
+                TreeSet<Integer> onlyLegacy = new TreeSet<>(legacyIds.get(0));
+                int numberMismatches = 0;
+                for (int cubeId : gridIds[0])
+                {
+                    if (!onlyLegacy.remove(cubeId))
+                    {
+                        ++numberMismatches;
+                    }
+                }
+                numberMismatches += onlyLegacy.size();
+                System.out.println("Intersecting cubes: " + gridIds[0].length + ", mismatches: " + numberMismatches);
+            }
+            else
+            {
+                System.out.println("Cube by cube, cell by cell search skipped");
+            }
+
+            System.out.printf("Per facet: grid %.1f ns, cube by cube %.1f ns\n\n", 1.e6 * gridTime / numberFacets, 1.e6 * legacyTime / numberFacets);
+        }
+    }
+
+    /**
+     * The search formerly done by
+     * {@link SmallBodyCubes#getIntersectingCubes(vtkPolyData)}.
+     */
+    private static TreeSet<Integer> getIntersectingCubesLegacy(List<BoundingBox> cubes, vtkPolyData polydata, double overlap)
+    {
+        TreeSet<Integer> cubeIds = new TreeSet<Integer>();
+
+        BoundingBox polydataBB = new BoundingBox(polydata.GetBounds());
+        int numberPolygons = (int) polydata.GetNumberOfCells();
+
+        double[] cellBounds = new double[6];
+        List<BoundingBox> polyCellsBB = new ArrayList<BoundingBox>();
+        for (int j = 0; j < numberPolygons; ++j)
+        {
+            polydata.GetCellBounds(j, cellBounds);
+            polyCellsBB.add(new BoundingBox(cellBounds));
+        }
+
+        int numberCubes = cubes.size();
+        for (int i = 0; i < numberCubes; ++i)
+        {
+            BoundingBox cube = cubes.get(i);
+            if (cube.intersects(polydataBB))
+            {
+                for (int j = 0; j < numberPolygons; ++j)
+                {
+                    BoundingBox bb = polyCellsBB.get(j);
+                    if (cube.intersects(bb) && cube.getOverlapFactor(bb) * 100.0 > overlap)
+                    {
+                        cubeIds.add(i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return cubeIds;
+    }
+}
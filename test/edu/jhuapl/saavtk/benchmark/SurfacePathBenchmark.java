@@ -0,0 +1,100 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import java.util.Random;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.util.mesh.JavaMesh;
+import edu.jhuapl.saavtk.util.mesh.SurfacePathTracer;
+import edu.jhuapl.saavtk.util.mesh.TriangleBvh;
+import edu.jhuapl.saavtk.vtk.VtkDrawUtil;
+import vtk.vtkPointLocator;
+import vtk.vtkPolyData;
+
+/**
+ * Compare drawing short paths on a shape model by cutting the whole model with
+ * VtkDrawUtil.drawPathPolyOn with tracing them with a
+ * {@link SurfacePathTracer}, one at a time and as a batch.
+ * <p>
+ * Usage: SurfacePathBenchmark [sphereResolution] [numberPaths]
+ */
+public class SurfacePathBenchmark
+{
+    // Keeps the JIT from discarding the loops.
+    private static volatile double sink;
+
+    public static void main(String[] args)
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int numberPaths = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        vtkPolyData sphere = BenchmarkUtil.createSphere(resolution);
+        System.out.println("Points: " + sphere.GetNumberOfPoints() + ", facets: " + sphere.GetNumberOfCells());
+
+        vtkPointLocator pointLocator = new vtkPointLocator();
+        pointLocator.SetDataSet(sphere);
+        pointLocator.BuildLocator();
+
+        // Short paths, as between neighboring control points of a drawn path.
+        Random random = new Random(0);
+        double[] begins = new double[3 * numberPaths];
+        double[] ends = new double[3 * numberPaths];
+        for (int path = 0; path < numberPaths; ++path)
+        {
+            double lat = Math.asin(2. * random.nextDouble() - 1.);
+            double lon = 2. * Math.PI * random.nextDouble();
+            setPoint(begins, path, lat, lon);
+            setPoint(ends, path, lat + 0.05, lon + 0.05);
+        }
+
+        BenchmarkUtil.time("Paths: VtkDrawUtil, cutting whole model", 1, 3, () -> {
+            double total = 0.;
+            for (int path = 0; path < numberPaths; ++path)
+            {
+                Vector3D begin = new Vector3D(begins[3 * path], begins[3 * path + 1], begins[3 * path + 2]);
+                Vector3D end = new Vector3D(ends[3 * path], ends[3 * path + 1], ends[3 * path + 2]);
+                vtkPolyData line = VtkDrawUtil.drawPathPolyOn(sphere, pointLocator, begin, end);
+                total += line.GetNumberOfPoints();
+                line.Delete();
+            }
+            sink = total;
+        });
+
+        BenchmarkUtil.time("Paths: building SurfacePathTracer", 1, 3, () -> {
+            SurfacePathTracer tracer = SurfacePathTracer.of(JavaMesh.of(sphere), TriangleBvh.of(sphere));
+            sink = tracer.hashCode();
+        });
+
+        SurfacePathTracer tracer = SurfacePathTracer.of(JavaMesh.of(sphere), TriangleBvh.of(sphere));
+        BenchmarkUtil.time("Paths: SurfacePathTracer, one at a time", 1, 5, () -> {
+            double total = 0.;
+            double[] begin = new double[3];
+            double[] end = new double[3];
+            for (int path = 0; path < numberPaths; ++path)
+            {
+                System.arraycopy(begins, 3 * path, begin, 0, 3);
+                System.arraycopy(ends, 3 * path, end, 0, 3);
+                total += tracer.trace(begin, end).length;
+            }
+            sink = total;
+        });
+        BenchmarkUtil.time("Paths: SurfacePathTracer, batch", 1, 5, () -> {
+            double total = 0.;
+            for (double[] points : tracer.traceAll(begins, ends))
+            {
+                total += points.length;
+            }
+            sink = total;
+        });
+    }
+
+    private static void setPoint(double[] points, int index, double lat, double lon)
+    {
+        points[3 * index] = Math.cos(lat) * Math.cos(lon);
+        points[3 * index + 1] = Math.cos(lat) * Math.sin(lon);
+        points[3 * index + 2] = Math.sin(lat);
+    }
+}
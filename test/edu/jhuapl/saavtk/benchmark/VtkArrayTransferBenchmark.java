@@ -0,0 +1,136 @@
+package edu.jhuapl.saavtk.benchmark;
+
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkDataArray;
+import vtk.vtkIdTypeArray;
+import vtk.vtkPoints;
+import vtk.vtkPolyData;
+import vtk.vtkPolyDataNormals;
+
+/**
+ * Compare moving shape model data between Java and VTK one element at a time,
+ * as much of the code used to, with the bulk transfers of {@link VtkArrayUtil}.
+ * Each pair of timings reads or writes the same data; the per-element version
+ * crosses JNI once per point, tuple or id.
+ * <p>
+ * Usage: VtkArrayTransferBenchmark [sphereResolution]
+ */
+public class VtkArrayTransferBenchmark
+{
+    // Keeps the JIT from discarding the loops.
+    private static volatile double sink;
+
+    public static void main(String[] args)
+    {
+        NativeLibraryLoader.loadVtkLibraries();
+
+        int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        vtkPolyData sphere = BenchmarkUtil.createSphere(resolution);
+        vtkPolyDataNormals normalsFilter = new vtkPolyDataNormals();
+        normalsFilter.SetInputData(sphere);
+        normalsFilter.SetComputeCellNormals(1);
+        normalsFilter.SetComputePointNormals(0);
+        normalsFilter.SplittingOff();
+        normalsFilter.Update();
+        vtkDataArray cellNormals = normalsFilter.GetOutput().GetCellData().GetNormals();
+
+        vtkPoints points = sphere.GetPoints();
+        int numberPoints = (int) points.GetNumberOfPoints();
+        int numberCells = (int) sphere.GetNumberOfCells();
+        System.out.println("Points: " + numberPoints + ", facets: " + numberCells);
+
+        BenchmarkUtil.time("Points: GetPoint per point", 1, 5, () -> {
+            double[] point = new double[3];
+            double sum = 0.;
+            for (int index = 0; index < numberPoints; ++index)
+            {
+                points.GetPoint(index, point);
+                sum += point[0];
+            }
+            sink = sum;
+        });
+        BenchmarkUtil.time("Points: VtkArrayUtil.getPoints", 1, 5, () -> {
+            double[] coords = VtkArrayUtil.getPoints(points);
+            double sum = 0.;
+            for (int index = 0; index < numberPoints; ++index)
+            {
+                sum += coords[3 * index];
+            }
+            sink = sum;
+        });
+
+        BenchmarkUtil.time("Normals: GetTuple3 per cell", 1, 5, () -> {
+            double sum = 0.;
+            for (int index = 0; index < numberCells; ++index)
+            {
+                sum += cellNormals.GetTuple3(index)[2];
+            }
+            sink = sum;
+        });
+        BenchmarkUtil.time("Normals: VtkArrayUtil.getValues", 1, 5, () -> {
+            double[] normals = VtkArrayUtil.getValues(cellNormals);
+            double sum = 0.;
+            for (int index = 0; index < numberCells; ++index)
+            {
+                sum += normals[3 * index + 2];
+            }
+            sink = sum;
+        });
+
+        vtkIdTypeArray cellData = sphere.GetPolys().GetData();
+        int numberIds = (int) cellData.GetNumberOfTuples();
+        BenchmarkUtil.time("Cells: GetValue per id", 1, 5, () -> {
+            long sum = 0;
+            for (int index = 0; index < numberIds; ++index)
+            {
+                sum += cellData.GetValue(index);
+            }
+            sink = sum;
+        });
+        BenchmarkUtil.time("Cells: VtkArrayUtil.getConnectivity", 1, 5, () -> {
+            long[] connectivity = VtkArrayUtil.getConnectivity(sphere.GetPolys());
+            long sum = 0;
+            for (long id : connectivity)
+            {
+                sum += id;
+            }
+            sink = sum;
+        });
+
+        double[] coords = VtkArrayUtil.getPoints(points);
+        BenchmarkUtil.time("Write points: SetPoint per point", 1, 5, () -> {
+            double[] point = new double[3];
+            for (int index = 0; index < numberPoints; ++index)
+            {
+                System.arraycopy(coords, 3 * index, point, 0, 3);
+                points.SetPoint(index, point);
+            }
+            points.Modified();
+        });
+        BenchmarkUtil.time("Write points: VtkArrayUtil.setPoints", 1, 5, () -> {
+            VtkArrayUtil.setPoints(points, coords);
+        });
+
+        BenchmarkUtil.time("Build points: InsertNextPoint per point", 1, 5, () -> {
+            vtkPoints newPoints = new vtkPoints();
+            for (int index = 0; index < numberPoints; ++index)
+            {
+                newPoints.InsertNextPoint(coords[3 * index], coords[3 * index + 1], coords[3 * index + 2]);
+            }
+            sink = newPoints.GetNumberOfPoints();
+            newPoints.Delete();
+        });
+        BenchmarkUtil.time("Build points: VtkArrayUtil.createPoints", 1, 5, () -> {
+            float[] floatCoords = new float[coords.length];
+            for (int index = 0; index < coords.length; ++index)
+            {
+                floatCoords[index] = (float) coords[index];
+            }
+            vtkPoints newPoints = VtkArrayUtil.createPoints(floatCoords);
+            sink = newPoints.GetNumberOfPoints();
+            newPoints.Delete();
+        });
+    }
+}
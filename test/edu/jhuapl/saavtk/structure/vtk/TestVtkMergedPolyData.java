@@ -0,0 +1,409 @@
+package edu.jhuapl.saavtk.structure.vtk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkAppendPolyData;
+import vtk.vtkPolyData;
+
+class TestVtkMergedPolyData
+{
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		NativeLibraryLoader.loadHeadlessVtkLibraries();
+	}
+
+	@Test
+	void testRandomEditsMatchAppend()
+	{
+		// Random puts and removes, checked after every flush against vtkAppendPolyData of the items left.
+		for (boolean isPolys : new boolean[] { false, true })
+		{
+			Random random = new Random(isPolys ? 2 : 1);
+			vtkPolyData output = new vtkPolyData();
+			VtkMergedPolyData<Integer> merged = new VtkMergedPolyData<>(output, isPolys);
+			Map<Integer, Data> dataM = new TreeMap<>();
+
+			for (int op = 0; op < 3000; ++op)
+			{
+				int item = random.nextInt(40);
+				double action = random.nextDouble();
+				if (action < 0.6)
+				{
+					Data data = createRandomData(random, isPolys);
+					merged.put(item, data.points, data.offsets, data.conn);
+					dataM.put(item, data);
+				}
+				else if (action < 0.85)
+				{
+					merged.remove(item);
+					dataM.remove(item);
+				}
+				else
+				{
+					merged.flush();
+					checkOutput(merged, output, dataM, isPolys);
+				}
+			}
+			merged.flush();
+			checkOutput(merged, output, dataM, isPolys);
+
+			output.Delete();
+		}
+	}
+
+	@Test
+	void testSlotFitsWithSlack()
+	{
+		vtkPolyData output = new vtkPolyData();
+		VtkMergedPolyData<Integer> merged = new VtkMergedPolyData<>(output, false);
+		Map<Integer, Data> dataM = new TreeMap<>();
+
+		put(merged, dataM, 0, createLines(10, 2, 2, 2));
+		put(merged, dataM, 1, createLines(5, 3));
+		merged.flush();
+		checkOutput(merged, output, dataM, false);
+		int cellBeg = merged.getCellBegIdx(0);
+
+		// Same sizes: written in place
+		put(merged, dataM, 0, createLines(10, 2, 2, 2));
+		assertEquals(cellBeg, merged.getCellBegIdx(0));
+
+		// All point ids used by fewer cells: the unused cell has no point ids left, so the item moves (with slack)
+		put(merged, dataM, 0, createLines(10, 2, 4));
+		assertNotEquals(cellBeg, merged.getCellBegIdx(0));
+		merged.flush();
+		checkOutput(merged, output, dataM, false);
+		cellBeg = merged.getCellBegIdx(0);
+
+		// The slot now holds 13 points, 3 cells and 9 point ids
+		put(merged, dataM, 0, createLines(13, 3, 3, 3));
+		assertEquals(cellBeg, merged.getCellBegIdx(0));
+		merged.flush();
+		checkOutput(merged, output, dataM, false);
+
+		// 2 unused cells take up the 6 unused point ids
+		put(merged, dataM, 0, createLines(4, 3));
+		assertEquals(cellBeg, merged.getCellBegIdx(0));
+		merged.flush();
+		checkOutput(merged, output, dataM, false);
+
+		// 2 unused cells can not take up a single unused point id
+		put(merged, dataM, 0, createLines(8, 8));
+		assertNotEquals(cellBeg, merged.getCellBegIdx(0));
+		merged.flush();
+		checkOutput(merged, output, dataM, false);
+		cellBeg = merged.getCellBegIdx(0);
+
+		// Too many points
+		put(merged, dataM, 0, createLines(20, 2));
+		assertNotEquals(cellBeg, merged.getCellBegIdx(0));
+		merged.flush();
+		checkOutput(merged, output, dataM, false);
+
+		output.Delete();
+	}
+
+	@Test
+	void testAppendAfterFlush()
+	{
+		// Enough data that a small change is patched into the VTK arrays rather than replacing them
+		vtkPolyData output = new vtkPolyData();
+		VtkMergedPolyData<Integer> merged = new VtkMergedPolyData<>(output, false);
+		Map<Integer, Data> dataM = new TreeMap<>();
+		for (int item = 0; item < 50; ++item)
+		{
+			put(merged, dataM, item, createLines(100, 25, 25, 25, 25));
+		}
+		merged.flush();
+		checkOutput(merged, output, dataM, false);
+
+		int numCells = merged.getNumberOfCells();
+		long numConn = VtkArrayUtil.getConnectivity(output.GetLines()).length;
+
+		// The appended cells start at the last offset of the VTK array
+		put(merged, dataM, 50, createLines(5, 2, 3));
+		put(merged, dataM, 3, createLines(100, 25, 25, 25, 25));
+		merged.flush();
+		assertEquals(numCells, merged.getCellBegIdx(50));
+
+		long[] offsets = VtkArrayUtil.getOffsets(output.GetLines());
+		assertEquals(numCells + 3, offsets.length);
+		assertEquals(numConn, offsets[numCells]);
+		assertEquals(numConn + 2, offsets[numCells + 1]);
+		assertEquals(numConn + 5, offsets[numCells + 2]);
+		checkOutput(merged, output, dataM, false);
+
+		// Append again, after a patched flush
+		put(merged, dataM, 51, createLines(4, 4));
+		merged.flush();
+		assertEquals(numCells + 2, merged.getCellBegIdx(51));
+		checkOutput(merged, output, dataM, false);
+
+		output.Delete();
+	}
+
+	@Test
+	void testCompaction()
+	{
+		vtkPolyData output = new vtkPolyData();
+		VtkMergedPolyData<Integer> merged = new VtkMergedPolyData<>(output, true);
+		Map<Integer, Data> dataM = new TreeMap<>();
+
+		// 20 items of 300 points, of which the cells only use the first 250
+		for (int item = 0; item < 20; ++item)
+		{
+			put(merged, dataM, item, createLines(300, 50, 50, 50, 50, 50));
+		}
+		assertFalse(merged.flush());
+		checkOutput(merged, output, dataM, true);
+
+		// Removing more than half of the points compacts the buffers on the next flush
+		for (int item = 0; item < 20; item += 2)
+		{
+			merged.remove(item);
+			dataM.remove(item);
+		}
+		merged.remove(1);
+		dataM.remove(1);
+		assertTrue(merged.flush());
+		checkOutput(merged, output, dataM, true);
+
+		// Only the points used by the cells are kept, and the live cells are packed in their previous order
+		assertEquals(9 * 250, output.GetNumberOfPoints());
+		assertEquals(9 * 5, merged.getNumberOfCells());
+		int cellBeg = 0;
+		for (int item : dataM.keySet())
+		{
+			assertEquals(cellBeg, merged.getCellBegIdx(item));
+			cellBeg += merged.getNumCells(item);
+		}
+
+		output.Delete();
+	}
+
+	@Test
+	void testItemForCellIdAfterRemove()
+	{
+		vtkPolyData output = new vtkPolyData();
+		VtkMergedPolyData<Integer> merged = new VtkMergedPolyData<>(output, false);
+		Map<Integer, Data> dataM = new TreeMap<>();
+		for (int item = 0; item < 3; ++item)
+		{
+			put(merged, dataM, item, createLines(6, 2, 2, 2));
+		}
+		merged.flush();
+
+		merged.remove(1);
+		dataM.remove(1);
+		merged.flush();
+		for (int cellId = 0; cellId < 9; ++cellId)
+		{
+			assertEquals(cellId < 3 ? Integer.valueOf(0) : cellId < 6 ? null : Integer.valueOf(2), merged.getItemForCellId(cellId));
+		}
+		assertFalse(merged.hasItem(1));
+		assertEquals(-1, merged.getCellBegIdx(1));
+		assertEquals(0, merged.getNumCells(1));
+		checkOutput(merged, output, dataM, false);
+
+		// A removed item that is put back is appended
+		put(merged, dataM, 1, createLines(6, 2, 2));
+		merged.flush();
+		assertEquals(9, merged.getCellBegIdx(1));
+		assertNull(merged.getItemForCellId(4));
+		assertEquals(Integer.valueOf(1), merged.getItemForCellId(10));
+		assertNull(merged.getItemForCellId(11));
+		checkOutput(merged, output, dataM, false);
+
+		output.Delete();
+	}
+
+	/**
+	 * Check the output of the merged data against vtkAppendPolyData of the specified items, in order. Cells that do not
+	 * belong to an item must be collapsed onto a single point.
+	 */
+	private static void checkOutput(VtkMergedPolyData<Integer> merged, vtkPolyData output, Map<Integer, Data> dataM,
+			boolean isPolys)
+	{
+		double[] points = VtkArrayUtil.getPoints(output.GetPoints());
+		long[] offsets = VtkArrayUtil.getOffsets(isPolys ? output.GetPolys() : output.GetLines());
+		long[] conn = VtkArrayUtil.getConnectivity(isPolys ? output.GetPolys() : output.GetLines());
+		assertEquals(merged.getNumberOfCells(), offsets.length - 1);
+		assertEquals(conn.length, offsets[offsets.length - 1]);
+
+		Integer[] owners = new Integer[offsets.length - 1];
+		vtkAppendPolyData append = new vtkAppendPolyData();
+		List<vtkPolyData> inputs = new ArrayList<>();
+		int numExpectedCells = 0;
+		for (Map.Entry<Integer, Data> entry : dataM.entrySet())
+		{
+			Data data = entry.getValue();
+			assertEquals(data.offsets.length - 1, merged.getNumCells(entry.getKey()));
+			int cellBeg = merged.getCellBegIdx(entry.getKey());
+			for (int cell = 0; cell < data.offsets.length - 1; ++cell)
+			{
+				assertNull(owners[cellBeg + cell]);
+				owners[cellBeg + cell] = entry.getKey();
+			}
+			numExpectedCells += data.offsets.length - 1;
+
+			if (data.offsets.length > 1)
+			{
+				inputs.add(data.createPolyData(isPolys));
+				append.AddInputData(inputs.get(inputs.size() - 1));
+			}
+		}
+
+		// The cells of the items, in order, match the appended cells
+		if (numExpectedCells > 0)
+		{
+			append.Update();
+			vtkPolyData expected = append.GetOutput();
+			double[] expectedPoints = VtkArrayUtil.getPoints(expected.GetPoints());
+			long[] expectedOffsets = VtkArrayUtil.getOffsets(isPolys ? expected.GetPolys() : expected.GetLines());
+			long[] expectedConn = VtkArrayUtil.getConnectivity(isPolys ? expected.GetPolys() : expected.GetLines());
+			assertEquals(numExpectedCells, expectedOffsets.length - 1);
+
+			int expectedCell = 0;
+			for (int item : dataM.keySet())
+			{
+				int cellBeg = merged.getCellBegIdx(item);
+				for (int cell = cellBeg; cell < cellBeg + merged.getNumCells(item); ++cell, ++expectedCell)
+				{
+					assertEquals(expectedOffsets[expectedCell + 1] - expectedOffsets[expectedCell], offsets[cell + 1] - offsets[cell]);
+					for (int i = 0; i < offsets[cell + 1] - offsets[cell]; ++i)
+					{
+						int pointId = (int) conn[(int) offsets[cell] + i];
+						int expectedPointId = (int) expectedConn[(int) expectedOffsets[expectedCell] + i];
+						for (int k = 0; k < 3; ++k)
+						{
+							assertEquals(expectedPoints[3 * expectedPointId + k], points[3 * pointId + k]);
+						}
+					}
+				}
+			}
+		}
+		for (vtkPolyData input : inputs)
+		{
+			input.Delete();
+		}
+		append.Delete();
+
+		// Every other cell is collapsed and belongs to no item
+		for (int cell = 0; cell < owners.length; ++cell)
+		{
+			assertEquals(owners[cell], merged.getItemForCellId(cell));
+			if (owners[cell] != null)
+				continue;
+
+			for (long i = offsets[cell] + 1; i < offsets[cell + 1]; ++i)
+			{
+				assertEquals(conn[(int) offsets[cell]], conn[(int) i]);
+			}
+		}
+	}
+
+	private static void put(VtkMergedPolyData<Integer> merged, Map<Integer, Data> dataM, int item, Data data)
+	{
+		merged.put(item, data.points, data.offsets, data.conn);
+		dataM.put(item, data);
+	}
+
+	/**
+	 * Return cells of the specified sizes on the specified number of random points. The point ids run through the
+	 * points in order and wrap around.
+	 */
+	private static Data createLines(int numPoints, int... cellSizes)
+	{
+		Random random = new Random(numPoints * 31 + cellSizes.length);
+		double[] points = new double[3 * numPoints];
+		for (int i = 0; i < points.length; ++i)
+		{
+			points[i] = random.nextFloat();
+		}
+
+		long[] offsets = new long[cellSizes.length + 1];
+		for (int cell = 0; cell < cellSizes.length; ++cell)
+		{
+			offsets[cell + 1] = offsets[cell] + cellSizes[cell];
+		}
+		long[] conn = new long[(int) offsets[cellSizes.length]];
+		for (int i = 0; i < conn.length; ++i)
+		{
+			conn[i] = i % numPoints;
+		}
+
+		return new Data(points, offsets, conn);
+	}
+
+	/**
+	 * Return random cells on random points. Some items have no cells at all, as for structures that are not shown.
+	 */
+	private static Data createRandomData(Random random, boolean isPolys)
+	{
+		if (random.nextInt(10) == 0)
+			return new Data(new double[0], new long[] { 0 }, new long[0]);
+
+		int numPoints = 1 + random.nextInt(300);
+		double[] points = new double[3 * numPoints];
+		for (int i = 0; i < points.length; ++i)
+		{
+			// Single precision values, as the merged data is stored in single precision
+			points[i] = random.nextFloat();
+		}
+
+		int numCells = 1 + random.nextInt(6);
+		long[] offsets = new long[numCells + 1];
+		for (int cell = 0; cell < numCells; ++cell)
+		{
+			offsets[cell + 1] = offsets[cell] + (isPolys ? 3 : 2) + random.nextInt(8);
+		}
+		long[] conn = new long[(int) offsets[numCells]];
+		for (int i = 0; i < conn.length; ++i)
+		{
+			conn[i] = random.nextInt(numPoints);
+		}
+
+		return new Data(points, offsets, conn);
+	}
+
+	/**
+	 * The data of an item, as passed to {@link VtkMergedPolyData#put}.
+	 */
+	private static class Data
+	{
+		private final double[] points;
+		private final long[] offsets;
+		private final long[] conn;
+
+		private Data(double[] points, long[] offsets, long[] conn)
+		{
+			this.points = points;
+			this.offsets = offsets;
+			this.conn = conn;
+		}
+
+		private vtkPolyData createPolyData(boolean isPolys)
+		{
+			vtkPolyData result = new vtkPolyData();
+			result.SetPoints(VtkArrayUtil.createPoints(points));
+			if (isPolys)
+				result.SetPolys(VtkArrayUtil.createCellArray(offsets, conn));
+			else
+				result.SetLines(VtkArrayUtil.createCellArray(offsets, conn));
+
+			return result;
+		}
+	}
+}
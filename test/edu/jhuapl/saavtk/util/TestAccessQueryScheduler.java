@@ -0,0 +1,303 @@
+package edu.jhuapl.saavtk.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class TestAccessQueryScheduler
+{
+	private static HttpServer server;
+	private static ExecutorService serverExecutor;
+	private static URL rootUrl;
+	private static File cacheDir;
+	private static DownloadableFileManager manager;
+
+	// Paths of the HEAD requests received, in order.
+	private static final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+	// Requests for files whose names start with "slow" wait for this gate to open.
+	private static volatile CountDownLatch gate = new CountDownLatch(0);
+	// Counted down when a request for a slow file arrives.
+	private static volatile CountDownLatch slowStarted = new CountDownLatch(1);
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", TestAccessQueryScheduler::handle);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		rootUrl = new URL("http://localhost:" + server.getAddress().getPort() + "/");
+		cacheDir = Files.createTempDirectory("test-access-query-scheduler").toFile();
+		manager = DownloadableFileManager.of(rootUrl, cacheDir);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		server.stop(0);
+		serverExecutor.shutdown();
+		deleteRecursively(cacheDir);
+	}
+
+	@Test
+	void testCoalescing() throws Exception
+	{
+		AccessQueryScheduler scheduler = AccessQueryScheduler.of(manager, 4, TimeUnit.HOURS.toMillis(1));
+		CountDownLatch gate = closeGate();
+
+		// Concurrent requests for the same URL, from several threads, join one check.
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		List<Future<CompletableFuture<DownloadableFileState>>> submissions = new ArrayList<>();
+		for (int i = 0; i < 8; ++i)
+		{
+			submissions.add(callers.submit(() -> scheduler.submit("slow-shared.txt", true, false)));
+		}
+		CompletableFuture<DownloadableFileState> future = submissions.get(0).get();
+		for (Future<CompletableFuture<DownloadableFileState>> submission : submissions)
+		{
+			assertSame(future, submission.get());
+		}
+		callers.shutdown();
+		assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+		assertEquals(1, scheduler.getPendingCount());
+
+		// A forced check also answers unforced requests, but not the other way around.
+		CompletableFuture<DownloadableFileState> forced = scheduler.submit("slow-shared.txt", true, true);
+		assertNotSame(future, forced);
+		assertSame(forced, scheduler.submit("slow-shared.txt", true, true));
+		CompletableFuture<DownloadableFileState> forcedFirst = scheduler.submit("slow-forced.txt", true, true);
+		assertSame(forcedFirst, scheduler.submit("slow-forced.txt", true, false));
+
+		gate.countDown();
+		assertEquals(UrlStatus.ACCESSIBLE, future.get(10, TimeUnit.SECONDS).getUrlState().getStatus());
+		forced.get(10, TimeUnit.SECONDS);
+		forcedFirst.get(10, TimeUnit.SECONDS);
+		waitUntilIdle(scheduler);
+		assertEquals(2, countRequests("slow-shared.txt"));
+		assertEquals(1, countRequests("slow-forced.txt"));
+	}
+
+	@Test
+	void testExpiry() throws Exception
+	{
+		AccessQueryScheduler scheduler = AccessQueryScheduler.of(manager, 4, 500);
+
+		// The first request checks a URL whose status is unknown; the next one, before
+		// the time-to-live has elapsed, does not.
+		assertEquals(UrlStatus.ACCESSIBLE, scheduler.submit("expiring.txt", true, false).get(10, TimeUnit.SECONDS).getUrlState().getStatus());
+		scheduler.submit("expiring.txt", true, false).get(10, TimeUnit.SECONDS);
+		assertEquals(1, countRequests("expiring.txt"));
+
+		// Once it has elapsed, the URL is checked again.
+		Thread.sleep(600);
+		scheduler.submit("expiring.txt", true, false).get(10, TimeUnit.SECONDS);
+		assertEquals(2, countRequests("expiring.txt"));
+		scheduler.submit("expiring.txt", true, false).get(10, TimeUnit.SECONDS);
+		assertEquals(2, countRequests("expiring.txt"));
+
+		// As it is after expireAll.
+		scheduler.expireAll();
+		scheduler.submit("expiring.txt", true, false).get(10, TimeUnit.SECONDS);
+		assertEquals(3, countRequests("expiring.txt"));
+	}
+
+	@Test
+	void testFirstRequestNotForced() throws Exception
+	{
+		// A URL whose status is already known is not checked again by the first request
+		// made to another scheduler.
+		AccessQueryScheduler.of(manager, 4, TimeUnit.HOURS.toMillis(1)).submit("known.txt", true, false).get(10, TimeUnit.SECONDS);
+		assertEquals(1, countRequests("known.txt"));
+
+		AccessQueryScheduler scheduler = AccessQueryScheduler.of(manager, 4, TimeUnit.HOURS.toMillis(1));
+		assertEquals(UrlStatus.ACCESSIBLE, scheduler.submit("known.txt", true, false).get(10, TimeUnit.SECONDS).getUrlState().getStatus());
+		assertEquals(1, countRequests("known.txt"));
+
+		scheduler.submit("known.txt", true, true).get(10, TimeUnit.SECONDS);
+		assertEquals(2, countRequests("known.txt"));
+	}
+
+	@Test
+	void testQueryAllChecksFirstUrlAlone() throws Exception
+	{
+		DownloadableFileManager allManager = DownloadableFileManager.of(rootUrl, cacheDir);
+		for (int i = 0; i < 5; ++i)
+		{
+			allManager.getState("slow-all-" + i + ".txt");
+		}
+		CountDownLatch gate = closeGate();
+
+		// While the first URL is being checked, no other check starts.
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		Future<?> queryAll = caller.submit(() -> allManager.queryAll(true, false, 1, 0));
+		assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+		Thread.sleep(200);
+		assertEquals(1, countRequests("slow-all-0.txt"));
+		for (int i = 1; i < 5; ++i)
+		{
+			assertEquals(0, countRequests("slow-all-" + i + ".txt"));
+		}
+
+		// Once it has been reached, all the others are checked.
+		gate.countDown();
+		queryAll.get(10, TimeUnit.SECONDS);
+		caller.shutdown();
+		for (int i = 0; i < 5; ++i)
+		{
+			assertEquals(1, countRequests("slow-all-" + i + ".txt"));
+			assertEquals(UrlStatus.ACCESSIBLE, allManager.getState("slow-all-" + i + ".txt").getUrlState().getStatus());
+		}
+	}
+
+	@Test
+	void testQueryAllShortCircuit() throws Exception
+	{
+		// A server that drops every connection, so each check fails with a
+		// SocketException.
+		List<String> dropped = Collections.synchronizedList(new ArrayList<>());
+		try (ServerSocket serverSocket = new ServerSocket(0))
+		{
+			Thread acceptor = new Thread(() -> drop(serverSocket, dropped));
+			acceptor.setDaemon(true);
+			acceptor.start();
+
+			DownloadableFileManager deadManager = DownloadableFileManager.of(new URL("http://localhost:" + serverSocket.getLocalPort() + "/"), cacheDir);
+			for (int i = 0; i < 5; ++i)
+			{
+				deadManager.getState("dead-" + i + ".txt");
+			}
+
+			// The first URL fails in each of the two tries, so the others are never
+			// checked.
+			deadManager.queryAll(true, false, 2, 0);
+		}
+
+		synchronized (dropped)
+		{
+			assertTrue(dropped.size() >= 2);
+			for (String path : dropped)
+			{
+				assertEquals("/dead-0.txt", path);
+			}
+		}
+	}
+
+	private static CountDownLatch closeGate()
+	{
+		slowStarted = new CountDownLatch(1);
+		gate = new CountDownLatch(1);
+
+		return gate;
+	}
+
+	private static int countRequests(String name)
+	{
+		synchronized (requests)
+		{
+			return Collections.frequency(requests, "/" + name);
+		}
+	}
+
+	private static void waitUntilIdle(AccessQueryScheduler scheduler) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+		while (scheduler.getPendingCount() > 0)
+		{
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Accept connections until the socket is closed, recording the path of each
+	 * request and closing the connection without a response.
+	 */
+	private static void drop(ServerSocket serverSocket, List<String> paths)
+	{
+		while (!serverSocket.isClosed())
+		{
+			try (Socket socket = serverSocket.accept())
+			{
+				BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				String requestLine = reader.readLine();
+				if (requestLine != null)
+				{
+					paths.add(requestLine.split(" ")[1].replaceFirst("\\?.*", ""));
+				}
+			}
+			catch (IOException e)
+			{
+				// Closed.
+			}
+		}
+	}
+
+	/**
+	 * Answer every HEAD request as for an accessible file.
+	 */
+	private static void handle(HttpExchange exchange) throws IOException
+	{
+		String path = exchange.getRequestURI().getPath();
+
+		if (exchange.getRequestMethod().equals("HEAD"))
+		{
+			requests.add(path);
+			if (path.startsWith("/slow"))
+			{
+				slowStarted.countDown();
+				try
+				{
+					gate.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		exchange.getResponseHeaders().set("Last-Modified", "Thu, 01 Jan 2026 00:00:00 GMT");
+		exchange.sendResponseHeaders(200, -1);
+		exchange.close();
+	}
+
+	private static void deleteRecursively(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				deleteRecursively(child);
+			}
+		}
+		file.delete();
+	}
+}
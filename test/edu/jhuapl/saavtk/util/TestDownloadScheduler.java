@@ -0,0 +1,235 @@
+package edu.jhuapl.saavtk.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.jhuapl.saavtk.util.DownloadScheduler.Priority;
+
+class TestDownloadScheduler
+{
+	private static HttpServer server;
+	private static ExecutorService serverExecutor;
+	private static File cacheDir;
+	private static DownloadableFileManager manager;
+
+	// Paths of the GET requests received, in order.
+	private static final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+	// Requests for files whose names start with "slow" wait for this gate to open.
+	private static volatile CountDownLatch gate = new CountDownLatch(0);
+	// Counted down when a request for a slow file arrives.
+	private static volatile CountDownLatch slowStarted = new CountDownLatch(1);
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", TestDownloadScheduler::handle);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		cacheDir = Files.createTempDirectory("test-download-scheduler").toFile();
+		manager = DownloadableFileManager.of(new URL("http://localhost:" + server.getAddress().getPort() + "/"), cacheDir);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		server.stop(0);
+		serverExecutor.shutdown();
+		deleteRecursively(cacheDir);
+	}
+
+	@Test
+	void testDeduplication() throws Exception
+	{
+		DownloadScheduler scheduler = DownloadScheduler.of(manager, 4);
+		CountDownLatch gate = closeGate();
+
+		// Concurrent requests for the same file, from several threads, join one download.
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		List<Future<CompletableFuture<DownloadableFileState>>> submissions = new ArrayList<>();
+		for (int i = 0; i < 8; ++i)
+		{
+			submissions.add(callers.submit(() -> scheduler.submit("slow-shared.txt", false, Priority.PREFETCH)));
+		}
+		CompletableFuture<DownloadableFileState> future = submissions.get(0).get();
+		for (Future<CompletableFuture<DownloadableFileState>> submission : submissions)
+		{
+			assertSame(future, submission.get());
+		}
+		callers.shutdown();
+		assertEquals(1, scheduler.getPendingCount());
+
+		gate.countDown();
+		File file = future.get(10, TimeUnit.SECONDS).getFileState().getFile();
+		assertEquals("slow-shared.txt", new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+		assertEquals(1, countRequests("slow-shared.txt"));
+		waitUntilIdle(scheduler);
+
+		// Once done, a new request downloads again if forced.
+		scheduler.submit("slow-shared.txt", true, Priority.INTERACTIVE).get(10, TimeUnit.SECONDS);
+		assertEquals(2, countRequests("slow-shared.txt"));
+	}
+
+	@Test
+	void testPromotion() throws Exception
+	{
+		DownloadScheduler scheduler = DownloadScheduler.of(manager, 1);
+		CountDownLatch gate = closeGate();
+
+		// Occupy the only thread, then queue two prefetches and promote the second.
+		CompletableFuture<DownloadableFileState> blocker = scheduler.submit("slow-blocker.txt", false, Priority.INTERACTIVE);
+		assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+		CompletableFuture<DownloadableFileState> first = scheduler.submit("prefetch-first.txt", false, Priority.PREFETCH);
+		CompletableFuture<DownloadableFileState> second = scheduler.submit("prefetch-second.txt", false, Priority.PREFETCH);
+		assertSame(second, scheduler.submit("prefetch-second.txt", false, Priority.INTERACTIVE));
+		assertEquals(3, scheduler.getPendingCount());
+
+		gate.countDown();
+		CompletableFuture.allOf(blocker, first, second).get(10, TimeUnit.SECONDS);
+
+		int firstIndex = requests.indexOf("/prefetch-first.txt");
+		int secondIndex = requests.indexOf("/prefetch-second.txt");
+		assertTrue(secondIndex >= 0 && firstIndex > secondIndex);
+	}
+
+	@Test
+	void testCancellation() throws Exception
+	{
+		DownloadScheduler scheduler = DownloadScheduler.of(manager, 1);
+		CountDownLatch gate = closeGate();
+
+		CompletableFuture<DownloadableFileState> blocker = scheduler.submit("slow-canceled-blocker.txt", false, Priority.INTERACTIVE);
+		assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+
+		// A waiting request that is canceled is never downloaded.
+		CompletableFuture<DownloadableFileState> canceled = scheduler.submit("canceled.txt", false, Priority.PREFETCH);
+		assertTrue(canceled.cancel(false));
+		assertThrows(CancellationException.class, () -> canceled.join());
+		assertEquals(1, scheduler.getPendingCount());
+
+		// A new request for the same file starts a new download.
+		CompletableFuture<DownloadableFileState> renewed = scheduler.submit("canceled.txt", false, Priority.PREFETCH);
+		assertNotSame(canceled, renewed);
+
+		gate.countDown();
+		blocker.get(10, TimeUnit.SECONDS);
+		renewed.get(10, TimeUnit.SECONDS);
+		assertEquals(1, countRequests("canceled.txt"));
+
+		// A running download that is canceled completes, but its result is dropped.
+		gate = closeGate();
+		CompletableFuture<DownloadableFileState> running = scheduler.submit("slow-canceled-running.txt", false, Priority.INTERACTIVE);
+		assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+		assertTrue(running.cancel(false));
+		gate.countDown();
+		waitUntilIdle(scheduler);
+		assertTrue(running.isCancelled());
+		assertEquals(1, countRequests("slow-canceled-running.txt"));
+	}
+
+	private static CountDownLatch closeGate()
+	{
+		slowStarted = new CountDownLatch(1);
+		gate = new CountDownLatch(1);
+
+		return gate;
+	}
+
+	private static int countRequests(String name)
+	{
+		synchronized (requests)
+		{
+			return Collections.frequency(requests, "/" + name);
+		}
+	}
+
+	private static void waitUntilIdle(DownloadScheduler scheduler) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+		while (scheduler.getPendingCount() > 0)
+		{
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Serve every path as a file that contains its own name.
+	 */
+	private static void handle(HttpExchange exchange) throws IOException
+	{
+		String path = exchange.getRequestURI().getPath();
+		byte[] content = path.substring(1).getBytes(StandardCharsets.US_ASCII);
+
+		if (exchange.getRequestMethod().equals("GET"))
+		{
+			requests.add(path);
+			if (path.startsWith("/slow"))
+			{
+				slowStarted.countDown();
+				try
+				{
+					gate.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		exchange.getResponseHeaders().set("Last-Modified", "Thu, 01 Jan 2026 00:00:00 GMT");
+		if (exchange.getRequestMethod().equals("HEAD"))
+		{
+			exchange.sendResponseHeaders(200, -1);
+		}
+		else
+		{
+			exchange.sendResponseHeaders(200, content.length);
+			try (OutputStream stream = exchange.getResponseBody())
+			{
+				stream.write(content);
+			}
+		}
+		exchange.close();
+	}
+
+	private static void deleteRecursively(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				deleteRecursively(child);
+			}
+		}
+		file.delete();
+	}
+}
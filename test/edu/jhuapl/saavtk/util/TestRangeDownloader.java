@@ -0,0 +1,374 @@
+package edu.jhuapl.saavtk.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class TestRangeDownloader
+{
+	// Three ranges of 8, 8 and 4 MiB.
+	private static final int Length = (int) RangeDownloader.MinimumLength + (4 << 20);
+	private static final long MiddleRangeBegin = 8L << 20;
+	private static final Pattern RangePattern = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+	private static HttpServer server;
+	private static ExecutorService serverExecutor;
+	private static File cacheDir;
+
+	// The remote file, which changes when the version is incremented.
+	private static volatile int version;
+	// Range requests received: the begin of each range, and the If-Range header sent with it.
+	private static final List<Long> rangeBegins = Collections.synchronizedList(new ArrayList<>());
+	private static final List<String> ifRanges = Collections.synchronizedList(new ArrayList<>());
+	// If set, the next request for the middle range waits for the other ranges, sends half the range, then runs this.
+	// The rest of the range is sent only if truncateMiddleRange is false.
+	private static volatile Runnable middleRangeAction;
+	private static volatile boolean truncateMiddleRange;
+	private static volatile CountDownLatch otherRangesDone;
+	private static final AtomicInteger activeRanges = new AtomicInteger();
+	private static final AtomicInteger maximumActiveRanges = new AtomicInteger();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", TestRangeDownloader::handle);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		cacheDir = Files.createTempDirectory("test-range-downloader").toFile();
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		server.stop(0);
+		serverExecutor.shutdown();
+		for (File file : cacheDir.listFiles())
+		{
+			file.delete();
+		}
+		cacheDir.delete();
+	}
+
+	@BeforeEach
+	void setUp()
+	{
+		version = 1;
+		rangeBegins.clear();
+		ifRanges.clear();
+		middleRangeAction = null;
+		truncateMiddleRange = false;
+		otherRangesDone = new CountDownLatch(2);
+	}
+
+	@Test
+	void testDownload() throws Exception
+	{
+		File file = new File(cacheDir, "complete.bin");
+		File partialFile = createDownloader("complete.bin", file).download(() -> false, bytes -> {});
+
+		assertEquals(RangeDownloader.getPartialFile(file), partialFile);
+		assertArrayEquals(getContent("complete.bin", 1), Files.readAllBytes(partialFile.toPath()));
+		assertFalse(getStateFile(file).exists());
+		assertEquals(3, rangeBegins.size());
+		assertEquals(Collections.nCopies(3, "\"1\""), ifRanges);
+	}
+
+	@Test
+	void testResumeAfterFailure() throws Exception
+	{
+		// The connection closes halfway through the middle range, after the other two ranges are complete.
+		File file = new File(cacheDir, "failure.bin");
+		middleRangeAction = () -> {};
+		truncateMiddleRange = true;
+		assertThrows(IOException.class, () -> createDownloader("failure.bin", file).download(() -> false, bytes -> {}));
+		assertTrue(RangeDownloader.getPartialFile(file).exists());
+		assertTrue(getStateFile(file).exists());
+
+		// The next attempt fetches only the missing range.
+		rangeBegins.clear();
+		File partialFile = createDownloader("failure.bin", file).download(() -> false, bytes -> {});
+		assertArrayEquals(getContent("failure.bin", 1), Files.readAllBytes(partialFile.toPath()));
+		assertEquals(List.of(MiddleRangeBegin), rangeBegins);
+		assertFalse(getStateFile(file).exists());
+	}
+
+	@Test
+	void testResumeAfterCancel() throws Exception
+	{
+		// The download is canceled halfway through the middle range, once the other ranges are in, which the
+		// progress tells.
+		File file = new File(cacheDir, "cancel.bin");
+		AtomicBoolean canceled = new AtomicBoolean();
+		middleRangeAction = () -> waitFor(canceled);
+		LongConsumer progress = bytes -> {
+			if (bytes >= Length - (4L << 20))
+				canceled.set(true);
+		};
+		assertThrows(InterruptedException.class, () -> createDownloader("cancel.bin", file).download(canceled::get, progress));
+		assertTrue(RangeDownloader.getPartialFile(file).exists());
+		assertTrue(getStateFile(file).exists());
+
+		rangeBegins.clear();
+		File partialFile = createDownloader("cancel.bin", file).download(() -> false, bytes -> {});
+		assertArrayEquals(getContent("cancel.bin", 1), Files.readAllBytes(partialFile.toPath()));
+		assertEquals(List.of(MiddleRangeBegin), rangeBegins);
+	}
+
+	@Test
+	void testIfRangeAfterChange() throws Exception
+	{
+		// The remote file changes between the first response and the range requests, so the server answers the
+		// If-Range requests with the whole new file.
+		File file = new File(cacheDir, "changed.bin");
+		RangeDownloader downloader = createDownloader("changed.bin", file);
+		version = 2;
+		assertThrows(IOException.class, () -> downloader.download(() -> false, bytes -> {}));
+		assertTrue(ifRanges.contains("\"1\""));
+
+		// Nothing is kept, so the next attempt starts over with the new file.
+		assertFalse(RangeDownloader.getPartialFile(file).exists());
+		assertFalse(getStateFile(file).exists());
+
+		File partialFile = createDownloader("changed.bin", file).download(() -> false, bytes -> {});
+		assertArrayEquals(getContent("changed.bin", 2), Files.readAllBytes(partialFile.toPath()));
+	}
+
+	@Test
+	void testConnectionLimit() throws Exception
+	{
+		// Simultaneous downloads share the connections.
+		maximumActiveRanges.set(0);
+		List<CompletableFuture<File>> futures = new ArrayList<>();
+		for (int i = 0; i < 3; ++i)
+		{
+			String name = "parallel-" + i + ".bin";
+			RangeDownloader downloader = createDownloader(name, new File(cacheDir, name));
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try
+				{
+					return downloader.download(() -> false, bytes -> {});
+				}
+				catch (IOException | InterruptedException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}));
+		}
+
+		for (int i = 0; i < futures.size(); ++i)
+		{
+			File partialFile = futures.get(i).get(60, TimeUnit.SECONDS);
+			assertArrayEquals(getContent("parallel-" + i + ".bin", 1), Files.readAllBytes(partialFile.toPath()));
+		}
+		assertEquals(9, rangeBegins.size());
+		assertTrue(maximumActiveRanges.get() <= RangeDownloader.MaximumConnections);
+	}
+
+	/**
+	 * Return a downloader prepared from the headers of a plain GET of the file,
+	 * as {@link FileDownloader} does.
+	 */
+	private static RangeDownloader createDownloader(String name, File file) throws IOException
+	{
+		URL url = getUrl(name);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("HEAD");
+		assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+		RangeDownloader result = new RangeDownloader(url, connection, file);
+		connection.disconnect();
+
+		return result;
+	}
+
+	private static URL getUrl(String name) throws IOException
+	{
+		return new URL("http://localhost:" + server.getAddress().getPort() + "/" + name);
+	}
+
+	private static File getStateFile(File file)
+	{
+		return new File(file.getParentFile(), file.getName() + ".part.state");
+	}
+
+	/**
+	 * Return the content of the named file at the specified version.
+	 */
+	private static byte[] getContent(String name, int version)
+	{
+		byte[] result = new byte[Length];
+		new Random(31 * name.hashCode() + version).nextBytes(result);
+
+		return result;
+	}
+
+	/**
+	 * Serve files of random content that support ranges and If-Range, with the
+	 * version as entity tag. Checksum sidecar files are not found.
+	 */
+	private static void handle(HttpExchange exchange) throws IOException
+	{
+		String name = exchange.getRequestURI().getPath().substring(1);
+		if (!name.endsWith(".bin"))
+		{
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			exchange.close();
+			return;
+		}
+
+		int currentVersion = version;
+		String entityTag = "\"" + currentVersion + "\"";
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+		exchange.getResponseHeaders().set("ETag", entityTag);
+
+		if (exchange.getRequestMethod().equals("HEAD"))
+		{
+			exchange.getResponseHeaders().set("Content-Length", Integer.toString(Length));
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+			exchange.close();
+			return;
+		}
+
+		byte[] content = getContent(name, currentVersion);
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+		Matcher matcher = range != null ? RangePattern.matcher(range) : null;
+		if (matcher == null || !matcher.matches() || (ifRange != null && !ifRange.equals(entityTag)))
+		{
+			if (range != null)
+			{
+				ifRanges.add(ifRange);
+			}
+			send(exchange, HttpURLConnection.HTTP_OK, content, 0, content.length, content.length, true);
+			return;
+		}
+
+		long begin = Long.parseLong(matcher.group(1));
+		int end = (int) Long.parseLong(matcher.group(2)) + 1;
+		rangeBegins.add(begin);
+		ifRanges.add(ifRange);
+		exchange.getResponseHeaders().set("Content-Range", "bytes " + begin + "-" + (end - 1) + "/" + Length);
+
+		int active = activeRanges.incrementAndGet();
+		maximumActiveRanges.accumulateAndGet(active, Math::max);
+		try
+		{
+			Runnable action = middleRangeAction;
+			if (begin == MiddleRangeBegin && action != null)
+			{
+				middleRangeAction = null;
+				try
+				{
+					otherRangesDone.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				int middle = (int) begin + (end - (int) begin) / 2;
+				send(exchange, HttpURLConnection.HTTP_PARTIAL, content, (int) begin, middle, end - begin, false);
+				action.run();
+				if (truncateMiddleRange)
+				{
+					exchange.close();
+				}
+				else
+				{
+					send(exchange, HttpURLConnection.HTTP_PARTIAL, content, middle, end, -1, true);
+				}
+				return;
+			}
+
+			send(exchange, HttpURLConnection.HTTP_PARTIAL, content, (int) begin, end, end - begin, true);
+			if (begin != MiddleRangeBegin)
+			{
+				otherRangesDone.countDown();
+			}
+		}
+		finally
+		{
+			activeRanges.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Send part of the content, after the response headers with the specified
+	 * length unless it is negative, and close the exchange if last is true.
+	 */
+	private static void send(HttpExchange exchange, int code, byte[] content, int begin, int end, long length, boolean last)
+	{
+		try
+		{
+			if (length >= 0)
+			{
+				exchange.sendResponseHeaders(code, length);
+			}
+			OutputStream stream = exchange.getResponseBody();
+			// Small writes, so that a canceled download notices before the end.
+			for (int position = begin; position < end; position += 1 << 16)
+			{
+				stream.write(Arrays.copyOfRange(content, position, Math.min(end, position + (1 << 16))));
+			}
+			stream.flush();
+		}
+		catch (IOException e)
+		{
+			// The client hung up.
+		}
+		finally
+		{
+			if (last)
+			{
+				exchange.close();
+			}
+		}
+	}
+
+	private static void waitFor(AtomicBoolean flag)
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!flag.get() && System.currentTimeMillis() < deadline)
+		{
+			try
+			{
+				Thread.sleep(10);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
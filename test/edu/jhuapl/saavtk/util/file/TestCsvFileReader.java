@@ -0,0 +1,102 @@
+package edu.jhuapl.saavtk.util.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+class TestCsvFileReader
+{
+	private static final List<File> files = new ArrayList<>();
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		for (File file : files)
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	@Test
+	void testTextColumnWithTitles() throws Exception
+	{
+		// The text column makes every line non-numeric, but the requested columns are
+		// numbers from the second line on.
+		String[] lines = { "File, X, Y", "a.fits, 1., 2.", "b.fits, 3., 4.", "c.fits, 5., 6." };
+		double[][] expected = { { 1., 2. }, { 3., 4. }, { 5., 6. } };
+
+		// Rows read before any metadata scan of the file.
+		File file = createFile(lines);
+		checkTuples(expected, CsvFileReader.of().readTuples(file, ImmutableList.of(1, 2)));
+
+		// Rows read after a metadata scan, which keeps no values because of the text
+		// column.
+		file = createFile(lines);
+		CsvFileReader.of().readFileInfo(file);
+		checkTuples(expected, CsvFileReader.of().readTuples(file, ImmutableList.of(1, 2)));
+	}
+
+	@Test
+	void testTextColumnWithTitlesAndUnits() throws Exception
+	{
+		String[] lines = { "File,X,Y", ",km,km", "a.fits, 1., 2.", "b.fits, 3., 4." };
+		double[][] expected = { { 1., 2. }, { 3., 4. } };
+
+		File file = createFile(lines);
+		checkTuples(expected, CsvFileReader.of().readTuples(file, ImmutableList.of(1, 2)));
+
+		file = createFile(lines);
+		TableInfo tableInfo = (TableInfo) CsvFileReader.of().readFileInfo(file).getDataObjectInfo().get(0);
+		assertEquals(2, tableInfo.getNumberRows());
+		assertEquals("X", tableInfo.getColumnInfo(1).getName());
+		assertEquals("km", tableInfo.getColumnInfo(1).getUnits());
+		checkTuples(expected, CsvFileReader.of().readTuples(file, ImmutableList.of(1, 2)));
+	}
+
+	@Test
+	void testNumericTable() throws Exception
+	{
+		// Metadata scan of a numeric table keeps all values, which the tuples then
+		// reuse.
+		File file = createFile("1., 2., 3.", "4., 5., 6.", "7., 8., 9.");
+		TableInfo tableInfo = (TableInfo) CsvFileReader.of().readFileInfo(file).getDataObjectInfo().get(0);
+		assertEquals(3, tableInfo.getNumberRows());
+		checkTuples(new double[][] { { 3., 1. }, { 6., 4. }, { 9., 7. } }, CsvFileReader.of().readTuples(file, ImmutableList.of(2, 0)));
+	}
+
+	@Test
+	void testTextAfterData()
+	{
+		// Without a title line, the second line cannot be a units line.
+		String[] lines = { "1., 2.", "x, 4.", "5., 6." };
+		assertThrows(IOException.class, () -> CsvFileReader.of().readTuples(createFile(lines), ImmutableList.of(0, 1)));
+	}
+
+	private static void checkTuples(double[][] expected, IndexableTuple tuples)
+	{
+		assertEquals(expected.length, tuples.size());
+		for (int row = 0; row < expected.length; ++row)
+		{
+			assertArrayEquals(expected[row], tuples.get(row).get());
+		}
+	}
+
+	private static File createFile(String... lines) throws IOException
+	{
+		File file = File.createTempFile("test-", ".csv");
+		files.add(file);
+		Files.write(file.toPath(), List.of(lines), StandardCharsets.US_ASCII);
+
+		return file;
+	}
+}
@@ -0,0 +1,97 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import java.util.Random;
+
+import edu.jhuapl.saavtk.util.NativeLibraryLoader;
+import vtk.vtkPointLocator;
+import vtk.vtkPolyData;
+import vtk.vtkSphereSource;
+import vtk.vtksbCellLocator;
+
+/**
+ * Shapes and VTK locators shared by the tests of this package. The tests
+ * compare the Java structures with the VTK classes they replace on a small
+ * sphere, which is quick to build and has point normals.
+ */
+class MeshTestUtil
+{
+	/**
+	 * Load the VTK libraries, if that has not been done already.
+	 */
+	static void loadVtk()
+	{
+		NativeLibraryLoader.loadHeadlessVtkLibraries();
+	}
+
+	/**
+	 * Create a triangulated unit sphere with point normals.
+	 */
+	static vtkPolyData createSphere(int resolution)
+	{
+		vtkSphereSource sphereSource = new vtkSphereSource();
+		sphereSource.SetRadius(1.0);
+		sphereSource.SetCenter(0.0, 0.0, 0.0);
+		sphereSource.SetLatLongTessellation(0);
+		sphereSource.SetThetaResolution(resolution);
+		sphereSource.SetPhiResolution(Math.max(3, resolution / 2 + 1));
+		sphereSource.Update();
+
+		vtkPolyData result = new vtkPolyData();
+		result.DeepCopy(sphereSource.GetOutput());
+		sphereSource.Delete();
+
+		return result;
+	}
+
+	/**
+	 * Create the cell locator used by the shape models.
+	 */
+	static vtksbCellLocator createCellLocator(vtkPolyData polyData)
+	{
+		vtksbCellLocator result = new vtksbCellLocator();
+		result.SetDataSet(polyData);
+		result.CacheCellBoundsOn();
+		result.AutomaticOn();
+		result.BuildLocator();
+
+		return result;
+	}
+
+	/**
+	 * Create the point locator used by the shape models.
+	 */
+	static vtkPointLocator createPointLocator(vtkPolyData polyData)
+	{
+		vtkPointLocator result = new vtkPointLocator();
+		result.SetDataSet(polyData);
+		result.BuildLocator();
+
+		return result;
+	}
+
+	/**
+	 * Return a point at a random direction from the origin and a random distance
+	 * from the unit sphere, up to the specified amount.
+	 */
+	static double[] randomPoint(Random random, double maxOffset)
+	{
+		double z = 2. * random.nextDouble() - 1.;
+		double lon = 2. * Math.PI * random.nextDouble();
+		double r = Math.sqrt(1. - z * z);
+		double radius = 1. + maxOffset * (2. * random.nextDouble() - 1.);
+
+		return new double[] { radius * r * Math.cos(lon), radius * r * Math.sin(lon), radius * z };
+	}
+
+	/**
+	 * Return the squared distance between two points.
+	 */
+	static double distance2(double[] a, double[] b)
+	{
+		double dx = a[0] - b[0];
+		double dy = a[1] - b[1];
+		double dz = a[2] - b[2];
+
+		return dx * dx + dy * dy + dz * dz;
+	}
+}
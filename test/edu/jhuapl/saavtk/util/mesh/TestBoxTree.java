@@ -0,0 +1,192 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TestBoxTree
+{
+	@Test
+	void testRandomEdits()
+	{
+		// Random puts, small and large moves and removals, checked against the full list of boxes.
+		Random random = new Random(1);
+		BoxTree<Integer> tree = new BoxTree<>();
+		Map<Integer, double[]> boxes = new HashMap<>();
+		int nextItem = 0;
+		for (int i = 0; i < 20000; ++i)
+		{
+			double action = random.nextDouble();
+			List<Integer> items = new ArrayList<>(boxes.keySet());
+			if (action < 0.4 || items.isEmpty())
+			{
+				double[] bounds = randomBox(random);
+				tree.put(nextItem, bounds);
+				boxes.put(nextItem, bounds);
+				++nextItem;
+			}
+			else if (action < 0.55)
+			{
+				// Small moves mostly stay within the enlarged box of the leaf.
+				Integer item = items.get(random.nextInt(items.size()));
+				double[] bounds = boxes.get(item).clone();
+				double size = bounds[1] - bounds[0];
+				for (int k = 0; k < 3; ++k)
+				{
+					double shift = 0.02 * size * (2. * random.nextDouble() - 1.);
+					bounds[2 * k] += shift;
+					bounds[2 * k + 1] += shift;
+				}
+				tree.put(item, bounds);
+				boxes.put(item, bounds);
+			}
+			else if (action < 0.7)
+			{
+				Integer item = items.get(random.nextInt(items.size()));
+				double[] bounds = randomBox(random);
+				tree.put(item, bounds);
+				boxes.put(item, bounds);
+			}
+			else if (action < 0.75)
+			{
+				// Empty bounds remove the item.
+				Integer item = items.get(random.nextInt(items.size()));
+				tree.put(item, new double[] { 1., 0., 1., 0., 1., 0. });
+				boxes.remove(item);
+			}
+			else
+			{
+				Integer item = items.get(random.nextInt(items.size()));
+				assertTrue(tree.remove(item));
+				boxes.remove(item);
+			}
+
+			assertEquals(boxes.size(), tree.size());
+			if (i % 100 == 0)
+			{
+				for (int j = 0; j < 20; ++j)
+				{
+					double[] query = randomBox(random);
+					assertEquals(findOverlapping(boxes, query), sorted(tree.findOverlapping(query)));
+				}
+				assertTrue(tree.getHeight() <= maxHeight(tree.size()), "height " + tree.getHeight() + " of " + tree.size() + " items");
+			}
+		}
+
+		for (Integer item : boxes.keySet())
+		{
+			assertTrue(tree.contains(item));
+		}
+		assertFalse(tree.remove(nextItem));
+		assertFalse(tree.contains(nextItem));
+	}
+
+	@Test
+	void testSortedInsertions()
+	{
+		// Boxes inserted in order along a line, which would make an unbalanced tree degenerate into a list.
+		BoxTree<Integer> tree = new BoxTree<>();
+		Map<Integer, double[]> boxes = new HashMap<>();
+		for (int i = 0; i < 4096; ++i)
+		{
+			double[] bounds = { i, i + 0.5, 0., 0.5, 0., 0.5 };
+			tree.put(i, bounds);
+			boxes.put(i, bounds);
+			assertTrue(tree.getHeight() <= maxHeight(tree.size()), "height " + tree.getHeight() + " of " + tree.size() + " items");
+		}
+
+		double[] query = { 100.25, 200.25, 0.1, 0.2, 0.1, 0.2 };
+		assertEquals(findOverlapping(boxes, query), sorted(tree.findOverlapping(query)));
+
+		// Remove every other box, then the rest in order.
+		for (int i = 0; i < 4096; i += 2)
+		{
+			tree.remove(i);
+			boxes.remove(i);
+			assertTrue(tree.getHeight() <= maxHeight(tree.size()), "height " + tree.getHeight() + " of " + tree.size() + " items");
+		}
+		assertEquals(findOverlapping(boxes, query), sorted(tree.findOverlapping(query)));
+
+		for (int i = 1; i < 4096; i += 2)
+		{
+			tree.remove(i);
+			assertTrue(tree.getHeight() <= maxHeight(tree.size()), "height " + tree.getHeight() + " of " + tree.size() + " items");
+		}
+		assertEquals(0, tree.size());
+		assertEquals(0, tree.getHeight());
+		assertTrue(tree.findOverlapping(query).isEmpty());
+	}
+
+	@Test
+	void testTouchingBoxes()
+	{
+		// Boxes that only touch overlap, but the enlarged box of a leaf does not count.
+		BoxTree<String> tree = new BoxTree<>();
+		tree.put("a", new double[] { 0., 1., 0., 1., 0., 1. });
+		tree.put("b", new double[] { 2., 3., 0., 1., 0., 1. });
+
+		assertEquals(List.of("a"), tree.findOverlapping(new double[] { 1., 1.5, 0., 1., 0., 1. }));
+		assertTrue(tree.findOverlapping(new double[] { 1.01, 1.99, 0., 1., 0., 1. }).isEmpty());
+		assertTrue(tree.findOverlapping(new double[] { 1., 0., 0., 1., 0., 1. }).isEmpty());
+
+		tree.clear();
+		assertEquals(0, tree.size());
+		assertTrue(tree.findOverlapping(new double[] { 0., 3., 0., 1., 0., 1. }).isEmpty());
+	}
+
+	/**
+	 * Return the largest height of a tree of the specified number of leaves in which the heights of the children of
+	 * every node differ by at most one.
+	 */
+	private static int maxHeight(int numberItems)
+	{
+		int numberNodes = Math.max(2 * numberItems - 1, 1);
+		return (int) Math.floor(1.4405 * Math.log(numberNodes + 2) / Math.log(2.) - 0.3277);
+	}
+
+	private static double[] randomBox(Random random)
+	{
+		double size = 0.2 * random.nextDouble();
+		double[] bounds = new double[6];
+		for (int k = 0; k < 3; ++k)
+		{
+			bounds[2 * k] = 2. * random.nextDouble() - 1.;
+			bounds[2 * k + 1] = bounds[2 * k] + size * (0.5 + random.nextDouble());
+		}
+
+		return bounds;
+	}
+
+	private static List<Integer> findOverlapping(Map<Integer, double[]> boxes, double[] query)
+	{
+		List<Integer> result = new ArrayList<>();
+		for (Map.Entry<Integer, double[]> entry : boxes.entrySet())
+		{
+			double[] bounds = entry.getValue();
+			boolean overlaps = true;
+			for (int k = 0; k < 3; ++k)
+			{
+				if (bounds[2 * k] > query[2 * k + 1] || query[2 * k] > bounds[2 * k + 1])
+					overlaps = false;
+			}
+			if (overlaps)
+				result.add(entry.getKey());
+		}
+
+		return sorted(result);
+	}
+
+	private static List<Integer> sorted(List<Integer> items)
+	{
+		List<Integer> result = new ArrayList<>(items);
+		result.sort(null);
+
+		return result;
+	}
+}
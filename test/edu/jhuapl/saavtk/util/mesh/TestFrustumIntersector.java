@@ -0,0 +1,171 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.saavtk.util.PolyDataUtil;
+import vtk.vtkDataArray;
+import vtk.vtkPointLocator;
+import vtk.vtkPolyData;
+import vtk.vtksbCellLocator;
+
+class TestFrustumIntersector
+{
+	private static vtkPolyData sphere;
+	private static vtksbCellLocator cellLocator;
+	private static vtkPointLocator pointLocator;
+	private static FrustumIntersector intersector;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		MeshTestUtil.loadVtk();
+
+		sphere = MeshTestUtil.createSphere(80);
+		cellLocator = MeshTestUtil.createCellLocator(sphere);
+		pointLocator = MeshTestUtil.createPointLocator(sphere);
+		intersector = FrustumIntersector.of(sphere);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		pointLocator.Delete();
+		cellLocator.Delete();
+		sphere.Delete();
+	}
+
+	@Test
+	void testFootprintMatchesClipping()
+	{
+		// Frusta of several widths from several directions. None reaches the limb, so no cell is partly hidden and
+		// the two footprints cover exactly the same part of the surface.
+		double[][] origins = { { 3., 0., 0. }, { 0., -3., 0.5 }, { 1., 2., 2. } };
+		double[] halfAngles = { 2., 5., 10. };
+		for (double[] origin : origins)
+		{
+			for (double halfAngle : halfAngles)
+			{
+				double[][] f = createFrustum(origin, halfAngle);
+				vtkPolyData vtkFootprint = PolyDataUtil.computeFrustumIntersection(sphere, cellLocator, pointLocator, f[0], f[1], f[2], f[3], f[4]);
+				vtkPolyData footprint = intersector.computeFrustumIntersection(f[0], f[1], f[2], f[3], f[4]);
+
+				double vtkArea = PolyDataUtil.computeSurfaceArea(vtkFootprint);
+				assertTrue(vtkArea > 0.);
+				assertEquals(vtkArea, PolyDataUtil.computeSurfaceArea(footprint), 1.e-6 * vtkArea);
+
+				double[] vtkBounds = vtkFootprint.GetBounds();
+				double[] bounds = footprint.GetBounds();
+				for (int k = 0; k < 6; ++k)
+				{
+					assertEquals(vtkBounds[k], bounds[k], 1.e-6);
+				}
+
+				vtkFootprint.Delete();
+				footprint.Delete();
+			}
+		}
+	}
+
+	@Test
+	void testPointDataMatchesClipping()
+	{
+		// The normals at the points created by clipping are interpolated as by vtkClipPolyData. Every point of the
+		// footprint is also a point of the VTK footprint, although not with the same id.
+		double[][] f = createFrustum(new double[] { 1., 2., 2. }, 5.);
+		vtkPolyData vtkFootprint = PolyDataUtil.computeFrustumIntersection(sphere, cellLocator, pointLocator, f[0], f[1], f[2], f[3], f[4]);
+		vtkPolyData footprint = intersector.computeFrustumIntersection(f[0], f[1], f[2], f[3], f[4]);
+
+		vtkDataArray vtkNormals = vtkFootprint.GetPointData().GetNormals();
+		vtkDataArray normals = footprint.GetPointData().GetNormals();
+		assertNotNull(normals);
+		assertEquals(footprint.GetNumberOfPoints(), normals.GetNumberOfTuples());
+
+		vtkPointLocator footprintLocator = MeshTestUtil.createPointLocator(vtkFootprint);
+		for (int pointId = 0; pointId < footprint.GetNumberOfPoints(); ++pointId)
+		{
+			double[] point = footprint.GetPoint(pointId);
+			int vtkPointId = (int) footprintLocator.FindClosestPoint(point);
+			assertEquals(0., MeshTestUtil.distance2(point, vtkFootprint.GetPoint(vtkPointId)), 1.e-12);
+
+			double[] vtkNormal = vtkNormals.GetTuple3(vtkPointId);
+			double[] normal = normals.GetTuple3(pointId);
+			for (int k = 0; k < 3; ++k)
+			{
+				assertEquals(vtkNormal[k], normal[k], 1.e-6);
+			}
+		}
+
+		footprintLocator.Delete();
+		vtkFootprint.Delete();
+		footprint.Delete();
+	}
+
+	@Test
+	void testFootprintMissingBody()
+	{
+		// A frustum that looks away from the body.
+		double[][] f = createFrustum(new double[] { 3., 0., 0. }, 5.);
+		for (int corner = 1; corner < 5; ++corner)
+		{
+			f[corner][0] = -f[corner][0];
+		}
+
+		assertNull(intersector.computeFrustumIntersection(f[0], f[1], f[2], f[3], f[4]));
+	}
+
+	/**
+	 * Return a square frustum at the specified origin aimed at the center of the body, packed as origin, ul, ur, lr,
+	 * ll.
+	 */
+	static double[][] createFrustum(double[] origin, double halfAngle)
+	{
+		double[] boresight = new double[3];
+		for (int k = 0; k < 3; ++k)
+		{
+			boresight[k] = -origin[k];
+		}
+		normalize(boresight);
+
+		// Two unit vectors perpendicular to the boresight and each other.
+		double[] up = cross(boresight, Math.abs(boresight[2]) < 0.9 ? new double[] { 0., 0., 1. } : new double[] { 1., 0., 0. });
+		normalize(up);
+		double[] side = cross(boresight, up);
+
+		double halfWidth = Math.tan(Math.toRadians(halfAngle));
+		double[] ul = new double[3];
+		double[] ur = new double[3];
+		double[] lr = new double[3];
+		double[] ll = new double[3];
+		for (int k = 0; k < 3; ++k)
+		{
+			ul[k] = boresight[k] + halfWidth * (up[k] - side[k]);
+			ur[k] = boresight[k] + halfWidth * (up[k] + side[k]);
+			lr[k] = boresight[k] + halfWidth * (-up[k] + side[k]);
+			ll[k] = boresight[k] + halfWidth * (-up[k] - side[k]);
+		}
+		normalize(ul);
+		normalize(ur);
+		normalize(lr);
+		normalize(ll);
+
+		return new double[][] { origin.clone(), ul, ur, lr, ll };
+	}
+
+	private static double[] cross(double[] a, double[] b)
+	{
+		return new double[] { a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0] };
+	}
+
+	private static void normalize(double[] v)
+	{
+		double length = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+		for (int k = 0; k < 3; ++k)
+		{
+			v[k] /= length;
+		}
+	}
+}
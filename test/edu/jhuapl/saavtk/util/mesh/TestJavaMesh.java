@@ -0,0 +1,188 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import vtk.vtkClipPolyData;
+import vtk.vtkDataArray;
+import vtk.vtkIdList;
+import vtk.vtkMassProperties;
+import vtk.vtkPlane;
+import vtk.vtkPlaneSource;
+import vtk.vtkPolyData;
+import vtk.vtkPolyDataNormals;
+import vtk.vtkTriangleFilter;
+
+class TestJavaMesh
+{
+	private static vtkPolyData sphere;
+	private static JavaMesh mesh;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		MeshTestUtil.loadVtk();
+
+		sphere = MeshTestUtil.createSphere(40);
+		mesh = JavaMesh.of(sphere);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		sphere.Delete();
+	}
+
+	@Test
+	void testCounts()
+	{
+		assertEquals(sphere.GetNumberOfPoints(), mesh.getNumberOfVertices());
+		assertEquals(sphere.GetNumberOfCells(), mesh.getNumberOfTriangles());
+		for (int cellId = 0; cellId < mesh.getNumberOfTriangles(); ++cellId)
+		{
+			assertEquals(cellId, mesh.getFirstTriangle(cellId));
+			assertEquals(cellId, mesh.getCellId(cellId));
+		}
+		assertEquals(-1, mesh.getFirstTriangle(mesh.getNumberOfTriangles()));
+	}
+
+	@Test
+	void testMassProperties()
+	{
+		vtkMassProperties massProperties = new vtkMassProperties();
+		massProperties.SetInputData(sphere);
+		massProperties.Update();
+
+		assertEquals(massProperties.GetSurfaceArea(), mesh.getSurfaceArea(), 1.e-10);
+		assertEquals(massProperties.GetVolume(), mesh.computeVolume(), 1.e-10);
+		assertEquals(massProperties.GetMinCellArea(), mesh.computeAreaStatistics()[0], 1.e-12);
+		assertEquals(massProperties.GetMaxCellArea(), mesh.computeAreaStatistics()[1], 1.e-12);
+
+		massProperties.Delete();
+	}
+
+	@Test
+	void testMassPropertiesOfOpenPatch()
+	{
+		// An open cap of the sphere, tilted so that its normals are not mostly along
+		// one axis, like a DTM patch.
+		vtkPlane plane = new vtkPlane();
+		plane.SetOrigin(0.3, 0.2, 0.1);
+		plane.SetNormal(1., 1., 0.5);
+		vtkClipPolyData clipper = new vtkClipPolyData();
+		clipper.SetInputData(sphere);
+		clipper.SetClipFunction(plane);
+		vtkTriangleFilter triangleFilter = new vtkTriangleFilter();
+		triangleFilter.SetInputConnection(clipper.GetOutputPort());
+		triangleFilter.Update();
+		vtkPolyData patch = triangleFilter.GetOutput();
+
+		vtkMassProperties massProperties = new vtkMassProperties();
+		massProperties.SetInputData(patch);
+		massProperties.Update();
+
+		JavaMesh patchMesh = JavaMesh.of(patch);
+		assertEquals(massProperties.GetSurfaceArea(), patchMesh.getSurfaceArea(), 1.e-10);
+		assertEquals(massProperties.GetVolume(), patchMesh.computeVolume(), 1.e-10);
+
+		massProperties.Delete();
+		triangleFilter.Delete();
+		clipper.Delete();
+		plane.Delete();
+	}
+
+	@Test
+	void testEdgeLengthsOfQuads()
+	{
+		// Unit squares, whose diagonals are not sides.
+		vtkPlaneSource planeSource = new vtkPlaneSource();
+		planeSource.SetOrigin(0., 0., 0.);
+		planeSource.SetPoint1(4., 0., 0.);
+		planeSource.SetPoint2(0., 2., 0.);
+		planeSource.SetResolution(4, 2);
+		planeSource.Update();
+
+		JavaMesh quadMesh = JavaMesh.of(planeSource.GetOutput());
+		assertEquals(16, quadMesh.getNumberOfTriangles());
+		assertArrayEquals(new double[] { 1., 1., 1. }, quadMesh.computeEdgeLengthStatistics(), 1.e-12);
+
+		planeSource.Delete();
+	}
+
+	@Test
+	void testFaceNormals()
+	{
+		vtkPolyDataNormals normalsFilter = new vtkPolyDataNormals();
+		normalsFilter.SetInputData(sphere);
+		normalsFilter.ComputeCellNormalsOn();
+		normalsFilter.ComputePointNormalsOff();
+		normalsFilter.SplittingOff();
+		normalsFilter.ConsistencyOff();
+		normalsFilter.AutoOrientNormalsOff();
+		normalsFilter.Update();
+		vtkPolyData output = normalsFilter.GetOutput();
+		vtkDataArray cellNormals = output.GetCellData().GetNormals();
+
+		double[] normal = new double[3];
+		for (int tri = 0; tri < mesh.getNumberOfTriangles(); ++tri)
+		{
+			double[] vtkNormal = cellNormals.GetTuple3(tri);
+			mesh.getFaceNormal(tri, normal);
+			for (int k = 0; k < 3; ++k)
+			{
+				assertEquals(vtkNormal[k], normal[k], 1.e-6);
+			}
+		}
+
+		normalsFilter.Delete();
+	}
+
+	@Test
+	void testNeighbors()
+	{
+		vtkPolyData linkedSphere = new vtkPolyData();
+		linkedSphere.DeepCopy(sphere);
+		linkedSphere.BuildLinks();
+
+		int[] triangle = new int[3];
+		vtkIdList neighborIL = new vtkIdList();
+		for (int tri = 0; tri < mesh.getNumberOfTriangles(); ++tri)
+		{
+			mesh.getTriangle(tri, triangle);
+			for (int edge = 0; edge < 3; ++edge)
+			{
+				linkedSphere.GetCellEdgeNeighbors(tri, triangle[edge], triangle[(edge + 1) % 3], neighborIL);
+
+				// The sphere is closed and manifold: every edge has exactly one neighbor.
+				assertEquals(1, neighborIL.GetNumberOfIds());
+				assertEquals(neighborIL.GetId(0), mesh.getNeighbor(tri, edge));
+			}
+		}
+
+		neighborIL.Delete();
+		linkedSphere.Delete();
+	}
+
+	@Test
+	void testVertexTriangles()
+	{
+		int[] triangle = new int[3];
+		int[] useCounts = new int[mesh.getNumberOfVertices()];
+		for (int tri = 0; tri < mesh.getNumberOfTriangles(); ++tri)
+		{
+			mesh.getTriangle(tri, triangle);
+			for (int vertex : triangle)
+			{
+				++useCounts[vertex];
+			}
+		}
+
+		for (int vertex = 0; vertex < mesh.getNumberOfVertices(); ++vertex)
+		{
+			assertEquals(useCounts[vertex], mesh.getVertexTriangles(vertex).remaining());
+		}
+	}
+}
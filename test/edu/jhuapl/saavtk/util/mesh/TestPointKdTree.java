@@ -0,0 +1,125 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkIdList;
+import vtk.vtkPointLocator;
+import vtk.vtkPolyData;
+
+class TestPointKdTree
+{
+	private static vtkPolyData sphere;
+	private static vtkPointLocator pointLocator;
+	private static double[] points;
+	private static PointKdTree vertexTree;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		MeshTestUtil.loadVtk();
+
+		sphere = MeshTestUtil.createSphere(40);
+		pointLocator = MeshTestUtil.createPointLocator(sphere);
+		points = VtkArrayUtil.getPoints(sphere.GetPoints());
+		vertexTree = PointKdTree.of(points);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		pointLocator.Delete();
+		sphere.Delete();
+	}
+
+	@Test
+	void testNumberOfPoints()
+	{
+		assertEquals(sphere.GetNumberOfPoints(), vertexTree.getNumberOfPoints());
+	}
+
+	@Test
+	void testFindClosestPoint()
+	{
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; ++i)
+		{
+			double[] location = MeshTestUtil.randomPoint(random, 0.5);
+			int vtkId = (int) pointLocator.FindClosestPoint(location);
+			int id = vertexTree.findClosestPoint(location[0], location[1], location[2]);
+
+			// Ties may be broken differently, so compare the distances.
+			assertEquals(distance2(location, vtkId), distance2(location, id), 1.e-12);
+		}
+	}
+
+	@Test
+	void testFindClosestPoints()
+	{
+		Random random = new Random(2);
+		int count = 20;
+		int[] ids = new int[count];
+		vtkIdList vtkIdL = new vtkIdList();
+		for (int i = 0; i < 200; ++i)
+		{
+			double[] location = MeshTestUtil.randomPoint(random, 0.5);
+			pointLocator.FindClosestNPoints(count, location, vtkIdL);
+			int numberFound = vertexTree.findClosestPoints(location[0], location[1], location[2], count, ids);
+			assertEquals(vtkIdL.GetNumberOfIds(), numberFound);
+
+			double[] vtkDistances = new double[numberFound];
+			double[] distances = new double[numberFound];
+			for (int j = 0; j < numberFound; ++j)
+			{
+				vtkDistances[j] = distance2(location, (int) vtkIdL.GetId(j));
+				distances[j] = distance2(location, ids[j]);
+			}
+			Arrays.sort(vtkDistances);
+
+			// The ids are returned nearest first.
+			for (int j = 0; j < numberFound; ++j)
+			{
+				assertEquals(vtkDistances[j], distances[j], 1.e-12);
+			}
+		}
+		vtkIdL.Delete();
+	}
+
+	@Test
+	void testFindClosestPointsBatch()
+	{
+		Random random = new Random(3);
+		int numberLocations = 500;
+		double[] locations = new double[3 * numberLocations];
+		for (int i = 0; i < numberLocations; ++i)
+		{
+			System.arraycopy(MeshTestUtil.randomPoint(random, 0.5), 0, locations, 3 * i, 3);
+		}
+
+		int[] ids = vertexTree.findClosestPoints(locations);
+		for (int i = 0; i < numberLocations; ++i)
+		{
+			assertEquals(vertexTree.findClosestPoint(locations[3 * i], locations[3 * i + 1], locations[3 * i + 2]), ids[i]);
+		}
+	}
+
+	@Test
+	void testEmptyTree()
+	{
+		PointKdTree emptyTree = PointKdTree.of(new double[0]);
+		assertEquals(-1, emptyTree.findClosestPoint(0., 0., 0.));
+		assertEquals(0, emptyTree.findClosestPoints(0., 0., 0., 5, new int[5]));
+	}
+
+	private static double distance2(double[] location, int id)
+	{
+		return MeshTestUtil.distance2(location, Arrays.copyOfRange(points, 3 * id, 3 * id + 3));
+	}
+}
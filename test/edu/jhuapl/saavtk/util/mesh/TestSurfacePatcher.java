@@ -0,0 +1,128 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.saavtk.util.PolyDataUtil;
+import edu.jhuapl.saavtk.vtk.VtkArrayUtil;
+import vtk.vtkPointLocator;
+import vtk.vtkPolyData;
+
+class TestSurfacePatcher
+{
+	private static vtkPolyData sphere;
+	private static vtkPointLocator pointLocator;
+	private static JavaMesh mesh;
+	private static SurfacePatcher patcher;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		MeshTestUtil.loadVtk();
+
+		sphere = MeshTestUtil.createSphere(40);
+		pointLocator = MeshTestUtil.createPointLocator(sphere);
+		mesh = JavaMesh.of(sphere);
+
+		double[] normals = VtkArrayUtil.getValues(sphere.GetPointData().GetNormals());
+		PointKdTree vertexTree = PointKdTree.of(VtkArrayUtil.getPoints(sphere.GetPoints()));
+		patcher = SurfacePatcher.of(mesh, TriangleBvh.of(sphere), vertexTree, normals);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		pointLocator.Delete();
+		sphere.Delete();
+	}
+
+	@Test
+	void testNormalAtPoint()
+	{
+		Random random = new Random(1);
+		for (int i = 0; i < 200; ++i)
+		{
+			double[] point = MeshTestUtil.randomPoint(random, 0.1);
+			double[] vtkNormal = PolyDataUtil.getPolyDataNormalAtPoint(point, sphere, pointLocator);
+			double[] normal = patcher.getNormalAtPoint(point, 20);
+			for (int k = 0; k < 3; ++k)
+			{
+				assertEquals(vtkNormal[k], normal[k], 1.e-6);
+			}
+		}
+	}
+
+	@Test
+	void testShiftAlongNormals()
+	{
+		Random random = new Random(2);
+		double[] points = new double[300];
+		for (int i = 0; i < points.length; i += 3)
+		{
+			System.arraycopy(MeshTestUtil.randomPoint(random, 0.1), 0, points, i, 3);
+		}
+		double[] shiftedPoints = points.clone();
+		patcher.shiftAlongNormals(shiftedPoints, 0.01);
+
+		double[] vtkNormals = VtkArrayUtil.getValues(sphere.GetPointData().GetNormals());
+		for (int i = 0; i < points.length; i += 3)
+		{
+			int vertex = (int) pointLocator.FindClosestPoint(Arrays.copyOfRange(points, i, i + 3));
+			for (int k = 0; k < 3; ++k)
+			{
+				assertEquals(points[i + k] + 0.01 * vtkNormals[3 * vertex + k], shiftedPoints[i + k], 1.e-12);
+			}
+		}
+	}
+
+	@Test
+	void testFindCellsNear()
+	{
+		Random random = new Random(3);
+		int[] triangle = new int[3];
+		double[] vertex = new double[3];
+		for (int i = 0; i < 100; ++i)
+		{
+			double[] point = MeshTestUtil.randomPoint(random, 0.);
+			double radius = 0.2 * random.nextDouble();
+			int[] cellIds = patcher.findCellsNear(point, radius);
+
+			// Every cell with a vertex inside the ball is found.
+			for (int tri = 0; tri < mesh.getNumberOfTriangles(); ++tri)
+			{
+				mesh.getTriangle(tri, triangle);
+				for (int corner : triangle)
+				{
+					mesh.getVertex(corner, vertex);
+					if (MeshTestUtil.distance2(point, vertex) < radius * radius)
+						assertTrue(Arrays.binarySearch(cellIds, tri) >= 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testCreatePatch()
+	{
+		int[] cellIds = patcher.findCellsNear(new double[] { 1., 0., 0. }, 0.3);
+		vtkPolyData patch = patcher.createPatch(cellIds);
+
+		assertEquals(cellIds.length, patch.GetNumberOfCells());
+		assertEquals(patch.GetNumberOfPoints(), patch.GetPointData().GetNormals().GetNumberOfTuples());
+
+		double area = 0.;
+		for (int cellId : cellIds)
+		{
+			area += mesh.getFaceArea(cellId);
+		}
+		assertEquals(area, PolyDataUtil.computeSurfaceArea(patch), 1.e-9 * area);
+
+		patch.Delete();
+	}
+}
@@ -0,0 +1,141 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.saavtk.vtk.VtkDrawUtil;
+import vtk.vtkCellArray;
+import vtk.vtkGenericCell;
+import vtk.vtkIdList;
+import vtk.vtkPointLocator;
+import vtk.vtkPolyData;
+import vtk.vtksbCellLocator;
+
+class TestSurfacePathTracer
+{
+	// The tracer orients the cutting plane with the normals of the end cells, VTK with the mean normal at the 20
+	// closest vertices, so the two paths are cut by slightly different planes.
+	private static final double LengthTolerance = 0.02;
+
+	private static vtkPolyData sphere;
+	private static vtkPointLocator pointLocator;
+	private static vtksbCellLocator cellLocator;
+	private static SurfacePathTracer tracer;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		MeshTestUtil.loadVtk();
+
+		sphere = MeshTestUtil.createSphere(60);
+		pointLocator = MeshTestUtil.createPointLocator(sphere);
+		cellLocator = MeshTestUtil.createCellLocator(sphere);
+		tracer = SurfacePathTracer.of(JavaMesh.of(sphere), TriangleBvh.of(sphere));
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		cellLocator.Delete();
+		pointLocator.Delete();
+		sphere.Delete();
+	}
+
+	@Test
+	void testTraceMatchesCutter()
+	{
+		Random random = new Random(1);
+		vtkGenericCell genericCell = new vtkGenericCell();
+		double[] closestPoint = new double[3];
+		long[] cellId = new long[1];
+		int[] subId = new int[1];
+		double[] dist2 = new double[1];
+
+		for (int i = 0; i < 50; ++i)
+		{
+			double[] begin = MeshTestUtil.randomPoint(random, 0.);
+			double[] end = MeshTestUtil.randomPoint(random, 0.);
+			for (int k = 0; k < 3; ++k)
+			{
+				end[k] = begin[k] + 0.3 * (end[k] - begin[k]);
+			}
+
+			double[] path = tracer.trace(begin, end);
+			assertNotNull(path);
+
+			vtkPolyData vtkPath = VtkDrawUtil.drawPathPolyOn(sphere, pointLocator, new Vector3D(begin), new Vector3D(end));
+			double vtkLength = getLength(vtkPath);
+			vtkPath.Delete();
+
+			double length = 0.;
+			for (int p = 3; p < path.length; p += 3)
+			{
+				length += Math.sqrt(MeshTestUtil.distance2(Arrays.copyOfRange(path, p - 3, p), Arrays.copyOfRange(path, p, p + 3)));
+			}
+			assertEquals(vtkLength, length, LengthTolerance * vtkLength);
+
+			// The path lies on the surface and runs from begin to end.
+			for (int p = 0; p < path.length; p += 3)
+			{
+				cellLocator.FindClosestPoint(Arrays.copyOfRange(path, p, p + 3), closestPoint, genericCell, cellId, subId, dist2);
+				assertEquals(0., dist2[0], 1.e-12);
+			}
+			assertTrue(MeshTestUtil.distance2(begin, Arrays.copyOfRange(path, 0, 3)) < 1.e-3);
+			assertTrue(MeshTestUtil.distance2(end, Arrays.copyOfRange(path, path.length - 3, path.length)) < 1.e-3);
+		}
+		genericCell.Delete();
+	}
+
+	@Test
+	void testTraceAll()
+	{
+		Random random = new Random(2);
+		int numberPaths = 20;
+		double[] begins = new double[3 * numberPaths];
+		double[] ends = new double[3 * numberPaths];
+		for (int i = 0; i < numberPaths; ++i)
+		{
+			System.arraycopy(MeshTestUtil.randomPoint(random, 0.), 0, begins, 3 * i, 3);
+			System.arraycopy(MeshTestUtil.randomPoint(random, 0.), 0, ends, 3 * i, 3);
+			for (int k = 0; k < 3; ++k)
+			{
+				ends[3 * i + k] = begins[3 * i + k] + 0.3 * (ends[3 * i + k] - begins[3 * i + k]);
+			}
+		}
+
+		double[][] paths = tracer.traceAll(begins, ends);
+		for (int i = 0; i < numberPaths; ++i)
+		{
+			double[] path = tracer.trace(Arrays.copyOfRange(begins, 3 * i, 3 * i + 3), Arrays.copyOfRange(ends, 3 * i, 3 * i + 3));
+			assertArrayEquals(path, paths[i]);
+		}
+	}
+
+	/**
+	 * Return the total length of the line segments of a polydata.
+	 */
+	private static double getLength(vtkPolyData polyData)
+	{
+		double result = 0.;
+		vtkCellArray lines = polyData.GetLines();
+		vtkIdList idL = new vtkIdList();
+		lines.InitTraversal();
+		while (lines.GetNextCell(idL) != 0)
+		{
+			for (int i = 1; i < idL.GetNumberOfIds(); ++i)
+			{
+				result += Math.sqrt(MeshTestUtil.distance2(polyData.GetPoint(idL.GetId(i - 1)), polyData.GetPoint(idL.GetId(i))));
+			}
+		}
+		idL.Delete();
+
+		return result;
+	}
+}
@@ -0,0 +1,144 @@
+package edu.jhuapl.saavtk.util.mesh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import vtk.vtkGenericCell;
+import vtk.vtkPolyData;
+import vtk.vtksbCellLocator;
+
+class TestTriangleBvh
+{
+	private static vtkPolyData sphere;
+	private static vtksbCellLocator cellLocator;
+	private static TriangleBvh searchTree;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		MeshTestUtil.loadVtk();
+
+		sphere = MeshTestUtil.createSphere(40);
+		cellLocator = MeshTestUtil.createCellLocator(sphere);
+		searchTree = TriangleBvh.of(sphere);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+		cellLocator.Delete();
+		sphere.Delete();
+	}
+
+	@Test
+	void testNumberOfTriangles()
+	{
+		assertEquals(sphere.GetNumberOfCells(), searchTree.getNumberOfTriangles());
+	}
+
+	@Test
+	void testFindClosestCell()
+	{
+		Random random = new Random(1);
+		vtkGenericCell genericCell = new vtkGenericCell();
+		double[] vtkPoint = new double[3];
+		long[] vtkCellId = new long[1];
+		int[] subId = new int[1];
+		double[] dist2 = new double[1];
+		double[] closestPoint = new double[3];
+
+		for (int i = 0; i < 1000; ++i)
+		{
+			double[] point = MeshTestUtil.randomPoint(random, 0.5);
+			cellLocator.FindClosestPoint(point, vtkPoint, genericCell, vtkCellId, subId, dist2);
+			int cellId = searchTree.findClosestCell(point, closestPoint);
+
+			// Points on shared edges may be reported for either cell, so compare the distances.
+			assertTrue(cellId >= 0);
+			assertEquals(dist2[0], MeshTestUtil.distance2(point, closestPoint), 1.e-12);
+			if (cellId != vtkCellId[0])
+				assertEquals(0., MeshTestUtil.distance2(vtkPoint, closestPoint), 1.e-12);
+		}
+		genericCell.Delete();
+	}
+
+	@Test
+	void testFindClosestCells()
+	{
+		Random random = new Random(2);
+		int numberPoints = 500;
+		double[] points = new double[3 * numberPoints];
+		for (int i = 0; i < numberPoints; ++i)
+		{
+			System.arraycopy(MeshTestUtil.randomPoint(random, 0.5), 0, points, 3 * i, 3);
+		}
+
+		double[] closestPoints = new double[3 * numberPoints];
+		int[] cellIds = searchTree.findClosestCells(points, closestPoints);
+
+		double[] point = new double[3];
+		double[] closestPoint = new double[3];
+		for (int i = 0; i < numberPoints; ++i)
+		{
+			System.arraycopy(points, 3 * i, point, 0, 3);
+			assertEquals(searchTree.findClosestCell(point, closestPoint), cellIds[i]);
+			for (int k = 0; k < 3; ++k)
+			{
+				assertEquals(closestPoint[k], closestPoints[3 * i + k]);
+			}
+		}
+	}
+
+	@Test
+	void testIntersectRay()
+	{
+		Random random = new Random(3);
+		vtkGenericCell genericCell = new vtkGenericCell();
+		double[] t = new double[1];
+		double[] vtkPoint = new double[3];
+		double[] pcoords = new double[3];
+		int[] subId = new int[1];
+		long[] vtkCellId = new long[1];
+		double[] hitPoint = new double[3];
+
+		for (int i = 0; i < 1000; ++i)
+		{
+			// Segments from outside the sphere to a point inside of it, so all of them hit.
+			double[] direction = MeshTestUtil.randomPoint(random, 0.);
+			double[] target = MeshTestUtil.randomPoint(random, 0.);
+			double[] begin = new double[3];
+			double[] end = new double[3];
+			double[] delta = new double[3];
+			for (int k = 0; k < 3; ++k)
+			{
+				begin[k] = 3. * direction[k];
+				end[k] = 0.5 * target[k];
+				delta[k] = end[k] - begin[k];
+			}
+
+			int vtkResult = cellLocator.IntersectWithLine(begin, end, 1.e-6, t, vtkPoint, pcoords, subId, vtkCellId, genericCell);
+			int cellId = searchTree.intersectRay(begin, delta, 1., hitPoint);
+
+			assertEquals(1, vtkResult);
+			assertTrue(cellId >= 0);
+			assertEquals(0., MeshTestUtil.distance2(vtkPoint, hitPoint), 1.e-10);
+		}
+		genericCell.Delete();
+	}
+
+	@Test
+	void testMissingRay()
+	{
+		// A ray that passes beside the sphere.
+		double[] hitPoint = new double[3];
+		assertEquals(-1, searchTree.intersectRay(new double[] { 3., 2., 0. }, new double[] { -1., 0., 0. }, 10., hitPoint));
+
+		// A ray that stops before reaching the sphere.
+		assertEquals(-1, searchTree.intersectRay(new double[] { 3., 0., 0. }, new double[] { -1., 0., 0. }, 1., hitPoint));
+	}
+}